@@ -269,6 +269,7 @@ public final class CorePlugin extends SonarPlugin {
       IssueTrackingDecorator.class,
       IssueTracking.class,
       IssueHandlers.class,
+      IssuesStatisticsAggregator.class,
       CountUnresolvedIssuesDecorator.class,
       CountFalsePositivesDecorator.class,
       WeightedIssuesDecorator.class,
@@ -20,11 +20,7 @@
 package org.sonar.plugins.core.issue;
 
 import org.sonar.api.batch.*;
-import org.sonar.api.component.ResourcePerspectives;
-import org.sonar.api.issue.Issuable;
-import org.sonar.api.issue.Issue;
 import org.sonar.api.measures.CoreMetrics;
-import org.sonar.api.measures.MeasureUtils;
 import org.sonar.api.measures.Metric;
 import org.sonar.api.resources.Project;
 import org.sonar.api.resources.Resource;
@@ -37,10 +33,10 @@ import org.sonar.api.resources.Resource;
 @DependsUpon(DecoratorBarriers.END_OF_VIOLATION_TRACKING)
 public class CountFalsePositivesDecorator implements Decorator {
 
-  private final ResourcePerspectives perspectives;
+  private final IssuesStatisticsAggregator aggregator;
 
-  public CountFalsePositivesDecorator(ResourcePerspectives perspectives) {
-    this.perspectives = perspectives;
+  public CountFalsePositivesDecorator(IssuesStatisticsAggregator aggregator) {
+    this.aggregator = aggregator;
   }
 
   public boolean shouldExecuteOnProject(Project project) {
@@ -53,26 +49,12 @@ public class CountFalsePositivesDecorator implements Decorator {
   }
 
   public void decorate(Resource resource, DecoratorContext context) {
-    Issuable issuable = perspectives.as(Issuable.class, resource);
-    if (issuable != null) {
-      int falsePositives = 0;
-      for (Issue issue : issuable.resolvedIssues()) {
-        if (Issue.RESOLUTION_FALSE_POSITIVE.equals(issue.resolution())) {
-          falsePositives++;
-        }
-      }
-      saveMeasure(context, CoreMetrics.FALSE_POSITIVE_ISSUES, falsePositives);
+    IssuesStatistics statistics = aggregator.statistics(resource, context);
+    if (statistics != null) {
+      context.saveMeasure(CoreMetrics.FALSE_POSITIVE_ISSUES, (double) statistics.countFalsePositives());
     }
   }
 
-  private void saveMeasure(DecoratorContext context, Metric metric, int value) {
-    context.saveMeasure(metric, (double) (value + sumChildren(context, metric)));
-  }
-
-  private int sumChildren(DecoratorContext context, Metric metric) {
-    return MeasureUtils.sum(true, context.getChildrenMeasures(metric)).intValue();
-  }
-
   @Override
   public String toString() {
     return getClass().getSimpleName();
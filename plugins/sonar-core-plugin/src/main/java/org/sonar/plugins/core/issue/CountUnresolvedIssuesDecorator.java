@@ -19,26 +19,19 @@
  */
 package org.sonar.plugins.core.issue;
 
-import com.google.common.annotations.VisibleForTesting;
-import com.google.common.collect.*;
-import org.apache.commons.lang.time.DateUtils;
+import com.google.common.collect.ImmutableList;
 import org.sonar.api.batch.*;
-import org.sonar.api.component.ResourcePerspectives;
-import org.sonar.api.issue.Issuable;
-import org.sonar.api.issue.Issue;
 import org.sonar.api.measures.*;
 import org.sonar.api.resources.Project;
 import org.sonar.api.resources.Resource;
-import org.sonar.api.resources.ResourceUtils;
+import org.sonar.api.rule.RuleKey;
 import org.sonar.api.rules.Rule;
 import org.sonar.api.rules.RuleFinder;
 import org.sonar.api.rules.RulePriority;
 import org.sonar.batch.components.Period;
 import org.sonar.batch.components.TimeMachineConfiguration;
 
-import javax.annotation.Nullable;
-
-import java.util.*;
+import java.util.List;
 
 /**
  * Computes metrics related to number of issues.
@@ -48,12 +41,12 @@ import java.util.*;
 @DependsUpon(DecoratorBarriers.ISSUES_TRACKED)
 public class CountUnresolvedIssuesDecorator implements Decorator {
 
-  private final ResourcePerspectives perspectives;
+  private final IssuesStatisticsAggregator aggregator;
   private final RuleFinder rulefinder;
   private final TimeMachineConfiguration timeMachineConfiguration;
 
-  public CountUnresolvedIssuesDecorator(ResourcePerspectives perspectives, RuleFinder rulefinder, TimeMachineConfiguration timeMachineConfiguration) {
-    this.perspectives = perspectives;
+  public CountUnresolvedIssuesDecorator(IssuesStatisticsAggregator aggregator, RuleFinder rulefinder, TimeMachineConfiguration timeMachineConfiguration) {
+    this.aggregator = aggregator;
     this.rulefinder = rulefinder;
     this.timeMachineConfiguration = timeMachineConfiguration;
   }
@@ -84,197 +77,91 @@ public class CountUnresolvedIssuesDecorator implements Decorator {
   }
 
   public void decorate(Resource resource, DecoratorContext context) {
-    Issuable issuable = perspectives.as(Issuable.class, resource);
-    if (issuable != null) {
-      Collection<Issue> issues = issuable.issues();
+    IssuesStatistics statistics = aggregator.statistics(resource, context);
+    if (statistics != null) {
       boolean shouldSaveNewMetrics = shouldSaveNewMetrics(context);
 
-      Multiset<RulePriority> severityBag = HashMultiset.create();
-      Map<RulePriority, Multiset<Rule>> rulesPerSeverity = Maps.newHashMap();
-      ListMultimap<RulePriority, Issue> issuesPerSeverity = ArrayListMultimap.create();
-      int countOpen = 0;
-      int countReopened = 0;
-      int countConfirmed = 0;
-
-      for (Issue issue : issues) {
-        severityBag.add(RulePriority.valueOf(issue.severity()));
-        Multiset<Rule> rulesBag = initRules(rulesPerSeverity, RulePriority.valueOf(issue.severity()));
-        rulesBag.add(rulefinder.findByKey(issue.ruleKey().repository(), issue.ruleKey().rule()));
-        issuesPerSeverity.put(RulePriority.valueOf(issue.severity()), issue);
-
-        if (Issue.STATUS_OPEN.equals(issue.status())) {
-          countOpen++;
-        }
-        if (Issue.STATUS_REOPENED.equals(issue.status())) {
-          countReopened++;
-        }
-        if (Issue.STATUS_CONFIRMED.equals(issue.status())) {
-          countConfirmed++;
-        }
-      }
-
       for (RulePriority ruleSeverity : RulePriority.values()) {
-        saveIssuesForSeverity(context, ruleSeverity, severityBag);
-        saveIssuesPerRules(context, ruleSeverity, rulesPerSeverity);
-        saveNewIssuesForSeverity(context, ruleSeverity, issuesPerSeverity, shouldSaveNewMetrics);
-        saveNewIssuesPerRule(context, ruleSeverity, issues, shouldSaveNewMetrics);
+        saveIssuesForSeverity(context, ruleSeverity, statistics);
+        saveNewIssuesForSeverity(context, ruleSeverity, statistics, shouldSaveNewMetrics);
       }
+      saveIssuesPerRules(context, statistics, shouldSaveNewMetrics);
 
-      saveTotalIssues(context, issues);
-      saveNewIssues(context, issues, shouldSaveNewMetrics);
+      saveTotalIssues(context, statistics);
+      saveNewIssues(context, statistics, shouldSaveNewMetrics);
 
-      saveMeasure(context, CoreMetrics.OPEN_ISSUES, countOpen);
-      saveMeasure(context, CoreMetrics.REOPENED_ISSUES, countReopened);
-      saveMeasure(context, CoreMetrics.CONFIRMED_ISSUES, countConfirmed);
+      context.saveMeasure(CoreMetrics.OPEN_ISSUES, (double) statistics.countOpen());
+      context.saveMeasure(CoreMetrics.REOPENED_ISSUES, (double) statistics.countReopened());
+      context.saveMeasure(CoreMetrics.CONFIRMED_ISSUES, (double) statistics.countConfirmed());
     }
   }
 
-  private void saveTotalIssues(DecoratorContext context, Collection<Issue> issues) {
+  private void saveTotalIssues(DecoratorContext context, IssuesStatistics statistics) {
     if (context.getMeasure(CoreMetrics.VIOLATIONS) == null) {
-      Collection<Measure> childrenIssues = context.getChildrenMeasures(CoreMetrics.VIOLATIONS);
-      Double sum = MeasureUtils.sum(true, childrenIssues);
-      context.saveMeasure(CoreMetrics.VIOLATIONS, sum + issues.size());
+      context.saveMeasure(CoreMetrics.VIOLATIONS, (double) statistics.count());
     }
   }
 
-  private void saveNewIssues(DecoratorContext context, Collection<Issue> issues, boolean shouldSaveNewMetrics) {
+  private void saveNewIssues(DecoratorContext context, IssuesStatistics statistics, boolean shouldSaveNewMetrics) {
     if (shouldSaveNewMetrics) {
       Measure measure = new Measure(CoreMetrics.NEW_VIOLATIONS);
-      saveNewIssues(context, measure, issues);
+      for (Period period : timeMachineConfiguration.periods()) {
+        measure.setVariation(period.getIndex(), (double) statistics.countNew(period.getIndex()));
+      }
+      context.saveMeasure(measure);
     }
   }
 
-  private void saveIssuesForSeverity(DecoratorContext context, RulePriority ruleSeverity, Multiset<RulePriority> severitiesBag) {
+  private void saveIssuesForSeverity(DecoratorContext context, RulePriority ruleSeverity, IssuesStatistics statistics) {
     Metric metric = SeverityUtils.severityToIssueMetric(ruleSeverity);
     if (context.getMeasure(metric) == null) {
-      Collection<Measure> children = context.getChildrenMeasures(MeasuresFilters.metric(metric));
-      int sum = MeasureUtils.sum(true, children).intValue() + severitiesBag.count(ruleSeverity);
-      context.saveMeasure(metric, (double) sum);
+      context.saveMeasure(metric, (double) statistics.count(ruleSeverity));
     }
   }
 
-  private void saveNewIssuesForSeverity(DecoratorContext context, RulePriority severity, ListMultimap<RulePriority, Issue> issuesPerSeverities, boolean shouldSaveNewMetrics) {
+  private void saveNewIssuesForSeverity(DecoratorContext context, RulePriority severity, IssuesStatistics statistics, boolean shouldSaveNewMetrics) {
     if (shouldSaveNewMetrics) {
       Metric metric = SeverityUtils.severityToNewMetricIssue(severity);
       Measure measure = new Measure(metric);
-      saveNewIssues(context, measure, issuesPerSeverities.get(severity));
-    }
-  }
-
-  private void saveIssuesPerRules(DecoratorContext context, RulePriority severity, Map<RulePriority, Multiset<Rule>> rulesPerSeverity) {
-    Metric metric = SeverityUtils.severityToIssueMetric(severity);
-
-    Collection<Measure> children = context.getChildrenMeasures(MeasuresFilters.rules(metric));
-    for (Measure child : children) {
-      RuleMeasure childRuleMeasure = (RuleMeasure) child;
-      Rule rule = childRuleMeasure.getRule();
-      if (rule != null && MeasureUtils.hasValue(childRuleMeasure)) {
-        Multiset<Rule> rulesBag = initRules(rulesPerSeverity, severity);
-        rulesBag.add(rule, childRuleMeasure.getIntValue());
-      }
-    }
-
-    Multiset<Rule> rulesBag = rulesPerSeverity.get(severity);
-    if (rulesBag != null) {
-      for (Multiset.Entry<Rule> entry : rulesBag.entrySet()) {
-        RuleMeasure measure = RuleMeasure.createForRule(metric, entry.getElement(), (double) entry.getCount());
-        measure.setSeverity(severity);
-        context.saveMeasure(measure);
+      for (Period period : timeMachineConfiguration.periods()) {
+        measure.setVariation(period.getIndex(), (double) statistics.countNew(severity, period.getIndex()));
       }
+      context.saveMeasure(measure);
     }
   }
 
-  private void saveNewIssuesPerRule(DecoratorContext context, RulePriority severity, Collection<Issue> issues, boolean shouldSaveNewMetrics) {
-    if (shouldSaveNewMetrics) {
-      Metric metric = SeverityUtils.severityToNewMetricIssue(severity);
-      ListMultimap<Rule, Measure> childMeasuresPerRule = ArrayListMultimap.create();
-      ListMultimap<Rule, Issue> issuesPerRule = ArrayListMultimap.create();
-      Set<Rule> rules = Sets.newHashSet();
-
-      Collection<Measure> children = context.getChildrenMeasures(MeasuresFilters.rules(metric));
-      for (Measure child : children) {
-        RuleMeasure childRuleMeasure = (RuleMeasure) child;
-        Rule rule = childRuleMeasure.getRule();
-        if (rule != null) {
-          childMeasuresPerRule.put(rule, childRuleMeasure);
-          rules.add(rule);
+  private void saveIssuesPerRules(DecoratorContext context, IssuesStatistics statistics, boolean shouldSaveNewMetrics) {
+    for (RuleKey ruleKey : statistics.rules()) {
+      Rule rule = rulefinder.findByKey(ruleKey.repository(), ruleKey.rule());
+      if (rule != null) {
+        for (RulePriority severity : RulePriority.values()) {
+          int count = statistics.count(ruleKey, severity);
+          if (count > 0) {
+            saveIssuesPerRule(context, rule, severity, count);
+            saveNewIssuesPerRule(context, rule, severity, statistics, shouldSaveNewMetrics);
+          }
         }
       }
-
-      for (Issue issue : issues) {
-        if (RulePriority.valueOf(issue.severity()).equals(severity)) {
-          Rule rule = rulefinder.findByKey(issue.ruleKey().repository(), issue.ruleKey().rule());
-          rules.add(rule);
-          issuesPerRule.put(rule, issue);
-        }
-      }
-
-      for (Rule rule : rules) {
-        RuleMeasure measure = RuleMeasure.createForRule(metric, rule, null);
-        measure.setSeverity(severity);
-        for (Period period : timeMachineConfiguration.periods()) {
-          int variationIndex = period.getIndex();
-          double sum = MeasureUtils.sumOnVariation(true, variationIndex, childMeasuresPerRule.get(rule)) + countIssues(issuesPerRule.get(rule), period);
-          measure.setVariation(variationIndex, sum);
-        }
-        context.saveMeasure(measure);
-      }
     }
   }
 
-  private void saveNewIssues(DecoratorContext context, Measure measure, Collection<Issue> issues) {
-    for (Period period : timeMachineConfiguration.periods()) {
-      int variationIndex = period.getIndex();
-      Collection<Measure> children = context.getChildrenMeasures(measure.getMetric());
-      double sum = MeasureUtils.sumOnVariation(true, variationIndex, children) + countIssues(issues, period);
-      measure.setVariation(variationIndex, sum);
-    }
+  private void saveIssuesPerRule(DecoratorContext context, Rule rule, RulePriority severity, int count) {
+    Metric metric = SeverityUtils.severityToIssueMetric(severity);
+    RuleMeasure measure = RuleMeasure.createForRule(metric, rule, (double) count);
+    measure.setSeverity(severity);
     context.saveMeasure(measure);
   }
 
-  private void saveMeasure(DecoratorContext context, Metric metric, int value) {
-    context.saveMeasure(metric, (double) (value + sumChildren(context, metric)));
-  }
-
-  private int sumChildren(DecoratorContext context, Metric metric) {
-    int sum = 0;
-    if (!ResourceUtils.isFile(context.getResource())) {
-      sum = MeasureUtils.sum(true, context.getChildrenMeasures(metric)).intValue();
-    }
-    return sum;
-  }
-
-  private Multiset<Rule> initRules(Map<RulePriority, Multiset<Rule>> rulesPerSeverity, RulePriority severity) {
-    Multiset<Rule> rulesBag = rulesPerSeverity.get(severity);
-    if (rulesBag == null) {
-      rulesBag = HashMultiset.create();
-      rulesPerSeverity.put(severity, rulesBag);
-    }
-    return rulesBag;
-  }
-
-  private int countIssues(Collection<Issue> issues, Period period) {
-    // SONAR-3647 Use real snapshot date and not target date in order to stay consistent with other measure variations
-    Date datePlusOneSecond = period.getDate() != null ? DateUtils.addSeconds(period.getDate(), 1) : null;
-    return countIssuesAfterDate(issues, datePlusOneSecond);
-  }
-
-  @VisibleForTesting
-  int countIssuesAfterDate(Collection<Issue> issues, @Nullable Date targetDate) {
-    if (issues == null) {
-      return 0;
-    }
-    int count = 0;
-    for (Issue issue : issues) {
-      if (isAfter(issue, targetDate)) {
-        count++;
+  private void saveNewIssuesPerRule(DecoratorContext context, Rule rule, RulePriority severity, IssuesStatistics statistics, boolean shouldSaveNewMetrics) {
+    if (shouldSaveNewMetrics) {
+      Metric metric = SeverityUtils.severityToNewMetricIssue(severity);
+      RuleMeasure measure = RuleMeasure.createForRule(metric, rule, null);
+      measure.setSeverity(severity);
+      for (Period period : timeMachineConfiguration.periods()) {
+        measure.setVariation(period.getIndex(), (double) statistics.countNew(rule.ruleKey(), severity, period.getIndex()));
       }
+      context.saveMeasure(measure);
     }
-    return count;
-  }
-
-  private boolean isAfter(Issue issue, @Nullable Date date) {
-    return date == null || (issue.creationDate() != null && DateUtils.truncatedCompareTo(issue.creationDate(), date, Calendar.SECOND) > 0);
   }
 
   private boolean shouldSaveNewMetrics(DecoratorContext context) {
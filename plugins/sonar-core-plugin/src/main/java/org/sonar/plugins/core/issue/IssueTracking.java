@@ -35,6 +35,7 @@ import org.sonar.core.issue.db.IssueDto;
 import org.sonar.plugins.core.issue.tracking.HashedSequence;
 import org.sonar.plugins.core.issue.tracking.HashedSequenceComparator;
 import org.sonar.plugins.core.issue.tracking.IssueTrackingBlocksRecognizer;
+import org.sonar.plugins.core.issue.tracking.LineMapping;
 import org.sonar.plugins.core.issue.tracking.RollingHashSequence;
 import org.sonar.plugins.core.issue.tracking.RollingHashSequenceComparator;
 import org.sonar.plugins.core.issue.tracking.StringText;
@@ -60,6 +61,48 @@ public class IssueTracking implements BatchExtension {
     return result;
   }
 
+  /**
+   * Fast path for files that did not change since previous analysis. Lines are the same, so issues are matched on
+   * rule and line, and checksums are copied from previous issues instead of being computed from source.
+   * Hashes of reference and current sources are never computed.
+   */
+  public IssueTrackingResult trackUnchanged(SourceHashHolder sourceHashHolder, Collection<IssueDto> dbIssues, Collection<DefaultIssue> newIssues) {
+    IssueTrackingResult result = new IssueTrackingResult();
+    for (IssueDto lastIssue : dbIssues) {
+      result.addUnmatched(lastIssue);
+    }
+
+    // Match the key of the issue. (For manual issues)
+    for (DefaultIssue newIssue : newIssues) {
+      mapIssue(newIssue, findLastIssueWithSameKey(newIssue, result.unmatchedForRule(newIssue.ruleKey())), result);
+    }
+
+    // Same rule and same line on an unchanged file implies same checksum
+    for (DefaultIssue newIssue : newIssues) {
+      if (isNotAlreadyMapped(newIssue, result)) {
+        mapIssue(newIssue, findLastIssueWithSameLineAndChecksumDefined(newIssue, result.unmatchedForRule(newIssue.ruleKey())), result);
+      }
+    }
+
+    List<DefaultIssue> issuesWithoutChecksum = Lists.newArrayList();
+    for (DefaultIssue newIssue : newIssues) {
+      IssueDto ref = result.matching(newIssue);
+      if (ref != null && ref.getChecksum() != null && isSameLine(newIssue, ref)) {
+        newIssue.setChecksum(ref.getChecksum());
+      } else {
+        issuesWithoutChecksum.add(newIssue);
+      }
+    }
+
+    if (!issuesWithoutChecksum.isEmpty()) {
+      setChecksumOnNewIssues(issuesWithoutChecksum, sourceHashHolder);
+      if (result.matched().size() != newIssues.size()) {
+        mapIssuesOnSameRule(newIssues, result);
+      }
+    }
+    return result;
+  }
+
   private void setChecksumOnNewIssues(Collection<DefaultIssue> issues, SourceHashHolder sourceHashHolder) {
     List<String> checksums = SourceChecksum.lineChecksumsOfFile(sourceHashHolder.getSource());
     for (DefaultIssue issue : issues) {
@@ -153,6 +196,22 @@ public class IssueTracking implements BatchExtension {
       }
     }
 
+    // Map issues of remaining lines through the diff between reference and current sources
+    LineMapping lineMapping = sourceHashHolder.getLineMapping();
+    Map<Integer, Integer> mappedLines = Maps.newHashMap();
+    for (Integer oldLine : lastIssuesByLines.keySet()) {
+      Integer newLine = lineMapping.newLine(oldLine);
+      if (newLine != null && newIssuesByLines.containsKey(newLine)) {
+        map(newIssuesByLines.get(newLine), lastIssuesByLines.get(oldLine), result);
+        mappedLines.put(oldLine, newLine);
+      }
+    }
+    for (Map.Entry<Integer, Integer> mappedLine : mappedLines.entrySet()) {
+      lastIssuesByLines.removeAll(mappedLine.getKey());
+      newIssuesByLines.removeAll(mappedLine.getValue());
+    }
+
+    // The diff keeps only the blocks which are not reordered. Moved blocks are matched by their maximal length.
     // Check if remaining number of lines exceeds threshold
     if (lastIssuesByLines.keySet().size() * newIssuesByLines.keySet().size() < 250000) {
       List<LinePair> possibleLinePairs = Lists.newArrayList();
@@ -272,6 +331,15 @@ public class IssueTracking implements BatchExtension {
     return null;
   }
 
+  private IssueDto findLastIssueWithSameLineAndChecksumDefined(DefaultIssue newIssue, Collection<IssueDto> lastIssues) {
+    for (IssueDto pastIssue : lastIssues) {
+      if (isSameLine(newIssue, pastIssue) && pastIssue.getChecksum() != null) {
+        return pastIssue;
+      }
+    }
+    return null;
+  }
+
   private IssueDto findLastIssueWithSameKey(DefaultIssue newIssue, Collection<IssueDto> lastIssues) {
     for (IssueDto pastIssue : lastIssues) {
       if (isSameKey(newIssue, pastIssue)) {
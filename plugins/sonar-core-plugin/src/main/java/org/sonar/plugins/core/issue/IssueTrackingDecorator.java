@@ -22,6 +22,7 @@ package org.sonar.plugins.core.issue;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Strings;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -39,6 +40,10 @@ import org.sonar.api.resources.ResourceUtils;
 import org.sonar.api.rules.ActiveRule;
 import org.sonar.api.rules.Rule;
 import org.sonar.api.rules.RuleFinder;
+import org.sonar.api.scan.filesystem.FileQuery;
+import org.sonar.api.scan.filesystem.InputFile;
+import org.sonar.api.scan.filesystem.ModuleFileSystem;
+import org.sonar.api.scan.filesystem.internal.DefaultInputFile;
 import org.sonar.api.utils.KeyValueFormat;
 import org.sonar.batch.issue.IssueCache;
 import org.sonar.batch.scan.LastSnapshots;
@@ -48,6 +53,7 @@ import org.sonar.core.issue.db.IssueDto;
 import org.sonar.core.issue.workflow.IssueWorkflow;
 
 import java.util.Collection;
+import java.util.Set;
 
 @DependsUpon(DecoratorBarriers.ISSUES_ADDED)
 @DependedUpon(DecoratorBarriers.ISSUES_TRACKED)
@@ -67,6 +73,10 @@ public class IssueTrackingDecorator implements Decorator {
   private final ResourcePerspectives perspectives;
   private final RulesProfile rulesProfile;
   private final RuleFinder ruleFinder;
+  private final ModuleFileSystem fs;
+
+  private Set<String> unchangedComponentKeys;
+  private int unchangedFilesCount = 0;
 
   public IssueTrackingDecorator(IssueCache issueCache, InitialOpenIssuesStack initialOpenIssues, IssueTracking tracking,
                                 LastSnapshots lastSnapshots, SonarIndex index,
@@ -75,7 +85,8 @@ public class IssueTrackingDecorator implements Decorator {
                                 Project project,
                                 ResourcePerspectives perspectives,
                                 RulesProfile rulesProfile,
-                                RuleFinder ruleFinder) {
+                                RuleFinder ruleFinder,
+                                ModuleFileSystem fs) {
     this.issueCache = issueCache;
     this.initialOpenIssues = initialOpenIssues;
     this.tracking = tracking;
@@ -88,6 +99,7 @@ public class IssueTrackingDecorator implements Decorator {
     this.perspectives = perspectives;
     this.rulesProfile = rulesProfile;
     this.ruleFinder = ruleFinder;
+    this.fs = fs;
   }
 
   public boolean shouldExecuteOnProject(Project project) {
@@ -115,25 +127,61 @@ public class IssueTrackingDecorator implements Decorator {
 
     SourceHashHolder sourceHashHolder = new SourceHashHolder(index, lastSnapshots, resource);
 
-    IssueTrackingResult trackingResult = tracking.track(sourceHashHolder, dbOpenIssues, issues);
+    boolean unchanged = isUnchangedSinceLastAnalysis(resource);
+    IssueTrackingResult trackingResult;
+    if (unchanged) {
+      unchangedFilesCount++;
+      trackingResult = tracking.trackUnchanged(sourceHashHolder, dbOpenIssues, issues);
+    } else {
+      trackingResult = tracking.track(sourceHashHolder, dbOpenIssues, issues);
+    }
 
     // unmatched = issues that have been resolved + issues on disabled/removed rules + manual issues
-    addUnmatched(trackingResult.unmatched(), sourceHashHolder, issues);
+    addUnmatched(trackingResult.unmatched(), sourceHashHolder, issues, !unchanged);
 
     mergeMatched(trackingResult);
 
     if (ResourceUtils.isProject(resource)) {
       // issues that relate to deleted components
       addIssuesOnDeletedComponents(issues);
+      LOG.info("Issue tracking skipped source comparison on {} unchanged files", unchangedFilesCount);
     }
 
     for (DefaultIssue issue : issues) {
+      boolean changedBeforeTransition = issue.isChanged();
       workflow.doAutomaticTransition(issue, changeContext);
-      handlers.execute(issue, changeContext);
+      if (!changedBeforeTransition && issue.isChanged() && Issue.STATUS_CLOSED.equals(issue.status())) {
+        executeHandlersOnClosedIssue(issue);
+      } else {
+        handlers.execute(issue, changeContext);
+      }
       issueCache.put(issue);
     }
   }
 
+  /**
+   * Detect the issues that are closed without any other change, so that they can be saved with set-based queries.
+   */
+  private void executeHandlersOnClosedIssue(DefaultIssue issue) {
+    issue.setChanged(false);
+    handlers.execute(issue, changeContext);
+    issue.setOnlyClosed(!issue.isChanged());
+    issue.setChanged(true);
+  }
+
+  private boolean isUnchangedSinceLastAnalysis(Resource resource) {
+    if (unchangedComponentKeys == null) {
+      unchangedComponentKeys = Sets.newHashSet();
+      for (InputFile inputFile : fs.inputFiles(FileQuery.all().on(InputFile.ATTRIBUTE_STATUS, InputFile.STATUS_SAME))) {
+        String componentKey = inputFile.attribute(DefaultInputFile.ATTRIBUTE_COMPONENT_KEY);
+        if (componentKey != null) {
+          unchangedComponentKeys.add(componentKey);
+        }
+      }
+    }
+    return unchangedComponentKeys.contains(resource.getEffectiveKey());
+  }
+
   @VisibleForTesting
   protected void mergeMatched(IssueTrackingResult result) {
     for (DefaultIssue issue : result.matched()) {
@@ -183,10 +231,12 @@ public class IssueTrackingDecorator implements Decorator {
     }
   }
 
-  private void addUnmatched(Collection<IssueDto> unmatchedIssues, SourceHashHolder sourceHashHolder, Collection<DefaultIssue> issues) {
+  private void addUnmatched(Collection<IssueDto> unmatchedIssues, SourceHashHolder sourceHashHolder, Collection<DefaultIssue> issues,
+                            boolean relocateManualIssues) {
     for (IssueDto unmatchedDto : unmatchedIssues) {
       DefaultIssue unmatched = unmatchedDto.toDefaultIssue();
-      if (StringUtils.isNotBlank(unmatchedDto.getReporter()) && !Issue.STATUS_CLOSED.equals(unmatchedDto.getStatus())) {
+      // lines of manual issues do not move when source is unchanged
+      if (relocateManualIssues && StringUtils.isNotBlank(unmatchedDto.getReporter()) && !Issue.STATUS_CLOSED.equals(unmatchedDto.getStatus())) {
         relocateManualIssue(unmatched, unmatchedDto, sourceHashHolder);
       }
       updateUnmatchedIssue(unmatched, false /* manual issues can be kept open */);
@@ -242,13 +292,22 @@ public class IssueTrackingDecorator implements Decorator {
         updater.setPastEffortToFix(newIssue, oldIssue.getEffortToFix(), changeContext);
       }
     } else if (newLinesWithSameHash.size() == 1) {
-      Integer newLine = newLinesWithSameHash.iterator().next();
-      LOG.debug("Relocating issue to line {}", newLine);
-
-      newIssue.setLine(newLine);
-      updater.setPastLine(newIssue, previousLine);
-      updater.setPastMessage(newIssue, oldIssue.getMessage(), changeContext);
-      updater.setPastEffortToFix(newIssue, oldIssue.getEffortToFix(), changeContext);
+      relocateManualIssue(newIssue, oldIssue, newLinesWithSameHash.iterator().next());
+    } else {
+      // several lines with same hash: rely on the diff between sources to choose the right one
+      Integer newLine = sourceHashHolder.getLineMapping().newLine(previousLine);
+      if (newLine != null) {
+        relocateManualIssue(newIssue, oldIssue, newLine);
+      }
     }
   }
+
+  private void relocateManualIssue(DefaultIssue newIssue, IssueDto oldIssue, Integer newLine) {
+    LOG.debug("Relocating issue to line {}", newLine);
+
+    newIssue.setLine(newLine);
+    updater.setPastLine(newIssue, oldIssue.getLine());
+    updater.setPastMessage(newIssue, oldIssue.getMessage(), changeContext);
+    updater.setPastEffortToFix(newIssue, oldIssue.getEffortToFix(), changeContext);
+  }
 }
@@ -0,0 +1,269 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2013 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.core.issue;
+
+import com.google.common.collect.Maps;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.api.rules.RulePriority;
+import org.sonar.api.technicaldebt.batch.Requirement;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Statistics on the issues of a resource, including the issues of its descendants.
+ * Counters are indexed by period then by severity : the period 0 counts all the unresolved issues, the periods
+ * 1 to {@link #MAX_PERIODS} count the unresolved issues created since the related differential period.
+ *
+ * @see IssuesStatisticsAggregator
+ * @since 4.2
+ */
+public class IssuesStatistics {
+
+  static final int MAX_PERIODS = 5;
+  private static final int SEVERITIES = RulePriority.values().length;
+
+  private final int[][] counts = newCounters();
+  private final Map<RuleKey, int[][]> countsByRule = Maps.newHashMap();
+  private final DebtByRequirement technicalDebtByRequirement = new DebtByRequirement();
+  private int open;
+  private int reopened;
+  private int confirmed;
+  private int falsePositives;
+
+  public int count() {
+    return sum(counts[0]);
+  }
+
+  public int count(RulePriority severity) {
+    return counts[0][severity.ordinal()];
+  }
+
+  public int countNew(int period) {
+    return sum(counts[period]);
+  }
+
+  public int countNew(RulePriority severity, int period) {
+    return counts[period][severity.ordinal()];
+  }
+
+  public Set<RuleKey> rules() {
+    return countsByRule.keySet();
+  }
+
+  public int count(RuleKey rule, RulePriority severity) {
+    int[][] ruleCounts = countsByRule.get(rule);
+    return ruleCounts != null ? ruleCounts[0][severity.ordinal()] : 0;
+  }
+
+  public int countNew(RuleKey rule, RulePriority severity, int period) {
+    int[][] ruleCounts = countsByRule.get(rule);
+    return ruleCounts != null ? ruleCounts[period][severity.ordinal()] : 0;
+  }
+
+  public int countOpen() {
+    return open;
+  }
+
+  public int countReopened() {
+    return reopened;
+  }
+
+  public int countConfirmed() {
+    return confirmed;
+  }
+
+  public int countFalsePositives() {
+    return falsePositives;
+  }
+
+  /**
+   * Technical debt in days
+   */
+  public double technicalDebt(Requirement requirement) {
+    return technicalDebt(requirement.id());
+  }
+
+  /**
+   * Technical debt in days
+   */
+  public double technicalDebt(int requirementId) {
+    return technicalDebtByRequirement.get(requirementId);
+  }
+
+  /**
+   * Ids of the requirements related to issues, so that the requirements without debt are not browsed
+   */
+  public int[] requirementIds() {
+    return technicalDebtByRequirement.keys();
+  }
+
+  IssuesStatistics addIssues(RuleKey rule, RulePriority severity, int period, int count) {
+    addIssues(severity, period, count);
+    return addRuleIssues(rule, severity, period, count);
+  }
+
+  /**
+   * Counts issues by severity only. Used with {@link #addRuleIssues(RuleKey, RulePriority, int, int)} when totals and
+   * rule details are loaded separately.
+   */
+  IssuesStatistics addIssues(RulePriority severity, int period, int count) {
+    counts[period][severity.ordinal()] += count;
+    return this;
+  }
+
+  IssuesStatistics addRuleIssues(RuleKey rule, RulePriority severity, int period, int count) {
+    ruleCounters(rule)[period][severity.ordinal()] += count;
+    return this;
+  }
+
+  IssuesStatistics addStatuses(int open, int reopened, int confirmed) {
+    this.open += open;
+    this.reopened += reopened;
+    this.confirmed += confirmed;
+    return this;
+  }
+
+  IssuesStatistics addFalsePositives(int count) {
+    this.falsePositives += count;
+    return this;
+  }
+
+  IssuesStatistics addTechnicalDebt(Requirement requirement, double days) {
+    technicalDebtByRequirement.add(requirement.id(), days);
+    return this;
+  }
+
+  IssuesStatistics add(IssuesStatistics other) {
+    addCounters(counts, other.counts);
+    for (Map.Entry<RuleKey, int[][]> entry : other.countsByRule.entrySet()) {
+      addCounters(ruleCounters(entry.getKey()), entry.getValue());
+    }
+    technicalDebtByRequirement.add(other.technicalDebtByRequirement);
+    addStatuses(other.open, other.reopened, other.confirmed);
+    addFalsePositives(other.falsePositives);
+    return this;
+  }
+
+  private int[][] ruleCounters(RuleKey rule) {
+    int[][] ruleCounts = countsByRule.get(rule);
+    if (ruleCounts == null) {
+      ruleCounts = newCounters();
+      countsByRule.put(rule, ruleCounts);
+    }
+    return ruleCounts;
+  }
+
+  private static int[][] newCounters() {
+    return new int[MAX_PERIODS + 1][SEVERITIES];
+  }
+
+  private static void addCounters(int[][] to, int[][] from) {
+    for (int period = 0; period <= MAX_PERIODS; period++) {
+      for (int severity = 0; severity < SEVERITIES; severity++) {
+        to[period][severity] += from[period][severity];
+      }
+    }
+  }
+
+  private static int sum(int[] values) {
+    int sum = 0;
+    for (int value : values) {
+      sum += value;
+    }
+    return sum;
+  }
+
+  /**
+   * Sums of debt indexed by requirement id, using open addressing in order to not box keys and values.
+   */
+  private static final class DebtByRequirement {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private int[] keys = new int[INITIAL_CAPACITY];
+    private double[] values = new double[INITIAL_CAPACITY];
+    private boolean[] used = new boolean[INITIAL_CAPACITY];
+    private int size = 0;
+
+    double get(int key) {
+      int index = indexOf(key);
+      return used[index] ? values[index] : 0.0;
+    }
+
+    void add(int key, double value) {
+      int index = indexOf(key);
+      if (used[index]) {
+        values[index] += value;
+      } else {
+        keys[index] = key;
+        values[index] = value;
+        used[index] = true;
+        size++;
+        if (size * 2 > keys.length) {
+          grow();
+        }
+      }
+    }
+
+    void add(DebtByRequirement other) {
+      for (int i = 0; i < other.keys.length; i++) {
+        if (other.used[i]) {
+          add(other.keys[i], other.values[i]);
+        }
+      }
+    }
+
+    int[] keys() {
+      int[] result = new int[size];
+      int count = 0;
+      for (int i = 0; i < keys.length; i++) {
+        if (used[i]) {
+          result[count] = keys[i];
+          count++;
+        }
+      }
+      return result;
+    }
+
+    private int indexOf(int key) {
+      int mask = keys.length - 1;
+      int index = (key * 0x9E3779B9) & mask;
+      while (used[index] && keys[index] != key) {
+        index = (index + 1) & mask;
+      }
+      return index;
+    }
+
+    private void grow() {
+      int[] oldKeys = keys;
+      double[] oldValues = values;
+      boolean[] oldUsed = used;
+      keys = new int[oldKeys.length * 2];
+      values = new double[oldKeys.length * 2];
+      used = new boolean[oldKeys.length * 2];
+      size = 0;
+      for (int i = 0; i < oldKeys.length; i++) {
+        if (oldUsed[i]) {
+          add(oldKeys[i], oldValues[i]);
+        }
+      }
+    }
+  }
+}
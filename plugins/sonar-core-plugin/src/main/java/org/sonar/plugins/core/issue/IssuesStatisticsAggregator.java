@@ -0,0 +1,281 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2013 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.core.issue;
+
+import com.google.common.collect.Maps;
+import org.apache.commons.lang.time.DateUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.batch.Decorator;
+import org.sonar.api.batch.DecoratorContext;
+import org.sonar.api.batch.DependsUpon;
+import org.sonar.api.component.ResourcePerspectives;
+import org.sonar.api.issue.Issuable;
+import org.sonar.api.issue.Issue;
+import org.sonar.api.issue.internal.DefaultIssue;
+import org.sonar.api.measures.CoreMetrics;
+import org.sonar.api.measures.Measure;
+import org.sonar.api.measures.MeasureUtils;
+import org.sonar.api.measures.MeasuresFilter;
+import org.sonar.api.measures.MeasuresFilters;
+import org.sonar.api.measures.Metric;
+import org.sonar.api.measures.RuleMeasure;
+import org.sonar.api.resources.Project;
+import org.sonar.api.resources.Resource;
+import org.sonar.api.resources.ResourceUtils;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.api.rules.RulePriority;
+import org.sonar.api.technicaldebt.batch.Requirement;
+import org.sonar.api.technicaldebt.batch.TechnicalDebtModel;
+import org.sonar.batch.components.Period;
+import org.sonar.batch.components.TimeMachineConfiguration;
+import org.sonar.core.technicaldebt.TechnicalDebtConverter;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Computes the {@link IssuesStatistics} of resources, so that decorators do not iterate issues and children measures
+ * on their own. The issues of a resource are loaded in a single pass, then statistics of children are added. Statistics
+ * of a resource are kept until the decoration of its parent. Statistics of the project, which has no parent in the
+ * module, are dropped once the decorators of issues are executed on it.
+ *
+ * @since 4.2
+ */
+public class IssuesStatisticsAggregator implements Decorator {
+
+  private static final Logger LOG = LoggerFactory.getLogger(IssuesStatisticsAggregator.class);
+
+  private static final MeasuresFilter<Collection<Measure>> REQUIREMENT_DEBTS = new MeasuresFilters.MetricFilter<Collection<Measure>>(CoreMetrics.TECHNICAL_DEBT) {
+    public Collection<Measure> filter(@Nullable Collection<Measure> measures) {
+      List<Measure> result = new ArrayList<Measure>();
+      if (measures != null) {
+        for (Measure measure : measures) {
+          if (measure.getClass().equals(Measure.class) && CoreMetrics.TECHNICAL_DEBT.equals(measure.getMetric())
+            && measure.getPersonId() == null && measure.getRequirement() != null) {
+            result.add(measure);
+          }
+        }
+      }
+      return result;
+    }
+  };
+
+  private final ResourcePerspectives perspectives;
+  private final TimeMachineConfiguration timeMachineConfiguration;
+  private final TechnicalDebtModel technicalDebtModel;
+  private final TechnicalDebtConverter technicalDebtConverter;
+
+  // decorator contexts are created once per resource
+  private final Map<DecoratorContext, IssuesStatistics> statisticsByContext = new IdentityHashMap<DecoratorContext, IssuesStatistics>();
+  private final Map<RuleKey, Requirement> requirementsByRule = Maps.newHashMap();
+  private List<Period> periods;
+
+  public IssuesStatisticsAggregator(ResourcePerspectives perspectives, TimeMachineConfiguration timeMachineConfiguration,
+    TechnicalDebtModel technicalDebtModel, TechnicalDebtConverter technicalDebtConverter) {
+    this.perspectives = perspectives;
+    this.timeMachineConfiguration = timeMachineConfiguration;
+    this.technicalDebtModel = technicalDebtModel;
+    this.technicalDebtConverter = technicalDebtConverter;
+  }
+
+  public boolean shouldExecuteOnProject(Project project) {
+    return true;
+  }
+
+  /**
+   * The metrics of the decorators which read the statistics
+   */
+  @DependsUpon
+  public List<Metric> dependsUponIssuesMetrics() {
+    return Arrays.<Metric>asList(CoreMetrics.OPEN_ISSUES, CoreMetrics.FALSE_POSITIVE_ISSUES, CoreMetrics.TECHNICAL_DEBT);
+  }
+
+  public void decorate(Resource resource, DecoratorContext context) {
+    if (ResourceUtils.isProject(resource)) {
+      statisticsByContext.remove(context);
+    }
+  }
+
+  /**
+   * @return the statistics of the resource and of its descendants, or null if the resource does not support issues
+   */
+  @CheckForNull
+  public IssuesStatistics statistics(Resource resource, DecoratorContext context) {
+    IssuesStatistics statistics = statisticsByContext.get(context);
+    if (statistics == null) {
+      Issuable issuable = perspectives.as(Issuable.class, resource);
+      if (issuable != null) {
+        statistics = load(issuable);
+        for (DecoratorContext childContext : context.getChildren()) {
+          IssuesStatistics childStatistics = statisticsByContext.remove(childContext);
+          if (childStatistics == null) {
+            // for example modules, which are decorated in their own container
+            childStatistics = loadFromMeasures(childContext);
+          }
+          statistics.add(childStatistics);
+        }
+        statisticsByContext.put(context, statistics);
+      }
+    }
+    return statistics;
+  }
+
+  private IssuesStatistics load(Issuable issuable) {
+    IssuesStatistics statistics = new IssuesStatistics();
+    List<Period> differentialPeriods = periods();
+    Date[] periodDates = new Date[differentialPeriods.size()];
+    for (int i = 0; i < periodDates.length; i++) {
+      // SONAR-3647 Use real snapshot date and not target date in order to stay consistent with other measure variations
+      Date date = differentialPeriods.get(i).getDate();
+      periodDates[i] = date != null ? DateUtils.addSeconds(date, 1) : null;
+    }
+
+    int open = 0;
+    int reopened = 0;
+    int confirmed = 0;
+    for (Issue issue : issuable.issues()) {
+      RulePriority severity = RulePriority.valueOf(issue.severity());
+      statistics.addIssues(issue.ruleKey(), severity, 0, 1);
+      for (int i = 0; i < periodDates.length; i++) {
+        if (isAfter(issue, periodDates[i])) {
+          statistics.addIssues(issue.ruleKey(), severity, differentialPeriods.get(i).getIndex(), 1);
+        }
+      }
+
+      if (Issue.STATUS_OPEN.equals(issue.status())) {
+        open++;
+      } else if (Issue.STATUS_REOPENED.equals(issue.status())) {
+        reopened++;
+      } else if (Issue.STATUS_CONFIRMED.equals(issue.status())) {
+        confirmed++;
+      }
+
+      Requirement requirement = requirement(issue.ruleKey());
+      if (requirement == null) {
+        LOG.debug("No technical debt requirement for: " + issue.ruleKey());
+      } else {
+        statistics.addTechnicalDebt(requirement, technicalDebtConverter.toDays(((DefaultIssue) issue).technicalDebt()));
+      }
+    }
+    statistics.addStatuses(open, reopened, confirmed);
+
+    int falsePositives = 0;
+    for (Issue issue : issuable.resolvedIssues()) {
+      if (Issue.RESOLUTION_FALSE_POSITIVE.equals(issue.resolution())) {
+        falsePositives++;
+      }
+    }
+    return statistics.addFalsePositives(falsePositives);
+  }
+
+  private IssuesStatistics loadFromMeasures(DecoratorContext context) {
+    IssuesStatistics statistics = new IssuesStatistics();
+    for (RulePriority severity : RulePriority.values()) {
+      Metric metric = SeverityUtils.severityToIssueMetric(severity);
+      statistics.addIssues(severity, 0, intValue(context.getMeasure(metric)));
+      for (RuleMeasure measure : ruleMeasures(context, metric)) {
+        statistics.addRuleIssues(measure.getRule().ruleKey(), severity, 0, intValue(measure));
+      }
+
+      Metric newMetric = SeverityUtils.severityToNewMetricIssue(severity);
+      Measure newMeasure = context.getMeasure(newMetric);
+      Collection<RuleMeasure> newRuleMeasures = ruleMeasures(context, newMetric);
+      for (int period = 1; period <= IssuesStatistics.MAX_PERIODS; period++) {
+        statistics.addIssues(severity, period, variation(newMeasure, period));
+        for (RuleMeasure measure : newRuleMeasures) {
+          statistics.addRuleIssues(measure.getRule().ruleKey(), severity, period, variation(measure, period));
+        }
+      }
+    }
+    statistics.addStatuses(intValue(context.getMeasure(CoreMetrics.OPEN_ISSUES)), intValue(context.getMeasure(CoreMetrics.REOPENED_ISSUES)),
+      intValue(context.getMeasure(CoreMetrics.CONFIRMED_ISSUES)));
+    statistics.addFalsePositives(intValue(context.getMeasure(CoreMetrics.FALSE_POSITIVE_ISSUES)));
+
+    Collection<Measure> debts = context.getMeasures(REQUIREMENT_DEBTS);
+    if (debts != null) {
+      for (Measure debt : debts) {
+        if (debt.getValue() != null) {
+          statistics.addTechnicalDebt(debt.getRequirement(), debt.getValue());
+        }
+      }
+    }
+    return statistics;
+  }
+
+  private static Collection<RuleMeasure> ruleMeasures(DecoratorContext context, Metric metric) {
+    List<RuleMeasure> result = new ArrayList<RuleMeasure>();
+    Collection<RuleMeasure> measures = context.getMeasures(MeasuresFilters.rules(metric));
+    if (measures != null) {
+      for (RuleMeasure measure : measures) {
+        // the rule may have been removed
+        if (measure.getRule() != null) {
+          result.add(measure);
+        }
+      }
+    }
+    return result;
+  }
+
+  private static int intValue(@Nullable Measure measure) {
+    return MeasureUtils.hasValue(measure) ? measure.getValue().intValue() : 0;
+  }
+
+  private static int variation(@Nullable Measure measure, int period) {
+    Double variation = measure != null ? measure.getVariation(period) : null;
+    return variation != null ? variation.intValue() : 0;
+  }
+
+  @CheckForNull
+  private Requirement requirement(RuleKey ruleKey) {
+    // the lookup in model browses all the requirements
+    if (requirementsByRule.containsKey(ruleKey)) {
+      return requirementsByRule.get(ruleKey);
+    }
+    Requirement requirement = technicalDebtModel.requirementsByRule(ruleKey);
+    requirementsByRule.put(ruleKey, requirement);
+    return requirement;
+  }
+
+  private List<Period> periods() {
+    if (periods == null) {
+      periods = timeMachineConfiguration.periods();
+    }
+    return periods;
+  }
+
+  @Override
+  public String toString() {
+    return getClass().getSimpleName();
+  }
+
+  static boolean isAfter(Issue issue, @Nullable Date date) {
+    return date == null || (issue.creationDate() != null && DateUtils.truncatedCompareTo(issue.creationDate(), date, Calendar.SECOND) > 0);
+  }
+}
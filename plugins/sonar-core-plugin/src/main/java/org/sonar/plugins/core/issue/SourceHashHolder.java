@@ -25,6 +25,8 @@ import org.sonar.api.batch.SonarIndex;
 import org.sonar.api.resources.Resource;
 import org.sonar.batch.scan.LastSnapshots;
 import org.sonar.plugins.core.issue.tracking.HashedSequence;
+import org.sonar.plugins.core.issue.tracking.HashedSequenceComparator;
+import org.sonar.plugins.core.issue.tracking.LineMapping;
 import org.sonar.plugins.core.issue.tracking.StringText;
 import org.sonar.plugins.core.issue.tracking.StringTextComparator;
 
@@ -43,6 +45,7 @@ public class SourceHashHolder {
 
   private HashedSequence<StringText> hashedReference;
   private HashedSequence<StringText> hashedSource;
+  private LineMapping lineMapping;
 
   public SourceHashHolder(SonarIndex index, LastSnapshots lastSnapshots, Resource resource) {
     this.index = index;
@@ -65,6 +68,17 @@ public class SourceHashHolder {
     return hashedSource;
   }
 
+  /**
+   * Translation of lines from reference source to current source, computed once and shared by all the issues of the file.
+   * Reference and current sources must be available.
+   */
+  public LineMapping getLineMapping() {
+    if (lineMapping == null) {
+      lineMapping = LineMapping.of(getHashedReference(), getHashedSource(), new HashedSequenceComparator<StringText>(StringTextComparator.IGNORE_WHITESPACE));
+    }
+    return lineMapping;
+  }
+
   public String getSource() {
     if (! sourceInitialized) {
       source = index.getSource(resource);
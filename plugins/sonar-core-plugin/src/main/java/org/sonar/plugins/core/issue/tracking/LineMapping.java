@@ -0,0 +1,219 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2013 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.core.issue.tracking;
+
+import com.google.common.collect.Maps;
+
+import javax.annotation.CheckForNull;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Map;
+
+/**
+ * Translation of line numbers from a reference version of a text to a new version, computed once per file with a
+ * patience diff : lines that are unique in both versions are used as anchors, the longest increasing sequence
+ * of anchors is kept, and regions between anchors are processed the same way. When a region has no unique line,
+ * only its common prefix and suffix are mapped. Blocks which are moved before or after other anchors are not mapped.
+ * <p/>
+ * Memory is linear in the number of lines and time is near-linear for real-life sources, whatever the number of issues.
+ */
+public final class LineMapping {
+
+  private static final int NOT_MAPPED = -1;
+
+  // indices in arrays are shifted one line before
+  private final int[] newLineByOldLine;
+
+  private LineMapping(int[] newLineByOldLine) {
+    this.newLineByOldLine = newLineByOldLine;
+  }
+
+  public static <S extends Sequence> LineMapping of(HashedSequence<S> a, HashedSequence<S> b, HashedSequenceComparator<S> cmp) {
+    int[] mapping = new int[a.length()];
+    Arrays.fill(mapping, NOT_MAPPED);
+    new Differ<S>(a, b, cmp, mapping).diff();
+    return new LineMapping(mapping);
+  }
+
+  /**
+   * @param oldLine line in reference text (numbering starts from 1)
+   * @return the line in new text (numbering starts from 1), or null if the line has been removed or can not be located
+   */
+  @CheckForNull
+  public Integer newLine(@CheckForNull Integer oldLine) {
+    if (oldLine == null || oldLine < 1 || oldLine > newLineByOldLine.length) {
+      return null;
+    }
+    int newIndex = newLineByOldLine[oldLine - 1];
+    return newIndex == NOT_MAPPED ? null : newIndex + 1;
+  }
+
+  private static class Differ<S extends Sequence> {
+    private final HashedSequence<S> a;
+    private final HashedSequence<S> b;
+    private final HashedSequenceComparator<S> cmp;
+    private final int[] mapping;
+
+    Differ(HashedSequence<S> a, HashedSequence<S> b, HashedSequenceComparator<S> cmp, int[] mapping) {
+      this.a = a;
+      this.b = b;
+      this.cmp = cmp;
+      this.mapping = mapping;
+    }
+
+    void diff() {
+      // regions are processed with an explicit stack in order to not overflow on huge files
+      Deque<int[]> regions = new ArrayDeque<int[]>();
+      regions.push(new int[] {0, a.length(), 0, b.length()});
+      while (!regions.isEmpty()) {
+        int[] region = regions.pop();
+        diffRegion(region[0], region[1], region[2], region[3], regions);
+      }
+    }
+
+    private void diffRegion(int aStart, int aEnd, int bStart, int bEnd, Deque<int[]> regions) {
+      int[] anchors = longestIncreasingAnchors(aStart, uniqueCommonLines(aStart, aEnd, bStart, bEnd));
+      if (anchors.length == 0) {
+        matchPrefixAndSuffix(aStart, aEnd, bStart, bEnd);
+        return;
+      }
+      int prevA = aStart;
+      int prevB = bStart;
+      for (int i = 0; i < anchors.length; i += 2) {
+        int anchorA = anchors[i];
+        int anchorB = anchors[i + 1];
+        mapping[anchorA] = anchorB;
+        pushIfNotEmpty(regions, prevA, anchorA, prevB, anchorB);
+        prevA = anchorA + 1;
+        prevB = anchorB + 1;
+      }
+      pushIfNotEmpty(regions, prevA, aEnd, prevB, bEnd);
+    }
+
+    private void matchPrefixAndSuffix(int aStart, int aEnd, int bStart, int bEnd) {
+      int as = aStart;
+      int bs = bStart;
+      while (as < aEnd && bs < bEnd && cmp.equals(a, as, b, bs)) {
+        mapping[as] = bs;
+        as++;
+        bs++;
+      }
+      int ae = aEnd;
+      int be = bEnd;
+      while (as < ae && bs < be && cmp.equals(a, ae - 1, b, be - 1)) {
+        mapping[ae - 1] = be - 1;
+        ae--;
+        be--;
+      }
+    }
+
+    private static void pushIfNotEmpty(Deque<int[]> regions, int aStart, int aEnd, int bStart, int bEnd) {
+      if (aStart < aEnd && bStart < bEnd) {
+        regions.push(new int[] {aStart, aEnd, bStart, bEnd});
+      }
+    }
+
+    /**
+     * @return for each line of the region of a, indexed by {@code ai - aStart}, the index of the equal line in b if
+     * both lines are unique in their region, else -1
+     */
+    private int[] uniqueCommonLines(int aStart, int aEnd, int bStart, int bEnd) {
+      Map<Integer, Occurrence> occurrences = Maps.newHashMap();
+      for (int ai = aStart; ai < aEnd; ai++) {
+        int hash = a.hashes[ai];
+        Occurrence occurrence = occurrences.get(hash);
+        if (occurrence == null) {
+          occurrence = new Occurrence();
+          occurrence.lineA = ai;
+          occurrences.put(hash, occurrence);
+        }
+        occurrence.countA++;
+      }
+      for (int bi = bStart; bi < bEnd; bi++) {
+        Occurrence occurrence = occurrences.get(b.hashes[bi]);
+        if (occurrence != null) {
+          occurrence.lineB = bi;
+          occurrence.countB++;
+        }
+      }
+
+      int[] bLineByALine = new int[aEnd - aStart];
+      Arrays.fill(bLineByALine, NOT_MAPPED);
+      for (Occurrence occurrence : occurrences.values()) {
+        if (occurrence.countA == 1 && occurrence.countB == 1 && cmp.equals(a, occurrence.lineA, b, occurrence.lineB)) {
+          bLineByALine[occurrence.lineA - aStart] = occurrence.lineB;
+        }
+      }
+      return bLineByALine;
+    }
+
+    /**
+     * Patience sorting of anchors by their position in b, in O(n log n).
+     *
+     * @return pairs (ai, bi) flattened in an array, ordered by ai
+     */
+    private static int[] longestIncreasingAnchors(int aStart, int[] bLineByALine) {
+      int size = bLineByALine.length;
+      // tails[k] = index in bLineByALine of the smallest tail of an increasing sequence of length k + 1
+      int[] tails = new int[size];
+      int[] previous = new int[size];
+      int length = 0;
+      for (int i = 0; i < size; i++) {
+        int bi = bLineByALine[i];
+        if (bi == NOT_MAPPED) {
+          continue;
+        }
+        int low = 0;
+        int high = length;
+        while (low < high) {
+          int middle = (low + high) >>> 1;
+          if (bLineByALine[tails[middle]] < bi) {
+            low = middle + 1;
+          } else {
+            high = middle;
+          }
+        }
+        previous[i] = low > 0 ? tails[low - 1] : NOT_MAPPED;
+        tails[low] = i;
+        if (low == length) {
+          length++;
+        }
+      }
+
+      int[] anchors = new int[length * 2];
+      int i = length > 0 ? tails[length - 1] : NOT_MAPPED;
+      for (int k = length - 1; k >= 0; k--) {
+        anchors[2 * k] = aStart + i;
+        anchors[2 * k + 1] = bLineByALine[i];
+        i = previous[i];
+      }
+      return anchors;
+    }
+  }
+
+  private static class Occurrence {
+    int lineA;
+    int lineB;
+    int countA;
+    int countB;
+  }
+}
@@ -21,6 +21,7 @@ package org.sonar.plugins.core.sensors;
 
 import org.apache.commons.lang.StringUtils;
 import org.sonar.api.CoreProperties;
+import org.sonar.api.batch.ParallelSafe;
 import org.sonar.api.batch.Sensor;
 import org.sonar.api.batch.SensorContext;
 import org.sonar.api.config.Settings;
@@ -30,6 +31,7 @@ import org.sonar.core.i18n.DefaultI18n;
 
 import java.util.Locale;
 
+@ParallelSafe
 public class ProjectLinksSensor implements Sensor {
 
   private Settings settings;
@@ -21,18 +21,11 @@
 package org.sonar.plugins.core.technicaldebt;
 
 import com.google.common.annotations.VisibleForTesting;
-import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.ListMultimap;
-import org.slf4j.LoggerFactory;
 import org.sonar.api.CoreProperties;
 import org.sonar.api.PropertyType;
 import org.sonar.api.batch.*;
-import org.sonar.api.component.ResourcePerspectives;
 import org.sonar.api.config.PropertyDefinition;
-import org.sonar.api.issue.Issuable;
-import org.sonar.api.issue.Issue;
-import org.sonar.api.issue.internal.DefaultIssue;
 import org.sonar.api.measures.*;
 import org.sonar.api.resources.Project;
 import org.sonar.api.resources.Resource;
@@ -41,14 +34,16 @@ import org.sonar.api.technicaldebt.batch.Characteristic;
 import org.sonar.api.technicaldebt.batch.Requirement;
 import org.sonar.api.technicaldebt.batch.TechnicalDebtModel;
 import org.sonar.core.technicaldebt.TechnicalDebtConverter;
+import org.sonar.plugins.core.issue.IssuesStatistics;
+import org.sonar.plugins.core.issue.IssuesStatisticsAggregator;
 
 import java.util.Arrays;
-import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
-import static com.google.common.collect.Lists.newArrayList;
 import static com.google.common.collect.Maps.newHashMap;
+import static com.google.common.collect.Sets.newHashSet;
 
 /**
  * Decorator that computes the technical debt metric
@@ -58,14 +53,14 @@ public final class TechnicalDebtDecorator implements Decorator {
 
   private static final int DECIMALS_PRECISION = 5;
 
-  private final ResourcePerspectives perspectives;
+  private final IssuesStatisticsAggregator aggregator;
   private final TechnicalDebtModel model;
-  private final TechnicalDebtConverter converter;
+  private Map<Integer, Requirement> requirementsById;
+  private Set<Characteristic> rootCharacteristics;
 
-  public TechnicalDebtDecorator(ResourcePerspectives perspectives, TechnicalDebtModel model, TechnicalDebtConverter converter) {
-    this.perspectives = perspectives;
+  public TechnicalDebtDecorator(IssuesStatisticsAggregator aggregator, TechnicalDebtModel model) {
+    this.aggregator = aggregator;
     this.model = model;
-    this.converter = converter;
   }
 
   public boolean shouldExecuteOnProject(Project project) {
@@ -78,28 +73,35 @@ public final class TechnicalDebtDecorator implements Decorator {
   }
 
   public void decorate(Resource resource, DecoratorContext context) {
-    Issuable issuable = perspectives.as(Issuable.class, resource);
-    if (issuable != null && shouldSaveMeasure(context)) {
-      List<Issue> issues = newArrayList(issuable.issues());
-      saveMeasures(context, issues);
+    if (shouldSaveMeasure(context)) {
+      IssuesStatistics statistics = aggregator.statistics(resource, context);
+      if (statistics != null) {
+        saveMeasures(context, statistics);
+      }
     }
   }
 
-  private void saveMeasures(DecoratorContext context, List<Issue> issues) {
-    // group issues by requirement
-    ListMultimap<Requirement, Issue> issuesByRequirement = issuesByRequirement(issues);
-
+  private void saveMeasures(DecoratorContext context, IssuesStatistics statistics) {
     double total = 0.0;
     Map<Characteristic, Double> characteristicCosts = newHashMap();
     Map<Requirement, Double> requirementCosts = newHashMap();
 
-    for (Requirement requirement : model.requirements()) {
-      List<Issue> requirementIssues = issuesByRequirement.get(requirement);
-      double value = computeTechnicalDebt(CoreMetrics.TECHNICAL_DEBT, context, requirement, requirementIssues);
+    if (ResourceUtils.isProject(context.getResource())) {
+      // root characteristics are saved on projects even without debt
+      for (Characteristic rootCharacteristic : rootCharacteristics()) {
+        characteristicCosts.put(rootCharacteristic, 0.0);
+      }
+    }
 
-      requirementCosts.put(requirement, value);
-      total += value;
-      propagateTechnicalDebtInParents(requirement.characteristic(), value, characteristicCosts);
+    // only the requirements of issues are browsed, not the whole model
+    for (int requirementId : statistics.requirementIds()) {
+      Requirement requirement = requirementsById().get(requirementId);
+      double value = statistics.technicalDebt(requirementId);
+      if (requirement != null && value > 0.0) {
+        requirementCosts.put(requirement, value);
+        total += value;
+        propagateTechnicalDebtInParents(requirement.characteristic(), value, characteristicCosts);
+      }
     }
 
     context.saveMeasure(new Measure(CoreMetrics.TECHNICAL_DEBT, total, DECIMALS_PRECISION));
@@ -107,6 +109,32 @@ public final class TechnicalDebtDecorator implements Decorator {
     saveOnRequirement(context, requirementCosts);
   }
 
+  private Map<Integer, Requirement> requirementsById() {
+    if (requirementsById == null) {
+      requirementsById = newHashMap();
+      for (Requirement requirement : model.requirements()) {
+        requirementsById.put(requirement.id(), requirement);
+      }
+    }
+    return requirementsById;
+  }
+
+  private Set<Characteristic> rootCharacteristics() {
+    if (rootCharacteristics == null) {
+      rootCharacteristics = newHashSet();
+      for (Requirement requirement : model.requirements()) {
+        Characteristic characteristic = requirement.characteristic();
+        while (characteristic != null && characteristic.parent() != null) {
+          characteristic = characteristic.parent();
+        }
+        if (characteristic != null) {
+          rootCharacteristics.add(characteristic);
+        }
+      }
+    }
+    return rootCharacteristics;
+  }
+
   private void saveOnCharacteristic(DecoratorContext context, Map<Characteristic, Double> characteristicCosts) {
     for (Map.Entry<Characteristic, Double> entry : characteristicCosts.entrySet()) {
       saveTechnicalDebt(context, entry.getKey(), entry.getValue(), false);
@@ -149,39 +177,6 @@ public final class TechnicalDebtDecorator implements Decorator {
     }
   }
 
-  @VisibleForTesting
-  ListMultimap<Requirement, Issue> issuesByRequirement(List<Issue> issues) {
-    ListMultimap<Requirement, Issue> issuesByRequirement = ArrayListMultimap.create();
-    for (Issue issue : issues) {
-      String repositoryKey = issue.ruleKey().repository();
-      String key = issue.ruleKey().rule();
-      Requirement requirement = model.requirementsByRule(issue.ruleKey());
-      if (requirement == null) {
-        LoggerFactory.getLogger(getClass()).debug("No technical debt requirement for: " + repositoryKey + "/" + key);
-      } else {
-        issuesByRequirement.put(requirement, issue);
-      }
-    }
-    return issuesByRequirement;
-  }
-
-  private double computeTechnicalDebt(Metric metric, DecoratorContext context, Requirement requirement, Collection<Issue> issues) {
-    double value = 0.0;
-    if (issues != null) {
-      for (Issue issue : issues){
-        value += converter.toDays(((DefaultIssue) issue).technicalDebt());
-      }
-    }
-
-    for (Measure measure : context.getChildrenMeasures(MeasuresFilters.requirement(metric, requirement))) {
-      Requirement measureRequirement = measure.getRequirement();
-      if (measureRequirement != null && measureRequirement.equals(requirement) && measure.getValue() != null) {
-        value += measure.getValue();
-      }
-    }
-    return value;
-  }
-
   private void propagateTechnicalDebtInParents(Characteristic characteristic, double value, Map<Characteristic, Double> characteristicCosts) {
     if (characteristic != null) {
       Double parentCost = characteristicCosts.get(characteristic);
@@ -29,6 +29,9 @@ import org.sonar.api.measures.CoreMetrics;
 import org.sonar.api.resources.File;
 import org.sonar.api.resources.Project;
 import org.sonar.api.rule.RuleKey;
+import org.sonar.api.technicaldebt.batch.TechnicalDebtModel;
+import org.sonar.batch.components.TimeMachineConfiguration;
+import org.sonar.core.technicaldebt.TechnicalDebtConverter;
 import org.sonar.java.api.JavaClass;
 
 import java.util.Arrays;
@@ -39,7 +42,8 @@ import static org.mockito.Mockito.*;
 public class CountFalsePositivesDecoratorTest {
 
   ResourcePerspectives perspectives = mock(ResourcePerspectives.class);
-  CountFalsePositivesDecorator decorator = new CountFalsePositivesDecorator(perspectives);
+  CountFalsePositivesDecorator decorator = new CountFalsePositivesDecorator(new IssuesStatisticsAggregator(perspectives, mock(TimeMachineConfiguration.class),
+    mock(TechnicalDebtModel.class), mock(TechnicalDebtConverter.class)));
 
   @Test
   public void should_count_false_positives() {
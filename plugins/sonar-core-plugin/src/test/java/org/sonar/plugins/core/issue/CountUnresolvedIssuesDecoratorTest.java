@@ -40,11 +40,12 @@ import org.sonar.api.rule.Severity;
 import org.sonar.api.rules.Rule;
 import org.sonar.api.rules.RuleFinder;
 import org.sonar.api.rules.RulePriority;
+import org.sonar.api.technicaldebt.batch.TechnicalDebtModel;
 import org.sonar.api.test.IsRuleMeasure;
 import org.sonar.batch.components.Period;
 import org.sonar.batch.components.TimeMachineConfiguration;
+import org.sonar.core.technicaldebt.TechnicalDebtConverter;
 
-import java.util.Calendar;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
@@ -74,7 +75,6 @@ public class CountUnresolvedIssuesDecoratorTest {
   Date afterTenDaysAgo;
   Date fiveDaysAgo;
   Date afterFiveDaysAgo;
-  Date sameSecond;
 
   @Before
   public void before() {
@@ -92,7 +92,6 @@ public class CountUnresolvedIssuesDecoratorTest {
     afterTenDaysAgo = DateUtils.addDays(tenDaysAgo, 1);
     fiveDaysAgo = DateUtils.addDays(rightNow, -5);
     afterFiveDaysAgo = DateUtils.addDays(fiveDaysAgo, 1);
-    sameSecond = DateUtils.truncate(rightNow, Calendar.SECOND);
 
     timeMachineConfiguration = mock(TimeMachineConfiguration.class);
     when(timeMachineConfiguration.periods()).thenReturn(newArrayList(new Period(1, fiveDaysAgo, afterFiveDaysAgo), new Period(2, tenDaysAgo, afterTenDaysAgo)));
@@ -107,7 +106,11 @@ public class CountUnresolvedIssuesDecoratorTest {
     issuable = mock(Issuable.class);
     ResourcePerspectives perspectives = mock(ResourcePerspectives.class);
     when(perspectives.as(Issuable.class, resource)).thenReturn(issuable);
-    decorator = new CountUnresolvedIssuesDecorator(perspectives, ruleFinder, timeMachineConfiguration);
+    decorator = new CountUnresolvedIssuesDecorator(newAggregator(perspectives), ruleFinder, timeMachineConfiguration);
+  }
+
+  private IssuesStatisticsAggregator newAggregator(ResourcePerspectives perspectives) {
+    return new IssuesStatisticsAggregator(perspectives, timeMachineConfiguration, mock(TechnicalDebtModel.class), mock(TechnicalDebtConverter.class));
   }
 
   @Test
@@ -126,11 +129,40 @@ public class CountUnresolvedIssuesDecoratorTest {
     verify(context).saveMeasure(CoreMetrics.VIOLATIONS, 4.0);
   }
 
+  @Test
+  public void should_count_statuses_of_resource_and_children() {
+    Resource file = mock(Resource.class);
+    Issuable fileIssuable = mock(Issuable.class);
+    when(fileIssuable.issues()).thenReturn(createIssues());
+    DecoratorContext fileContext = mock(DecoratorContext.class);
+    when(fileContext.getResource()).thenReturn(file);
+    when(resource.getScope()).thenReturn(Scopes.DIRECTORY);
+    when(issuable.issues()).thenReturn(Lists.<Issue>newArrayList(
+      new DefaultIssue().setRuleKey(ruleA1.ruleKey()).setSeverity(Severity.MAJOR).setStatus(Issue.STATUS_OPEN),
+      new DefaultIssue().setRuleKey(ruleB1.ruleKey()).setSeverity(Severity.MAJOR).setStatus(Issue.STATUS_CONFIRMED)));
+    when(context.getChildren()).thenReturn(newArrayList(fileContext));
+    ResourcePerspectives perspectives = mock(ResourcePerspectives.class);
+    when(perspectives.as(Issuable.class, resource)).thenReturn(issuable);
+    when(perspectives.as(Issuable.class, file)).thenReturn(fileIssuable);
+    CountUnresolvedIssuesDecorator decorator = new CountUnresolvedIssuesDecorator(newAggregator(perspectives), ruleFinder, timeMachineConfiguration);
+
+    decorator.decorate(file, fileContext);
+    decorator.decorate(resource, context);
+
+    verify(fileContext).saveMeasure(CoreMetrics.OPEN_ISSUES, 2.0);
+    verify(fileContext).saveMeasure(CoreMetrics.REOPENED_ISSUES, 2.0);
+    verify(fileContext).saveMeasure(CoreMetrics.CONFIRMED_ISSUES, 0.0);
+    // statuses of children are added, as they were summed from children measures
+    verify(context).saveMeasure(CoreMetrics.OPEN_ISSUES, 3.0);
+    verify(context).saveMeasure(CoreMetrics.REOPENED_ISSUES, 2.0);
+    verify(context).saveMeasure(CoreMetrics.CONFIRMED_ISSUES, 1.0);
+  }
+
   @Test
   public void should_do_nothing_when_issuable_is_null() {
     ResourcePerspectives perspectives = mock(ResourcePerspectives.class);
     when(perspectives.as(Issuable.class, resource)).thenReturn(null);
-    CountUnresolvedIssuesDecorator decorator = new CountUnresolvedIssuesDecorator(perspectives, ruleFinder, timeMachineConfiguration);
+    CountUnresolvedIssuesDecorator decorator = new CountUnresolvedIssuesDecorator(newAggregator(perspectives), ruleFinder, timeMachineConfiguration);
 
     decorator.decorate(resource, context);
 
@@ -221,16 +253,6 @@ public class CountUnresolvedIssuesDecoratorTest {
     verify(context).saveMeasure(argThat(new IsRuleMeasure(CoreMetrics.MINOR_VIOLATIONS, ruleA1, 1.0)));
   }
 
-  @Test
-  public void should_count_issues_after_date() {
-    List<Issue> issues = createIssuesForNewMetrics();
-
-    assertThat(decorator.countIssuesAfterDate(null, fiveDaysAgo)).isEqualTo(0);
-    assertThat(decorator.countIssuesAfterDate(issues, fiveDaysAgo)).isEqualTo(1); // 1 rightNow
-    assertThat(decorator.countIssuesAfterDate(issues, tenDaysAgo)).isEqualTo(3); // 1 rightNow + 2 fiveDaysAgo
-    assertThat(decorator.countIssuesAfterDate(issues, sameSecond)).isEqualTo(0); // 0
-  }
-
   @Test
   public void should_clear_cache_after_execution() {
     Issue issue1 = new DefaultIssue().setRuleKey(RuleKey.of(ruleA1.getRepositoryKey(), ruleA1.getKey())).setSeverity(RulePriority.CRITICAL.name()).setCreationDate(rightNow);
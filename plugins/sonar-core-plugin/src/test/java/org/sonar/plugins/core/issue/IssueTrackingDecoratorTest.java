@@ -19,10 +19,13 @@
  */
 package org.sonar.plugins.core.issue;
 
+import com.google.common.base.Charsets;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
 import org.mockito.ArgumentMatcher;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.sonar.api.batch.DecoratorContext;
 import org.sonar.api.batch.SonarIndex;
 import org.sonar.api.component.ResourcePerspectives;
@@ -37,6 +40,11 @@ import org.sonar.api.resources.Resource;
 import org.sonar.api.rule.RuleKey;
 import org.sonar.api.rules.Rule;
 import org.sonar.api.rules.RuleFinder;
+import org.sonar.api.scan.filesystem.FileQuery;
+import org.sonar.api.scan.filesystem.InputFile;
+import org.sonar.api.scan.filesystem.ModuleFileSystem;
+import org.sonar.api.scan.filesystem.internal.DefaultInputFile;
+import org.sonar.api.scan.filesystem.internal.InputFileBuilder;
 import org.sonar.batch.issue.IssueCache;
 import org.sonar.batch.scan.LastSnapshots;
 import org.sonar.core.issue.IssueUpdater;
@@ -75,9 +83,11 @@ public class IssueTrackingDecoratorTest extends AbstractDaoTestCase {
   ResourcePerspectives perspectives = mock(ResourcePerspectives.class);
   RulesProfile profile = mock(RulesProfile.class);
   RuleFinder ruleFinder = mock(RuleFinder.class);
+  ModuleFileSystem fs = mock(ModuleFileSystem.class);
 
   @Before
   public void init() {
+    when(fs.inputFiles(any(FileQuery.class))).thenReturn(Collections.<InputFile>emptyList());
     decorator = new IssueTrackingDecorator(
       issueCache,
       initialOpenIssues,
@@ -90,7 +100,8 @@ public class IssueTrackingDecoratorTest extends AbstractDaoTestCase {
       mock(Project.class),
       perspectives,
       profile,
-      ruleFinder);
+      ruleFinder,
+      fs);
   }
 
   @Test
@@ -131,6 +142,27 @@ public class IssueTrackingDecoratorTest extends AbstractDaoTestCase {
     verify(issueCache).put(issue);
   }
 
+  @Test
+  public void should_use_fast_path_on_unchanged_files() throws Exception {
+    Resource file = new File("Action.java").setEffectiveKey("struts:Action.java").setId(123);
+    InputFile inputFile = new InputFileBuilder(new java.io.File("Action.java"), Charsets.UTF_8, "Action.java")
+      .status(InputFile.STATUS_SAME)
+      .attribute(DefaultInputFile.ATTRIBUTE_COMPONENT_KEY, "struts:Action.java")
+      .build();
+    when(fs.inputFiles(any(FileQuery.class))).thenReturn(Arrays.asList(inputFile));
+
+    DefaultIssue issue = new DefaultIssue();
+    when(issueCache.byComponent("struts:Action.java")).thenReturn(Arrays.asList(issue));
+    List<IssueDto> dbIssues = Collections.emptyList();
+    when(initialOpenIssues.selectAndRemoveIssues("struts:Action.java")).thenReturn(dbIssues);
+
+    decorator.doDecorate(file);
+
+    verify(tracking).trackUnchanged(isA(SourceHashHolder.class), eq(dbIssues), anyCollection());
+    verify(tracking, never()).track(any(SourceHashHolder.class), anyCollection(), anyCollection());
+    verify(issueCache).put(issue);
+  }
+
   @Test
   public void should_register_unmatched_issues_as_end_of_life() throws Exception {
     // "Unmatched" issues existed in previous scan but not in current one -> they have to be closed
@@ -158,6 +190,32 @@ public class IssueTrackingDecoratorTest extends AbstractDaoTestCase {
     assertThat(issue.isEndOfLife()).isTrue();
   }
 
+  @Test
+  public void should_flag_issues_closed_without_other_changes() throws Exception {
+    Resource file = new File("Action.java").setEffectiveKey("struts:Action.java").setId(123);
+
+    IssueDto unmatchedIssue = new IssueDto().setKee("ABCDE").setResolution(null).setStatus("OPEN").setRuleKey_unit_test_only("squid", "AvoidCycle");
+    IssueTrackingResult trackingResult = new IssueTrackingResult();
+    trackingResult.addUnmatched(unmatchedIssue);
+    when(tracking.track(isA(SourceHashHolder.class), anyCollection(), anyCollection())).thenReturn(trackingResult);
+
+    doAnswer(new Answer<Object>() {
+      public Object answer(InvocationOnMock invocation) {
+        DefaultIssue issue = (DefaultIssue) invocation.getArguments()[0];
+        issue.setStatus(Issue.STATUS_CLOSED).setChanged(true);
+        return null;
+      }
+    }).when(workflow).doAutomaticTransition(any(DefaultIssue.class), any(IssueChangeContext.class));
+
+    decorator.doDecorate(file);
+
+    ArgumentCaptor<DefaultIssue> argument = ArgumentCaptor.forClass(DefaultIssue.class);
+    verify(issueCache).put(argument.capture());
+    DefaultIssue issue = argument.getValue();
+    assertThat(issue.isChanged()).isTrue();
+    assertThat(issue.isOnlyClosed()).isTrue();
+  }
+
   @Test
   public void manual_issues_should_be_moved_if_matching_line_found() throws Exception {
     Resource file = new File("Action.java").setEffectiveKey("struts:Action.java").setId(123);
@@ -40,6 +40,9 @@ import java.util.Arrays;
 import static com.google.common.collect.Lists.newArrayList;
 import static org.fest.assertions.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 
 public class IssueTrackingTest {
@@ -340,6 +343,53 @@ public class IssueTrackingTest {
     assertThat(result.matching(newIssue5)).isSameAs(referenceIssue1);
   }
 
+  @Test
+  public void should_track_issues_of_moved_blocks() {
+    when(lastSnapshots.getSource(project)).thenReturn("class A {\n  void a() {\n    foo();\n    foo();\n  }\n  void b() {\n    bar();\n    bar();\n  }\n}\n");
+    when(index.getSource(project)).thenReturn("class A {\n  void b() {\n    bar();\n    bar();\n  }\n  void a() {\n    foo();\n    foo();\n  }\n}\n");
+    sourceHashHolder = new SourceHashHolder(index, lastSnapshots, project);
+
+    // the method a() is moved after b(), so the diff maps only one of them
+    IssueDto referenceIssue = newReferenceIssue("Duplicated call", 3, "squid", "AvoidCycle", null);
+    DefaultIssue newIssue = newDefaultIssue("Duplicated call to foo()", 7, RuleKey.of("squid", "AvoidCycle"), null);
+
+    IssueTrackingResult result = new IssueTrackingResult();
+    tracking.mapIssues(Arrays.asList(newIssue), Arrays.asList(referenceIssue), sourceHashHolder, result);
+
+    assertThat(result.matching(newIssue)).isSameAs(referenceIssue);
+  }
+
+  @Test
+  public void should_match_unchanged_file_on_rule_and_line_without_reading_source() {
+    sourceHashHolder = mock(SourceHashHolder.class);
+
+    IssueDto referenceIssue = newReferenceIssue("old message", 3, "squid", "AvoidCycle", "checksum1");
+    DefaultIssue newIssue = newDefaultIssue("new message", 3, RuleKey.of("squid", "AvoidCycle"), null);
+
+    IssueTrackingResult result = tracking.trackUnchanged(sourceHashHolder, newArrayList(referenceIssue), newArrayList(newIssue));
+
+    assertThat(result.matching(newIssue)).isSameAs(referenceIssue);
+    assertThat(newIssue.checksum()).isEqualTo("checksum1");
+    verifyZeroInteractions(sourceHashHolder);
+  }
+
+  @Test
+  public void should_compute_checksums_of_unchanged_file_when_issues_are_not_matched_on_line() {
+    sourceHashHolder = mock(SourceHashHolder.class);
+    when(sourceHashHolder.getSource()).thenReturn("line1\nline2\nline3");
+
+    IssueDto referenceIssue = newReferenceIssue("message", 3, "squid", "AvoidCycle", "checksum1");
+    DefaultIssue newIssue = newDefaultIssue("message", 2, RuleKey.of("squid", "AvoidCycle"), null);
+
+    IssueTrackingResult result = tracking.trackUnchanged(sourceHashHolder, newArrayList(referenceIssue), newArrayList(newIssue));
+
+    assertThat(result.matching(newIssue)).isNull();
+    assertThat(result.unmatched()).containsOnly(referenceIssue);
+    assertThat(newIssue.checksum()).isNotNull().isNotEqualTo("checksum1");
+    verify(sourceHashHolder, never()).getHashedSource();
+    verify(sourceHashHolder, never()).getHashedReference();
+  }
+
   private static String load(String name) throws IOException {
     return Resources.toString(IssueTrackingTest.class.getResource("IssueTrackingTest/" + name + ".txt"), Charsets.UTF_8);
   }
@@ -0,0 +1,294 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2013 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.core.issue;
+
+import org.apache.commons.lang.time.DateUtils;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.sonar.api.batch.DecoratorContext;
+import org.sonar.api.component.ResourcePerspectives;
+import org.sonar.api.issue.Issuable;
+import org.sonar.api.issue.Issue;
+import org.sonar.api.issue.internal.DefaultIssue;
+import org.sonar.api.issue.internal.WorkDayDuration;
+import org.sonar.api.measures.CoreMetrics;
+import org.sonar.api.measures.Measure;
+import org.sonar.api.measures.MeasuresFilter;
+import org.sonar.api.measures.MeasuresFilters;
+import org.sonar.api.measures.Metric;
+import org.sonar.api.measures.RuleMeasure;
+import org.sonar.api.resources.Resource;
+import org.sonar.api.resources.Scopes;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.api.rule.Severity;
+import org.sonar.api.rules.Rule;
+import org.sonar.api.rules.RulePriority;
+import org.sonar.api.technicaldebt.batch.Requirement;
+import org.sonar.api.technicaldebt.batch.TechnicalDebtModel;
+import org.sonar.batch.components.Period;
+import org.sonar.batch.components.TimeMachineConfiguration;
+import org.sonar.core.technicaldebt.TechnicalDebtConverter;
+
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.*;
+
+public class IssuesStatisticsAggregatorTest {
+
+  static final RuleKey RULE_A = RuleKey.of("squid", "A");
+  static final RuleKey RULE_B = RuleKey.of("squid", "B");
+
+  ResourcePerspectives perspectives = mock(ResourcePerspectives.class);
+  TimeMachineConfiguration timeMachineConfiguration = mock(TimeMachineConfiguration.class);
+  TechnicalDebtModel model = mock(TechnicalDebtModel.class);
+  TechnicalDebtConverter converter = mock(TechnicalDebtConverter.class);
+  IssuesStatisticsAggregator aggregator;
+
+  Date rightNow;
+  Date fiveDaysAgo;
+  Date tenDaysAgo;
+
+  @Before
+  public void before() {
+    rightNow = new Date();
+    fiveDaysAgo = DateUtils.addDays(rightNow, -5);
+    tenDaysAgo = DateUtils.addDays(rightNow, -10);
+    when(timeMachineConfiguration.periods()).thenReturn(newArrayList(new Period(1, fiveDaysAgo, fiveDaysAgo), new Period(2, tenDaysAgo, tenDaysAgo)));
+    aggregator = new IssuesStatisticsAggregator(perspectives, timeMachineConfiguration, model, converter);
+  }
+
+  @Test
+  public void should_compute_statistics_of_issues() {
+    Resource file = mockIssuable(
+      newIssue(RULE_A, Severity.CRITICAL, Issue.STATUS_OPEN, rightNow),
+      newIssue(RULE_A, Severity.CRITICAL, Issue.STATUS_REOPENED, tenDaysAgo),
+      newIssue(RULE_A, Severity.MINOR, Issue.STATUS_CONFIRMED, fiveDaysAgo),
+      newIssue(RULE_B, Severity.MAJOR, Issue.STATUS_OPEN, DateUtils.addDays(tenDaysAgo, -1)));
+
+    IssuesStatistics statistics = aggregator.statistics(file, mock(DecoratorContext.class));
+
+    assertThat(statistics.count()).isEqualTo(4);
+    assertThat(statistics.count(RulePriority.CRITICAL)).isEqualTo(2);
+    assertThat(statistics.count(RulePriority.BLOCKER)).isEqualTo(0);
+    assertThat(statistics.rules()).containsOnly(RULE_A, RULE_B);
+    assertThat(statistics.count(RULE_A, RulePriority.CRITICAL)).isEqualTo(2);
+    assertThat(statistics.count(RULE_A, RulePriority.MINOR)).isEqualTo(1);
+    assertThat(statistics.count(RULE_B, RulePriority.CRITICAL)).isEqualTo(0);
+    assertThat(statistics.countOpen()).isEqualTo(2);
+    assertThat(statistics.countReopened()).isEqualTo(1);
+    assertThat(statistics.countConfirmed()).isEqualTo(1);
+
+    // period 1 is five days ago, period 2 is ten days ago
+    assertThat(statistics.countNew(1)).isEqualTo(1);
+    assertThat(statistics.countNew(2)).isEqualTo(2);
+    assertThat(statistics.countNew(RULE_A, RulePriority.MINOR, 1)).isEqualTo(0);
+    assertThat(statistics.countNew(RULE_A, RulePriority.MINOR, 2)).isEqualTo(1);
+    assertThat(statistics.countNew(RulePriority.MAJOR, 2)).isEqualTo(0);
+  }
+
+  @Test
+  public void should_count_issues_after_date() {
+    Issue issue = newIssue(RULE_A, Severity.MAJOR, Issue.STATUS_OPEN, rightNow);
+
+    assertThat(IssuesStatisticsAggregator.isAfter(issue, null)).isTrue();
+    assertThat(IssuesStatisticsAggregator.isAfter(issue, fiveDaysAgo)).isTrue();
+    assertThat(IssuesStatisticsAggregator.isAfter(issue, DateUtils.truncate(rightNow, Calendar.SECOND))).isFalse();
+    assertThat(IssuesStatisticsAggregator.isAfter(new DefaultIssue(), fiveDaysAgo)).isFalse();
+  }
+
+  @Test
+  public void should_count_false_positives() {
+    Resource file = mockIssuable();
+    Issuable issuable = perspectives.as(Issuable.class, file);
+    when(issuable.resolvedIssues()).thenReturn(Collections.<Issue>singletonList(new DefaultIssue().setRuleKey(RULE_A)
+      .setResolution(Issue.RESOLUTION_FALSE_POSITIVE).setStatus(Issue.STATUS_RESOLVED)));
+
+    IssuesStatistics statistics = aggregator.statistics(file, mock(DecoratorContext.class));
+
+    assertThat(statistics.count()).isEqualTo(0);
+    assertThat(statistics.countFalsePositives()).isEqualTo(1);
+  }
+
+  @Test
+  public void should_group_technical_debt_by_requirement() {
+    Requirement requirement = mock(Requirement.class);
+    when(requirement.id()).thenReturn(1);
+    when(model.requirementsByRule(RULE_A)).thenReturn(requirement);
+    Requirement otherRequirement = mock(Requirement.class);
+    when(otherRequirement.id()).thenReturn(2);
+    WorkDayDuration debt = mock(WorkDayDuration.class);
+    when(converter.toDays(debt)).thenReturn(2.0);
+    Resource file = mockIssuable(
+      newIssue(RULE_A, Severity.MAJOR, Issue.STATUS_OPEN, rightNow).setTechnicalDebt(debt),
+      newIssue(RULE_A, Severity.MAJOR, Issue.STATUS_OPEN, rightNow).setTechnicalDebt(debt),
+      newIssue(RULE_B, Severity.MAJOR, Issue.STATUS_OPEN, rightNow).setTechnicalDebt(debt));
+
+    IssuesStatistics statistics = aggregator.statistics(file, mock(DecoratorContext.class));
+
+    assertThat(statistics.technicalDebt(requirement)).isEqualTo(4.0);
+    assertThat(statistics.technicalDebt(otherRequirement)).isEqualTo(0.0);
+    assertThat(statistics.requirementIds()).containsOnly(1);
+    verify(model, times(1)).requirementsByRule(RULE_A);
+  }
+
+  @Test
+  public void should_compute_statistics_once_per_resource() {
+    Resource file = mockIssuable(newIssue(RULE_A, Severity.MAJOR, Issue.STATUS_OPEN, rightNow));
+    DecoratorContext context = mock(DecoratorContext.class);
+
+    IssuesStatistics statistics = aggregator.statistics(file, context);
+
+    assertThat(aggregator.statistics(file, context)).isSameAs(statistics);
+    verify(perspectives.as(Issuable.class, file), times(1)).issues();
+  }
+
+  @Test
+  public void should_drop_statistics_of_project_after_decoration() {
+    Resource project = mockIssuable(newIssue(RULE_A, Severity.MAJOR, Issue.STATUS_OPEN, rightNow));
+    when(project.getScope()).thenReturn(Scopes.PROJECT);
+    DecoratorContext context = mock(DecoratorContext.class);
+
+    IssuesStatistics statistics = aggregator.statistics(project, context);
+    aggregator.decorate(project, context);
+
+    assertThat(aggregator.statistics(project, context)).isNotSameAs(statistics);
+    verify(perspectives.as(Issuable.class, project), times(2)).issues();
+  }
+
+  @Test
+  public void should_keep_statistics_of_children_until_decoration_of_parent() {
+    Resource file = mockIssuable(newIssue(RULE_A, Severity.MAJOR, Issue.STATUS_OPEN, rightNow));
+    when(file.getScope()).thenReturn(Scopes.FILE);
+    DecoratorContext context = mock(DecoratorContext.class);
+
+    IssuesStatistics statistics = aggregator.statistics(file, context);
+    aggregator.decorate(file, context);
+
+    assertThat(aggregator.statistics(file, context)).isSameAs(statistics);
+  }
+
+  @Test
+  public void should_be_executed_after_decorators_of_issues() {
+    assertThat(aggregator.dependsUponIssuesMetrics()).contains(CoreMetrics.OPEN_ISSUES, CoreMetrics.FALSE_POSITIVE_ISSUES, CoreMetrics.TECHNICAL_DEBT);
+  }
+
+  @Test
+  public void should_add_statistics_of_children() {
+    Resource file1 = mockIssuable(newIssue(RULE_A, Severity.MAJOR, Issue.STATUS_OPEN, rightNow));
+    Resource file2 = mockIssuable(newIssue(RULE_A, Severity.MAJOR, Issue.STATUS_OPEN, tenDaysAgo),
+      newIssue(RULE_B, Severity.INFO, Issue.STATUS_REOPENED, rightNow));
+    Resource directory = mockIssuable(newIssue(RULE_B, Severity.INFO, Issue.STATUS_OPEN, rightNow));
+    DecoratorContext file1Context = mock(DecoratorContext.class);
+    DecoratorContext file2Context = mock(DecoratorContext.class);
+    DecoratorContext directoryContext = mock(DecoratorContext.class);
+    when(directoryContext.getChildren()).thenReturn(newArrayList(file1Context, file2Context));
+
+    aggregator.statistics(file1, file1Context);
+    aggregator.statistics(file2, file2Context);
+    IssuesStatistics statistics = aggregator.statistics(directory, directoryContext);
+
+    assertThat(statistics.count()).isEqualTo(4);
+    assertThat(statistics.count(RULE_A, RulePriority.MAJOR)).isEqualTo(2);
+    assertThat(statistics.count(RULE_B, RulePriority.INFO)).isEqualTo(2);
+    assertThat(statistics.countNew(RULE_A, RulePriority.MAJOR, 1)).isEqualTo(1);
+    assertThat(statistics.countOpen()).isEqualTo(3);
+    assertThat(statistics.countReopened()).isEqualTo(1);
+    verify(file1Context, never()).getMeasure(any(Metric.class));
+  }
+
+  @Test
+  public void should_load_statistics_of_children_from_measures() {
+    Resource project = mockIssuable();
+    Rule rule = Rule.create(RULE_A.repository(), RULE_A.rule());
+    final List<Measure> measures = newArrayList(
+      new Measure(CoreMetrics.MAJOR_VIOLATIONS, 3.0),
+      RuleMeasure.createForRule(CoreMetrics.MAJOR_VIOLATIONS, rule, 3.0),
+      new Measure(CoreMetrics.NEW_MAJOR_VIOLATIONS).setVariation1(1.0),
+      new Measure(CoreMetrics.OPEN_ISSUES, 3.0));
+    DecoratorContext moduleContext = mock(DecoratorContext.class);
+    when(moduleContext.getMeasure(any(Metric.class))).thenAnswer(new Answer<Object>() {
+      public Object answer(InvocationOnMock invocation) throws Throwable {
+        return MeasuresFilters.metric((Metric) invocation.getArguments()[0]).filter(measures);
+      }
+    });
+    when(moduleContext.getMeasures(any(MeasuresFilter.class))).thenAnswer(new Answer<Object>() {
+      public Object answer(InvocationOnMock invocation) throws Throwable {
+        return ((MeasuresFilter) invocation.getArguments()[0]).filter(measures);
+      }
+    });
+    DecoratorContext projectContext = mock(DecoratorContext.class);
+    when(projectContext.getChildren()).thenReturn(newArrayList(moduleContext));
+
+    IssuesStatistics statistics = aggregator.statistics(project, projectContext);
+
+    assertThat(statistics.count()).isEqualTo(3);
+    assertThat(statistics.count(RULE_A, RulePriority.MAJOR)).isEqualTo(3);
+    assertThat(statistics.countNew(RulePriority.MAJOR, 1)).isEqualTo(1);
+    assertThat(statistics.countOpen()).isEqualTo(3);
+  }
+
+  @Test
+  public void should_ignore_rule_measures_without_rule() {
+    Resource project = mockIssuable();
+    Rule rule = Rule.create(RULE_A.repository(), RULE_A.rule());
+    final List<RuleMeasure> ruleMeasures = newArrayList(
+      RuleMeasure.createForRule(CoreMetrics.MAJOR_VIOLATIONS, rule, 3.0),
+      new RuleMeasure(CoreMetrics.MAJOR_VIOLATIONS, null, null, null).setValue(2.0));
+    DecoratorContext moduleContext = mock(DecoratorContext.class);
+    // the filter is not applied, as if the rule of the measure had been removed after its loading
+    when(moduleContext.getMeasures(any(MeasuresFilter.class))).thenReturn(ruleMeasures);
+    DecoratorContext projectContext = mock(DecoratorContext.class);
+    when(projectContext.getChildren()).thenReturn(newArrayList(moduleContext));
+
+    IssuesStatistics statistics = aggregator.statistics(project, projectContext);
+
+    assertThat(statistics.rules()).containsOnly(RULE_A);
+    assertThat(statistics.count(RULE_A, RulePriority.MAJOR)).isEqualTo(3);
+  }
+
+  @Test
+  public void should_return_null_if_resource_does_not_support_issues() {
+    DecoratorContext context = mock(DecoratorContext.class);
+
+    assertThat(aggregator.statistics(mock(Resource.class), context)).isNull();
+    verifyZeroInteractions(context);
+  }
+
+  private Resource mockIssuable(Issue... issues) {
+    Resource resource = mock(Resource.class);
+    Issuable issuable = mock(Issuable.class);
+    when(issuable.issues()).thenReturn(Arrays.asList(issues));
+    when(perspectives.as(Issuable.class, resource)).thenReturn(issuable);
+    return resource;
+  }
+
+  private DefaultIssue newIssue(RuleKey ruleKey, String severity, String status, Date creationDate) {
+    return new DefaultIssue().setRuleKey(ruleKey).setSeverity(severity).setStatus(status).setCreationDate(creationDate);
+  }
+}
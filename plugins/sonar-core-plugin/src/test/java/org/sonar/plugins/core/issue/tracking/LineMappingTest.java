@@ -0,0 +1,89 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2013 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.core.issue.tracking;
+
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class LineMappingTest {
+
+  @Test
+  public void same_text() {
+    LineMapping mapping = mapping(t("abcde"), t("abcde"));
+    for (int line = 1; line <= 5; line++) {
+      assertThat(mapping.newLine(line)).isEqualTo(line);
+    }
+  }
+
+  @Test
+  public void inserted_and_removed_lines() {
+    // b removed, x and y inserted
+    LineMapping mapping = mapping(t("abcde"), t("xacdye"));
+    assertThat(mapping.newLine(1)).isEqualTo(2);
+    assertThat(mapping.newLine(2)).isNull();
+    assertThat(mapping.newLine(3)).isEqualTo(3);
+    assertThat(mapping.newLine(4)).isEqualTo(4);
+    assertThat(mapping.newLine(5)).isEqualTo(6);
+  }
+
+  @Test
+  public void duplicated_lines_are_mapped_between_unique_lines() {
+    // "}" lines are not unique, they are mapped relatively to "a" and "b"
+    LineMapping mapping = mapping(t("a}}b}"), t("x}a}}y}b}"));
+    assertThat(mapping.newLine(1)).isEqualTo(3);
+    assertThat(mapping.newLine(2)).isEqualTo(4);
+    assertThat(mapping.newLine(3)).isEqualTo(5);
+    assertThat(mapping.newLine(4)).isEqualTo(8);
+    assertThat(mapping.newLine(5)).isEqualTo(9);
+  }
+
+  @Test
+  public void moved_lines_are_not_mapped_twice() {
+    LineMapping mapping = mapping(t("abc"), t("cab"));
+    assertThat(mapping.newLine(1)).isEqualTo(2);
+    assertThat(mapping.newLine(2)).isEqualTo(3);
+    assertThat(mapping.newLine(3)).isNull();
+  }
+
+  @Test
+  public void invalid_lines() {
+    LineMapping mapping = mapping(t("abc"), t("abc"));
+    assertThat(mapping.newLine(null)).isNull();
+    assertThat(mapping.newLine(0)).isNull();
+    assertThat(mapping.newLine(4)).isNull();
+  }
+
+  private static LineMapping mapping(String a, String b) {
+    return LineMapping.of(
+      HashedSequence.wrap(new StringText(a), StringTextComparator.IGNORE_WHITESPACE),
+      HashedSequence.wrap(new StringText(b), StringTextComparator.IGNORE_WHITESPACE),
+      new HashedSequenceComparator<StringText>(StringTextComparator.IGNORE_WHITESPACE));
+  }
+
+  private static String t(String text) {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < text.length(); i++) {
+      sb.append(text.charAt(i)).append('\n');
+    }
+    return sb.toString();
+  }
+
+}
@@ -20,14 +20,15 @@
 
 package org.sonar.plugins.core.technicaldebt;
 
-import com.google.common.collect.ListMultimap;
 import org.apache.commons.lang.ObjectUtils;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.ArgumentMatcher;
 import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
 import org.sonar.api.batch.DecoratorContext;
 import org.sonar.api.component.ResourcePerspectives;
 import org.sonar.api.issue.Issuable;
@@ -48,9 +49,9 @@ import org.sonar.api.technicaldebt.batch.TechnicalDebtModel;
 import org.sonar.api.technicaldebt.batch.internal.DefaultCharacteristic;
 import org.sonar.api.technicaldebt.batch.internal.DefaultRequirement;
 import org.sonar.api.test.IsMeasure;
+import org.sonar.batch.components.TimeMachineConfiguration;
 import org.sonar.core.technicaldebt.TechnicalDebtConverter;
-
-import java.util.List;
+import org.sonar.plugins.core.issue.IssuesStatisticsAggregator;
 
 import static com.google.common.collect.Lists.newArrayList;
 import static org.fest.assertions.Assertions.assertThat;
@@ -75,14 +76,17 @@ public class TechnicalDebtDecoratorTest {
   @Mock
   Issuable issuable;
 
+  ResourcePerspectives perspectives;
+
   TechnicalDebtDecorator decorator;
 
   @Before
   public void before() throws Exception {
-    ResourcePerspectives perspectives = mock(ResourcePerspectives.class);
+    perspectives = mock(ResourcePerspectives.class);
     when(perspectives.as(Issuable.class, resource)).thenReturn(issuable);
 
-    decorator = new TechnicalDebtDecorator(perspectives, defaultTechnicalDebtModel, converter);
+    decorator = new TechnicalDebtDecorator(new IssuesStatisticsAggregator(perspectives, mock(TimeMachineConfiguration.class), defaultTechnicalDebtModel, converter),
+      defaultTechnicalDebtModel);
   }
 
   @Test
@@ -104,28 +108,6 @@ public class TechnicalDebtDecoratorTest {
     verify(context, never()).saveMeasure(argThat(new IsMeasure(CoreMetrics.TECHNICAL_DEBT)));
   }
 
-  @Test
-  public void group_issues_by_requirement() throws Exception {
-    Requirement requirement1 = mock(Requirement.class);
-    Requirement requirement2 = mock(Requirement.class);
-
-    Issue issue1 = createIssue("rule1", "repo1");
-    Issue issue2 = createIssue("rule1", "repo1");
-    Issue issue3 = createIssue("rule2", "repo2");
-    Issue issue4 = createIssue("unmatchable", "repo2");
-
-    List<Issue> issues = newArrayList(issue1, issue2, issue3, issue4);
-
-    when(defaultTechnicalDebtModel.requirementsByRule(RuleKey.of("repo1", "rule1"))).thenReturn(requirement1);
-    when(defaultTechnicalDebtModel.requirementsByRule(RuleKey.of("repo2", "rule2"))).thenReturn(requirement2);
-
-    ListMultimap<Requirement, Issue> result = decorator.issuesByRequirement(issues);
-
-    assertThat(result.keySet().size()).isEqualTo(2);
-    assertThat(result.get(requirement1)).containsExactly(issue1, issue2);
-    assertThat(result.get(requirement2)).containsExactly(issue3);
-  }
-
   @Test
   public void add_technical_debt_from_one_issue_and_no_parent() throws Exception {
     WorkDayDuration technicalDebt = mock(WorkDayDuration.class);
@@ -155,7 +137,7 @@ public class TechnicalDebtDecoratorTest {
     DefaultCharacteristic parentCharacteristic = new DefaultCharacteristic().setKey("parentCharacteristic");
     DefaultCharacteristic characteristic = new DefaultCharacteristic().setKey("characteristic").setParent(parentCharacteristic);
     RuleKey ruleKey = RuleKey.of("repo1", "rule1");
-    DefaultRequirement requirement = new DefaultRequirement().setCharacteristic(characteristic).setRuleKey(ruleKey);
+    DefaultRequirement requirement = new DefaultRequirement().setId(1).setCharacteristic(characteristic).setRuleKey(ruleKey);
 
     when(defaultTechnicalDebtModel.requirementsByRule(ruleKey)).thenReturn(requirement);
     doReturn(newArrayList(requirement)).when(defaultTechnicalDebtModel).requirements();
@@ -185,9 +167,9 @@ public class TechnicalDebtDecoratorTest {
     DefaultCharacteristic rootCharacteristic = new DefaultCharacteristic().setKey("rootCharacteristic");
     DefaultCharacteristic characteristic = new DefaultCharacteristic().setKey("characteristic").setParent(rootCharacteristic);
     RuleKey ruleKey1 = RuleKey.of("repo1", "rule1");
-    DefaultRequirement requirement1 = new DefaultRequirement().setRuleKey(ruleKey1).setCharacteristic(characteristic);
+    DefaultRequirement requirement1 = new DefaultRequirement().setId(2).setRuleKey(ruleKey1).setCharacteristic(characteristic);
     RuleKey ruleKey2 = RuleKey.of("repo2", "rule2");
-    DefaultRequirement requirement2 = new DefaultRequirement().setRuleKey(ruleKey2).setCharacteristic(characteristic);
+    DefaultRequirement requirement2 = new DefaultRequirement().setId(3).setRuleKey(ruleKey2).setCharacteristic(characteristic);
 
     when(defaultTechnicalDebtModel.requirementsByRule(ruleKey1)).thenReturn(requirement1);
     when(defaultTechnicalDebtModel.requirementsByRule(ruleKey2)).thenReturn(requirement2);
@@ -200,6 +182,41 @@ public class TechnicalDebtDecoratorTest {
     verify(context).saveMeasure(argThat(new IsCharacteristicMeasure(CoreMetrics.TECHNICAL_DEBT, requirement2, 4.0)));
   }
 
+  @Test
+  public void add_technical_debt_from_children() throws Exception {
+    WorkDayDuration technicalDebt1 = mock(WorkDayDuration.class);
+    when(converter.toDays(technicalDebt1)).thenReturn(1.0);
+    WorkDayDuration technicalDebt2 = mock(WorkDayDuration.class);
+    when(converter.toDays(technicalDebt2)).thenReturn(5.0);
+
+    Issue issue1 = createIssue("rule1", "repo1").setTechnicalDebt(technicalDebt1);
+    Issue issue2 = createIssue("rule1", "repo1").setTechnicalDebt(technicalDebt1);
+    when(issuable.issues()).thenReturn(newArrayList(issue1, issue2));
+
+    Resource child = mock(Resource.class);
+    Issuable childIssuable = mock(Issuable.class);
+    when(perspectives.as(Issuable.class, child)).thenReturn(childIssuable);
+    Issue childIssue = createIssue("rule1", "repo1").setTechnicalDebt(technicalDebt2);
+    when(childIssuable.issues()).thenReturn(newArrayList(childIssue));
+    DecoratorContext childContext = mock(DecoratorContext.class);
+    when(context.getChildren()).thenReturn(newArrayList(childContext));
+
+    DefaultCharacteristic rootCharacteristic = new DefaultCharacteristic().setKey("rootCharacteristic");
+    DefaultCharacteristic characteristic = new DefaultCharacteristic().setKey("characteristic").setParent(rootCharacteristic);
+    RuleKey ruleKey1 = RuleKey.of("repo1", "rule1");
+    DefaultRequirement requirement = new DefaultRequirement().setId(4).setRuleKey(ruleKey1).setCharacteristic(characteristic);
+
+    when(defaultTechnicalDebtModel.requirementsByRule(ruleKey1)).thenReturn(requirement);
+    doReturn(newArrayList(requirement)).when(defaultTechnicalDebtModel).requirements();
+
+    decorator.decorate(child, childContext);
+    decorator.decorate(resource, context);
+
+    verify(childContext).saveMeasure(argThat(new IsCharacteristicMeasure(CoreMetrics.TECHNICAL_DEBT, 5.0)));
+    verify(context).saveMeasure(argThat(new IsCharacteristicMeasure(CoreMetrics.TECHNICAL_DEBT, 7.0)));
+    verify(context).saveMeasure(argThat(new IsCharacteristicMeasure(CoreMetrics.TECHNICAL_DEBT, requirement, 7.0)));
+  }
+
   @Test
   public void add_technical_debt_from_children_measures() throws Exception {
     WorkDayDuration technicalDebt1 = mock(WorkDayDuration.class);
@@ -212,13 +229,20 @@ public class TechnicalDebtDecoratorTest {
     DefaultCharacteristic rootCharacteristic = new DefaultCharacteristic().setKey("rootCharacteristic");
     DefaultCharacteristic characteristic = new DefaultCharacteristic().setKey("characteristic").setParent(rootCharacteristic);
     RuleKey ruleKey1 = RuleKey.of("repo1", "rule1");
-    DefaultRequirement requirement = new DefaultRequirement().setRuleKey(ruleKey1).setCharacteristic(characteristic);
+    DefaultRequirement requirement = new DefaultRequirement().setId(5).setRuleKey(ruleKey1).setCharacteristic(characteristic);
 
     when(defaultTechnicalDebtModel.requirementsByRule(ruleKey1)).thenReturn(requirement);
     doReturn(newArrayList(requirement)).when(defaultTechnicalDebtModel).requirements();
 
-    Measure measure = new Measure().setRequirement(requirement).setValue(5.0);
-    when(context.getChildrenMeasures(any(MeasuresFilter.class))).thenReturn(newArrayList(measure));
+    // child decorated in another container, for example a module
+    final Measure measure = new Measure(CoreMetrics.TECHNICAL_DEBT).setRequirement(requirement).setValue(5.0);
+    DecoratorContext childContext = mock(DecoratorContext.class);
+    when(childContext.getMeasures(any(MeasuresFilter.class))).thenAnswer(new Answer<Object>() {
+      public Object answer(InvocationOnMock invocation) throws Throwable {
+        return ((MeasuresFilter) invocation.getArguments()[0]).filter(newArrayList(measure));
+      }
+    });
+    when(context.getChildren()).thenReturn(newArrayList(childContext));
 
     decorator.decorate(resource, context);
 
@@ -226,6 +250,40 @@ public class TechnicalDebtDecoratorTest {
     verify(context).saveMeasure(argThat(new IsCharacteristicMeasure(CoreMetrics.TECHNICAL_DEBT, requirement, 7.0)));
   }
 
+  @Test
+  public void save_root_characteristics_without_debt_on_projects() throws Exception {
+    DefaultCharacteristic rootCharacteristic = new DefaultCharacteristic().setKey("rootCharacteristic");
+    DefaultCharacteristic characteristic = new DefaultCharacteristic().setKey("characteristic").setParent(rootCharacteristic);
+    DefaultRequirement requirement = new DefaultRequirement().setId(10).setRuleKey(RuleKey.of("repo1", "rule1")).setCharacteristic(characteristic);
+    doReturn(newArrayList(requirement)).when(defaultTechnicalDebtModel).requirements();
+    when(context.getResource()).thenReturn(new Project("foo"));
+
+    decorator.decorate(resource, context);
+
+    verify(context).saveMeasure(argThat(new IsCharacteristicMeasure(CoreMetrics.TECHNICAL_DEBT, 0.0)));
+    verify(context).saveMeasure(argThat(new IsCharacteristicMeasure(CoreMetrics.TECHNICAL_DEBT, rootCharacteristic, 0.0)));
+    verify(context, never()).saveMeasure(argThat(new IsCharacteristicMeasure(CoreMetrics.TECHNICAL_DEBT, characteristic, 0.0)));
+    verify(context, never()).saveMeasure(argThat(new IsCharacteristicMeasure(CoreMetrics.TECHNICAL_DEBT, requirement, 0.0)));
+  }
+
+  @Test
+  public void browse_requirements_of_model_only_once() throws Exception {
+    WorkDayDuration technicalDebt = mock(WorkDayDuration.class);
+    when(converter.toDays(technicalDebt)).thenReturn(1.0);
+    when(issuable.issues()).thenReturn(newArrayList((Issue) createIssue("rule1", "repo1").setTechnicalDebt(technicalDebt)));
+    DefaultRequirement requirement = new DefaultRequirement().setId(11).setRuleKey(RuleKey.of("repo1", "rule1"));
+    when(defaultTechnicalDebtModel.requirementsByRule(RuleKey.of("repo1", "rule1"))).thenReturn(requirement);
+    doReturn(newArrayList(requirement)).when(defaultTechnicalDebtModel).requirements();
+
+    decorator.decorate(resource, context);
+    DecoratorContext otherContext = mock(DecoratorContext.class);
+    decorator.decorate(resource, otherContext);
+
+    verify(otherContext).saveMeasure(argThat(new IsCharacteristicMeasure(CoreMetrics.TECHNICAL_DEBT, requirement, 1.0)));
+    verify(defaultTechnicalDebtModel, times(1)).requirements();
+    verify(defaultTechnicalDebtModel, times(1)).requirementsByRule(RuleKey.of("repo1", "rule1"));
+  }
+
   @Test
   public void always_save_technical_debt_for_positive_values() throws Exception {
     // for a project
@@ -23,7 +23,6 @@ package org.sonar.plugins.cpd;
 import org.sonar.api.scan.filesystem.InputFile;
 
 import com.google.common.collect.Iterables;
-import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringEscapeUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -40,6 +39,7 @@ import org.sonar.api.scan.filesystem.FileQuery;
 import org.sonar.api.scan.filesystem.internal.DefaultInputFile;
 import org.sonar.api.utils.SonarException;
 import org.sonar.batch.scan.filesystem.DefaultModuleFileSystem;
+import org.sonar.channel.ChannelException;
 import org.sonar.duplications.block.Block;
 import org.sonar.duplications.block.BlockChunker;
 import org.sonar.duplications.detector.suffixtree.SuffixTreeCloneDetectionAlgorithm;
@@ -56,10 +56,6 @@ import org.sonar.plugins.cpd.index.SonarDuplicationsIndex;
 
 import javax.annotation.Nullable;
 
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.io.InputStreamReader;
-import java.io.Reader;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
@@ -122,14 +118,10 @@ public class SonarEngine extends CpdEngine {
 
       List<Statement> statements;
 
-      Reader reader = null;
       try {
-        reader = new InputStreamReader(new FileInputStream(inputFile.file()), fileSystem.sourceCharset());
-        statements = statementChunker.chunk(tokenChunker.chunk(reader));
-      } catch (FileNotFoundException e) {
-        throw new SonarException("Cannot find file " + inputFile.file(), e);
-      } finally {
-        IOUtils.closeQuietly(reader);
+        statements = statementChunker.chunk(tokenChunker.chunk(inputFile.file(), fileSystem.sourceCharset()));
+      } catch (ChannelException e) {
+        throw new SonarException("Cannot read file " + inputFile.file(), e);
       }
 
       List<Block> blocks = blockChunker.chunk(resourceEffectiveKey, statements);
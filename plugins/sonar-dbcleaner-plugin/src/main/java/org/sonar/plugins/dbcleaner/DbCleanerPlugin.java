@@ -25,6 +25,7 @@ import org.sonar.api.PropertyType;
 import org.sonar.api.SonarPlugin;
 import org.sonar.api.config.PropertyDefinition;
 import org.sonar.api.resources.Qualifiers;
+import org.sonar.core.purge.PurgeConfiguration;
 import org.sonar.plugins.dbcleaner.api.DbCleanerConstants;
 import org.sonar.plugins.dbcleaner.period.DefaultPeriodCleaner;
 
@@ -107,6 +108,28 @@ public final class DbCleanerPlugin extends SonarPlugin {
         .category(CoreProperties.CATEGORY_GENERAL)
         .subCategory(CoreProperties.SUBCATEGORY_DATABASE_CLEANER)
         .index(6)
+        .build(),
+
+      PropertyDefinition.builder(DbCleanerConstants.CHUNK_SIZE)
+        .defaultValue(String.valueOf(PurgeConfiguration.DEFAULT_CHUNK_SIZE))
+        .name("Number of rows per delete request")
+        .description("Maximum number of snapshots or resources deleted by each request. It can't be greater than "
+          + PurgeConfiguration.DEFAULT_CHUNK_SIZE + ".")
+        .type(PropertyType.INTEGER)
+        .category(CoreProperties.CATEGORY_GENERAL)
+        .subCategory(CoreProperties.SUBCATEGORY_DATABASE_CLEANER)
+        .index(7)
+        .build(),
+
+      PropertyDefinition.builder(DbCleanerConstants.THREADS)
+        .defaultValue(String.valueOf(PurgeConfiguration.DEFAULT_THREADS))
+        .name("Number of concurrent deletions")
+        .description("Number of tables purged concurrently. Each one uses its own database connection, which is added to the "
+          + "connection pool of the analyzer.")
+        .type(PropertyType.INTEGER)
+        .category(CoreProperties.CATEGORY_GENERAL)
+        .subCategory(CoreProperties.SUBCATEGORY_DATABASE_CLEANER)
+        .index(8)
         .build()
       );
   }
@@ -32,7 +32,13 @@ import org.sonar.plugins.dbcleaner.api.DbCleanerConstants;
 import org.sonar.plugins.dbcleaner.api.PurgeTask;
 import org.sonar.plugins.dbcleaner.period.DefaultPeriodCleaner;
 
+import java.util.TreeMap;
+
 /**
+ * Purge is executed synchronously by the post-job of the analysis. It can't be delegated to a server-side queue
+ * because the server does not execute any background task on behalf of the batch. Deletions of independent tables
+ * are instead executed concurrently, see {@link DbCleanerConstants#THREADS}.
+ *
  * @since 2.14
  */
 public class DefaultPurgeTask implements PurgeTask {
@@ -58,32 +64,36 @@ public class DefaultPurgeTask implements PurgeTask {
   public PurgeTask purge(long resourceId) {
     long start = System.currentTimeMillis();
     profiler.reset();
-    cleanHistoricalData(resourceId);
-    doPurge(resourceId);
+    PurgeConfiguration conf = newConf(resourceId);
+    cleanHistoricalData(conf);
+    doPurge(conf);
+    long duration = System.currentTimeMillis() - start;
     if (settings.getBoolean(CoreProperties.PROFILING_LOG_PROPERTY)) {
-      long duration = System.currentTimeMillis() - start;
-      LOG.info("\n -------- Profiling for purge: " + TimeUtils.formatDuration(duration) + " --------\n");
-      profiler.dump(duration, LOG);
+      LOG.info("\n -------- Profiling for purge: " + TimeUtils.formatDuration(duration)
+        + " (cumulated time of deletions: " + TimeUtils.formatDuration(profiler.totalDuration()) + ") --------\n");
+      profiler.dump(LOG);
       LOG.info("\n -------- End of profiling for purge --------\n");
+    } else if (LOG.isDebugEnabled()) {
+      LOG.debug("Purge done in " + TimeUtils.formatDuration(duration) + ". Durations by table: " + new TreeMap<String, Long>(profiler.durations()));
     }
     return this;
   }
 
-  private void cleanHistoricalData(long resourceId) {
+  private void cleanHistoricalData(PurgeConfiguration conf) {
     try {
-      periodCleaner.clean(resourceId);
+      periodCleaner.clean(conf);
     } catch (Exception e) {
       // purge errors must no fail the batch
-      LOG.error("Fail to clean historical data [id=" + resourceId + "]", e);
+      LOG.error("Fail to clean historical data [id=" + conf.rootProjectId() + "]", e);
     }
   }
 
-  private void doPurge(long resourceId) {
+  private void doPurge(PurgeConfiguration conf) {
     try {
-      purgeDao.purge(newConf(resourceId));
+      purgeDao.purge(conf);
     } catch (Exception e) {
       // purge errors must no fail the batch
-      LOG.error("Fail to purge data [id=" + resourceId + "]", e);
+      LOG.error("Fail to purge data [id=" + conf.rootProjectId() + "]", e);
     }
   }
 
@@ -92,6 +102,13 @@ public class DefaultPurgeTask implements PurgeTask {
     if (settings.getBoolean(DbCleanerConstants.PROPERTY_CLEAN_DIRECTORY)) {
       scopes = new String[] {Scopes.DIRECTORY, Scopes.FILE};
     }
-    return new PurgeConfiguration(resourceId, scopes, settings.getInt(DbCleanerConstants.DAYS_BEFORE_DELETING_CLOSED_ISSUES));
+    return new PurgeConfiguration(resourceId, scopes, settings.getInt(DbCleanerConstants.DAYS_BEFORE_DELETING_CLOSED_ISSUES),
+      positiveInt(DbCleanerConstants.CHUNK_SIZE, PurgeConfiguration.DEFAULT_CHUNK_SIZE),
+      positiveInt(DbCleanerConstants.THREADS, PurgeConfiguration.DEFAULT_THREADS));
+  }
+
+  private int positiveInt(String key, int defaultValue) {
+    int value = settings.getInt(key);
+    return value > 0 ? value : defaultValue;
   }
 }
@@ -30,4 +30,14 @@ public interface DbCleanerConstants {
   String WEEKS_BEFORE_KEEPING_ONLY_ONE_SNAPSHOT_BY_MONTH = "sonar.dbcleaner.weeksBeforeKeepingOnlyOneSnapshotByMonth";
   String WEEKS_BEFORE_DELETING_ALL_SNAPSHOTS = "sonar.dbcleaner.weeksBeforeDeletingAllSnapshots";
   String DAYS_BEFORE_DELETING_CLOSED_ISSUES = "sonar.dbcleaner.daysBeforeDeletingClosedIssues";
+
+  /**
+   * @since 4.2
+   */
+  String CHUNK_SIZE = "sonar.dbcleaner.chunkSize";
+
+  /**
+   * @since 4.2
+   */
+  String THREADS = "sonar.dbcleaner.threads";
 }
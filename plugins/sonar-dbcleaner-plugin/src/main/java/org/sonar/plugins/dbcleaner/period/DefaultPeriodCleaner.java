@@ -20,17 +20,20 @@
 package org.sonar.plugins.dbcleaner.period;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.sonar.api.config.Settings;
 import org.sonar.api.resources.Project;
 import org.sonar.api.task.TaskExtension;
 import org.sonar.api.utils.DateUtils;
+import org.sonar.core.purge.PurgeConfiguration;
 import org.sonar.core.purge.PurgeDao;
-import org.sonar.core.purge.PurgeSnapshotQuery;
 import org.sonar.core.purge.PurgeableSnapshotDto;
 
 import java.util.List;
+import java.util.Set;
 
 public class DefaultPeriodCleaner implements TaskExtension {
 
@@ -48,23 +51,34 @@ public class DefaultPeriodCleaner implements TaskExtension {
   }
 
   public void clean(long projectId) {
-    doClean(projectId, new Filters(settings).getFilters());
+    clean(new PurgeConfiguration(projectId, new String[0], 0));
   }
 
+  /**
+   * @since 4.2
+   */
+  public void clean(PurgeConfiguration conf) {
+    doClean(conf, new Filters(settings).getFilters());
+  }
+
+  /**
+   * Snapshots selected by all the filters are deleted at once, so that rows of each table are deleted by a few
+   * requests on chunks of snapshot ids instead of a few requests per snapshot.
+   */
   @VisibleForTesting
-  void doClean(long projectId, List<Filter> filters) {
-    List<PurgeableSnapshotDto> history = selectProjectSnapshots(projectId);
+  void doClean(PurgeConfiguration conf, List<Filter> filters) {
+    List<PurgeableSnapshotDto> history = selectProjectSnapshots(conf.rootProjectId());
+    Set<Long> snapshotIds = Sets.newLinkedHashSet();
     for (Filter filter : filters) {
       filter.log();
-      delete(filter.filter(history));
+      for (PurgeableSnapshotDto snapshot : filter.filter(history)) {
+        if (snapshotIds.add(snapshot.getSnapshotId())) {
+          LOG.info("<- Delete snapshot: " + DateUtils.formatDateTime(snapshot.getDate()) + " [" + snapshot.getSnapshotId() + "]");
+        }
+      }
     }
-  }
-
-  private void delete(List<PurgeableSnapshotDto> snapshots) {
-    for (PurgeableSnapshotDto snapshot : snapshots) {
-      LOG.info("<- Delete snapshot: " + DateUtils.formatDateTime(snapshot.getDate()) + " [" + snapshot.getSnapshotId() + "]");
-      purgeDao.deleteSnapshots(PurgeSnapshotQuery.create().setRootSnapshotId(snapshot.getSnapshotId()));
-      purgeDao.deleteSnapshots(PurgeSnapshotQuery.create().setId(snapshot.getSnapshotId()));
+    if (!snapshotIds.isEmpty()) {
+      purgeDao.deleteSnapshotTrees(Lists.newArrayList(snapshotIds), conf);
     }
   }
 
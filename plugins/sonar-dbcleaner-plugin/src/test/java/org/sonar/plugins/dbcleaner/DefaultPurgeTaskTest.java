@@ -33,7 +33,6 @@ import org.sonar.plugins.dbcleaner.api.DbCleanerConstants;
 import org.sonar.plugins.dbcleaner.period.DefaultPeriodCleaner;
 
 import static org.mockito.Matchers.any;
-import static org.mockito.Matchers.anyLong;
 import static org.mockito.Matchers.argThat;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
@@ -79,6 +78,25 @@ public class DefaultPurgeTaskTest {
     }));
   }
 
+  @Test
+  public void shouldConfigureConcurrentDeletions() {
+    PurgeDao purgeDao = mock(PurgeDao.class);
+    Settings settings = new Settings(new PropertyDefinitions(DbCleanerPlugin.propertyDefinitions()));
+    settings.setProperty(DbCleanerConstants.CHUNK_SIZE, 500);
+    settings.setProperty(DbCleanerConstants.THREADS, 4);
+    DefaultPurgeTask task = new DefaultPurgeTask(purgeDao, settings, mock(DefaultPeriodCleaner.class), mock(PurgeProfiler.class));
+
+    task.purge(1L);
+
+    verify(purgeDao).purge(argThat(new ArgumentMatcher<PurgeConfiguration>() {
+      @Override
+      public boolean matches(Object o) {
+        PurgeConfiguration conf = (PurgeConfiguration) o;
+        return conf.chunkSize() == 500 && conf.threads() == 4;
+      }
+    }));
+  }
+
   @Test
   public void shouldNotFailOnErrors() {
     PurgeDao purgeDao = mock(PurgeDao.class);
@@ -102,6 +120,6 @@ public class DefaultPurgeTaskTest {
     DefaultPurgeTask task = new DefaultPurgeTask(purgeDao, settings, mock(DefaultPeriodCleaner.class), profiler);
     task.purge(1L);
 
-    verify(profiler).dump(anyLong(), any(Logger.class));
+    verify(profiler).dump(any(Logger.class));
   }
 }
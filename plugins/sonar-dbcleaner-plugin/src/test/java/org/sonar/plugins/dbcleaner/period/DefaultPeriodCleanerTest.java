@@ -19,24 +19,22 @@
  */
 package org.sonar.plugins.dbcleaner.period;
 
-import org.apache.commons.lang.ObjectUtils;
-import org.hamcrest.BaseMatcher;
 import org.junit.Test;
-import org.mockito.ArgumentMatcher;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 import org.sonar.api.config.Settings;
+import org.sonar.core.purge.PurgeConfiguration;
 import org.sonar.core.purge.PurgeDao;
-import org.sonar.core.purge.PurgeSnapshotQuery;
 import org.sonar.core.purge.PurgeableSnapshotDto;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 
+import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyListOf;
-import static org.mockito.Matchers.argThat;
 import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -50,34 +48,26 @@ public class DefaultPeriodCleanerTest {
         new PurgeableSnapshotDto().setSnapshotId(999L).setDate(new Date())));
     Filter filter1 = newLazyFilter();
     Filter filter2 = newLazyFilter();
+    PurgeConfiguration conf = new PurgeConfiguration(123L, new String[0], 30);
 
     DefaultPeriodCleaner cleaner = new DefaultPeriodCleaner(dao, mock(Settings.class));
-    cleaner.doClean(123L, Arrays.asList(filter1, filter2));
+    cleaner.doClean(conf, Arrays.asList(filter1, filter2));
 
     verify(filter1).log();
     verify(filter2).log();
-    verify(dao, times(2)).deleteSnapshots(argThat(newRootSnapshotQuery()));
-    verify(dao, times(2)).deleteSnapshots(argThat(newSnapshotIdQuery()));
+    // snapshots are deleted once, even if selected by several filters
+    verify(dao).deleteSnapshotTrees(Arrays.asList(999L), conf);
   }
 
-  private BaseMatcher<PurgeSnapshotQuery> newRootSnapshotQuery() {
-    return new ArgumentMatcher<PurgeSnapshotQuery>() {
-      @Override
-      public boolean matches(Object o) {
-        PurgeSnapshotQuery query = (PurgeSnapshotQuery) o;
-        return ObjectUtils.equals(query.getRootSnapshotId(), 999L);
-      }
-    };
-  }
+  @Test
+  public void should_not_delete_if_no_snapshots_to_delete() {
+    PurgeDao dao = mock(PurgeDao.class);
+    when(dao.selectPurgeableSnapshots(123L)).thenReturn(Collections.<PurgeableSnapshotDto>emptyList());
 
-  private BaseMatcher<PurgeSnapshotQuery> newSnapshotIdQuery() {
-    return new ArgumentMatcher<PurgeSnapshotQuery>() {
-      @Override
-      public boolean matches(Object o) {
-        PurgeSnapshotQuery query = (PurgeSnapshotQuery) o;
-        return ObjectUtils.equals(query.getId(), 999L);
-      }
-    };
+    DefaultPeriodCleaner cleaner = new DefaultPeriodCleaner(dao, mock(Settings.class));
+    cleaner.doClean(new PurgeConfiguration(123L, new String[0], 30), Arrays.asList(newLazyFilter()));
+
+    verify(dao, never()).deleteSnapshotTrees(anyListOf(Long.class), any(PurgeConfiguration.class));
   }
 
   private Filter newLazyFilter() {
@@ -20,7 +20,11 @@
 package org.sonar.plugins.design;
 
 import com.google.common.collect.ImmutableList;
+import org.sonar.api.CoreProperties;
 import org.sonar.api.Extension;
+import org.sonar.api.Properties;
+import org.sonar.api.Property;
+import org.sonar.api.PropertyType;
 import org.sonar.api.SonarPlugin;
 import org.sonar.plugins.design.batch.FileTangleIndexDecorator;
 import org.sonar.plugins.design.batch.MavenDependenciesSensor;
@@ -34,8 +38,26 @@ import org.sonar.plugins.design.ui.widgets.ResponseForClassWidget;
 
 import java.util.List;
 
+@Properties(
+  @Property(
+    key = DesignPlugin.FEEDBACK_EDGES_SOLVER_PROPERTY,
+    defaultValue = DesignPlugin.EXACT_SOLVER,
+    name = "Feedback edges algorithm",
+    description = "Algorithm used to select the dependencies to remove in order to break cycles. "
+      + "'exact' searches the set of minimum weight but can be very slow on large tangles, "
+      + "'greedy' approximates it in a time proportional to the number of dependencies.",
+    type = PropertyType.SINGLE_SELECT_LIST,
+    options = {DesignPlugin.EXACT_SOLVER, DesignPlugin.GREEDY_SOLVER},
+    project = true,
+    global = true,
+    category = CoreProperties.CATEGORY_GENERAL)
+)
 public class DesignPlugin extends SonarPlugin {
 
+  public static final String FEEDBACK_EDGES_SOLVER_PROPERTY = "sonar.design.feedbackEdgesAlgorithm";
+  public static final String EXACT_SOLVER = "exact";
+  public static final String GREEDY_SOLVER = "greedy";
+
   public List<Class<? extends Extension>> getExtensions() {
     return ImmutableList.of(
         // Batch
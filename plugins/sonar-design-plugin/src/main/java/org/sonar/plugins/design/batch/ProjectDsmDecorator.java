@@ -19,10 +19,12 @@
  */
 package org.sonar.plugins.design.batch;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.Lists;
 import org.sonar.api.batch.Decorator;
 import org.sonar.api.batch.DecoratorContext;
 import org.sonar.api.batch.SonarIndex;
+import org.sonar.api.config.Settings;
 import org.sonar.api.measures.CoreMetrics;
 import org.sonar.api.measures.Measure;
 import org.sonar.api.measures.PersistenceMode;
@@ -30,6 +32,7 @@ import org.sonar.api.resources.Project;
 import org.sonar.api.resources.Resource;
 import org.sonar.api.resources.ResourceUtils;
 import org.sonar.graph.*;
+import org.sonar.plugins.design.DesignPlugin;
 
 import java.util.Collection;
 import java.util.List;
@@ -43,9 +46,11 @@ public class ProjectDsmDecorator implements Decorator {
 
   // hack as long as DecoratorContext does not implement SonarIndex
   private SonarIndex index;
+  private Settings settings;
 
-  public ProjectDsmDecorator(SonarIndex index) {
+  public ProjectDsmDecorator(SonarIndex index, Settings settings) {
     this.index = index;
+    this.settings = settings;
   }
 
   public boolean shouldExecuteOnProject(Project project) {
@@ -70,17 +75,23 @@ public class ProjectDsmDecorator implements Decorator {
   }
 
   private Dsm<Resource> getDsm(Collection<Resource> subProjects) {
-    CycleDetector<Resource> cycleDetector = new CycleDetector<Resource>(index, subProjects);
-    Set<Cycle> cycles = cycleDetector.getCycles();
-
-    MinimumFeedbackEdgeSetSolver solver = new MinimumFeedbackEdgeSetSolver(cycles);
-    Set<Edge> feedbackEdges = solver.getEdges();
+    Set<Edge> feedbackEdges = getFeedbackEdges(subProjects);
 
     Dsm<Resource> dsm = new Dsm<Resource>(index, subProjects, feedbackEdges);
     DsmTopologicalSorter.sort(dsm);
     return dsm;
   }
 
+  @VisibleForTesting
+  Set<Edge> getFeedbackEdges(Collection<Resource> subProjects) {
+    if (DesignPlugin.GREEDY_SOLVER.equals(settings.getString(DesignPlugin.FEEDBACK_EDGES_SOLVER_PROPERTY))) {
+      return new GreedyFeedbackEdgeSetSolver<Resource>(index, subProjects).getEdges();
+    }
+    StronglyConnectedCycleDetector<Resource> cycleDetector = new StronglyConnectedCycleDetector<Resource>(index, subProjects);
+    Set<Cycle> cycles = cycleDetector.detectCycles();
+    return new MinimumFeedbackEdgeSetSolver(cycles).getEdges();
+  }
+
   /**
    * sub-projects, including all descendants but not only direct children
    */
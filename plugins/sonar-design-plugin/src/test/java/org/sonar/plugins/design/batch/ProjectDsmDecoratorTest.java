@@ -0,0 +1,76 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2013 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.design.batch;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.sonar.api.batch.SonarIndex;
+import org.sonar.api.config.Settings;
+import org.sonar.api.design.Dependency;
+import org.sonar.api.resources.Project;
+import org.sonar.api.resources.Resource;
+import org.sonar.graph.Edge;
+import org.sonar.plugins.design.DesignPlugin;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Set;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ProjectDsmDecoratorTest {
+
+  Resource foo = new Project("foo");
+  Resource bar = new Project("bar");
+  Dependency fooToBar = new Dependency(foo, bar).setWeight(3);
+  Dependency barToFoo = new Dependency(bar, foo).setWeight(1);
+  SonarIndex index = mock(SonarIndex.class);
+  Settings settings = new Settings();
+
+  @Before
+  public void before() {
+    when(index.getOutgoingEdges(foo)).thenReturn(Arrays.asList(fooToBar));
+    when(index.getOutgoingEdges(bar)).thenReturn(Arrays.asList(barToFoo));
+    when(index.getEdge(foo, bar)).thenReturn(fooToBar);
+    when(index.getEdge(bar, foo)).thenReturn(barToFoo);
+  }
+
+  @Test
+  public void should_search_minimum_feedback_edges_by_default() {
+    Set<Edge> edges = new ProjectDsmDecorator(index, settings).getFeedbackEdges(modules());
+
+    assertThat(edges).containsOnly(barToFoo);
+  }
+
+  @Test
+  public void should_use_greedy_solver() {
+    settings.setProperty(DesignPlugin.FEEDBACK_EDGES_SOLVER_PROPERTY, DesignPlugin.GREEDY_SOLVER);
+
+    Set<Edge> edges = new ProjectDsmDecorator(index, settings).getFeedbackEdges(modules());
+
+    assertThat(edges).containsOnly(barToFoo);
+  }
+
+  private Collection<Resource> modules() {
+    return Arrays.asList(foo, bar);
+  }
+}
@@ -21,6 +21,7 @@ package org.sonar.batch.bootstrap;
 
 import org.sonar.api.config.Settings;
 import org.sonar.core.persistence.DefaultDatabase;
+import org.sonar.core.purge.PurgeConfiguration;
 
 import java.util.Properties;
 
@@ -29,6 +30,9 @@ import java.util.Properties;
  */
 public class BatchDatabase extends DefaultDatabase {
 
+  private static final String DBCLEANER_THREADS = "sonar.dbcleaner.threads";
+
+  private final Settings settings;
   private final AnalysisMode analysisMode;
 
   public BatchDatabase(Settings settings,
@@ -41,6 +45,7 @@ public class BatchDatabase extends DefaultDatabase {
     // changed settings
     PreviewDatabase dryRun) {
     super(settings);
+    this.settings = settings;
     this.analysisMode = analysisMode;
   }
 
@@ -50,6 +55,7 @@ public class BatchDatabase extends DefaultDatabase {
     // has been downloaded and injected into classloader
     JdbcDriverHolder jdbcDriverHolder) {
     super(settings);
+    this.settings = settings;
     this.analysisMode = analysisMode;
   }
 
@@ -59,11 +65,17 @@ public class BatchDatabase extends DefaultDatabase {
     // and one for the SemaphoreUpdater
     // Note that Hibernate will be removed soon
     properties.setProperty("sonar.jdbc.initialSize", "3");
-    properties.setProperty("sonar.jdbc.maxActive", "3");
+    // plus the connections of the tables purged concurrently by the dbcleaner post-job (sonar.dbcleaner.threads)
+    properties.setProperty("sonar.jdbc.maxActive", String.valueOf(3 + dbCleanerThreads()));
     // SONAR-2965
     properties.setProperty("sonar.jdbc.defaultAutoCommit", "false");
   }
 
+  private int dbCleanerThreads() {
+    int threads = settings.getInt(DBCLEANER_THREADS);
+    return threads > 0 ? threads : PurgeConfiguration.DEFAULT_THREADS;
+  }
+
   @Override
   protected void checkH2Database() {
     if (!analysisMode.isPreview()) {
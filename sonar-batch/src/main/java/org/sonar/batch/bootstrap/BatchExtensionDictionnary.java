@@ -19,16 +19,26 @@
  */
 package org.sonar.batch.bootstrap;
 
+import com.google.common.collect.LinkedHashMultimap;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.SetMultimap;
+import com.google.common.collect.Sets;
 import org.apache.commons.lang.ClassUtils;
 import org.sonar.api.BatchExtension;
 import org.sonar.api.batch.CheckProject;
 import org.sonar.api.batch.Sensor;
 import org.sonar.api.platform.ComponentContainer;
 import org.sonar.api.resources.Project;
+import org.sonar.api.utils.dag.DirectAcyclicGraph;
+import org.sonar.api.utils.dag.Node;
 
+import java.util.ArrayDeque;
 import java.util.Collection;
+import java.util.Deque;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * @since 2.6
@@ -47,6 +57,38 @@ public class BatchExtensionDictionnary extends org.sonar.api.batch.BatchExtensio
     return result;
   }
 
+  /**
+   * Dependencies between the given extensions, as declared by {@link org.sonar.api.batch.DependsUpon},
+   * {@link org.sonar.api.batch.DependedUpon} and {@link org.sonar.api.batch.Phase}. Indirect dependencies, for example
+   * through barriers, are included.
+   *
+   * @return for each extension, the extensions of the collection that must be executed before it
+   * @since 4.2
+   */
+  public <T> SetMultimap<T, T> dependencies(Collection<T> extensions) {
+    DirectAcyclicGraph dag = dag(extensions);
+    Map<Object, T> selected = Maps.newHashMap();
+    for (T extension : extensions) {
+      selected.put(extension, extension);
+    }
+    SetMultimap<T, T> result = LinkedHashMultimap.create();
+    for (T extension : extensions) {
+      Set<Node> visited = Sets.newHashSet();
+      Deque<Node> toVisit = new ArrayDeque<Node>(dag.add(extension).getDependencies());
+      while (!toVisit.isEmpty()) {
+        Node node = toVisit.pop();
+        if (visited.add(node)) {
+          T dependency = selected.get(node.getObject());
+          if (dependency != null && !dependency.equals(extension)) {
+            result.put(extension, dependency);
+          }
+          toVisit.addAll(node.getDependencies());
+        }
+      }
+    }
+    return result;
+  }
+
   private <T> List<T> getFilteredExtensions(Class<T> type, Project project, ExtensionMatcher matcher) {
     List<T> result = Lists.newArrayList();
     for (BatchExtension extension : getExtensions()) {
@@ -19,6 +19,7 @@
  */
 package org.sonar.batch.issue;
 
+import com.google.common.collect.Maps;
 import org.sonar.api.BatchComponent;
 import org.sonar.api.database.model.Snapshot;
 import org.sonar.api.issue.internal.DefaultIssue;
@@ -30,11 +31,16 @@ import org.sonar.core.resource.ResourceDao;
 import org.sonar.core.resource.ResourceDto;
 import org.sonar.core.resource.ResourceQuery;
 
+import java.util.Map;
+
 public class ScanIssueStorage extends IssueStorage implements BatchComponent {
 
   private final SnapshotCache snapshotCache;
   private final ResourceDao resourceDao;
 
+  // ids of components that are not in snapshot cache, loaded once per analysis
+  private final Map<String, Long> componentIdsFromDb = Maps.newHashMap();
+
   public ScanIssueStorage(MyBatis mybatis, RuleFinder ruleFinder, SnapshotCache snapshotCache, ResourceDao resourceDao) {
     super(mybatis, ruleFinder);
     this.snapshotCache = snapshotCache;
@@ -49,11 +55,16 @@ public class ScanIssueStorage extends IssueStorage implements BatchComponent {
     }
 
     // Load from db when component does not exist in cache (deleted file for example)
-    ResourceDto resourceDto = resourceDao.getResource(ResourceQuery.create().setKey(issue.componentKey()));
-    if (resourceDto == null) {
-      throw new IllegalStateException("Unknown component: " + issue.componentKey());
+    Long componentId = componentIdsFromDb.get(issue.componentKey());
+    if (componentId == null) {
+      ResourceDto resourceDto = resourceDao.getResource(ResourceQuery.create().setKey(issue.componentKey()));
+      if (resourceDto == null) {
+        throw new IllegalStateException("Unknown component: " + issue.componentKey());
+      }
+      componentId = resourceDto.getId();
+      componentIdsFromDb.put(issue.componentKey(), componentId);
     }
-    return resourceDto.getId();
+    return componentId;
   }
 
   @Override
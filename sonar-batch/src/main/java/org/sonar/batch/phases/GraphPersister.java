@@ -20,7 +20,7 @@
 package org.sonar.batch.phases;
 
 import com.tinkerpop.blueprints.Graph;
-import org.apache.commons.io.IOUtils;
+import org.apache.commons.codec.binary.Base64;
 import org.sonar.api.component.Perspective;
 import org.sonar.batch.index.ScanPersister;
 import org.sonar.core.component.ComponentVertex;
@@ -28,14 +28,13 @@ import org.sonar.core.component.GraphPerspectiveBuilder;
 import org.sonar.core.component.PerspectiveBuilder;
 import org.sonar.core.component.ScanGraph;
 import org.sonar.core.graph.SubGraph;
-import org.sonar.core.graph.graphson.GraphsonMode;
-import org.sonar.core.graph.graphson.GraphsonWriter;
+import org.sonar.core.graph.binary.BinaryGraphWriter;
 import org.sonar.core.graph.jdbc.GraphDto;
 import org.sonar.core.graph.jdbc.GraphDtoMapper;
 import org.sonar.core.persistence.BatchSession;
 import org.sonar.core.persistence.MyBatis;
 
-import java.io.StringWriter;
+import java.io.ByteArrayOutputStream;
 
 public class GraphPersister implements ScanPersister {
   private final MyBatis myBatis;
@@ -80,7 +79,7 @@ public class GraphPersister implements ScanPersister {
     String data = write(subGraph);
     mapper.insert(new GraphDto()
       .setData(data)
-      .setFormat("graphson")
+      .setFormat(GraphDto.FORMAT_BINARY)
       .setPerspective(builder.getPerspectiveLoader().getPerspectiveKey())
       .setVersion(1)
       .setResourceId((Long) component.element().getProperty("rid"))
@@ -89,13 +88,12 @@ public class GraphPersister implements ScanPersister {
     );
   }
 
+  /**
+   * The binary format is used instead of GraphSON, which is too big for the test plans of large test files
+   */
   private String write(Graph graph) {
-    StringWriter output = new StringWriter();
-    try {
-      new GraphsonWriter().write(graph, output, GraphsonMode.EXTENDED);
-      return output.toString();
-    } finally {
-      IOUtils.closeQuietly(output);
-    }
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    new BinaryGraphWriter(true).write(graph, output);
+    return Base64.encodeBase64String(output.toByteArray());
   }
 }
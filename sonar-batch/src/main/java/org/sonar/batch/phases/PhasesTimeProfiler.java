@@ -25,6 +25,7 @@ import org.apache.commons.lang.SystemUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.sonar.api.batch.Decorator;
+import org.sonar.api.batch.Sensor;
 import org.sonar.api.batch.events.DecoratorExecutionHandler;
 import org.sonar.api.batch.events.DecoratorsPhaseHandler;
 import org.sonar.api.batch.events.SensorExecutionHandler;
@@ -39,7 +40,8 @@ public class PhasesTimeProfiler implements SensorExecutionHandler, DecoratorExec
 
   private static final Logger LOG = LoggerFactory.getLogger(PhasesTimeProfiler.class);
 
-  private TimeProfiler profiler = new TimeProfiler(LOG);
+  // sensors can be executed concurrently, so executions may overlap
+  private Map<Sensor, TimeProfiler> sensorProfilers = new IdentityHashMap<Sensor, TimeProfiler>();
   private DecoratorsProfiler decoratorsProfiler = new DecoratorsProfiler();
 
   public void onSensorsPhase(SensorsPhaseEvent event) {
@@ -50,9 +52,12 @@ public class PhasesTimeProfiler implements SensorExecutionHandler, DecoratorExec
 
   public void onSensorExecution(SensorExecutionEvent event) {
     if (event.isStart()) {
-      profiler.start("Sensor " + event.getSensor());
+      sensorProfilers.put(event.getSensor(), new TimeProfiler(LOG).start("Sensor " + event.getSensor()));
     } else {
-      profiler.stop();
+      TimeProfiler profiler = sensorProfilers.remove(event.getSensor());
+      if (profiler != null) {
+        profiler.stop();
+      }
     }
   }
 
@@ -19,18 +19,24 @@
  */
 package org.sonar.batch.phases;
 
+import com.google.common.base.Throwables;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.SetMultimap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.sonar.api.BatchComponent;
 import org.sonar.api.CoreProperties;
+import org.sonar.api.batch.ParallelSafe;
 import org.sonar.api.batch.Sensor;
 import org.sonar.api.batch.SensorContext;
 import org.sonar.api.batch.maven.DependsUponMavenPlugin;
 import org.sonar.api.batch.maven.MavenPluginHandler;
+import org.sonar.api.config.Settings;
 import org.sonar.api.database.DatabaseSession;
 import org.sonar.api.resources.Language;
 import org.sonar.api.resources.Project;
+import org.sonar.api.utils.AnnotationUtils;
 import org.sonar.api.utils.TimeProfiler;
 import org.sonar.batch.bootstrap.BatchExtensionDictionnary;
 import org.sonar.batch.events.EventBus;
@@ -39,10 +45,23 @@ import org.sonar.batch.scan.language.DefaultModuleLanguages;
 import org.sonar.batch.scan.maven.MavenPluginExecutor;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class SensorsExecutor implements BatchComponent {
   private static final Logger LOG = LoggerFactory.getLogger(SensorsExecutor.class);
 
+  /**
+   * Execute concurrently the sensors annotated with {@link ParallelSafe}. Disabled by default.
+   */
+  public static final String PARALLEL_PROPERTY = "sonar.sensors.parallel";
+  public static final String THREADS_PROPERTY = "sonar.sensors.parallel.threads";
+
   private MavenPluginExecutor mavenExecutor;
   private EventBus eventBus;
   private Project module;
@@ -51,9 +70,10 @@ public class SensorsExecutor implements BatchComponent {
   private final DatabaseSession session;
   private final SensorMatcher sensorMatcher;
   private final DefaultModuleLanguages moduleLanguages;
+  private final Settings settings;
 
   public SensorsExecutor(BatchExtensionDictionnary selector, Project project, DefaultModuleFileSystem fs, MavenPluginExecutor mavenExecutor, EventBus eventBus,
-    DatabaseSession session, SensorMatcher sensorMatcher, DefaultModuleLanguages moduleLanguages) {
+    DatabaseSession session, SensorMatcher sensorMatcher, DefaultModuleLanguages moduleLanguages, Settings settings) {
     this.selector = selector;
     this.mavenExecutor = mavenExecutor;
     this.eventBus = eventBus;
@@ -62,38 +82,108 @@ public class SensorsExecutor implements BatchComponent {
     this.session = session;
     this.sensorMatcher = sensorMatcher;
     this.moduleLanguages = moduleLanguages;
+    this.settings = settings;
   }
 
   public void execute(SensorContext context) {
     Collection<Sensor> sensors = selector.select(Sensor.class, module, true, sensorMatcher);
     eventBus.fireEvent(new SensorsPhaseEvent(Lists.newArrayList(sensors), true));
 
-    for (Sensor sensor : sensors) {
-      // SONAR-2965 In case the sensor takes too much time we close the session to not face a timeout
-      session.commitAndClose();
-
-      if (sensor.shouldExecuteOnProject(module)) {
-        executeSensor(context, sensor);
-      } else {
-        // For backward compatibility try to execute Sensor for each language until it is executed once (or never)
-        String oldLanguageKey = module.getLanguageKey();
-        Language oldLanguage = module.getLanguage();
-        for (Language language : moduleLanguages.languages()) {
-          module.setLanguage(language);
-          module.getConfiguration().setProperty(CoreProperties.PROJECT_LANGUAGE_PROPERTY, language.getKey());
-          if (sensor.shouldExecuteOnProject(module)) {
-            LOG.warn("Sensor {} should be updated to not depends on deprecated Project::getLanguage or Project::getLanguageKey", sensor);
-            executeSensor(context, sensor);
-            break;
+    if (settings.getBoolean(PARALLEL_PROPERTY)) {
+      executeInParallel(context, sensors);
+    } else {
+      for (Sensor sensor : sensors) {
+        executeSequentially(context, sensor);
+      }
+    }
+
+    eventBus.fireEvent(new SensorsPhaseEvent(Lists.newArrayList(sensors), false));
+  }
+
+  private void executeSequentially(SensorContext context, Sensor sensor) {
+    // SONAR-2965 In case the sensor takes too much time we close the session to not face a timeout
+    session.commitAndClose();
+
+    if (sensor.shouldExecuteOnProject(module)) {
+      executeSensor(context, sensor);
+    } else {
+      // For backward compatibility try to execute Sensor for each language until it is executed once (or never)
+      String oldLanguageKey = module.getLanguageKey();
+      Language oldLanguage = module.getLanguage();
+      for (Language language : moduleLanguages.languages()) {
+        module.setLanguage(language);
+        module.getConfiguration().setProperty(CoreProperties.PROJECT_LANGUAGE_PROPERTY, language.getKey());
+        if (sensor.shouldExecuteOnProject(module)) {
+          LOG.warn("Sensor {} should be updated to not depends on deprecated Project::getLanguage or Project::getLanguageKey", sensor);
+          executeSensor(context, sensor);
+          break;
+        }
+      }
+      // Restore module language
+      module.setLanguage(oldLanguage);
+      module.getConfiguration().setProperty(CoreProperties.PROJECT_LANGUAGE_PROPERTY, oldLanguageKey);
+    }
+  }
+
+  /**
+   * Sensors annotated with {@link ParallelSafe} are submitted to a bounded pool as soon as the sensors they depend upon
+   * are submitted, and wait for their completion before starting. Other sensors are executed alone, once all the
+   * submitted sensors are completed.
+   */
+  private void executeInParallel(SensorContext context, Collection<Sensor> sensors) {
+    SetMultimap<Sensor, Sensor> dependencies = selector.dependencies(sensors);
+    Object lock = new Object();
+    SensorContext synchronizedContext = new SynchronizedSensorContext(context, lock);
+    Map<Sensor, Future<Void>> submitted = Maps.newLinkedHashMap();
+    ExecutorService executor = Executors.newFixedThreadPool(numberOfThreads());
+    try {
+      for (Sensor sensor : sensors) {
+        if (isParallelSafe(sensor) && sensor.shouldExecuteOnProject(module)) {
+          List<Future<Void>> submittedDependencies = Lists.newArrayList();
+          for (Sensor dependency : dependencies.get(sensor)) {
+            if (submitted.containsKey(dependency)) {
+              submittedDependencies.add(submitted.get(dependency));
+            }
           }
+          submitted.put(sensor, executor.submit(new ParallelSensorExecution(sensor, synchronizedContext, lock, submittedDependencies)));
+        } else {
+          waitFor(submitted.values());
+          executeSequentially(context, sensor);
         }
-        // Restore module language
-        module.setLanguage(oldLanguage);
-        module.getConfiguration().setProperty(CoreProperties.PROJECT_LANGUAGE_PROPERTY, oldLanguageKey);
       }
+      waitFor(submitted.values());
+    } finally {
+      executor.shutdownNow();
     }
+  }
 
-    eventBus.fireEvent(new SensorsPhaseEvent(Lists.newArrayList(sensors), false));
+  private static boolean isParallelSafe(Sensor sensor) {
+    // Maven plugins can not be executed concurrently
+    return AnnotationUtils.getAnnotation(sensor, ParallelSafe.class) != null && !(sensor instanceof DependsUponMavenPlugin);
+  }
+
+  private static void waitFor(Collection<Future<Void>> futures) {
+    for (Future<Void> future : futures) {
+      try {
+        future.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while executing sensors", e);
+      } catch (ExecutionException e) {
+        throw Throwables.propagate(e.getCause());
+      }
+    }
+  }
+
+  int numberOfThreads() {
+    int threads = settings.getInt(THREADS_PROPERTY);
+    if (threads < 0) {
+      throw new IllegalArgumentException(String.format("Bad value of %s: %d", THREADS_PROPERTY, threads));
+    }
+    if (threads == 0) {
+      threads = Runtime.getRuntime().availableProcessors();
+    }
+    return threads;
   }
 
   private void executeSensor(SensorContext context, Sensor sensor) {
@@ -113,4 +203,37 @@ public class SensorsExecutor implements BatchComponent {
       }
     }
   }
+
+  private class ParallelSensorExecution implements Callable<Void> {
+    private final Sensor sensor;
+    private final SensorContext context;
+    private final Object lock;
+    private final List<Future<Void>> dependencies;
+
+    ParallelSensorExecution(Sensor sensor, SensorContext context, Object lock, List<Future<Void>> dependencies) {
+      this.sensor = sensor;
+      this.context = context;
+      this.lock = lock;
+      this.dependencies = dependencies;
+    }
+
+    @Override
+    public Void call() throws Exception {
+      // dependencies have been submitted before, so they are already running or completed
+      for (Future<Void> dependency : dependencies) {
+        dependency.get();
+      }
+      synchronized (lock) {
+        // SONAR-2965 same as sequential execution. The session is only used by the sensor context, so the lock
+        // guarantees that no other sensor is using it.
+        session.commitAndClose();
+        eventBus.fireEvent(new SensorExecutionEvent(sensor, true));
+      }
+      sensor.analyse(module, context);
+      synchronized (lock) {
+        eventBus.fireEvent(new SensorExecutionEvent(sensor, false));
+      }
+      return null;
+    }
+  }
 }
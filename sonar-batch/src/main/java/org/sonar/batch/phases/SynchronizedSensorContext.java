@@ -0,0 +1,269 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2013 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.batch.phases;
+
+import org.sonar.api.batch.Event;
+import org.sonar.api.batch.SensorContext;
+import org.sonar.api.design.Dependency;
+import org.sonar.api.measures.Measure;
+import org.sonar.api.measures.MeasuresFilter;
+import org.sonar.api.measures.Metric;
+import org.sonar.api.resources.ProjectLink;
+import org.sonar.api.resources.Resource;
+import org.sonar.api.rules.Violation;
+import org.sonar.api.scan.filesystem.InputFile;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Serializes the calls to a {@link SensorContext} shared by sensors executed in parallel.
+ *
+ * @since 4.2
+ */
+class SynchronizedSensorContext implements SensorContext {
+
+  private final SensorContext context;
+  private final Object lock;
+
+  SynchronizedSensorContext(SensorContext context, Object lock) {
+    this.context = context;
+    this.lock = lock;
+  }
+
+  @Override
+  public boolean index(Resource resource) {
+    synchronized (lock) {
+      return context.index(resource);
+    }
+  }
+
+  @Override
+  public boolean index(Resource resource, Resource parentReference) {
+    synchronized (lock) {
+      return context.index(resource, parentReference);
+    }
+  }
+
+  @Override
+  public boolean isExcluded(Resource reference) {
+    synchronized (lock) {
+      return context.isExcluded(reference);
+    }
+  }
+
+  @Override
+  public boolean isIndexed(Resource reference, boolean acceptExcluded) {
+    synchronized (lock) {
+      return context.isIndexed(reference, acceptExcluded);
+    }
+  }
+
+  @Override
+  public <R extends Resource> R getResource(R reference) {
+    synchronized (lock) {
+      return context.getResource(reference);
+    }
+  }
+
+  @Override
+  public Resource getParent(Resource reference) {
+    synchronized (lock) {
+      return context.getParent(reference);
+    }
+  }
+
+  @Override
+  public Collection<Resource> getChildren(Resource reference) {
+    synchronized (lock) {
+      return context.getChildren(reference);
+    }
+  }
+
+  @Override
+  public Measure getMeasure(Metric metric) {
+    synchronized (lock) {
+      return context.getMeasure(metric);
+    }
+  }
+
+  @Override
+  public <M> M getMeasures(MeasuresFilter<M> filter) {
+    synchronized (lock) {
+      return context.getMeasures(filter);
+    }
+  }
+
+  @Override
+  public Measure saveMeasure(Measure measure) {
+    synchronized (lock) {
+      return context.saveMeasure(measure);
+    }
+  }
+
+  @Override
+  public Measure saveMeasure(Metric metric, Double value) {
+    synchronized (lock) {
+      return context.saveMeasure(metric, value);
+    }
+  }
+
+  @Override
+  public Measure getMeasure(Resource resource, Metric metric) {
+    synchronized (lock) {
+      return context.getMeasure(resource, metric);
+    }
+  }
+
+  @Override
+  public String saveResource(Resource resource) {
+    synchronized (lock) {
+      return context.saveResource(resource);
+    }
+  }
+
+  @Override
+  public <M> M getMeasures(Resource resource, MeasuresFilter<M> filter) {
+    synchronized (lock) {
+      return context.getMeasures(resource, filter);
+    }
+  }
+
+  @Override
+  public Measure saveMeasure(Resource resource, Metric metric, Double value) {
+    synchronized (lock) {
+      return context.saveMeasure(resource, metric, value);
+    }
+  }
+
+  @Override
+  public Measure saveMeasure(InputFile inputFile, Metric metric, Double value) {
+    synchronized (lock) {
+      return context.saveMeasure(inputFile, metric, value);
+    }
+  }
+
+  @Override
+  public Measure saveMeasure(Resource resource, Measure measure) {
+    synchronized (lock) {
+      return context.saveMeasure(resource, measure);
+    }
+  }
+
+  @Override
+  public Measure saveMeasure(InputFile inputFile, Measure measure) {
+    synchronized (lock) {
+      return context.saveMeasure(inputFile, measure);
+    }
+  }
+
+  @Override
+  public void saveViolation(Violation violation, boolean force) {
+    synchronized (lock) {
+      context.saveViolation(violation, force);
+    }
+  }
+
+  @Override
+  public void saveViolation(Violation violation) {
+    synchronized (lock) {
+      context.saveViolation(violation);
+    }
+  }
+
+  @Override
+  public void saveViolations(Collection<Violation> violations) {
+    synchronized (lock) {
+      context.saveViolations(violations);
+    }
+  }
+
+  @Override
+  public Dependency saveDependency(Dependency dependency) {
+    synchronized (lock) {
+      return context.saveDependency(dependency);
+    }
+  }
+
+  @Override
+  public Set<Dependency> getDependencies() {
+    synchronized (lock) {
+      return context.getDependencies();
+    }
+  }
+
+  @Override
+  public Collection<Dependency> getIncomingDependencies(Resource to) {
+    synchronized (lock) {
+      return context.getIncomingDependencies(to);
+    }
+  }
+
+  @Override
+  public Collection<Dependency> getOutgoingDependencies(Resource from) {
+    synchronized (lock) {
+      return context.getOutgoingDependencies(from);
+    }
+  }
+
+  @Override
+  public void saveSource(Resource reference, String source) {
+    synchronized (lock) {
+      context.saveSource(reference, source);
+    }
+  }
+
+  @Override
+  public void saveLink(ProjectLink link) {
+    synchronized (lock) {
+      context.saveLink(link);
+    }
+  }
+
+  @Override
+  public void deleteLink(String key) {
+    synchronized (lock) {
+      context.deleteLink(key);
+    }
+  }
+
+  @Override
+  public List<Event> getEvents(Resource resource) {
+    synchronized (lock) {
+      return context.getEvents(resource);
+    }
+  }
+
+  @Override
+  public Event createEvent(Resource resource, String name, String description, String category, Date date) {
+    synchronized (lock) {
+      return context.createEvent(resource, name, description, category, date);
+    }
+  }
+
+  @Override
+  public void deleteEvent(Event event) {
+    synchronized (lock) {
+      context.deleteEvent(event);
+    }
+  }
+}
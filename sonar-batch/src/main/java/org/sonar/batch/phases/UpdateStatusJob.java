@@ -33,6 +33,7 @@ import org.sonar.api.utils.SonarException;
 import org.sonar.batch.bootstrap.AnalysisMode;
 import org.sonar.batch.bootstrap.ServerClient;
 import org.sonar.batch.index.ResourcePersister;
+import org.sonar.core.measure.db.LastMeasureDao;
 
 import javax.persistence.Query;
 
@@ -50,9 +51,10 @@ public class UpdateStatusJob implements BatchComponent {
   private Settings settings;
   private Project project;
   private AnalysisMode analysisMode;
+  private LastMeasureDao lastMeasureDao;
 
   public UpdateStatusJob(Settings settings, ServerClient server, DatabaseSession session,
-    ResourcePersister resourcePersister, Project project, Snapshot snapshot, AnalysisMode analysisMode) {
+    ResourcePersister resourcePersister, Project project, Snapshot snapshot, AnalysisMode analysisMode, LastMeasureDao lastMeasureDao) {
     this.session = session;
     this.server = server;
     this.resourcePersister = resourcePersister;
@@ -60,14 +62,25 @@ public class UpdateStatusJob implements BatchComponent {
     this.snapshot = snapshot;
     this.settings = settings;
     this.analysisMode = analysisMode;
+    this.lastMeasureDao = lastMeasureDao;
   }
 
   public void execute() {
     disablePreviousSnapshot();
     enableCurrentSnapshot();
+    refreshLastMeasures();
     evictPreviewDB();
   }
 
+  @VisibleForTesting
+  void refreshLastMeasures() {
+    if (!analysisMode.isPreview()) {
+      // snapshots are flagged and committed, so that measures of the new last snapshots are copied
+      LOG.debug("Refresh last measures");
+      lastMeasureDao.refresh(project.getId());
+    }
+  }
+
   @VisibleForTesting
   void evictPreviewDB() {
     if (analysisMode.isPreview()) {
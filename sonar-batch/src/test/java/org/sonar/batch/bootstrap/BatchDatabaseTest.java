@@ -21,6 +21,7 @@ package org.sonar.batch.bootstrap;
 
 import org.junit.Test;
 import org.sonar.api.config.Settings;
+import org.sonar.core.purge.PurgeConfiguration;
 
 import java.util.Properties;
 
@@ -39,4 +40,28 @@ public class BatchDatabaseTest {
     assertThat(Integer.parseInt(props.getProperty("sonar.jdbc.maxActive"))).isGreaterThanOrEqualTo(2);
   }
 
+  @Test
+  public void should_add_a_connection_per_dbcleaner_thread() {
+    Settings settings = new Settings();
+    settings.setProperty("sonar.dbcleaner.threads", 5);
+    BatchDatabase db = new BatchDatabase(settings, mock(AnalysisMode.class), mock(JdbcDriverHolder.class), mock(PreviewDatabase.class));
+    Properties props = new Properties();
+
+    db.doCompleteProperties(props);
+
+    assertThat(props.getProperty("sonar.jdbc.maxActive")).isEqualTo("8");
+  }
+
+  @Test
+  public void should_add_default_dbcleaner_connections_if_threads_are_not_positive() {
+    Settings settings = new Settings();
+    settings.setProperty("sonar.dbcleaner.threads", 0);
+    BatchDatabase db = new BatchDatabase(settings, mock(AnalysisMode.class), mock(JdbcDriverHolder.class), mock(PreviewDatabase.class));
+    Properties props = new Properties();
+
+    db.doCompleteProperties(props);
+
+    assertThat(props.getProperty("sonar.jdbc.maxActive")).isEqualTo(String.valueOf(3 + PurgeConfiguration.DEFAULT_THREADS));
+  }
+
 }
@@ -19,18 +19,24 @@
  */
 package org.sonar.batch.bootstrap;
 
+import com.google.common.collect.SetMultimap;
 import org.junit.Test;
 import org.sonar.api.BatchExtension;
+import org.sonar.api.batch.DependedUpon;
+import org.sonar.api.batch.DependsUpon;
 import org.sonar.api.batch.Sensor;
 import org.sonar.api.batch.SensorContext;
 import org.sonar.api.platform.ComponentContainer;
 import org.sonar.api.resources.Project;
 
+import java.util.Arrays;
 import java.util.Collection;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 import static org.junit.internal.matchers.IsCollectionContaining.hasItem;
+import static org.junit.internal.matchers.IsCollectionContaining.hasItems;
 
 public class BatchExtensionDictionnaryTest {
 
@@ -58,6 +64,34 @@ public class BatchExtensionDictionnaryTest {
     assertEquals(1, sensors.size());
   }
 
+  @Test
+  public void shouldReturnTransitiveDependencies() {
+    Sensor producer = new ProducerSensor(), intermediate = new IntermediateSensor(), consumer = new ConsumerSensor(), independent = new FakeSensor();
+
+    BatchExtensionDictionnary selector = newSelector();
+    SetMultimap<Sensor, Sensor> dependencies = selector.dependencies(Arrays.asList(consumer, independent, intermediate, producer));
+
+    assertThat(dependencies.get(consumer), hasItems(producer, intermediate));
+    assertEquals(2, dependencies.get(consumer).size());
+    assertThat(dependencies.get(intermediate), hasItem(producer));
+    assertEquals(1, dependencies.get(intermediate).size());
+    assertTrue(dependencies.get(producer).isEmpty());
+    assertTrue(dependencies.get(independent).isEmpty());
+  }
+
+  @DependedUpon("foo")
+  class ProducerSensor extends FakeSensor {
+  }
+
+  @DependsUpon("foo")
+  @DependedUpon("bar")
+  class IntermediateSensor extends FakeSensor {
+  }
+
+  @DependsUpon("bar")
+  class ConsumerSensor extends FakeSensor {
+  }
+
   class FakeSensor implements Sensor {
 
     public void analyse(Project project, SensorContext context) {
@@ -29,12 +29,17 @@ import org.sonar.api.rules.RuleQuery;
 import org.sonar.batch.index.SnapshotCache;
 import org.sonar.core.persistence.AbstractDaoTestCase;
 import org.sonar.core.resource.ResourceDao;
+import org.sonar.core.resource.ResourceDto;
+import org.sonar.core.resource.ResourceQuery;
 
 import java.util.Collection;
 
 import static org.fest.assertions.Assertions.assertThat;
 import static org.fest.assertions.Fail.fail;
+import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class ScanIssueStorageTest extends AbstractDaoTestCase {
@@ -61,6 +66,20 @@ public class ScanIssueStorageTest extends AbstractDaoTestCase {
     assertThat(componentId).isEqualTo(123);
   }
 
+  @Test
+  public void should_load_component_id_from_db_only_once() throws Exception {
+    SnapshotCache snapshotCache = mock(SnapshotCache.class);
+    when(snapshotCache.get("struts:Action.java")).thenReturn(null);
+    ResourceDao resourceDao = mock(ResourceDao.class);
+    when(resourceDao.getResource(any(ResourceQuery.class))).thenReturn(new ResourceDto().setId(123L));
+
+    ScanIssueStorage storage = new ScanIssueStorage(getMyBatis(), new FakeRuleFinder(), snapshotCache, resourceDao);
+    assertThat(storage.componentId(new DefaultIssue().setComponentKey("struts:Action.java"))).isEqualTo(123);
+    assertThat(storage.componentId(new DefaultIssue().setComponentKey("struts:Action.java"))).isEqualTo(123);
+
+    verify(resourceDao, times(1)).getResource(any(ResourceQuery.class));
+  }
+
   @Test
   public void should_fail_to_load_component_id_if_unknown_component() throws Exception {
     setupData("should_fail_to_load_component_id_if_unknown_component");
@@ -0,0 +1,86 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2013 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.batch.phases;
+
+import com.google.common.collect.Iterables;
+import org.junit.Before;
+import org.junit.Test;
+import org.sonar.api.component.mock.MockSourceFile;
+import org.sonar.api.test.MutableTestPlan;
+import org.sonar.core.component.ComponentVertex;
+import org.sonar.core.component.GraphPerspectiveBuilder;
+import org.sonar.core.component.GraphPerspectiveLoader;
+import org.sonar.core.component.ScanGraph;
+import org.sonar.core.component.SnapshotPerspectives;
+import org.sonar.core.graph.jdbc.GraphDao;
+import org.sonar.core.graph.jdbc.GraphDto;
+import org.sonar.core.persistence.AbstractDaoTestCase;
+import org.sonar.core.test.TestPlanBuilder;
+import org.sonar.core.test.TestPlanPerspectiveLoader;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class GraphPersisterTest extends AbstractDaoTestCase {
+
+  private ScanGraph graph = ScanGraph.create();
+  private TestPlanPerspectiveLoader loader = new TestPlanPerspectiveLoader();
+  private TestPlanBuilder builder = new TestPlanBuilder(graph, loader);
+  private GraphDao dao;
+  private GraphPersister persister;
+
+  @Before
+  public void before() {
+    dao = new GraphDao(getMyBatis());
+    persister = new GraphPersister(getMyBatis(), graph, new GraphPerspectiveBuilder[] {builder});
+  }
+
+  @Test
+  public void should_persist_perspectives_in_binary_format() {
+    ComponentVertex file = graph.addComponent(MockSourceFile.createMain("org.foo.BarTest"));
+    file.element().setProperty("sid", 123L);
+    file.element().setProperty("rid", 456L);
+    builder.create(file).addTestCase("should_pass").setDurationInMs(10L);
+
+    persister.persist();
+
+    GraphDto dto = dao.selectBySnapshot("testplan", 123L);
+    assertThat(dto.getFormat()).isEqualTo(GraphDto.FORMAT_BINARY);
+    assertThat(dto.getSnapshotId()).isEqualTo(123L);
+    assertThat(dto.getResourceId()).isEqualTo(456L);
+    assertThat(dto.getRootVertexId()).isEqualTo(file.element().getId().toString());
+
+    // read by the server
+    MutableTestPlan plan = new SnapshotPerspectives(dao, new GraphPerspectiveLoader[] {loader}).as(MutableTestPlan.class, 123L);
+    assertThat(plan).isNotNull();
+    assertThat(Iterables.getOnlyElement(plan.testCases()).name()).isEqualTo("should_pass");
+    assertThat(Iterables.getOnlyElement(plan.testCases()).durationInMs()).isEqualTo(10L);
+  }
+
+  @Test
+  public void should_not_persist_components_without_perspective() {
+    ComponentVertex file = graph.addComponent(MockSourceFile.createMain("org.foo.Bar"));
+    file.element().setProperty("sid", 123L);
+    file.element().setProperty("rid", 456L);
+
+    persister.persist();
+
+    assertThat(dao.selectBySnapshot("testplan", 123L)).isNull();
+  }
+}
@@ -0,0 +1,191 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2013 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.batch.phases;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.sonar.api.batch.DependedUpon;
+import org.sonar.api.batch.DependsUpon;
+import org.sonar.api.batch.ParallelSafe;
+import org.sonar.api.batch.Sensor;
+import org.sonar.api.batch.SensorContext;
+import org.sonar.api.config.Settings;
+import org.sonar.api.database.DatabaseSession;
+import org.sonar.api.platform.ComponentContainer;
+import org.sonar.api.resources.Project;
+import org.sonar.batch.bootstrap.BatchExtensionDictionnary;
+import org.sonar.batch.events.EventBus;
+import org.sonar.batch.scan.filesystem.DefaultModuleFileSystem;
+import org.sonar.batch.scan.language.DefaultModuleLanguages;
+import org.sonar.batch.scan.maven.MavenPluginExecutor;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.fest.assertions.Fail.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class SensorsExecutorTest {
+
+  static List<String> events;
+
+  Project project = new Project("project");
+  Settings settings = new Settings();
+  DatabaseSession session = mock(DatabaseSession.class);
+  SensorContext context = mock(SensorContext.class);
+
+  @Before
+  public void before() {
+    events = new CopyOnWriteArrayList<String>();
+  }
+
+  @Test
+  public void should_execute_sensors_in_calling_thread_by_default() {
+    ConcurrentSensor concurrent = new ConcurrentSensor();
+    SequentialSensor sequential = new SequentialSensor();
+    newExecutor(concurrent, sequential).execute(context);
+
+    assertThat(concurrent.thread).isSameAs(Thread.currentThread());
+    assertThat(sequential.thread).isSameAs(Thread.currentThread());
+    verify(session, times(2)).commitAndClose();
+  }
+
+  @Test
+  public void should_execute_parallel_safe_sensors_in_pool() {
+    settings.setProperty(SensorsExecutor.PARALLEL_PROPERTY, true);
+    ConcurrentSensor concurrent = new ConcurrentSensor();
+    SequentialSensor sequential = new SequentialSensor();
+    newExecutor(concurrent, sequential).execute(context);
+
+    assertThat(concurrent.thread).isNotSameAs(Thread.currentThread());
+    assertThat(sequential.thread).isSameAs(Thread.currentThread());
+    assertThat(events).contains("concurrent", "sequential");
+    // session is committed before each sensor, whatever the thread
+    verify(session, times(2)).commitAndClose();
+  }
+
+  @Test
+  public void should_execute_parallel_safe_sensors_after_their_dependencies() {
+    settings.setProperty(SensorsExecutor.PARALLEL_PROPERTY, true);
+    settings.setProperty(SensorsExecutor.THREADS_PROPERTY, 2);
+    newExecutor(new ConsumerSensor(), new ProducerSensor()).execute(context);
+
+    assertThat(events).containsExactly("producer", "consumer");
+  }
+
+  @Test
+  public void should_propagate_failure_of_parallel_safe_sensor() {
+    settings.setProperty(SensorsExecutor.PARALLEL_PROPERTY, true);
+    try {
+      newExecutor(new FailingSensor(), new ConcurrentSensor()).execute(context);
+      fail();
+    } catch (IllegalStateException e) {
+      assertThat(e).hasMessage("Failure");
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void should_fail_if_negative_number_of_threads() {
+    settings.setProperty(SensorsExecutor.THREADS_PROPERTY, -1);
+    newExecutor().numberOfThreads();
+  }
+
+  @Test
+  public void should_use_default_number_of_threads() {
+    assertThat(newExecutor().numberOfThreads()).isEqualTo(Runtime.getRuntime().availableProcessors());
+  }
+
+  private SensorsExecutor newExecutor(Sensor... sensors) {
+    ComponentContainer container = new ComponentContainer();
+    for (Sensor sensor : sensors) {
+      container.addSingleton(sensor);
+    }
+    return new SensorsExecutor(new BatchExtensionDictionnary(container), project, mock(DefaultModuleFileSystem.class), mock(MavenPluginExecutor.class),
+      mock(EventBus.class), session, null, mock(DefaultModuleLanguages.class), settings);
+  }
+
+  abstract static class FakeSensor implements Sensor {
+    Thread thread;
+
+    public boolean shouldExecuteOnProject(Project project) {
+      return true;
+    }
+
+    public void analyse(Project project, SensorContext context) {
+      thread = Thread.currentThread();
+      events.add(toString());
+    }
+  }
+
+  @ParallelSafe
+  static class ConcurrentSensor extends FakeSensor {
+    @Override
+    public String toString() {
+      return "concurrent";
+    }
+  }
+
+  static class SequentialSensor extends FakeSensor {
+    @Override
+    public String toString() {
+      return "sequential";
+    }
+  }
+
+  @ParallelSafe
+  @DependedUpon("foo")
+  static class ProducerSensor extends FakeSensor {
+    @Override
+    public void analyse(Project project, SensorContext context) {
+      try {
+        // gives the consumer a chance to start too early
+        Thread.sleep(50);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      super.analyse(project, context);
+    }
+
+    @Override
+    public String toString() {
+      return "producer";
+    }
+  }
+
+  @ParallelSafe
+  @DependsUpon("foo")
+  static class ConsumerSensor extends FakeSensor {
+    @Override
+    public String toString() {
+      return "consumer";
+    }
+  }
+
+  @ParallelSafe
+  static class FailingSensor extends FakeSensor {
+    @Override
+    public void analyse(Project project, SensorContext context) {
+      throw new IllegalStateException("Failure");
+    }
+  }
+}
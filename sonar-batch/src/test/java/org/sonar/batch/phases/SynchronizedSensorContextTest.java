@@ -0,0 +1,82 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2013 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.batch.phases;
+
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.sonar.api.batch.SensorContext;
+import org.sonar.api.measures.CoreMetrics;
+import org.sonar.api.measures.Measure;
+import org.sonar.api.resources.File;
+import org.sonar.api.resources.ProjectLink;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class SynchronizedSensorContextTest {
+
+  Object lock = new Object();
+  SensorContext delegate = mock(SensorContext.class);
+  SynchronizedSensorContext context = new SynchronizedSensorContext(delegate, lock);
+
+  @Test
+  public void should_delegate_calls() {
+    File file = new File("Foo.java");
+    Measure measure = new Measure(CoreMetrics.NCLOC, 12.0);
+    when(delegate.saveMeasure(file, measure)).thenReturn(measure);
+    when(delegate.getResource(file)).thenReturn(file);
+
+    assertThat(context.saveMeasure(file, measure)).isSameAs(measure);
+    assertThat(context.getResource(file)).isSameAs(file);
+    context.saveSource(file, "source");
+    verify(delegate).saveSource(file, "source");
+  }
+
+  @Test
+  public void should_hold_lock_during_calls() {
+    LockCheck lockCheck = new LockCheck();
+    when(delegate.saveMeasure(any(Measure.class))).thenAnswer(lockCheck);
+    doAnswer(lockCheck).when(delegate).saveLink(any(ProjectLink.class));
+
+    context.saveMeasure(new Measure(CoreMetrics.NCLOC, 12.0));
+    context.saveLink(new ProjectLink("home", "Home", "http://foo"));
+
+    assertThat(lockCheck.calls).isEqualTo(2);
+    assertThat(lockCheck.held).isTrue();
+    assertThat(Thread.holdsLock(lock)).isFalse();
+  }
+
+  private class LockCheck implements Answer<Object> {
+    int calls = 0;
+    boolean held = true;
+
+    @Override
+    public Object answer(InvocationOnMock invocation) {
+      calls++;
+      held &= Thread.holdsLock(lock);
+      return null;
+    }
+  }
+}
@@ -35,10 +35,12 @@ import org.sonar.batch.index.DefaultResourcePersister;
 import org.sonar.batch.index.ResourceCache;
 import org.sonar.batch.index.ResourcePersister;
 import org.sonar.batch.index.SnapshotCache;
+import org.sonar.core.measure.db.LastMeasureDao;
 import org.sonar.jpa.test.AbstractDbUnitTestCase;
 
 import javax.persistence.Query;
 
+import static org.mockito.Matchers.anyLong;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.contains;
 import static org.mockito.Mockito.mock;
@@ -50,10 +52,12 @@ public class UpdateStatusJobTest extends AbstractDbUnitTestCase {
 
   private AnalysisMode mode;
   private BootstrapSettings bootstrapSettings;
+  private LastMeasureDao lastMeasureDao;
 
   @Before
   public void setUp() {
     mode = mock(AnalysisMode.class);
+    lastMeasureDao = mock(LastMeasureDao.class);
   }
 
   @Test
@@ -79,10 +83,11 @@ public class UpdateStatusJobTest extends AbstractDbUnitTestCase {
     project.setId(1);
     UpdateStatusJob job = new UpdateStatusJob(new Settings().appendProperty(CoreProperties.SERVER_BASE_URL, "http://myserver/"), mock(ServerClient.class), session,
       new DefaultResourcePersister(session, mock(ResourcePermissions.class), mock(SnapshotCache.class), mock(ResourceCache.class)),
-      project, loadSnapshot(snapshotId), mode);
+      project, loadSnapshot(snapshotId), mode, lastMeasureDao);
     job.execute();
 
     checkTables(fixture, "snapshots");
+    verify(lastMeasureDao).refresh(1);
   }
 
   private Snapshot loadSnapshot(int id) {
@@ -97,7 +102,7 @@ public class UpdateStatusJobTest extends AbstractDbUnitTestCase {
     settings.setProperty(CoreProperties.SERVER_BASE_URL, "http://myserver/");
     Project project = new Project("struts");
     UpdateStatusJob job = new UpdateStatusJob(settings, mock(ServerClient.class), mock(DatabaseSession.class),
-      mock(ResourcePersister.class), project, mock(Snapshot.class), mode);
+      mock(ResourcePersister.class), project, mock(Snapshot.class), mode, lastMeasureDao);
 
     Logger logger = mock(Logger.class);
     job.logSuccess(logger);
@@ -111,7 +116,7 @@ public class UpdateStatusJobTest extends AbstractDbUnitTestCase {
     when(mode.isPreview()).thenReturn(true);
     Project project = new Project("struts");
     UpdateStatusJob job = new UpdateStatusJob(settings, mock(ServerClient.class), mock(DatabaseSession.class),
-      mock(ResourcePersister.class), project, mock(Snapshot.class), mode);
+      mock(ResourcePersister.class), project, mock(Snapshot.class), mode, lastMeasureDao);
 
     Logger logger = mock(Logger.class);
     job.logSuccess(logger);
@@ -125,7 +130,7 @@ public class UpdateStatusJobTest extends AbstractDbUnitTestCase {
     Project project = new Project("struts");
     ServerClient serverClient = mock(ServerClient.class);
     UpdateStatusJob job = new UpdateStatusJob(settings, serverClient, mock(DatabaseSession.class),
-      mock(ResourcePersister.class), project, mock(Snapshot.class), mode);
+      mock(ResourcePersister.class), project, mock(Snapshot.class), mode, lastMeasureDao);
 
     job.evictPreviewDB();
     verify(serverClient).request(contains("/batch_bootstrap/evict"));
@@ -138,9 +143,19 @@ public class UpdateStatusJobTest extends AbstractDbUnitTestCase {
     Project project = new Project("struts");
     ServerClient serverClient = mock(ServerClient.class);
     UpdateStatusJob job = new UpdateStatusJob(settings, serverClient, mock(DatabaseSession.class),
-      mock(ResourcePersister.class), project, mock(Snapshot.class), mode);
+      mock(ResourcePersister.class), project, mock(Snapshot.class), mode, lastMeasureDao);
 
     job.evictPreviewDB();
     verify(serverClient, never()).request(anyString());
   }
+
+  @Test
+  public void should_not_refresh_last_measures_for_preview_analysis() throws Exception {
+    when(mode.isPreview()).thenReturn(true);
+    UpdateStatusJob job = new UpdateStatusJob(new Settings(), mock(ServerClient.class), mock(DatabaseSession.class),
+      mock(ResourcePersister.class), new Project("struts"), mock(Snapshot.class), mode, lastMeasureDao);
+
+    job.refreshLastMeasures();
+    verify(lastMeasureDao, never()).refresh(anyLong());
+  }
 }
@@ -19,6 +19,8 @@
  */
 package org.sonar.channel;
 
+import java.util.regex.Matcher;
+
 public abstract class Channel<O> {
 
   /**
@@ -32,4 +34,33 @@ public abstract class Channel<O> {
    * @return false if the Channel doesn't want to consume the character stream, true otherwise.
    */
   public abstract boolean consume(CodeReader code, O output);
+
+  /**
+   * Tells whether the Channel may consume a character stream starting with the given character. The {@link ChannelDispatcher} uses it
+   * to try only the candidate channels of each character, so returning false must guarantee that
+   * {@link #consume(CodeReader, Object)} returns false whenever the next character is c. By default, any character is accepted.
+   * 
+   * @param c
+   *          the first character of the character stream
+   * @return false if the Channel never consumes a character stream starting with c, true otherwise.
+   * @since 4.2
+   */
+  public boolean mayConsumeFirst(char c) {
+    return true;
+  }
+
+  /**
+   * Tells whether the next characters of a stream starting with c may match the regular expression of the matcher, which must not
+   * be in use. Used by the channels relying on {@link CodeReader#popTo(Matcher, Appendable)} to implement
+   * {@link #mayConsumeFirst(char)}.
+   * 
+   * @since 4.2
+   */
+  protected static boolean mayMatchFirst(Matcher matcher, char c) {
+    matcher.reset(String.valueOf(c));
+    // the end of input is hit when the match depends on the characters following c
+    boolean result = matcher.lookingAt() || matcher.hitEnd();
+    matcher.reset("");
+    return result;
+  }
 }
@@ -30,10 +30,16 @@ import org.slf4j.LoggerFactory;
 public class ChannelDispatcher<O> extends Channel<O> {
 
   private static final Logger LOG = LoggerFactory.getLogger(ChannelDispatcher.class);
+  private static final int ASCII_SIZE = 128;
   private final boolean failIfNoChannelToConsumeOneCharacter;
 
   private final Channel<O>[] channels;
 
+  /**
+   * Candidate channels of the ASCII characters, in the order of declaration. Other characters are handled by all the channels.
+   */
+  private final Channel<O>[][] channelsByFirstChar;
+
   /**
    * @deprecated in version 2.9. Please use the builder() method
    */
@@ -59,20 +65,38 @@ public class ChannelDispatcher<O> extends Channel<O> {
   @Deprecated
   public ChannelDispatcher(List<Channel> channels, boolean failIfNoChannelToConsumeOneCharacter) {
     this.channels = channels.toArray(new Channel[channels.size()]);
+    this.channelsByFirstChar = channelsByFirstChar(this.channels);
     this.failIfNoChannelToConsumeOneCharacter = failIfNoChannelToConsumeOneCharacter;
   }
 
   private ChannelDispatcher(Builder builder) {
     this.channels = builder.channels.toArray(new Channel[builder.channels.size()]);
+    this.channelsByFirstChar = channelsByFirstChar(this.channels);
     this.failIfNoChannelToConsumeOneCharacter = builder.failIfNoChannelToConsumeOneCharacter;
   }
 
+  @SuppressWarnings("unchecked")
+  private static <O> Channel<O>[][] channelsByFirstChar(Channel<O>[] channels) {
+    Channel<O>[][] result = new Channel[ASCII_SIZE][];
+    List<Channel<O>> candidates = new ArrayList<Channel<O>>();
+    for (char c = 0; c < ASCII_SIZE; c++) {
+      for (Channel<O> channel : channels) {
+        if (channel.mayConsumeFirst(c)) {
+          candidates.add(channel);
+        }
+      }
+      result[c] = candidates.size() == channels.length ? channels : candidates.toArray(new Channel[candidates.size()]);
+      candidates.clear();
+    }
+    return result;
+  }
+
   @Override
   public boolean consume(CodeReader code, O output) {
     int nextChar = code.peek();
     while (nextChar != -1) {
       boolean characterConsumed = false;
-      for (Channel<O> channel : channels) {
+      for (Channel<O> channel : channels(nextChar)) {
         if (channel.consume(code, output)) {
           characterConsumed = true;
           break;
@@ -94,6 +118,10 @@ public class ChannelDispatcher<O> extends Channel<O> {
     return true;
   }
 
+  private Channel<O>[] channels(int firstChar) {
+    return firstChar < ASCII_SIZE ? channelsByFirstChar[firstChar] : channels;
+  }
+
   Channel[] getChannels() {
     return channels;
   }
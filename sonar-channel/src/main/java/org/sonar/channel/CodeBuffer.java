@@ -19,10 +19,21 @@
  */
 package org.sonar.channel;
 
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.FilterReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.io.Reader;
 import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.Arrays;
 
 import org.apache.commons.io.IOUtils;
 
@@ -35,9 +46,13 @@ import org.apache.commons.io.IOUtils;
  * <li>Read without consuming character at the specified index after the cursor</li>
  * <li>Position of the pending cursor : line and column</li>
  * </ul>
+ * When created from a large file without {@link CodeReaderFilter}, the characters are decoded from the memory-mapped file into a window
+ * which only grows when the lookahead requires it, so that the whole source code is never loaded in memory.
  */
 public class CodeBuffer implements CharSequence {
 
+  static final int WINDOW_SIZE = 64 * 1024;
+
   private int lastChar = -1;
   private Cursor cursor;
   private char[] buffer;
@@ -46,24 +61,67 @@ public class CodeBuffer implements CharSequence {
   private static final char CR = '\r';
   private int tabWidth;
 
+  /**
+   * Number of characters of buffer which are decoded
+   */
+  private int bufferLength;
+
+  /**
+   * Index in the source code of the first character of buffer
+   */
+  private int bufferOffset = 0;
+  private int totalLength;
+
+  /**
+   * Not null as long as the memory-mapped file is not fully decoded
+   */
+  private CharsetDecoder decoder;
+  private ByteBuffer bytes;
+
   private boolean recordingMode = false;
-  private StringBuilder recordedCharacters = new StringBuilder();
+  private int recordingStart;
 
   protected CodeBuffer(String code, CodeReaderConfiguration configuration) {
     this(new StringReader(code), configuration);
   }
-  
+
   /**
    * Note that this constructor will read everything from reader and will close it.
    */
   protected CodeBuffer(Reader initialCodeReader, CodeReaderConfiguration configuration) {
-    Reader reader = null;
+    cursor = new Cursor();
+    tabWidth = configuration.getTabWidth();
+    readFully(initialCodeReader, configuration);
+  }
 
+  /**
+   * Reads the file through a window when it is larger than the window and when the configuration has no code reader filter, as the
+   * length of the filtered source code is not known in advance. Otherwise, the file is fully read at once, which is faster than
+   * mapping and decoding it twice.
+   *
+   * @since 4.2
+   */
+  protected CodeBuffer(File file, Charset charset, CodeReaderConfiguration configuration) {
+    cursor = new Cursor();
+    tabWidth = configuration.getTabWidth();
     try {
-      lastChar = -1;
-      cursor = new Cursor();
-      tabWidth = configuration.getTabWidth();
+      if (configuration.getCodeReaderFilters().length > 0 || file.length() <= WINDOW_SIZE) {
+        readFully(new InputStreamReader(new FileInputStream(file), charset), configuration);
+      } else {
+        bytes = map(file);
+        totalLength = decodedLength(bytes.duplicate(), charset);
+        decoder = newDecoder(charset);
+        buffer = new char[Math.max(Math.min(totalLength, WINDOW_SIZE), 2)];
+      }
+    } catch (IOException e) {
+      throw new ChannelException(e.getMessage(), e);
+    }
+  }
 
+  private void readFully(Reader initialCodeReader, CodeReaderConfiguration configuration) {
+    Reader reader = null;
+
+    try {
       /* Setup the filters on the reader */
       reader = initialCodeReader;
       for (CodeReaderFilter<?> codeReaderFilter : configuration.getCodeReaderFilters()) {
@@ -71,6 +129,8 @@ public class CodeBuffer implements CharSequence {
       }
 
       buffer = IOUtils.toCharArray(reader);
+      bufferLength = buffer.length;
+      totalLength = buffer.length;
     } catch (IOException e) {
       throw new ChannelException(e.getMessage(), e);
     } finally {
@@ -78,20 +138,105 @@ public class CodeBuffer implements CharSequence {
     }
   }
 
+  private static ByteBuffer map(File file) throws IOException {
+    FileInputStream input = new FileInputStream(file);
+    try {
+      FileChannel channel = input.getChannel();
+      // the mapping remains valid after the channel is closed
+      return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    } finally {
+      IOUtils.closeQuietly(input);
+    }
+  }
+
+  private static CharsetDecoder newDecoder(Charset charset) {
+    // same behavior as InputStreamReader
+    return charset.newDecoder().onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+  }
+
+  /**
+   * The length must be known by the regular expression matchers, so the file is decoded a first time without keeping the characters.
+   */
+  private static int decodedLength(ByteBuffer input, Charset charset) {
+    CharsetDecoder decoder = newDecoder(charset);
+    CharBuffer chunk = CharBuffer.allocate(WINDOW_SIZE);
+    long length = 0;
+    CoderResult result;
+    do {
+      result = decoder.decode(input, chunk, true);
+      length += chunk.position();
+      chunk.clear();
+    } while (result.isOverflow());
+    decoder.flush(chunk);
+    length += chunk.position();
+    if (length > Integer.MAX_VALUE) {
+      throw new ChannelException("Source code is too large: " + length + " characters");
+    }
+    return (int) length;
+  }
+
+  /**
+   * Decodes the next characters of the memory-mapped file until the character at the specified index after the cursor is available
+   *
+   * @return false if the end of the stream is reached before this index
+   */
+  private boolean fill(int index) {
+    while (bufferPosition + index >= bufferLength) {
+      if (decoder == null) {
+        return false;
+      }
+      if (buffer.length - bufferLength < buffer.length / 2) {
+        makeRoom();
+      }
+      CharBuffer out = CharBuffer.wrap(buffer, bufferLength, buffer.length - bufferLength);
+      if (decoder.decode(bytes, out, true).isUnderflow()) {
+        decoder.flush(out);
+        decoder = null;
+        bytes = null;
+      }
+      bufferLength = out.position();
+    }
+    return true;
+  }
+
+  /**
+   * Drops the characters which are consumed and not recorded, then grows the window if it is still more than half full
+   */
+  private void makeRoom() {
+    int dropped = recordingMode ? recordingStart : bufferPosition;
+    if (dropped > 0) {
+      System.arraycopy(buffer, dropped, buffer, 0, bufferLength - dropped);
+      bufferLength -= dropped;
+      bufferPosition -= dropped;
+      recordingStart -= dropped;
+      bufferOffset += dropped;
+    }
+    if (buffer.length - bufferLength < buffer.length / 2) {
+      buffer = Arrays.copyOf(buffer, buffer.length * 2);
+    }
+  }
+
+  /**
+   * Characters from start to end of buffer. They are shared with the buffer, unless the window can still be moved.
+   */
+  private CharSequence slice(int start, int end) {
+    if (decoder == null) {
+      return CharBuffer.wrap(buffer, start, end - start).slice().asReadOnlyBuffer();
+    }
+    return new String(buffer, start, end - start);
+  }
+
   /**
    * Read and consume the next character
    * 
    * @return the next character or -1 if the end of the stream is reached
    */
   public final int pop() {
-    if (bufferPosition >= buffer.length) {
+    if (bufferPosition >= bufferLength && !fill(0)) {
       return -1;
     }
     int character = buffer[bufferPosition++];
     updateCursorPosition(character);
-    if (recordingMode) {
-      recordedCharacters.append((char)character);
-    }
     lastChar = character;
     return character;
   }
@@ -160,14 +305,21 @@ public class CodeBuffer implements CharSequence {
   }
 
   public final void startRecording() {
-    recordingMode = true;
+    if (!recordingMode) {
+      recordingMode = true;
+      recordingStart = bufferPosition;
+    }
   }
 
+  /**
+   * @return the characters consumed since the call to {@link #startRecording()}, without copying them when possible
+   */
   public final CharSequence stopRecording() {
+    if (!recordingMode) {
+      return "";
+    }
     recordingMode = false;
-    CharSequence result = recordedCharacters;
-    recordedCharacters = new StringBuilder();
-    return result;
+    return slice(recordingStart, bufferPosition);
   }
 
   /**
@@ -183,7 +335,7 @@ public class CodeBuffer implements CharSequence {
   }
 
   protected final int intAt(int index) {
-    if (bufferPosition + index >= buffer.length) {
+    if (bufferPosition + index >= bufferLength && !fill(index)) {
       return -1;
     }
     return buffer[bufferPosition + index];
@@ -193,11 +345,22 @@ public class CodeBuffer implements CharSequence {
    * Returns the relative length of the string (i.e. excluding the popped chars)
    */
   public final int length() {
-    return buffer.length - bufferPosition;
+    return totalLength - bufferOffset - bufferPosition;
   }
 
+  /**
+   * Returns the characters between the specified indexes after the cursor without consuming them
+   *
+   * @see java.lang.CharSequence#subSequence(int, int)
+   */
   public final CharSequence subSequence(int start, int end) {
-    throw new UnsupportedOperationException();
+    if (start < 0 || end > length() || start > end) {
+      throw new IndexOutOfBoundsException("start: " + start + ", end: " + end + ", length: " + length());
+    }
+    if (end > start) {
+      fill(end - 1);
+    }
+    return slice(bufferPosition + start, bufferPosition + end);
   }
 
   @Override
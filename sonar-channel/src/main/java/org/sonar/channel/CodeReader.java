@@ -19,8 +19,10 @@
  */
 package org.sonar.channel;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.Reader;
+import java.nio.charset.Charset;
 import java.util.regex.Matcher;
 
 /**
@@ -70,6 +72,35 @@ public class CodeReader extends CodeBuffer {
     super(code, configuration);
   }
 
+  /**
+   * Creates a code reader which decodes the file through a window, instead of loading it in memory.
+   *
+   * @param file
+   *          the file to read code from
+   * @param charset
+   *          the encoding of the file
+   * @since 4.2
+   */
+  public CodeReader(File file, Charset charset) {
+    super(file, charset, new CodeReaderConfiguration());
+  }
+
+  /**
+   * Creates a code reader with specific configuration parameters. The file is decoded through a window, instead of being loaded in
+   * memory, unless the configuration has code reader filters.
+   *
+   * @param file
+   *          the file to read code from
+   * @param charset
+   *          the encoding of the file
+   * @param configuration
+   *          the configuration parameters
+   * @since 4.2
+   */
+  public CodeReader(File file, Charset charset, CodeReaderConfiguration configuration) {
+    super(file, charset, configuration);
+  }
+
   /**
    * Read and consume the next character
    *
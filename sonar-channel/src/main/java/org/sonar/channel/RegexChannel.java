@@ -50,6 +50,11 @@ public abstract class RegexChannel<O> extends Channel<O> {
     return false;
   }
 
+  @Override
+  public boolean mayConsumeFirst(char c) {
+    return mayMatchFirst(matcher, c);
+  }
+
   /**
    * The consume method is called each time the regular expression used to create the RegexChannel object matches the next characters in the
    * character streams.
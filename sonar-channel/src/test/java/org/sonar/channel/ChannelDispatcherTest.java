@@ -48,6 +48,64 @@ public class ChannelDispatcherTest {
     dispatcher.consume(new CodeReader("two words"), new StringBuilder());
   }
 
+  @Test
+  public void shouldOnlyTryChannelsWhichMayConsumeFirstCharacter() {
+    CountingChannel digits = new CountingChannel("0123456789");
+    CountingChannel letters = new CountingChannel("abcdefghijklmnopqrstuvwxyz");
+    ChannelDispatcher<StringBuilder> dispatcher = ChannelDispatcher.builder().addChannels(digits, letters).build();
+    StringBuilder output = new StringBuilder();
+    dispatcher.consume(new CodeReader("ab12c"), output);
+    assertThat(output.toString(), is("ab12c"));
+    assertThat(digits.attempts, is(2));
+    assertThat(letters.attempts, is(3));
+  }
+
+  @Test
+  public void shouldKeepOrderOfChannels() {
+    ChannelDispatcher<StringBuilder> dispatcher = ChannelDispatcher.builder()
+        .addChannels(new CountingChannel("a"), new SpaceDeletionChannel())
+        .build();
+    assertThat(dispatcher.getChannels()[0], is(CountingChannel.class));
+
+    StringBuilder output = new StringBuilder();
+    dispatcher.consume(new CodeReader("a b"), output);
+    assertThat(output.toString(), is("ab"));
+  }
+
+  @Test
+  public void shouldTryAllChannelsForNonAsciiCharacters() {
+    CountingChannel letters = new CountingChannel("ab");
+    ChannelDispatcher<StringBuilder> dispatcher = ChannelDispatcher.builder().addChannels(letters, new SpaceDeletionChannel()).build();
+    StringBuilder output = new StringBuilder();
+    dispatcher.consume(new CodeReader("a\u00e9 b"), output);
+    assertThat(output.toString(), is("a\u00e9b"));
+    assertThat(letters.attempts, is(3));
+  }
+
+  private static class CountingChannel extends Channel<StringBuilder> {
+    private final String firstChars;
+    private int attempts = 0;
+
+    private CountingChannel(String firstChars) {
+      this.firstChars = firstChars;
+    }
+
+    @Override
+    public boolean consume(CodeReader code, StringBuilder output) {
+      attempts++;
+      if (firstChars.indexOf(code.peek()) >= 0) {
+        output.append((char) code.pop());
+        return true;
+      }
+      return false;
+    }
+
+    @Override
+    public boolean mayConsumeFirst(char c) {
+      return firstChars.indexOf(c) >= 0;
+    }
+  }
+
   private static class SpaceDeletionChannel extends Channel<StringBuilder> {
     @Override
     public boolean consume(CodeReader code, StringBuilder output) {
@@ -23,13 +23,23 @@ import static junit.framework.Assert.assertEquals;
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertThat;
 
+import java.io.File;
 import java.io.IOException;
+import java.nio.charset.Charset;
 import java.util.regex.Pattern;
 
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 public class CodeBufferTest {
 
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
   private CodeReaderConfiguration defaulConfiguration = new CodeReaderConfiguration();
 
   @Test
@@ -257,6 +267,102 @@ public class CodeBufferTest {
     assertThat(code.pop(), is( -1));
   }
 
+  @Test
+  public void testReadFileLargerThanWindow() throws Exception {
+    String code = largeCode();
+    CodeBuffer reader = new CodeBuffer(file(code), UTF8, defaulConfiguration);
+    assertThat(reader.length(), is(code.length()));
+    StringBuilder read = new StringBuilder();
+    while (reader.peek() != -1) {
+      read.append((char) reader.pop());
+    }
+    assertEquals(code, read.toString());
+    assertThat(reader.length(), is(0));
+    assertThat(reader.pop(), is(-1));
+    assertThat(reader.getLinePosition(), is(code.split("\n").length + 1));
+  }
+
+  @Test
+  public void testLookaheadBeyondWindow() throws Exception {
+    String code = largeCode();
+    CodeBuffer reader = new CodeBuffer(file(code), UTF8, defaulConfiguration);
+    reader.pop();
+    assertEquals(code.charAt(3 * CodeBuffer.WINDOW_SIZE), reader.charAt(3 * CodeBuffer.WINDOW_SIZE - 1));
+    assertEquals(code.charAt(1), reader.charAt(0));
+    assertEquals(code.substring(10, 20), reader.subSequence(9, 19).toString());
+    assertThat(reader.intAt(code.length()), is(-1));
+  }
+
+  @Test
+  public void testRecordFileLargerThanWindow() throws Exception {
+    String code = largeCode();
+    CodeBuffer reader = new CodeBuffer(file(code), UTF8, defaulConfiguration);
+    reader.pop();
+    reader.startRecording();
+    for (int i = 0; i < 2 * CodeBuffer.WINDOW_SIZE; i++) {
+      reader.pop();
+    }
+    assertEquals(code.substring(1, 2 * CodeBuffer.WINDOW_SIZE + 1), reader.stopRecording().toString());
+  }
+
+  @Test
+  public void testReadFileSmallerThanWindow() throws Exception {
+    String code = "String s = \"\u00e9t\u00e9 \uD83D\uDE00\";\nint i;";
+    CodeBuffer reader = new CodeBuffer(file(code), UTF8, defaulConfiguration);
+    assertThat(reader.length(), is(code.length()));
+    assertEquals(code, reader.subSequence(0, code.length()).toString());
+    reader.pop();
+    assertEquals(code.substring(1, 6), reader.subSequence(0, 5).toString());
+    assertThat(reader.intAt(code.length()), is(-1));
+  }
+
+  @Test
+  public void testReadEmptyFile() throws Exception {
+    CodeBuffer reader = new CodeBuffer(file(""), UTF8, defaulConfiguration);
+    assertThat(reader.length(), is(0));
+    assertThat(reader.peek(), is(-1));
+    assertThat(reader.pop(), is(-1));
+  }
+
+  @Test
+  public void testReadFileWithCodeReaderFilter() throws Exception {
+    CodeReaderConfiguration configuration = new CodeReaderConfiguration();
+    configuration.setCodeReaderFilters(new ReplaceNumbersFilter());
+    CodeBuffer reader = new CodeBuffer(file("ab12"), UTF8, configuration);
+    assertEquals("ab--", reader.subSequence(0, 4).toString());
+  }
+
+  @Test
+  public void testSubSequence() {
+    CodeBuffer reader = new CodeBuffer("123456", defaulConfiguration);
+    reader.pop();
+    assertEquals("234", reader.subSequence(0, 3).toString());
+    assertEquals("", reader.subSequence(2, 2).toString());
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void testSubSequenceIndexOutOfBoundsException() {
+    new CodeBuffer("123", defaulConfiguration).subSequence(1, 4);
+  }
+
+  private File file(String code) throws IOException {
+    File file = temp.newFile();
+    FileUtils.write(file, code, UTF8.name());
+    return file;
+  }
+
+  /**
+   * Several windows of multi-byte characters and surrogate pairs
+   */
+  private static String largeCode() {
+    StringBuilder code = new StringBuilder();
+    int line = 0;
+    while (code.length() < 4 * CodeBuffer.WINDOW_SIZE) {
+      code.append("String s").append(line++).append(" = \"\u00e9t\u00e9 \uD83D\uDE00\";\n");
+    }
+    return code.toString();
+  }
+
   /**
    * Backward compatibility with a COBOL plugin: filter returns 0 instead of -1, when end of the stream has been reached.
    */
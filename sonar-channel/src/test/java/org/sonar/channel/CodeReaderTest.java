@@ -19,11 +19,15 @@
  */
 package org.sonar.channel;
 
+import org.apache.commons.io.FileUtils;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
 
+import java.io.File;
 import java.io.StringReader;
+import java.nio.charset.Charset;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -36,6 +40,9 @@ public class CodeReaderTest {
   @Rule
   public ExpectedException thrown = ExpectedException.none();
 
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
   @Test
   public void testPopWithAppendable() {
     CodeReader reader = new CodeReader("package org.sonar;");
@@ -128,4 +135,23 @@ public class CodeReaderTest {
     assertEquals(3, new CodeReader(new StringReader("123ABC")).popTo(digitMatcher, alphabeticMatcher, token));
     assertEquals("123", token.toString());
   }
+  @Test
+  public void testPopToTokenLongerThanWindowOfFile() throws Exception {
+    StringBuilder literal = new StringBuilder("\"");
+    for (int i = 0; i < 3 * CodeBuffer.WINDOW_SIZE; i++) {
+      literal.append('a');
+    }
+    literal.append('"');
+    File file = temp.newFile();
+    FileUtils.write(file, "x = " + literal + ";", "UTF-8");
+
+    CodeReader reader = new CodeReader(file, Charset.forName("UTF-8"));
+    assertThat(reader.popTo(Pattern.compile("[a-z] = ").matcher(""), new StringBuilder()), is(4));
+    StringBuilder token = new StringBuilder();
+    assertThat(reader.popTo(Pattern.compile("\"[^\"]*+\"").matcher(""), token), is(literal.length()));
+    assertEquals(literal.toString(), token.toString());
+    assertThat((char) reader.pop(), is(';'));
+    assertThat(reader.pop(), is(-1));
+  }
+
 }
@@ -49,6 +49,24 @@ public class RegexChannelTest {
     assertThat(output.toString(), is("<literal>\">" + veryLongLiteral + "<\"</literal>"));
   }
 
+  @Test
+  public void shouldDeclareFirstCharactersOfRegularExpression() {
+    assertThat(new MyWordChannel().mayConsumeFirst('m'), is(true));
+    assertThat(new MyWordChannel().mayConsumeFirst(' '), is(false));
+    // the end of the literal is not known yet
+    assertThat(new MyLiteralChannel().mayConsumeFirst('"'), is(true));
+    assertThat(new MyLiteralChannel().mayConsumeFirst('a'), is(false));
+  }
+
+  @Test
+  public void shouldMatchAfterDeclaringFirstCharacters() {
+    MyWordChannel channel = new MyWordChannel();
+    channel.mayConsumeFirst('m');
+    StringBuilder output = new StringBuilder();
+    assertThat(channel.consume(new CodeReader("my word"), output), is(true));
+    assertThat(output.toString(), is("<w>my</w>"));
+  }
+
   private static class MyLiteralChannel extends RegexChannel<StringBuilder> {
 
     public MyLiteralChannel() {
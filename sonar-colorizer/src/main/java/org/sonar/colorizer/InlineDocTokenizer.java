@@ -49,6 +49,14 @@ public abstract class InlineDocTokenizer extends Tokenizer {
     }
   }
 
+  @Override
+  public boolean mayConsumeFirst(char c) {
+    if (!isConsumeDeclaredBy(InlineDocTokenizer.class)) {
+      return super.mayConsumeFirst(c);
+    }
+    return c == startToken[0];
+  }
+
   private static final EndMatcher LINE_END_MATCHER = new EndMatcher() {
     public boolean match(int endFlag) {
       return endFlag == '\r' || endFlag == '\n';
@@ -50,4 +50,11 @@ public class JavaAnnotationTokenizer extends Tokenizer {
     }
   }
 
+  @Override
+  public boolean mayConsumeFirst(char c) {
+    if (!isConsumeDeclaredBy(JavaAnnotationTokenizer.class)) {
+      return super.mayConsumeFirst(c);
+    }
+    return c == '@';
+  }
 }
@@ -75,6 +75,14 @@ public class KeywordsTokenizer extends NotThreadSafeTokenizer {
     return false;
   }
 
+  @Override
+  public boolean mayConsumeFirst(char c) {
+    if (!isConsumeDeclaredBy(KeywordsTokenizer.class)) {
+      return super.mayConsumeFirst(c);
+    }
+    return mayMatchFirst(matcher, c);
+  }
+
   private boolean isKeyword(String word) {
     if ( !caseInsensitive && keywords.contains(word)) {
       return true;
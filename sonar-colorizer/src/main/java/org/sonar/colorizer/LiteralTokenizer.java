@@ -49,6 +49,14 @@ public class LiteralTokenizer extends Tokenizer {
     }
   }
 
+  @Override
+  public boolean mayConsumeFirst(char c) {
+    if (!isConsumeDeclaredBy(LiteralTokenizer.class)) {
+      return super.mayConsumeFirst(c);
+    }
+    return c == '\'' || c == '\"';
+  }
+
   private static class EndCommentMatcher implements EndMatcher {
 
     private final int firstChar;
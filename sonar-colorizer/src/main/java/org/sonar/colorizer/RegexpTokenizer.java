@@ -57,6 +57,14 @@ public class RegexpTokenizer extends NotThreadSafeTokenizer{
     return false;
   }
 
+  @Override
+  public boolean mayConsumeFirst(char c) {
+    if (!isConsumeDeclaredBy(RegexpTokenizer.class)) {
+      return super.mayConsumeFirst(c);
+    }
+    return mayMatchFirst(matcher, c);
+  }
+
   @Override
   public RegexpTokenizer clone() {
     return new RegexpTokenizer(tagBefore, tagAfter, matcher.pattern().pattern());
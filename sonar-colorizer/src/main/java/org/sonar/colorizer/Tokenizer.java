@@ -20,6 +20,7 @@
 package org.sonar.colorizer;
 
 import org.sonar.channel.Channel;
+import org.sonar.channel.CodeReader;
 
 /**
  * A token highlighter is in charge to optionally consume the next characters (token) of a CodeReader
@@ -28,4 +29,19 @@ import org.sonar.channel.Channel;
  * IMPORTANT: a Tokenizer must be THREAD-SAFE otherwise use {@link NotThreadSafeTokenizer}
  */
 public abstract class Tokenizer extends Channel<HtmlCodeBuilder> {
+
+  /**
+   * Tells whether {@link #consume(CodeReader, HtmlCodeBuilder)} is the one declared by the given class. Tokenizers
+   * implement {@link #mayConsumeFirst(char)} only when true, as subclasses which override consume() may accept
+   * other first characters.
+   *
+   * @since 4.2
+   */
+  protected final boolean isConsumeDeclaredBy(Class<? extends Tokenizer> declaringClass) {
+    try {
+      return getClass().getMethod("consume", CodeReader.class, HtmlCodeBuilder.class).getDeclaringClass() == declaringClass;
+    } catch (NoSuchMethodException e) {
+      return false;
+    }
+  }
 }
@@ -22,18 +22,43 @@ package org.sonar.colorizer;
 import org.sonar.channel.Channel;
 import org.sonar.channel.CodeReader;
 
+import java.util.Arrays;
 import java.util.List;
 
 public class TokenizerDispatcher {
 
+  private static final int ASCII_SIZE = 128;
+
   private Channel<HtmlCodeBuilder>[] tokenizers;
 
+  /**
+   * Indexes of the candidate tokenizers of the ASCII characters. Indexes are kept instead of tokenizers because
+   * not thread-safe tokenizers are replaced by their clones.
+   */
+  private final int[][] tokenizersByFirstChar;
+
   public TokenizerDispatcher(Channel<HtmlCodeBuilder>... tokenizers) {
     this.tokenizers = tokenizers;
+    this.tokenizersByFirstChar = tokenizersByFirstChar(tokenizers);
   }
 
   public TokenizerDispatcher(List<Channel<HtmlCodeBuilder>> tokenizersArray) {
-    this.tokenizers = tokenizersArray.toArray(new Channel[tokenizersArray.size()]);
+    this(tokenizersArray.toArray(new Channel[tokenizersArray.size()]));
+  }
+
+  private static int[][] tokenizersByFirstChar(Channel<HtmlCodeBuilder>[] tokenizers) {
+    int[][] result = new int[ASCII_SIZE][];
+    int[] candidates = new int[tokenizers.length];
+    for (char c = 0; c < ASCII_SIZE; c++) {
+      int size = 0;
+      for (int i = 0; i < tokenizers.length; i++) {
+        if (tokenizers[i].mayConsumeFirst(c)) {
+          candidates[size++] = i;
+        }
+      }
+      result[c] = Arrays.copyOf(candidates, size);
+    }
+    return result;
   }
 
   public final String colorize(String code) {
@@ -46,9 +71,18 @@ public class TokenizerDispatcher {
     cloneNotThreadSafeTokenizers();
     nextChar:
     while (code.peek() != -1) {
-      for (Channel<HtmlCodeBuilder> codeTokenizer : tokenizers) {
-        if (codeTokenizer.consume(code, colorizedCode)) {
-          continue nextChar;
+      int firstChar = code.peek();
+      if (firstChar < ASCII_SIZE) {
+        for (int index : tokenizersByFirstChar[firstChar]) {
+          if (tokenizers[index].consume(code, colorizedCode)) {
+            continue nextChar;
+          }
+        }
+      } else {
+        for (Channel<HtmlCodeBuilder> codeTokenizer : tokenizers) {
+          if (codeTokenizer.consume(code, colorizedCode)) {
+            continue nextChar;
+          }
         }
       }
       colorizedCode.append((char) code.pop());
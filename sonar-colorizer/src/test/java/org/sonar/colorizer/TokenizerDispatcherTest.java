@@ -56,6 +56,40 @@ public class TokenizerDispatcherTest {
     assertThat(colorization.colorize("assert(\"message\"); //comment"), is("<k>assert</k>(<s>\"message\"</s>); <c>//comment</c>"));
   }
 
+  @Test
+  public void testNonAsciiCharacters() {
+    TokenizerDispatcher colorization = newColorizer(new LiteralTokenizer("<s>", "</s>"), new KeywordsTokenizer("<k>", "</k>", JavaKeywords
+        .get()));
+    assertThat(colorization.colorize("char c = '\u00e9'; // \u00e9t\u00e9 assert"),
+        is("<k>char</k> c = <s>'\u00e9'</s>; // \u00e9t\u00e9 <k>assert</k>"));
+  }
+
+  @Test
+  public void testSubclassOverridingConsumeIsNotFilteredByFirstCharacter() {
+    // also highlights backquotes
+    LiteralTokenizer tokenizer = new LiteralTokenizer("<s>", "</s>") {
+      @Override
+      public boolean consume(CodeReader code, HtmlCodeBuilder codeBuilder) {
+        if (code.peek() == '`') {
+          codeBuilder.appendWithoutTransforming("<s>");
+          codeBuilder.append((char) code.pop());
+          codeBuilder.appendWithoutTransforming("</s>");
+          return true;
+        }
+        return super.consume(code, codeBuilder);
+      }
+    };
+    TokenizerDispatcher colorization = newColorizer(tokenizer);
+    assertThat(colorization.colorize("a`b'c'"), is("a<s>`</s>b<s>'c'</s>"));
+  }
+
+  @Test
+  public void testSubclassNotOverridingConsumeIsFilteredByFirstCharacter() {
+    CDocTokenizer tokenizer = new CDocTokenizer("<c>", "</c>");
+    assertThat(tokenizer.mayConsumeFirst('/'), is(true));
+    assertThat(tokenizer.mayConsumeFirst('a'), is(false));
+  }
+
   @Test(expected = IllegalStateException.class)
   public void testCloneNotThreadSafeTokenizers() {
     NotThreadSafeTokenizer tokenizer = new NotThreadSafeTokenizer() {
@@ -17,21 +17,14 @@
  * along with this program; if not, write to the Free Software Foundation,
  * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
  */
+package org.sonar.core.graph.binary;
 
-package org.sonar.core.issue.db;
-
-import com.google.common.collect.ImmutableList;
-
-import java.util.List;
-
-public class IssueStatsColumn {
-
-  private IssueStatsColumn() {
-    // utility
+public class BinaryGraphException extends RuntimeException {
+  public BinaryGraphException(String message) {
+    super(message);
   }
 
-  public static final String ASSIGNEE = "ASSIGNEE";
-
-  public static final List<String> ALL = ImmutableList.of(ASSIGNEE);
-
+  public BinaryGraphException(String message, Throwable cause) {
+    super(message, cause);
+  }
 }
@@ -0,0 +1,168 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2013 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.core.graph.binary;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.tinkerpop.blueprints.Element;
+import com.tinkerpop.blueprints.Graph;
+import com.tinkerpop.blueprints.Vertex;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Reads the graphs written by {@link BinaryGraphWriter}.
+ *
+ * @since 4.2
+ */
+public class BinaryGraphReader {
+
+  public Graph read(InputStream input, Graph toGraph) {
+    try {
+      int version = input.read();
+      if (version != BinaryGraphTokens.VERSION) {
+        throw new BinaryGraphException("Unsupported version of binary graph: " + version);
+      }
+      int flags = input.read();
+      if (flags < 0) {
+        throw new BinaryGraphException("Binary graph is truncated");
+      }
+      InputStream elements = (flags & BinaryGraphTokens.FLAG_COMPRESSED) != 0 ? new InflaterInputStream(input) : input;
+      readElements(new ElementInput(new DataInputStream(elements)), toGraph);
+      toGraph.shutdown();
+      return toGraph;
+    } catch (IOException e) {
+      throw new BinaryGraphException("Unable to read binary graph", e);
+    }
+  }
+
+  private static void readElements(ElementInput input, Graph toGraph) throws IOException {
+    int vertices = input.readCount();
+    for (int i = 0; i < vertices; i++) {
+      Vertex vertex = toGraph.addVertex(input.readString());
+      input.readProperties(vertex);
+    }
+    int edges = input.readCount();
+    for (int i = 0; i < edges; i++) {
+      String id = input.readString();
+      Vertex outV = toGraph.getVertex(input.readString());
+      Vertex inV = toGraph.getVertex(input.readString());
+      input.readProperties(toGraph.addEdge(id, outV, inV, input.readString()));
+    }
+  }
+
+  private static final class ElementInput {
+    private final DataInputStream input;
+    private final List<String> strings = Lists.newArrayList();
+
+    private ElementInput(DataInputStream input) {
+      this.input = input;
+    }
+
+    void readProperties(Element element) throws IOException {
+      int count = readCount();
+      for (int i = 0; i < count; i++) {
+        String key = readString();
+        Object value = readValue();
+        if (value != null) {
+          element.setProperty(key, value);
+        }
+      }
+    }
+
+    Object readValue() throws IOException {
+      int type = input.readUnsignedByte();
+      switch (type) {
+        case BinaryGraphTokens.TYPE_NULL:
+          return null;
+        case BinaryGraphTokens.TYPE_BOOLEAN:
+          return input.readBoolean();
+        case BinaryGraphTokens.TYPE_INTEGER:
+          return (int) readSignedVarLong();
+        case BinaryGraphTokens.TYPE_LONG:
+          return readSignedVarLong();
+        case BinaryGraphTokens.TYPE_FLOAT:
+          return input.readFloat();
+        case BinaryGraphTokens.TYPE_DOUBLE:
+          return input.readDouble();
+        case BinaryGraphTokens.TYPE_STRING:
+          return readString();
+        case BinaryGraphTokens.TYPE_LIST:
+          int size = readCount();
+          List<Object> list = Lists.newArrayListWithCapacity(size);
+          for (int i = 0; i < size; i++) {
+            list.add(readValue());
+          }
+          return list;
+        case BinaryGraphTokens.TYPE_MAP:
+          int entries = readCount();
+          Map<String, Object> map = Maps.newHashMap();
+          for (int i = 0; i < entries; i++) {
+            map.put(readString(), readValue());
+          }
+          return map;
+        default:
+          throw new BinaryGraphException("Unknown type of property value: " + type);
+      }
+    }
+
+    String readString() throws IOException {
+      int reference = readCount();
+      if (reference > 0) {
+        return strings.get(reference - 1);
+      }
+      byte[] bytes = new byte[readCount()];
+      input.readFully(bytes);
+      String s = new String(bytes, Charsets.UTF_8);
+      strings.add(s);
+      return s;
+    }
+
+    int readCount() throws IOException {
+      return (int) readVarLong();
+    }
+
+    private long readSignedVarLong() throws IOException {
+      long value = readVarLong();
+      return (value >>> 1) ^ -(value & 1);
+    }
+
+    private long readVarLong() throws IOException {
+      long value = 0L;
+      int shift = 0;
+      int b;
+      do {
+        if (shift > 63) {
+          throw new BinaryGraphException("Malformed number in binary graph");
+        }
+        b = input.readUnsignedByte();
+        value |= (long) (b & 0x7F) << shift;
+        shift += 7;
+      } while ((b & 0x80) != 0);
+      return value;
+    }
+  }
+}
@@ -0,0 +1,52 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2013 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.core.graph.binary;
+
+/**
+ * Layout of the binary format :
+ * <ul>
+ * <li>header : version and flags, one byte each</li>
+ * <li>number of vertices, then for each vertex its id and its properties</li>
+ * <li>number of edges, then for each edge its id, the ids of its out and in vertices, its label and its properties</li>
+ * </ul>
+ * Properties are written as their number, then key and typed value of each property. Numbers are variable-length,
+ * and strings are written once then referenced by their index, as ids, keys and labels are repeated a lot.
+ * When the flag {@link #FLAG_COMPRESSED} is set, everything after the header is deflated.
+ */
+final class BinaryGraphTokens {
+
+  static final int VERSION = 1;
+
+  static final int FLAG_COMPRESSED = 1;
+
+  static final int TYPE_NULL = 0;
+  static final int TYPE_BOOLEAN = 1;
+  static final int TYPE_INTEGER = 2;
+  static final int TYPE_LONG = 3;
+  static final int TYPE_FLOAT = 4;
+  static final int TYPE_DOUBLE = 5;
+  static final int TYPE_STRING = 6;
+  static final int TYPE_LIST = 7;
+  static final int TYPE_MAP = 8;
+
+  private BinaryGraphTokens() {
+    // only constants
+  }
+}
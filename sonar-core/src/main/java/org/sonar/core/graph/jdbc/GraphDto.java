@@ -20,6 +20,19 @@
 package org.sonar.core.graph.jdbc;
 
 public class GraphDto {
+
+  /**
+   * Data is the GraphSON text of the graph
+   */
+  public static final String FORMAT_GRAPHSON = "graphson";
+
+  /**
+   * Data is the Base64 encoding of the graph written by {@link org.sonar.core.graph.binary.BinaryGraphWriter}
+   *
+   * @since 4.2
+   */
+  public static final String FORMAT_BINARY = "binary";
+
   private long id;
   private long resourceId;
   private long snapshotId;
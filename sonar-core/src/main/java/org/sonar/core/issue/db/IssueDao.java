@@ -70,38 +70,20 @@ public class IssueDao implements BatchComponent, ServerComponent {
     }
   }
 
-  @VisibleForTesting
-  List<IssueDto> selectIssueIds(IssueQuery query, @Nullable Integer userId, Integer maxResult) {
-    SqlSession session = mybatis.openSession();
-    try {
-      return selectIssueIds(query, userId, maxResult, session);
-    } finally {
-      MyBatis.closeQuietly(session);
-    }
-  }
-
-  @VisibleForTesting
-  List<IssueDto> selectIssueIds(IssueQuery query) {
+  /**
+   * All the issues of a project, including closed ones
+   *
+   * @since 4.2
+   */
+  public void selectByRootComponent(long rootComponentId, ResultHandler handler) {
     SqlSession session = mybatis.openSession();
     try {
-      return selectIssueIds(query, null, Integer.MAX_VALUE, session);
+      session.select("org.sonar.core.issue.db.IssueMapper.selectByRootComponent", rootComponentId, handler);
     } finally {
       MyBatis.closeQuietly(session);
     }
   }
 
-  /**
-   * The returned IssueDto list contains only the issue id and the sort column
-   */
-  public List<IssueDto> selectIssueIds(IssueQuery query, @Nullable Integer userId, SqlSession session){
-    return selectIssueIds(query, userId, query.maxResults(), session);
-  }
-
-  private List<IssueDto> selectIssueIds(IssueQuery query, @Nullable Integer userId, Integer maxResults, SqlSession session){
-    IssueMapper mapper = session.getMapper(IssueMapper.class);
-    return mapper.selectIssueIds(query, query.componentRoots(), userId, query.requiredRole(), maxResults);
-  }
-
   public List<IssueDto> selectIssues(IssueQuery query) {
     SqlSession session = mybatis.openSession();
     try {
@@ -126,6 +108,22 @@ public class IssueDao implements BatchComponent, ServerComponent {
     }
   }
 
+  /**
+   * @since 4.2
+   */
+  public List<IssueDto> selectByKeys(Collection<String> keys, SqlSession session) {
+    if (keys.isEmpty()) {
+      return Collections.emptyList();
+    }
+    List<IssueDto> dtosList = newArrayList();
+    List<List<String>> keysPartitionList = Lists.partition(newArrayList(keys), 1000);
+    for (List<String> keysPartition : keysPartitionList) {
+      List<IssueDto> dtos = session.selectList("org.sonar.core.issue.db.IssueMapper.selectByKeys", newArrayList(keysPartition));
+      dtosList.addAll(dtos);
+    }
+    return dtosList;
+  }
+
   public List<IssueDto> selectByIds(Collection<Long> ids, SqlSession session) {
     if (ids.isEmpty()) {
       return Collections.emptyList();
@@ -33,14 +33,6 @@ public interface IssueMapper {
 
   List<IssueDto> selectNonClosedIssuesByModule(int rootComponentId);
 
-  /**
-   * Return a paginated list of authorized issue ids for a user.
-   * If the role is null, then the authorisation check is disabled.
-   */
-  List<IssueDto> selectIssueIds(@Param("query") IssueQuery query, @Param("componentRootKeys") Collection<String> componentRootKeys,
-                                @Nullable @Param("userId") Integer userId, @Nullable @Param("role") String role,
-                                @Param("maxResults") Integer maxResult);
-
   /**
    * Return a none paginated list of authorized issues for a user.
    * If the role is null, then the authorisation check is disabled.
@@ -54,4 +46,9 @@ public interface IssueMapper {
   int update(IssueDto issue);
 
   int updateIfBeforeSelectedDate(IssueDto issue);
+
+  /**
+   * Update status, resolution and dates of the given issues with the values of the given dto.
+   */
+  int updateClosedByKeys(@Param("issue") IssueDto issue, @Param("keys") Collection<String> keys);
 }
@@ -20,6 +20,8 @@
 package org.sonar.core.issue.db;
 
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.apache.ibatis.executor.BatchResult;
 import org.apache.ibatis.session.SqlSession;
 import org.sonar.api.issue.Issue;
 import org.sonar.api.issue.IssueComment;
@@ -31,9 +33,13 @@ import org.sonar.api.rules.RuleFinder;
 import org.sonar.core.persistence.BatchSession;
 import org.sonar.core.persistence.MyBatis;
 
+import java.sql.Statement;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Save issues into database. It is executed :
@@ -46,9 +52,14 @@ import java.util.List;
  */
 public abstract class IssueStorage {
 
+  private static final int UPDATE_BATCH_SIZE = BatchSession.MAX_BATCH_SIZE / 2;
+  private static final int CLOSE_MAX_KEYS_PER_QUERY = 1000;
+
   private final MyBatis mybatis;
   private final RuleFinder ruleFinder;
   private final UpdateConflictResolver conflictResolver = new UpdateConflictResolver();
+  // detected on the first batch of conditional updates
+  private volatile boolean batchUpdateCountsUnsupported = false;
 
   protected IssueStorage(MyBatis mybatis, RuleFinder ruleFinder) {
     this.mybatis = mybatis;
@@ -60,11 +71,25 @@ public abstract class IssueStorage {
   }
 
   public void save(Iterable<DefaultIssue> issues) {
-    // Batch session can not be used for updates. It does not return the number of updated rows,
-    // required for detecting conflicts.
+    // Batch session is used for updates too. Rows affected by each update are read from the
+    // JDBC batch results in order to detect conflicts, unless the driver does not return them.
     Date now = new Date();
     List<DefaultIssue> toBeUpdated = batchInsert(issues, now);
-    update(toBeUpdated, now);
+    List<DefaultIssue> toBeClosed = extractOnlyClosed(toBeUpdated);
+    batchUpdate(toBeUpdated, now);
+    batchClose(toBeClosed, now);
+  }
+
+  private static List<DefaultIssue> extractOnlyClosed(List<DefaultIssue> toBeUpdated) {
+    List<DefaultIssue> onlyClosed = Lists.newArrayList();
+    for (Iterator<DefaultIssue> it = toBeUpdated.iterator(); it.hasNext(); ) {
+      DefaultIssue issue = it.next();
+      if (issue.isOnlyClosed()) {
+        onlyClosed.add(issue);
+        it.remove();
+      }
+    }
+    return onlyClosed;
   }
 
   private List<DefaultIssue> batchInsert(Iterable<DefaultIssue> issues, Date now) {
@@ -100,7 +125,40 @@ public abstract class IssueStorage {
     issueMapper.insert(dto);
   }
 
-  private void update(List<DefaultIssue> toBeUpdated, Date now) {
+  private void batchUpdate(List<DefaultIssue> toBeUpdated, Date now) {
+    List<DefaultIssue> notUpdated = toBeUpdated;
+    if (!batchUpdateCountsUnsupported && !toBeUpdated.isEmpty()) {
+      notUpdated = Collections.emptyList();
+      SqlSession batchSession = mybatis.openBatchSession();
+      try {
+        IssueMapper issueMapper = batchSession.getMapper(IssueMapper.class);
+        IssueChangeMapper issueChangeMapper = batchSession.getMapper(IssueChangeMapper.class);
+        // Statements must be flushed before the batch session commits by itself, else rows affected are lost
+        List<List<DefaultIssue>> partitions = Lists.partition(toBeUpdated, UPDATE_BATCH_SIZE);
+        for (int i = 0; i < partitions.size(); i++) {
+          List<DefaultIssue> partition = partitions.get(i);
+          update(batchSession, issueMapper, now, partition);
+          for (DefaultIssue issue : partition) {
+            insertChanges(issueChangeMapper, issue);
+          }
+          batchSession.flushStatements();
+          if (batchUpdateCountsUnsupported) {
+            notUpdated = toBeUpdated.subList(Math.min((i + 1) * UPDATE_BATCH_SIZE, toBeUpdated.size()), toBeUpdated.size());
+            break;
+          }
+        }
+        batchSession.commit();
+      } finally {
+        MyBatis.closeQuietly(batchSession);
+      }
+    }
+    updateWithoutBatch(notUpdated, now);
+  }
+
+  /**
+   * Updates without JDBC batches, for the drivers which do not return the number of rows updated by batches
+   */
+  private void updateWithoutBatch(List<DefaultIssue> toBeUpdated, Date now) {
     if (!toBeUpdated.isEmpty()) {
       SqlSession session = mybatis.openSession();
       try {
@@ -133,6 +191,87 @@ public abstract class IssueStorage {
     }
   }
 
+  private void update(SqlSession batchSession, IssueMapper issueMapper, Date now, List<DefaultIssue> issues) {
+    Map<String, DefaultIssue> conditionalUpdates = Maps.newHashMap();
+    // Statements are grouped by SQL query, so that each group is sent as a single JDBC batch
+    for (DefaultIssue issue : issues) {
+      if (Issue.STATUS_CLOSED.equals(issue.status()) || issue.selectedAt() == null) {
+        // Issue is closed by scan or changed by end-user
+        issueMapper.update(IssueDto.toDtoForUpdate(issue, now));
+      } else {
+        conditionalUpdates.put(issue.key(), issue);
+      }
+    }
+    for (DefaultIssue issue : conditionalUpdates.values()) {
+      issueMapper.updateIfBeforeSelectedDate(IssueDto.toDtoForUpdate(issue, now));
+    }
+
+    List<DefaultIssue> conflicts = Lists.newArrayList();
+    for (BatchResult batchResult : batchSession.flushStatements()) {
+      if (batchResult.getMappedStatement().getId().endsWith(".updateIfBeforeSelectedDate")) {
+        int[] updateCounts = batchResult.getUpdateCounts();
+        List<Object> dtos = batchResult.getParameterObjects();
+        for (int i = 0; i < updateCounts.length; i++) {
+          if (updateCounts[i] == Statement.SUCCESS_NO_INFO) {
+            // Some JDBC drivers, for example Oracle, do not return the number of updated rows. Conflicts of this batch are
+            // resolved as if they occurred, which results in the same data when they did not. Next issues are updated without batch.
+            batchUpdateCountsUnsupported = true;
+          }
+          if (updateCounts[i] == 0 || updateCounts[i] == Statement.SUCCESS_NO_INFO) {
+            conflicts.add(conditionalUpdates.get(((IssueDto) dtos.get(i)).getKee()));
+          }
+        }
+      }
+    }
+    for (DefaultIssue conflict : conflicts) {
+      // End-user and scan changed the issue at the same time.
+      // See https://jira.codehaus.org/browse/SONAR-4309
+      conflictResolver.resolve(conflict, issueMapper);
+    }
+  }
+
+  /**
+   * Issues closed without any other change (removed files, disabled rules...) are updated by set-based queries.
+   * Changelog is the same as the one of standard updates.
+   */
+  private void batchClose(List<DefaultIssue> toBeClosed, Date now) {
+    if (!toBeClosed.isEmpty()) {
+      // Issues with same status, resolution and dates are updated by the same queries
+      Map<List<Object>, List<DefaultIssue>> issuesByClosingValues = Maps.newLinkedHashMap();
+      for (DefaultIssue issue : toBeClosed) {
+        List<Object> closingValues = Arrays.<Object>asList(issue.status(), issue.resolution(), issue.updateDate(), issue.closeDate());
+        List<DefaultIssue> group = issuesByClosingValues.get(closingValues);
+        if (group == null) {
+          group = Lists.newArrayList();
+          issuesByClosingValues.put(closingValues, group);
+        }
+        group.add(issue);
+      }
+
+      SqlSession batchSession = mybatis.openBatchSession();
+      try {
+        IssueMapper issueMapper = batchSession.getMapper(IssueMapper.class);
+        for (List<DefaultIssue> group : issuesByClosingValues.values()) {
+          IssueDto closingValues = IssueDto.toDtoForUpdate(group.get(0), now);
+          for (List<DefaultIssue> partition : Lists.partition(group, CLOSE_MAX_KEYS_PER_QUERY)) {
+            List<String> keys = Lists.newArrayList();
+            for (DefaultIssue issue : partition) {
+              keys.add(issue.key());
+            }
+            issueMapper.updateClosedByKeys(closingValues, keys);
+          }
+        }
+        IssueChangeMapper issueChangeMapper = batchSession.getMapper(IssueChangeMapper.class);
+        for (DefaultIssue issue : toBeClosed) {
+          insertChanges(issueChangeMapper, issue);
+        }
+        batchSession.commit();
+      } finally {
+        MyBatis.closeQuietly(batchSession);
+      }
+    }
+  }
+
   private void insertChanges(IssueChangeMapper mapper, DefaultIssue issue) {
     for (IssueComment comment : issue.comments()) {
       DefaultIssueComment c = (DefaultIssueComment) comment;
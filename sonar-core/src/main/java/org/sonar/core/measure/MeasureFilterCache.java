@@ -0,0 +1,127 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2013 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.core.measure;
+
+import org.sonar.api.ServerComponent;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Rows of the measure filters already executed. Results change only when a project is analyzed or deleted, so
+ * entries are kept until then :
+ * <ul>
+ * <li>filters on the components of a project are invalidated when this project is analyzed</li>
+ * <li>other filters are invalidated when any project is analyzed</li>
+ * </ul>
+ * Rows are not filtered by permissions, which are applied by the caller, so the same entry is shared by all users.
+ * <p/>
+ * Memory is bounded by the total number of cached rows. Least recently used entries are evicted first, and large
+ * results are not cached.
+ *
+ * @since 4.2
+ */
+public class MeasureFilterCache implements ServerComponent {
+
+  static final int MAX_ENTRIES = 500;
+  static final int MAX_ROWS = 100000;
+  static final int MAX_ROWS_PER_ENTRY = 10000;
+
+  // access-ordered, so that the first entries are the least recently used
+  private final Map<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+  private int rowCount = 0;
+
+  /**
+   * @return the key of the filter, or null if the filter must not be cached, for example when it depends on the
+   * current date or on the favourites of the user.
+   */
+  @CheckForNull
+  static String key(Map<String, Object> filterMap) {
+    if (filterMap.containsKey("ageMaxDays") || filterMap.containsKey("ageMinDays") || Boolean.valueOf((String) filterMap.get("onFavourites"))) {
+      return null;
+    }
+    // properties are sorted so that equivalent filters share the same entry
+    return new TreeMap<String, Object>(filterMap).toString();
+  }
+
+  @CheckForNull
+  synchronized List<MeasureFilterRow> get(String key) {
+    Entry entry = entries.get(key);
+    return entry != null ? entry.rows : null;
+  }
+
+  synchronized void put(String key, @Nullable Long rootProjectId, List<MeasureFilterRow> rows) {
+    if (rows.size() > MAX_ROWS_PER_ENTRY) {
+      return;
+    }
+    Entry previous = entries.put(key, new Entry(rootProjectId, Collections.unmodifiableList(rows)));
+    if (previous != null) {
+      rowCount -= previous.rows.size();
+    }
+    rowCount += rows.size();
+    for (Iterator<Entry> it = entries.values().iterator(); it.hasNext() && (rowCount > MAX_ROWS || entries.size() > MAX_ENTRIES); ) {
+      rowCount -= it.next().rows.size();
+      it.remove();
+    }
+  }
+
+  /**
+   * Called when a new snapshot of the project is available
+   */
+  public synchronized void invalidateProject(long rootProjectId) {
+    for (Iterator<Entry> it = entries.values().iterator(); it.hasNext(); ) {
+      Entry entry = it.next();
+      if (entry.rootProjectId == null || entry.rootProjectId == rootProjectId) {
+        rowCount -= entry.rows.size();
+        it.remove();
+      }
+    }
+  }
+
+  public synchronized void invalidateAll() {
+    entries.clear();
+    rowCount = 0;
+  }
+
+  synchronized int size() {
+    return entries.size();
+  }
+
+  synchronized int rowCount() {
+    return rowCount;
+  }
+
+  private static final class Entry {
+    private final Long rootProjectId;
+    private final List<MeasureFilterRow> rows;
+
+    private Entry(@Nullable Long rootProjectId, List<MeasureFilterRow> rows) {
+      this.rootProjectId = rootProjectId;
+      this.rows = rows;
+    }
+  }
+}
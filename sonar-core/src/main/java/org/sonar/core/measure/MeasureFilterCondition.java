@@ -118,11 +118,7 @@ public class MeasureFilterCondition {
     } else {
       sql.append(textValue);
     }
-    sql.append(" AND ");
-    sql.append(table).append(".rule_id IS NULL AND ");
-    sql.append(table).append(".rule_priority IS NULL AND ");
-    sql.append(table).append(".characteristic_id IS NULL AND ");
-    sql.append(table).append(".person_id IS NULL ");
+    sql.append(" ");
     return sql;
   }
 
@@ -27,7 +27,9 @@ import org.sonar.api.ServerComponent;
 import org.sonar.core.profiling.Profiling;
 import org.sonar.core.profiling.Profiling.Level;
 import org.sonar.core.profiling.StopWatch;
+import org.sonar.core.resource.SnapshotDto;
 
+import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 
 import java.util.List;
@@ -39,11 +41,13 @@ public class MeasureFilterEngine implements ServerComponent {
 
   private final MeasureFilterFactory factory;
   private final MeasureFilterExecutor executor;
+  private final MeasureFilterCache cache;
   private final Profiling profiling;
 
-  public MeasureFilterEngine(MeasureFilterFactory factory, MeasureFilterExecutor executor, Profiling profiling) {
+  public MeasureFilterEngine(MeasureFilterFactory factory, MeasureFilterExecutor executor, MeasureFilterCache cache, Profiling profiling) {
     this.executor = executor;
     this.factory = factory;
+    this.cache = cache;
     this.profiling = profiling;
   }
 
@@ -55,9 +59,16 @@ public class MeasureFilterEngine implements ServerComponent {
     context.setUserId(userId);
     context.setData(String.format("{%s}", Joiner.on('|').withKeyValueSeparator("=").join(filterMap)));
     try {
-      MeasureFilter filter = factory.create(filterMap);
-      sqlWatch = profiling.start("sql", Level.FULL);
-      List<MeasureFilterRow> rows = executor.execute(filter, context);
+      String cacheKey = MeasureFilterCache.key(filterMap);
+      List<MeasureFilterRow> rows = cacheKey != null ? cache.get(cacheKey) : null;
+      if (rows == null) {
+        MeasureFilter filter = factory.create(filterMap);
+        sqlWatch = profiling.start("sql", Level.FULL);
+        rows = executor.execute(filter, context);
+        if (cacheKey != null) {
+          cache.put(cacheKey, rootProjectId(context), rows);
+        }
+      }
       result.setRows(rows);
 
     } catch (Exception e) {
@@ -72,6 +83,15 @@ public class MeasureFilterEngine implements ServerComponent {
     return result;
   }
 
+  @CheckForNull
+  private static Long rootProjectId(MeasureFilterContext context) {
+    SnapshotDto baseSnapshot = context.getBaseSnapshot();
+    if (baseSnapshot == null) {
+      return null;
+    }
+    return baseSnapshot.getRootProjectId() != null ? baseSnapshot.getRootProjectId() : baseSnapshot.getResourceId();
+  }
+
   private String log(MeasureFilterContext context, MeasureFilterResult result) {
     StringBuilder log = new StringBuilder();
     log.append(SystemUtils.LINE_SEPARATOR);
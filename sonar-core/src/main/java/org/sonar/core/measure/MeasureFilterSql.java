@@ -69,6 +69,10 @@ class MeasureFilterSql {
     return sql;
   }
 
+  /**
+   * Measures are loaded from the table LAST_MEASURES, which contains only the measures of last snapshots, without
+   * the details by rule, characteristic or person.
+   */
   private String generateSql() {
     StringBuilder sb = new StringBuilder(1000);
     sb.append("SELECT s.id, s.project_id, s.root_project_id, ");
@@ -77,7 +81,7 @@ class MeasureFilterSql {
 
     for (int index = 0; index < filter.getMeasureConditions().size(); index++) {
       MeasureFilterCondition condition = filter.getMeasureConditions().get(index);
-      sb.append(" INNER JOIN project_measures pmcond").append(index);
+      sb.append(" INNER JOIN last_measures pmcond").append(index);
       sb.append(" ON s.id=pmcond").append(index).append(".snapshot_id AND ");
       condition.appendSqlCondition(sb, index);
     }
@@ -87,9 +91,9 @@ class MeasureFilterSql {
     }
 
     if (filter.sort().isOnMeasure()) {
-      sb.append(" LEFT OUTER JOIN project_measures pmsort ON s.id=pmsort.snapshot_id AND pmsort.metric_id=");
+      sb.append(" LEFT OUTER JOIN last_measures pmsort ON s.id=pmsort.snapshot_id AND pmsort.metric_id=");
       sb.append(filter.sort().metric().getId());
-      sb.append(" AND pmsort.rule_id IS NULL AND pmsort.rule_priority IS NULL AND pmsort.characteristic_id IS NULL AND pmsort.person_id IS NULL ");
+      sb.append(" ");
     }
 
     sb.append(" WHERE ");
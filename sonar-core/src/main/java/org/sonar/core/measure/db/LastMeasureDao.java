@@ -17,34 +17,39 @@
  * along with this program; if not, write to the Free Software Foundation,
  * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
  */
-
-package org.sonar.core.issue.db;
+package org.sonar.core.measure.db;
 
 import org.apache.ibatis.session.SqlSession;
+import org.sonar.api.BatchComponent;
 import org.sonar.api.ServerComponent;
-import org.sonar.api.issue.IssueQuery;
 import org.sonar.core.persistence.MyBatis;
 
-import javax.annotation.Nullable;
-
-import java.util.List;
-
 /**
- * @since 3.6
+ * Maintains the table LAST_MEASURES, which is a copy of the measures of the last snapshots, excluding the measures
+ * on rules, characteristics and persons. It is used by measure filters instead of PROJECT_MEASURES, which contains the
+ * whole history.
+ *
+ * @since 4.2
  */
-public class IssueStatsDao implements ServerComponent {
+public class LastMeasureDao implements BatchComponent, ServerComponent {
 
   private final MyBatis mybatis;
 
-  public IssueStatsDao(MyBatis mybatis) {
+  public LastMeasureDao(MyBatis mybatis) {
     this.mybatis = mybatis;
   }
 
-  public List<Object> selectIssuesColumn(IssueQuery query, String column, @Nullable Integer userId) {
+  /**
+   * Replaces the measures of the project and of its components by the measures of the last snapshots. Must
+   * be called once the last snapshots are flagged.
+   */
+  public void refresh(long rootProjectId) {
     SqlSession session = mybatis.openSession();
     try {
-      IssueStatsMapper mapper = session.getMapper(IssueStatsMapper.class);
-      return mapper.selectIssuesColumn(query, column, query.componentRoots(), userId, query.requiredRole());
+      LastMeasureMapper mapper = session.getMapper(LastMeasureMapper.class);
+      mapper.deleteByRootProject(rootProjectId);
+      mapper.insertFromLastSnapshots(rootProjectId);
+      session.commit();
     } finally {
       MyBatis.closeQuietly(session);
     }
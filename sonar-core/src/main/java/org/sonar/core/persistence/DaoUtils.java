@@ -25,6 +25,7 @@ import org.sonar.core.dashboard.DashboardDao;
 import org.sonar.core.duplication.DuplicationDao;
 import org.sonar.core.graph.jdbc.GraphDao;
 import org.sonar.core.issue.db.*;
+import org.sonar.core.measure.db.LastMeasureDao;
 import org.sonar.core.measure.db.MeasureDataDao;
 import org.sonar.core.measure.db.MeasureFilterDao;
 import org.sonar.core.notification.db.NotificationQueueDao;
@@ -66,10 +67,10 @@ public final class DaoUtils {
       GraphDao.class,
       GroupMembershipDao.class,
       IssueDao.class,
-      IssueStatsDao.class,
       IssueChangeDao.class,
       IssueFilterDao.class,
       IssueFilterFavouriteDao.class,
+      LastMeasureDao.class,
       LoadedTemplateDao.class,
       MeasureDataDao.class,
       MeasureFilterDao.class,
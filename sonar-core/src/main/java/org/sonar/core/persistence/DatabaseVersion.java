@@ -33,7 +33,7 @@ import java.util.List;
  */
 public class DatabaseVersion implements BatchComponent, ServerComponent {
 
-  public static final int LAST_VERSION = 494;
+  public static final int LAST_VERSION = 496;
 
   public static enum Status {
     UP_TO_DATE, REQUIRES_UPGRADE, REQUIRES_DOWNGRADE, FRESH_INSTALL
@@ -66,6 +66,7 @@ public class DatabaseVersion implements BatchComponent, ServerComponent {
     "issue_changes",
     "issue_filters",
     "issue_filter_favourites",
+    "last_measures",
     "loaded_templates",
     "manual_measures",
     "measure_data",
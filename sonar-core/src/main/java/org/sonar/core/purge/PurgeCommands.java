@@ -20,25 +20,57 @@
 package org.sonar.core.purge;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import org.apache.ibatis.session.SqlSession;
+import org.sonar.core.persistence.MyBatis;
 
-import java.util.List;
+import javax.annotation.Nullable;
 
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Deletes rows table by table, in chunks of ids. When a pool of threads is configured, the tables which do not depend
+ * on each other are purged concurrently, each one in its own session. The tables referencing snapshots or resources
+ * are always purged before the tables SNAPSHOTS and PROJECTS.
+ */
 class PurgeCommands {
+  // Oracle does not support more than 1000 values in a IN clause
+  static final int MAX_IDS_PER_QUERY = 1000;
   private static final int MAX_CHARACTERISTICS_PER_QUERY = 1000;
-  private static final int MAX_SNAPSHOTS_PER_QUERY = 1000;
-  private static final int MAX_RESOURCES_PER_QUERY = 1000;
 
   private final SqlSession session;
   private final PurgeMapper purgeMapper;
   private final PurgeProfiler profiler;
+  private final int chunkSize;
+  private final MyBatis mybatis;
+  private final ExecutorService executor;
 
   PurgeCommands(SqlSession session, PurgeMapper purgeMapper, PurgeProfiler profiler) {
+    this(session, purgeMapper, profiler, null, MAX_IDS_PER_QUERY, 1);
+  }
+
+  /**
+   * @param mybatis used to open the sessions of concurrent deletions. Can be null if threads is 1.
+   */
+  PurgeCommands(SqlSession session, PurgeMapper purgeMapper, PurgeProfiler profiler, @Nullable MyBatis mybatis, int chunkSize, int threads) {
+    if (chunkSize < 1 || threads < 1) {
+      throw new IllegalArgumentException(String.format("Chunk size and number of threads must be positive: %d, %d", chunkSize, threads));
+    }
     this.session = session;
     this.purgeMapper = purgeMapper;
     this.profiler = profiler;
+    this.mybatis = mybatis;
+    this.chunkSize = Math.min(chunkSize, MAX_IDS_PER_QUERY);
+    this.executor = threads > 1 ? Executors.newFixedThreadPool(threads) : null;
   }
 
   @VisibleForTesting
@@ -51,7 +83,7 @@ class PurgeCommands {
   }
 
   void deleteResources(List<Long> resourceIds) {
-    List<List<Long>> resourceIdsPartition = Lists.partition(resourceIds, MAX_RESOURCES_PER_QUERY);
+    List<List<Long>> resourceIdsPartition = Lists.partition(resourceIds, chunkSize);
     // Note : do not merge the delete statements into a single loop of resource ids. It's
     // voluntarily grouped by tables in order to benefit from JDBC batch mode.
     // Batch requests can only relate to the same PreparedStatement.
@@ -62,243 +94,295 @@ class PurgeCommands {
 
     // possible missing optimization: filter requests according to resource scope
 
-    profiler.start("deleteResourceLinks (project_links)");
-    for (List<Long> partResourceIds : resourceIdsPartition) {
-      purgeMapper.deleteResourceLinks(partResourceIds);
-    }
-    session.commit();
-    profiler.stop();
-
-    profiler.start("deleteResourceProperties (properties)");
-    for (List<Long> partResourceIds : resourceIdsPartition) {
-      purgeMapper.deleteResourceProperties(partResourceIds);
-    }
-    session.commit();
-    profiler.stop();
-
-    profiler.start("deleteResourceIndex (resource_index)");
-    for (List<Long> partResourceIds : resourceIdsPartition) {
-      purgeMapper.deleteResourceIndex(partResourceIds);
-    }
-    session.commit();
-    profiler.stop();
-
-    profiler.start("deleteResourceGroupRoles (group_roles)");
-    for (List<Long> partResourceIds : resourceIdsPartition) {
-      purgeMapper.deleteResourceGroupRoles(partResourceIds);
-    }
-    session.commit();
-    profiler.stop();
-
-    profiler.start("deleteResourceUserRoles (user_roles)");
-    for (List<Long> partResourceIds : resourceIdsPartition) {
-      purgeMapper.deleteResourceUserRoles(partResourceIds);
-    }
-    session.commit();
-    profiler.stop();
-
-    profiler.start("deleteResourceManualMeasures (manual_measures)");
-    for (List<Long> partResourceIds : resourceIdsPartition) {
-      purgeMapper.deleteResourceManualMeasures(partResourceIds);
-    }
-    session.commit();
-    profiler.stop();
-
-    profiler.start("deleteResourceIssueChanges (issue_changes)");
-    for (List<Long> partResourceIds : resourceIdsPartition) {
-      purgeMapper.deleteResourceIssueChanges(partResourceIds);
-    }
-    session.commit();
-    profiler.stop();
-
-    profiler.start("deleteResourceIssues (issues)");
-    for (List<Long> partResourceIds : resourceIdsPartition) {
-      purgeMapper.deleteResourceIssues(partResourceIds);
-    }
-    session.commit();
-    profiler.stop();
-
-    profiler.start("deleteResourceActionPlans (action_plans)");
-    for (List<Long> partResourceIds : resourceIdsPartition) {
-      purgeMapper.deleteResourceActionPlans(partResourceIds);
-    }
-    session.commit();
-    profiler.stop();
-
-    profiler.start("deleteResourceEvents (events)");
-    for (List<Long> partResourceIds : resourceIdsPartition) {
-      purgeMapper.deleteResourceEvents(partResourceIds);
-    }
-    session.commit();
-    profiler.stop();
-
-    profiler.start("deleteResourceGraphs (graphs)");
-    for (List<Long> partResourceIds : resourceIdsPartition) {
-      purgeMapper.deleteResourceGraphs(partResourceIds);
-    }
-    session.commit();
-    profiler.stop();
-
-    profiler.start("deleteResource (projects)");
-    for (List<Long> partResourceIds : resourceIdsPartition) {
-      purgeMapper.deleteResource(partResourceIds);
-    }
-    session.commit();
-    profiler.stop();
+    deleteConcurrently(resourceIdsPartition, ImmutableList.<List<TableDeletion>>builder()
+      .add(Arrays.<TableDeletion>asList(new TableDeletion("deleteResourceLinks (project_links)") {
+        void delete(PurgeMapper mapper, List<Long> ids) {
+          mapper.deleteResourceLinks(ids);
+        }
+      }))
+      .add(Arrays.<TableDeletion>asList(new TableDeletion("deleteResourceProperties (properties)") {
+        void delete(PurgeMapper mapper, List<Long> ids) {
+          mapper.deleteResourceProperties(ids);
+        }
+      }))
+      .add(Arrays.<TableDeletion>asList(new TableDeletion("deleteResourceIndex (resource_index)") {
+        void delete(PurgeMapper mapper, List<Long> ids) {
+          mapper.deleteResourceIndex(ids);
+        }
+      }))
+      .add(Arrays.<TableDeletion>asList(new TableDeletion("deleteResourceGroupRoles (group_roles)") {
+        void delete(PurgeMapper mapper, List<Long> ids) {
+          mapper.deleteResourceGroupRoles(ids);
+        }
+      }))
+      .add(Arrays.<TableDeletion>asList(new TableDeletion("deleteResourceUserRoles (user_roles)") {
+        void delete(PurgeMapper mapper, List<Long> ids) {
+          mapper.deleteResourceUserRoles(ids);
+        }
+      }))
+      .add(Arrays.<TableDeletion>asList(new TableDeletion("deleteResourceManualMeasures (manual_measures)") {
+        void delete(PurgeMapper mapper, List<Long> ids) {
+          mapper.deleteResourceManualMeasures(ids);
+        }
+      }))
+      .add(Arrays.<TableDeletion>asList(new TableDeletion("deleteResourceLastMeasures (last_measures)") {
+        void delete(PurgeMapper mapper, List<Long> ids) {
+          mapper.deleteResourceLastMeasures(ids);
+        }
+      }))
+      // changes are selected by issue
+      .add(Arrays.<TableDeletion>asList(new TableDeletion("deleteResourceIssueChanges (issue_changes)") {
+        void delete(PurgeMapper mapper, List<Long> ids) {
+          mapper.deleteResourceIssueChanges(ids);
+        }
+      }, new TableDeletion("deleteResourceIssues (issues)") {
+        void delete(PurgeMapper mapper, List<Long> ids) {
+          mapper.deleteResourceIssues(ids);
+        }
+      }))
+      .add(Arrays.<TableDeletion>asList(new TableDeletion("deleteResourceActionPlans (action_plans)") {
+        void delete(PurgeMapper mapper, List<Long> ids) {
+          mapper.deleteResourceActionPlans(ids);
+        }
+      }))
+      .add(Arrays.<TableDeletion>asList(new TableDeletion("deleteResourceEvents (events)") {
+        void delete(PurgeMapper mapper, List<Long> ids) {
+          mapper.deleteResourceEvents(ids);
+        }
+      }))
+      .add(Arrays.<TableDeletion>asList(new TableDeletion("deleteResourceGraphs (graphs)") {
+        void delete(PurgeMapper mapper, List<Long> ids) {
+          mapper.deleteResourceGraphs(ids);
+        }
+      }))
+      .add(Arrays.<TableDeletion>asList(new TableDeletion("deleteAuthors (authors)") {
+        void delete(PurgeMapper mapper, List<Long> ids) {
+          mapper.deleteAuthors(ids);
+        }
+      }))
+      .build());
 
-    profiler.start("deleteAuthors (authors)");
-    for (List<Long> partResourceIds : resourceIdsPartition) {
-      purgeMapper.deleteAuthors(partResourceIds);
-    }
-    session.commit();
-    profiler.stop();
+    deleteSequentially(resourceIdsPartition, new TableDeletion("deleteResource (projects)") {
+      void delete(PurgeMapper mapper, List<Long> ids) {
+        mapper.deleteResource(ids);
+      }
+    });
   }
 
   void deleteSnapshots(final PurgeSnapshotQuery query) {
     deleteSnapshots(purgeMapper.selectSnapshotIds(query));
   }
 
+  /**
+   * Deletes the given root snapshots and all their descendants. Snapshots of all the trees are deleted together,
+   * table by table, so the number of requests depends on the number of snapshots, not on the number of trees.
+   */
+  void deleteSnapshotTrees(List<Long> rootSnapshotIds) {
+    List<Long> snapshotIds = Lists.newArrayList();
+    for (List<Long> partRootSnapshotIds : Lists.partition(rootSnapshotIds, chunkSize)) {
+      snapshotIds.addAll(purgeMapper.selectSnapshotIdsByRootSnapshot(partRootSnapshotIds));
+    }
+    snapshotIds.addAll(rootSnapshotIds);
+    deleteSnapshots(snapshotIds);
+  }
+
   @VisibleForTesting
   protected void deleteSnapshots(final List<Long> snapshotIds) {
+    List<List<Long>> snapshotIdsPartition = Lists.partition(snapshotIds, chunkSize);
+
+    deleteConcurrently(snapshotIdsPartition, ImmutableList.<List<TableDeletion>>builder()
+      .add(Arrays.asList(deleteSnapshotDependencies()))
+      .add(Arrays.asList(deleteSnapshotDuplications()))
+      .add(Arrays.<TableDeletion>asList(new TableDeletion("deleteSnapshotEvents (events)") {
+        void delete(PurgeMapper mapper, List<Long> ids) {
+          mapper.deleteSnapshotEvents(ids);
+        }
+      }))
+      // measure_data references project_measures
+      .add(Arrays.<TableDeletion>asList(new TableDeletion("deleteSnapshotMeasureData (measure_data)") {
+        void delete(PurgeMapper mapper, List<Long> ids) {
+          mapper.deleteSnapshotMeasureData(ids);
+        }
+      }, new TableDeletion("deleteSnapshotMeasures (project_measures)") {
+        void delete(PurgeMapper mapper, List<Long> ids) {
+          mapper.deleteSnapshotMeasures(ids);
+        }
+      }))
+      .add(Arrays.asList(deleteSnapshotSources()))
+      .add(Arrays.asList(deleteSnapshotGraphs()))
+      .add(Arrays.asList(deleteSnapshotData()))
+      .build());
+
+    deleteSequentially(snapshotIdsPartition, new TableDeletion("deleteSnapshot (snapshots)") {
+      void delete(PurgeMapper mapper, List<Long> ids) {
+        mapper.deleteSnapshot(ids);
+      }
+    });
+  }
 
-    List<List<Long>> snapshotIdsPartition = Lists.partition(snapshotIds, MAX_SNAPSHOTS_PER_QUERY);
-
-    deleteSnapshotDependencies(snapshotIdsPartition);
-
-    deleteSnapshotDuplications(snapshotIdsPartition);
-
-    profiler.start("deleteSnapshotEvents (events)");
-    for (List<Long> partSnapshotIds : snapshotIdsPartition) {
-      purgeMapper.deleteSnapshotEvents(partSnapshotIds);
-    }
-    session.commit();
-    profiler.stop();
+  void purgeSnapshots(final PurgeSnapshotQuery query) {
+    purgeSnapshots(purgeMapper.selectSnapshotIds(query));
+  }
 
-    profiler.start("deleteSnapshotMeasureData (measure_data)");
-    for (List<Long> partSnapshotIds : snapshotIdsPartition) {
-      purgeMapper.deleteSnapshotMeasureData(partSnapshotIds);
-    }
-    session.commit();
-    profiler.stop();
+  @VisibleForTesting
+  protected void purgeSnapshots(final List<Long> snapshotIds) {
+    // note that events are not deleted
+    List<List<Long>> snapshotIdsPartition = Lists.partition(snapshotIds, chunkSize);
+
+    final List<Long> metricIdsWithoutHistoricalData = purgeMapper.selectMetricIdsWithoutHistoricalData();
+    final List<Long> characteristicIds = purgeMapper.selectCharacteristicIdsToPurge();
+
+    deleteConcurrently(snapshotIdsPartition, ImmutableList.<List<TableDeletion>>builder()
+      .add(Arrays.asList(deleteSnapshotDependencies()))
+      .add(Arrays.asList(deleteSnapshotDuplications()))
+      .add(Arrays.asList(deleteSnapshotSources()))
+      .add(Arrays.asList(deleteSnapshotGraphs()))
+      .add(Arrays.asList(deleteSnapshotData()))
+      // both delete rows of project_measures
+      .add(Arrays.<TableDeletion>asList(new TableDeletion("deleteSnapshotWastedMeasures (project_measures)") {
+        void delete(PurgeMapper mapper, List<Long> ids) {
+          if (!metricIdsWithoutHistoricalData.isEmpty()) {
+            mapper.deleteSnapshotWastedMeasures(ids, metricIdsWithoutHistoricalData);
+          }
+        }
+      }, new TableDeletion("deleteSnapshotMeasuresOnCharacteristics (project_measures)") {
+        void delete(PurgeMapper mapper, List<Long> ids) {
+          // SONAR-3641 We cannot process all characteristics at once
+          for (List<Long> partCharacteristicIds : Iterables.partition(characteristicIds, MAX_CHARACTERISTICS_PER_QUERY)) {
+            mapper.deleteSnapshotMeasuresOnCharacteristics(ids, partCharacteristicIds);
+          }
+        }
+      }))
+      .build());
 
-    profiler.start("deleteSnapshotMeasures (project_measures)");
-    for (List<Long> partSnapshotIds : snapshotIdsPartition) {
-      purgeMapper.deleteSnapshotMeasures(partSnapshotIds);
+    profiler.start("updatePurgeStatusToOne (snapshots)");
+    for (Long snapshotId : snapshotIds) {
+      purgeMapper.updatePurgeStatusToOne(snapshotId);
     }
     session.commit();
     profiler.stop();
+  }
 
-    deleteSnapshotSources(snapshotIdsPartition);
-
-    deleteSnapshotGraphs(snapshotIdsPartition);
-
-    deleteSnapshotData(snapshotIdsPartition);
-
-    profiler.start("deleteSnapshot (snapshots)");
-    for (List<Long> partSnapshotIds : snapshotIdsPartition) {
-      purgeMapper.deleteSnapshot(partSnapshotIds);
+  /**
+   * Stops the threads of concurrent deletions
+   */
+  void close() {
+    if (executor != null) {
+      executor.shutdown();
     }
-    session.commit();
-    profiler.stop();
   }
 
-  void purgeSnapshots(final PurgeSnapshotQuery query) {
-    purgeSnapshots(purgeMapper.selectSnapshotIds(query));
+  private static TableDeletion deleteSnapshotData() {
+    return new TableDeletion("deleteSnapshotData (snapshot_data)") {
+      void delete(PurgeMapper mapper, List<Long> ids) {
+        mapper.deleteSnapshotData(ids);
+      }
+    };
   }
 
-  @VisibleForTesting
-  protected void purgeSnapshots(final List<Long> snapshotIds) {
-    // note that events are not deleted
-    List<List<Long>> snapshotIdsPartition = Lists.partition(snapshotIds, MAX_SNAPSHOTS_PER_QUERY);
-
-    deleteSnapshotDependencies(snapshotIdsPartition);
+  private static TableDeletion deleteSnapshotGraphs() {
+    return new TableDeletion("deleteSnapshotGraphs (graphs)") {
+      void delete(PurgeMapper mapper, List<Long> ids) {
+        mapper.deleteSnapshotGraphs(ids);
+      }
+    };
+  }
 
-    deleteSnapshotDuplications(snapshotIdsPartition);
+  private static TableDeletion deleteSnapshotSources() {
+    return new TableDeletion("deleteSnapshotSource (snapshot_sources)") {
+      void delete(PurgeMapper mapper, List<Long> ids) {
+        mapper.deleteSnapshotSource(ids);
+      }
+    };
+  }
 
-    deleteSnapshotSources(snapshotIdsPartition);
+  private static TableDeletion deleteSnapshotDuplications() {
+    return new TableDeletion("deleteSnapshotDuplications (duplications_index)") {
+      void delete(PurgeMapper mapper, List<Long> ids) {
+        mapper.deleteSnapshotDuplications(ids);
+      }
+    };
+  }
 
-    deleteSnapshotGraphs(snapshotIdsPartition);
+  private static TableDeletion deleteSnapshotDependencies() {
+    return new TableDeletion("deleteSnapshotDependencies (dependencies)") {
+      void delete(PurgeMapper mapper, List<Long> ids) {
+        // SONAR-4586
+        // On MsSQL, the maximum number of parameters allowed in a query is 2000, so we have to execute 3 queries instead of one with 3 or inside
+        mapper.deleteSnapshotDependenciesFromSnapshotId(ids);
+        mapper.deleteSnapshotDependenciesToSnapshotId(ids);
+        mapper.deleteSnapshotDependenciesProjectSnapshotId(ids);
+      }
+    };
+  }
 
-    deleteSnapshotData(snapshotIdsPartition);
+  private void deleteSequentially(List<List<Long>> idsPartition, TableDeletion deletion) {
+    deletion.execute(purgeMapper, session, idsPartition, profiler);
+  }
 
-    profiler.start("deleteSnapshotWastedMeasures (project_measures)");
-    List<Long> metricIdsWithoutHistoricalData = purgeMapper.selectMetricIdsWithoutHistoricalData();
-    if (!metricIdsWithoutHistoricalData.isEmpty()) {
-      for (List<Long> partSnapshotIds : snapshotIdsPartition) {
-        purgeMapper.deleteSnapshotWastedMeasures(partSnapshotIds, metricIdsWithoutHistoricalData);
+  /**
+   * Each sequence of deletions relates to tables which are not referenced by the other sequences, so that sequences
+   * can be executed concurrently.
+   */
+  private void deleteConcurrently(final List<List<Long>> idsPartition, List<List<TableDeletion>> sequences) {
+    if (executor == null || idsPartition.isEmpty()) {
+      for (List<TableDeletion> sequence : sequences) {
+        for (TableDeletion deletion : sequence) {
+          deletion.execute(purgeMapper, session, idsPartition, profiler);
+        }
       }
-      session.commit();
+      return;
     }
-    profiler.stop();
 
-    profiler.start("deleteSnapshotMeasuresOnCharacteristics (project_measures)");
-    List<Long> characteristicIds = purgeMapper.selectCharacteristicIdsToPurge();
-    if (!characteristicIds.isEmpty()) {
-      for (List<Long> partSnapshotIds : snapshotIdsPartition) {
-        // SONAR-3641 We cannot process all characteristics at once
-        for (List<Long> ids : Iterables.partition(characteristicIds, MAX_CHARACTERISTICS_PER_QUERY)) {
-          purgeMapper.deleteSnapshotMeasuresOnCharacteristics(partSnapshotIds, ids);
+    List<Future<Void>> futures = Lists.newArrayList();
+    for (final List<TableDeletion> sequence : sequences) {
+      futures.add(executor.submit(new Callable<Void>() {
+        public Void call() {
+          SqlSession concurrentSession = mybatis.openBatchSession();
+          try {
+            PurgeMapper concurrentMapper = concurrentSession.getMapper(PurgeMapper.class);
+            for (TableDeletion deletion : sequence) {
+              deletion.execute(concurrentMapper, concurrentSession, idsPartition, profiler);
+            }
+            return null;
+          } finally {
+            MyBatis.closeQuietly(concurrentSession);
+          }
         }
-      }
-      session.commit();
+      }));
     }
-    profiler.stop();
-
-    profiler.start("updatePurgeStatusToOne (snapshots)");
-    for (Long snapshotId : snapshotIds) {
-      purgeMapper.updatePurgeStatusToOne(snapshotId);
+    for (Future<Void> future : futures) {
+      waitFor(future);
     }
-    session.commit();
-    profiler.stop();
   }
 
-  private void deleteSnapshotData(final List<List<Long>> snapshotIdsPartition) {
-    profiler.start("deleteSnapshotData (snapshot_data)");
-    for (List<Long> partSnapshotIds : snapshotIdsPartition) {
-      purgeMapper.deleteSnapshotData(partSnapshotIds);
+  private static void waitFor(Future<Void> future) {
+    try {
+      future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while purging", e);
+    } catch (ExecutionException e) {
+      throw Throwables.propagate(e.getCause());
     }
-    session.commit();
-    profiler.stop();
   }
 
-  private void deleteSnapshotGraphs(final List<List<Long>> snapshotIdsPartition) {
-    profiler.start("deleteSnapshotGraphs (graphs)");
-    for (List<Long> partSnapshotIds : snapshotIdsPartition) {
-      purgeMapper.deleteSnapshotGraphs(partSnapshotIds);
-    }
-    session.commit();
-    profiler.stop();
-  }
+  private abstract static class TableDeletion {
+    private final String name;
 
-  private void deleteSnapshotSources(final List<List<Long>> snapshotIdsPartition) {
-    profiler.start("deleteSnapshotSource (snapshot_sources)");
-    for (List<Long> partSnapshotIds : snapshotIdsPartition) {
-      purgeMapper.deleteSnapshotSource(partSnapshotIds);
+    TableDeletion(String name) {
+      this.name = name;
     }
-    session.commit();
-    profiler.stop();
-  }
 
-  private void deleteSnapshotDuplications(final List<List<Long>> snapshotIdsPartition) {
-    profiler.start("deleteSnapshotDuplications (duplications_index)");
-    for (List<Long> partSnapshotIds : snapshotIdsPartition) {
-      purgeMapper.deleteSnapshotDuplications(partSnapshotIds);
-    }
-    session.commit();
-    profiler.stop();
-  }
+    abstract void delete(PurgeMapper mapper, List<Long> ids);
 
-  private void deleteSnapshotDependencies(final List<List<Long>> snapshotIdsPartition) {
-    profiler.start("deleteSnapshotDependencies (dependencies)");
-    for (List<Long> partSnapshotIds : snapshotIdsPartition) {
-      // SONAR-4586
-      // On MsSQL, the maximum number of parameters allowed in a query is 2000, so we have to execute 3 queries instead of one with 3 or inside
-      purgeMapper.deleteSnapshotDependenciesFromSnapshotId(partSnapshotIds);
-      purgeMapper.deleteSnapshotDependenciesToSnapshotId(partSnapshotIds);
-      purgeMapper.deleteSnapshotDependenciesProjectSnapshotId(partSnapshotIds);
+    final void execute(PurgeMapper mapper, SqlSession session, List<List<Long>> idsPartition, PurgeProfiler profiler) {
+      profiler.start(name);
+      for (List<Long> ids : idsPartition) {
+        delete(mapper, ids);
+      }
+      session.commit();
+      profiler.stop();
     }
-    session.commit();
-    profiler.stop();
   }
-
 }
@@ -27,14 +27,33 @@ import java.util.Date;
 
 public class PurgeConfiguration {
 
+  public static final int DEFAULT_CHUNK_SIZE = PurgeCommands.MAX_IDS_PER_QUERY;
+  public static final int DEFAULT_THREADS = 2;
+
   private final long rootProjectId;
   private final String[] scopesWithoutHistoricalData;
   private final int maxAgeInDaysOfClosedIssues;
+  private final int chunkSize;
+  private final int threads;
 
+  /**
+   * Tables are purged sequentially
+   */
   public PurgeConfiguration(long rootProjectId, String[] scopesWithoutHistoricalData, int maxAgeInDaysOfClosedIssues) {
+    this(rootProjectId, scopesWithoutHistoricalData, maxAgeInDaysOfClosedIssues, DEFAULT_CHUNK_SIZE, 1);
+  }
+
+  /**
+   * @param chunkSize maximum number of ids per DELETE request. It can't be greater than {@link #DEFAULT_CHUNK_SIZE}.
+   * @param threads number of tables purged concurrently
+   * @since 4.2
+   */
+  public PurgeConfiguration(long rootProjectId, String[] scopesWithoutHistoricalData, int maxAgeInDaysOfClosedIssues, int chunkSize, int threads) {
     this.rootProjectId = rootProjectId;
     this.scopesWithoutHistoricalData = scopesWithoutHistoricalData;
     this.maxAgeInDaysOfClosedIssues = maxAgeInDaysOfClosedIssues;
+    this.chunkSize = chunkSize;
+    this.threads = threads;
   }
 
   public long rootProjectId() {
@@ -45,6 +64,14 @@ public class PurgeConfiguration {
     return scopesWithoutHistoricalData;
   }
 
+  public int chunkSize() {
+    return chunkSize;
+  }
+
+  public int threads() {
+    return threads;
+  }
+
   @CheckForNull
   public Date maxLiveDateOfClosedIssues() {
     return maxLiveDateOfClosedIssues(new Date());
@@ -54,7 +54,7 @@ public class PurgeDao {
   public PurgeDao purge(PurgeConfiguration conf) {
     SqlSession session = mybatis.openBatchSession();
     PurgeMapper mapper = session.getMapper(PurgeMapper.class);
-    PurgeCommands commands = new PurgeCommands(session, mapper, profiler);
+    PurgeCommands commands = new PurgeCommands(session, mapper, profiler, mybatis, conf.chunkSize(), conf.threads());
     try {
       List<ResourceDto> projects = getProjects(conf.rootProjectId(), session);
       for (ResourceDto project : projects) {
@@ -68,6 +68,7 @@ public class PurgeDao {
       deleteOldClosedIssues(conf, mapper);
       session.commit();
     } finally {
+      commands.close();
       MyBatis.closeQuietly(session);
     }
     return this;
@@ -188,6 +189,23 @@ public class PurgeDao {
     }
   }
 
+  /**
+   * Deletes the given project snapshots, including the snapshots of their modules and files.
+   *
+   * @since 4.2
+   */
+  public PurgeDao deleteSnapshotTrees(List<Long> rootSnapshotIds, PurgeConfiguration conf) {
+    SqlSession session = mybatis.openBatchSession();
+    PurgeCommands commands = new PurgeCommands(session, session.getMapper(PurgeMapper.class), profiler, mybatis, conf.chunkSize(), conf.threads());
+    try {
+      commands.deleteSnapshotTrees(rootSnapshotIds);
+      return this;
+    } finally {
+      commands.close();
+      MyBatis.closeQuietly(session);
+    }
+  }
+
   /**
    * Load the whole tree of projects, including the project given in parameter.
    */
@@ -32,6 +32,8 @@ public interface PurgeMapper {
 
   List<Long> selectSnapshotIdsByResource(@Param("resourceIds") List<Long> resourceIds);
 
+  List<Long> selectSnapshotIdsByRootSnapshot(@Param("rootSnapshotIds") List<Long> rootSnapshotIds);
+
   List<Long> selectProjectIdsByRootId(long rootResourceId);
 
   void deleteSnapshot(@Param("snapshotIds") List<Long> snapshotIds);
@@ -86,6 +88,8 @@ public interface PurgeMapper {
 
   void deleteResourceManualMeasures(@Param("resourceIds") List<Long> resourceIds);
 
+  void deleteResourceLastMeasures(@Param("resourceIds") List<Long> resourceIds);
+
   void deleteResourceEvents(@Param("resourceIds") List<Long> resourceIds);
 
   void deleteResourceActionPlans(@Param("resourceIds") List<Long> resourceIds);
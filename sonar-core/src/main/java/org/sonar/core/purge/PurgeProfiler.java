@@ -31,11 +31,14 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 
+/**
+ * Cumulated durations of deletions by table. Deletions can be profiled concurrently by several threads.
+ */
 public class PurgeProfiler {
 
-  private Map<String, Long> durations = new HashMap<String, Long>();
-  private long startTime;
-  private String currentTable;
+  private final Map<String, Long> durations = new HashMap<String, Long>();
+  private final ThreadLocal<Long> startTime = new ThreadLocal<Long>();
+  private final ThreadLocal<String> currentTable = new ThreadLocal<String>();
   private final Clock clock;
 
   public PurgeProfiler() {
@@ -47,33 +50,59 @@ public class PurgeProfiler {
     this.clock = clock;
   }
 
-  public void reset() {
+  public synchronized void reset() {
     durations.clear();
   }
 
   void start(String table) {
-    this.startTime = clock.now();
-    this.currentTable = table;
+    startTime.set(clock.now());
+    currentTable.set(table);
   }
 
   void stop() {
-    final Long cumulatedDuration;
-    if (durations.containsKey(currentTable)) {
-      cumulatedDuration = durations.get(currentTable);
-    } else {
-      cumulatedDuration = 0L;
+    long duration = clock.now() - startTime.get();
+    String table = currentTable.get();
+    synchronized (this) {
+      Long cumulatedDuration = durations.get(table);
+      durations.put(table, (cumulatedDuration != null ? cumulatedDuration : 0L) + duration);
     }
-    durations.put(currentTable, cumulatedDuration + (clock.now() - startTime));
   }
 
-  public void dump(long totalTime, Logger logger) {
-    List<Entry<String, Long>> data = new ArrayList<Map.Entry<String, Long>>(durations.entrySet());
+  /**
+   * @return cumulated durations in milliseconds, by table
+   */
+  public synchronized Map<String, Long> durations() {
+    return new HashMap<String, Long>(durations);
+  }
+
+  /**
+   * @return sum of the durations of all tables, in milliseconds. When tables are purged concurrently, it's greater
+   * than the elapsed time.
+   */
+  public synchronized long totalDuration() {
+    long total = 0L;
+    for (Long duration : durations.values()) {
+      total += duration;
+    }
+    return total;
+  }
+
+  /**
+   * Logs the slowest tables. Percentages are relative to {@link #totalDuration()}, so that they
+   * still add up to 100% when tables are purged concurrently.
+   */
+  public void dump(Logger logger) {
+    List<Entry<String, Long>> data = new ArrayList<Map.Entry<String, Long>>(durations().entrySet());
     Collections.sort(data, new Comparator<Entry<String, Long>>() {
       @Override
       public int compare(Entry<String, Long> o1, Entry<String, Long> o2) {
         return o2.getValue().compareTo(o1.getValue());
       }
     });
+    long totalTime = 0L;
+    for (Entry<String, Long> entry : data) {
+      totalTime += entry.getValue();
+    }
     double percent = totalTime / 100.0;
     for (Entry<String, Long> entry : truncateList(data)) {
       StringBuilder sb = new StringBuilder();
@@ -0,0 +1,132 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2013 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package org.sonar.core.qualityprofile.db;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+
+import java.util.Date;
+
+/**
+ * History of the changes of active rules, stored in the table active_rule_changes
+ *
+ * @since 4.2
+ */
+public class ActiveRuleChangeDto {
+
+  private Integer id;
+  private String userName;
+  private Integer profileId;
+  private Integer profileVersion;
+  private Integer ruleId;
+  private Date changeDate;
+  private Boolean enabled;
+  private Integer oldSeverity;
+  private Integer newSeverity;
+
+  public Integer getId() {
+    return id;
+  }
+
+  public ActiveRuleChangeDto setId(Integer id) {
+    this.id = id;
+    return this;
+  }
+
+  @CheckForNull
+  public String getUserName() {
+    return userName;
+  }
+
+  public ActiveRuleChangeDto setUserName(@Nullable String userName) {
+    this.userName = userName;
+    return this;
+  }
+
+  public Integer getProfileId() {
+    return profileId;
+  }
+
+  public ActiveRuleChangeDto setProfileId(Integer profileId) {
+    this.profileId = profileId;
+    return this;
+  }
+
+  public Integer getProfileVersion() {
+    return profileVersion;
+  }
+
+  public ActiveRuleChangeDto setProfileVersion(Integer profileVersion) {
+    this.profileVersion = profileVersion;
+    return this;
+  }
+
+  public Integer getRuleId() {
+    return ruleId;
+  }
+
+  public ActiveRuleChangeDto setRuleId(Integer ruleId) {
+    this.ruleId = ruleId;
+    return this;
+  }
+
+  public Date getChangeDate() {
+    return changeDate;
+  }
+
+  public ActiveRuleChangeDto setChangeDate(Date changeDate) {
+    this.changeDate = changeDate;
+    return this;
+  }
+
+  /**
+   * @return true if the rule is activated, false if it is deactivated, null if it is changed
+   */
+  @CheckForNull
+  public Boolean getEnabled() {
+    return enabled;
+  }
+
+  public ActiveRuleChangeDto setEnabled(@Nullable Boolean enabled) {
+    this.enabled = enabled;
+    return this;
+  }
+
+  @CheckForNull
+  public Integer getOldSeverity() {
+    return oldSeverity;
+  }
+
+  public ActiveRuleChangeDto setOldSeverity(@Nullable Integer oldSeverity) {
+    this.oldSeverity = oldSeverity;
+    return this;
+  }
+
+  @CheckForNull
+  public Integer getNewSeverity() {
+    return newSeverity;
+  }
+
+  public ActiveRuleChangeDto setNewSeverity(@Nullable Integer newSeverity) {
+    this.newSeverity = newSeverity;
+    return this;
+  }
+}
@@ -26,6 +26,7 @@ import org.sonar.api.ServerComponent;
 import org.sonar.core.persistence.MyBatis;
 
 import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
 
 import java.util.Collection;
 import java.util.Collections;
@@ -111,6 +112,23 @@ public class ActiveRuleDao implements ServerComponent {
     }
   }
 
+  /**
+   * Deletes active rules by batches. Parameters must be deleted before, see {@link #deleteParametersByActiveRuleIds(java.util.Collection, org.apache.ibatis.session.SqlSession)}.
+   */
+  public void deleteByIds(Collection<Integer> ids, SqlSession session) {
+    ActiveRuleMapper mapper = session.getMapper(ActiveRuleMapper.class);
+    for (List<Integer> idsPartition : partition(ids)) {
+      mapper.deleteByIds(idsPartition);
+    }
+  }
+
+  public void updateInheritance(Collection<Integer> ids, @Nullable String inheritance, SqlSession session) {
+    ActiveRuleMapper mapper = session.getMapper(ActiveRuleMapper.class);
+    for (List<Integer> idsPartition : partition(ids)) {
+      mapper.updateInheritance(idsPartition, inheritance);
+    }
+  }
+
   public List<ActiveRuleDto> selectByIds(List<Integer> ids) {
     SqlSession session = mybatis.openSession();
     try {
@@ -172,6 +190,15 @@ public class ActiveRuleDao implements ServerComponent {
     return session.getMapper(ActiveRuleMapper.class).selectByProfileId(profileId);
   }
 
+  public List<ActiveRuleDto> selectByProfileIds(Collection<Integer> profileIds, SqlSession session) {
+    List<ActiveRuleDto> dtos = newArrayList();
+    ActiveRuleMapper mapper = session.getMapper(ActiveRuleMapper.class);
+    for (List<Integer> idsPartition : partition(profileIds)) {
+      dtos.addAll(mapper.selectByProfileIds(idsPartition));
+    }
+    return dtos;
+  }
+
 
   @CheckForNull
   public ActiveRuleDto selectById(int id) {
@@ -278,6 +305,13 @@ public class ActiveRuleDao implements ServerComponent {
     session.getMapper(ActiveRuleMapper.class).deleteParametersFromProfile(profileId);
   }
 
+  public void deleteParametersByActiveRuleIds(Collection<Integer> activeRuleIds, SqlSession session) {
+    ActiveRuleMapper mapper = session.getMapper(ActiveRuleMapper.class);
+    for (List<Integer> idsPartition : partition(activeRuleIds)) {
+      mapper.deleteParametersByActiveRuleIds(idsPartition);
+    }
+  }
+
   public ActiveRuleParamDto selectParamById(Integer activeRuleParamId) {
     SqlSession session = mybatis.openSession();
     try {
@@ -356,4 +390,26 @@ public class ActiveRuleDao implements ServerComponent {
       MyBatis.closeQuietly(session);
     }
   }
+
+  public List<ActiveRuleParamDto> selectParamsByProfileIds(Collection<Integer> profileIds, SqlSession session) {
+    List<ActiveRuleParamDto> dtos = newArrayList();
+    ActiveRuleMapper mapper = session.getMapper(ActiveRuleMapper.class);
+    for (List<Integer> idsPartition : partition(profileIds)) {
+      dtos.addAll(mapper.selectParamsByProfileIds(idsPartition));
+    }
+    return dtos;
+  }
+
+  public void insert(ActiveRuleChangeDto dto, SqlSession session) {
+    session.getMapper(ActiveRuleMapper.class).insertChange(dto);
+  }
+
+  public void insert(ActiveRuleParamChangeDto dto, SqlSession session) {
+    session.getMapper(ActiveRuleMapper.class).insertParamChange(dto);
+  }
+
+  private static List<List<Integer>> partition(Collection<Integer> ids) {
+    // limit the size of IN clauses
+    return Lists.partition(newArrayList(ids), 1000);
+  }
 }
@@ -23,6 +23,7 @@ package org.sonar.core.qualityprofile.db;
 import org.apache.ibatis.annotations.Param;
 
 import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
 
 import java.util.List;
 
@@ -38,6 +39,10 @@ public interface ActiveRuleMapper {
 
   void deleteFromProfile(int profileId);
 
+  void deleteByIds(@Param("ids") List<Integer> ids);
+
+  void updateInheritance(@Param("ids") List<Integer> ids, @Param("inheritance") @Nullable String inheritance);
+
   @CheckForNull
   ActiveRuleDto selectById(Integer id);
 
@@ -48,6 +53,8 @@ public interface ActiveRuleMapper {
 
   List<ActiveRuleDto> selectByProfileId(int profileId);
 
+  List<ActiveRuleDto> selectByProfileIds(@Param("profileIds") List<Integer> profileIds);
+
   List<ActiveRuleDto> selectAll();
 
   void insertParameter(ActiveRuleParamDto dto);
@@ -62,6 +69,8 @@ public interface ActiveRuleMapper {
 
   void deleteParametersFromProfile(int profileId);
 
+  void deleteParametersByActiveRuleIds(@Param("activeRuleIds") List<Integer> activeRuleIds);
+
   @CheckForNull
   ActiveRuleParamDto selectParamById(int activeRuleParamId);
 
@@ -72,7 +81,12 @@ public interface ActiveRuleMapper {
 
   List<ActiveRuleParamDto> selectParamsByProfileId(int profileId);
 
+  List<ActiveRuleParamDto> selectParamsByProfileIds(@Param("profileIds") List<Integer> profileIds);
+
   List<ActiveRuleParamDto> selectAllParams();
 
+  void insertChange(ActiveRuleChangeDto dto);
+
+  void insertParamChange(ActiveRuleParamChangeDto dto);
 
 }
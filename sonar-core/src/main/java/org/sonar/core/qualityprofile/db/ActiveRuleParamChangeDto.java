@@ -0,0 +1,85 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2013 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package org.sonar.core.qualityprofile.db;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+
+/**
+ * History of the changes of active rule parameters, stored in the table active_rule_param_changes
+ *
+ * @since 4.2
+ */
+public class ActiveRuleParamChangeDto {
+
+  private Integer id;
+  private Integer activeRuleChangeId;
+  private Integer rulesParameterId;
+  private String oldValue;
+  private String newValue;
+
+  public Integer getId() {
+    return id;
+  }
+
+  public ActiveRuleParamChangeDto setId(Integer id) {
+    this.id = id;
+    return this;
+  }
+
+  public Integer getActiveRuleChangeId() {
+    return activeRuleChangeId;
+  }
+
+  public ActiveRuleParamChangeDto setActiveRuleChangeId(Integer activeRuleChangeId) {
+    this.activeRuleChangeId = activeRuleChangeId;
+    return this;
+  }
+
+  public Integer getRulesParameterId() {
+    return rulesParameterId;
+  }
+
+  public ActiveRuleParamChangeDto setRulesParameterId(Integer rulesParameterId) {
+    this.rulesParameterId = rulesParameterId;
+    return this;
+  }
+
+  @CheckForNull
+  public String getOldValue() {
+    return oldValue;
+  }
+
+  public ActiveRuleParamChangeDto setOldValue(@Nullable String oldValue) {
+    this.oldValue = oldValue;
+    return this;
+  }
+
+  @CheckForNull
+  public String getNewValue() {
+    return newValue;
+  }
+
+  public ActiveRuleParamChangeDto setNewValue(@Nullable String newValue) {
+    this.newValue = newValue;
+    return this;
+  }
+}
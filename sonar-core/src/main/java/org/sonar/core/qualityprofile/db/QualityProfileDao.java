@@ -115,12 +115,16 @@ public class QualityProfileDao implements ServerComponent {
   public List<QualityProfileDto> selectByLanguage(String language) {
     SqlSession session = mybatis.openSession();
     try {
-      return session.getMapper(QualityProfileMapper.class).selectByLanguage(language);
+      return selectByLanguage(language, session);
     } finally {
       MyBatis.closeQuietly(session);
     }
   }
 
+  public List<QualityProfileDto> selectByLanguage(String language, SqlSession session) {
+    return session.getMapper(QualityProfileMapper.class).selectByLanguage(language);
+  }
+
   @CheckForNull
   public QualityProfileDto selectById(int id, SqlSession session) {
     return session.getMapper(QualityProfileMapper.class).selectById(id);
@@ -110,6 +110,15 @@ public class ResourceDao {
     return session.getMapper(ResourceMapper.class).selectLastSnapshotByResourceId(resourceId);
   }
 
+  /**
+   * Last snapshots of the project and of all its components
+   *
+   * @since 4.2
+   */
+  public List<SnapshotDto> getLastSnapshotsOfRootProject(long rootProjectId, SqlSession session) {
+    return session.getMapper(ResourceMapper.class).selectLastSnapshotsByRootProjectId(rootProjectId);
+  }
+
   public List<ResourceDto> getDescendantProjects(long projectId) {
     SqlSession session = mybatis.openSession();
     try {
@@ -34,6 +34,8 @@ public interface ResourceMapper {
 
   SnapshotDto selectLastSnapshotByResourceId(long resourceId);
 
+  List<SnapshotDto> selectLastSnapshotsByRootProjectId(long rootProjectId);
+
   ResourceDto selectResource(long id);
 
   List<ResourceDto> selectDescendantProjects(long rootProjectId);
@@ -24,6 +24,8 @@ import org.sonar.api.BatchComponent;
 import org.sonar.api.ServerComponent;
 import org.sonar.core.persistence.MyBatis;
 
+import java.util.List;
+
 public class LoadedTemplateDao implements BatchComponent, ServerComponent {
 
   private MyBatis mybatis;
@@ -42,6 +44,16 @@ public class LoadedTemplateDao implements BatchComponent, ServerComponent {
     }
   }
 
+  public List<LoadedTemplateDto> selectByType(String type) {
+    SqlSession session = mybatis.openSession();
+    LoadedTemplateMapper mapper = session.getMapper(LoadedTemplateMapper.class);
+    try {
+      return mapper.selectByType(type);
+    } finally {
+      MyBatis.closeQuietly(session);
+    }
+  }
+
   public void insert(LoadedTemplateDto loadedTemplateDto) {
     SqlSession session = mybatis.openSession();
     LoadedTemplateMapper mapper = session.getMapper(LoadedTemplateMapper.class);
@@ -53,4 +65,26 @@ public class LoadedTemplateDao implements BatchComponent, ServerComponent {
     }
   }
 
+  public void update(LoadedTemplateDto loadedTemplateDto) {
+    SqlSession session = mybatis.openSession();
+    LoadedTemplateMapper mapper = session.getMapper(LoadedTemplateMapper.class);
+    try {
+      mapper.update(loadedTemplateDto);
+      session.commit();
+    } finally {
+      MyBatis.closeQuietly(session);
+    }
+  }
+
+  public void delete(LoadedTemplateDto loadedTemplateDto) {
+    SqlSession session = mybatis.openSession();
+    LoadedTemplateMapper mapper = session.getMapper(LoadedTemplateMapper.class);
+    try {
+      mapper.delete(loadedTemplateDto.getId());
+      session.commit();
+    } finally {
+      MyBatis.closeQuietly(session);
+    }
+  }
+
 }
@@ -27,6 +27,7 @@ public final class LoadedTemplateDto {
   public static final String FILTER_TYPE = "FILTER";
   public static final String QUALITY_PROFILE_TYPE = "QUALITY_PROFILE";
   public static final String PERMISSION_TEMPLATE_TYPE = "PERM_TEMPLATE";
+  public static final String RULE_REPOSITORY_TYPE = "RULE_REPOSITORY";
 
   private Long id;
   private String key;
@@ -0,0 +1,200 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2013 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.core.test;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Immutable list of the lines covered by a test case, stored without boxing. Lines sorted in ascending order without
+ * duplicates, which is the general case, are stored in a bitset when it is smaller than an array, for example
+ * when a test covers most of the lines of a method. Other lists are stored as is in an array.
+ * <p/>
+ * Coverage blocks of large test suites represent most of the memory used by the scan graph, as lists of boxed
+ * integers were about five times bigger.
+ * <p/>
+ * Only the lines are compacted : test cases and coverage blocks are still vertices and edges of the in-memory
+ * scan graph. Storing them with int ids and spilling them to the batch caches when over a memory budget is a
+ * follow-up, see {@link DefaultTestCase#setCoverageBlock(org.sonar.api.test.Testable, List)}.
+ *
+ * @since 4.2
+ */
+final class CoverageLines extends AbstractList<Integer> {
+
+  private final int size;
+  // lines are either the bits of the bitset, shifted by the offset, or the values of the array
+  private final BitSet bits;
+  private final int offset;
+  private final int[] values;
+  private final boolean sorted;
+
+  private CoverageLines(BitSet bits, int offset, int size) {
+    this.size = size;
+    this.bits = bits;
+    this.offset = offset;
+    this.values = null;
+    this.sorted = true;
+  }
+
+  private CoverageLines(int[] values, boolean sorted) {
+    this.size = values.length;
+    this.bits = null;
+    this.offset = 0;
+    this.values = values;
+    this.sorted = sorted;
+  }
+
+  /**
+   * @return the compact copy of the lines, or the given list if it can not be copied, for example when it contains null
+   */
+  static List<Integer> copyOf(List<Integer> lines) {
+    if (lines instanceof CoverageLines) {
+      return lines;
+    }
+    int[] values = new int[lines.size()];
+    boolean sorted = true;
+    int i = 0;
+    for (Integer line : lines) {
+      if (line == null) {
+        return lines;
+      }
+      values[i] = line;
+      sorted &= i == 0 || values[i - 1] < line;
+      i++;
+    }
+    if (sorted && values.length > 0) {
+      int min = values[0];
+      long range = (long) values[values.length - 1] - min + 1;
+      // one bit per line of the range against 32 bits per line
+      if (range < 32L * values.length) {
+        BitSet bits = new BitSet((int) range);
+        for (int value : values) {
+          bits.set(value - min);
+        }
+        return new CoverageLines(bits, min, values.length);
+      }
+    }
+    return new CoverageLines(values, sorted);
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Linear time when lines are stored in a bitset, so lines should rather be browsed with {@link #iterator()}
+   */
+  @Override
+  public Integer get(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+    }
+    if (values != null) {
+      return values[index];
+    }
+    int bit = bits.nextSetBit(0);
+    for (int i = 0; i < index; i++) {
+      bit = bits.nextSetBit(bit + 1);
+    }
+    return bit + offset;
+  }
+
+  @Override
+  public boolean contains(Object o) {
+    if (!(o instanceof Integer)) {
+      return false;
+    }
+    int line = (Integer) o;
+    if (bits != null) {
+      long bit = (long) line - offset;
+      return bit >= 0 && bit <= Integer.MAX_VALUE && bits.get((int) bit);
+    }
+    if (sorted) {
+      return Arrays.binarySearch(values, line) >= 0;
+    }
+    for (int value : values) {
+      if (value == line) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Same as {@link java.util.List#equals(Object)}, but lines are compared with {@link #iterator()}
+   */
+  @Override
+  public boolean equals(Object o) {
+    if (o == this) {
+      return true;
+    }
+    if (!(o instanceof List) || ((List) o).size() != size) {
+      return false;
+    }
+    Iterator<?> others = ((List) o).iterator();
+    for (Integer line : this) {
+      if (!line.equals(others.next())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public int hashCode() {
+    int hashCode = 1;
+    for (Integer line : this) {
+      hashCode = 31 * hashCode + line.hashCode();
+    }
+    return hashCode;
+  }
+
+  @Override
+  public Iterator<Integer> iterator() {
+    if (values != null) {
+      return super.iterator();
+    }
+    return new Iterator<Integer>() {
+      private int bit = bits.nextSetBit(0);
+
+      public boolean hasNext() {
+        return bit >= 0;
+      }
+
+      public Integer next() {
+        if (bit < 0) {
+          throw new NoSuchElementException();
+        }
+        int line = bit + offset;
+        bit = bits.nextSetBit(bit + 1);
+        return line;
+      }
+
+      public void remove() {
+        throw new UnsupportedOperationException();
+      }
+    };
+  }
+}
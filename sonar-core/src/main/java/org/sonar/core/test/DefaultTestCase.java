@@ -110,7 +110,10 @@ public class DefaultTestCase extends BeanVertex implements MutableTestCase {
     if (coverageBlock(testable) != null) {
       throw new CoverageAlreadyExistsException("The link between " + name() + " and " + testable.component().key() + " already exists");
     }
-    beanGraph().getUnderlyingGraph().addEdge(null, element(), ((BeanVertex) testable).element(), COVERS).setProperty(LINES, lines);
+    // TODO store coverage blocks out of the scan graph, with int ids of test cases and testables, and spill them to
+    // org.sonar.batch.index.Caches when over budget. It requires GraphPersister and the graph writers to read blocks
+    // from this store instead of extracting the subgraph of the test plan.
+    beanGraph().getUnderlyingGraph().addEdge(null, element(), ((BeanVertex) testable).element(), COVERS).setProperty(LINES, CoverageLines.copyOf(lines));
     return this;
   }
 
@@ -0,0 +1,116 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2013 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.core.component;
+
+import com.google.common.collect.Iterables;
+import com.tinkerpop.blueprints.Graph;
+import org.apache.commons.codec.binary.Base64;
+import org.junit.Before;
+import org.junit.Test;
+import org.sonar.api.component.mock.MockSourceFile;
+import org.sonar.api.test.MutableTestCase;
+import org.sonar.api.test.MutableTestPlan;
+import org.sonar.api.test.TestCase;
+import org.sonar.core.graph.SubGraph;
+import org.sonar.core.graph.binary.BinaryGraphWriter;
+import org.sonar.core.graph.graphson.GraphsonMode;
+import org.sonar.core.graph.graphson.GraphsonWriter;
+import org.sonar.core.graph.jdbc.GraphDao;
+import org.sonar.core.graph.jdbc.GraphDto;
+import org.sonar.core.test.TestPlanBuilder;
+import org.sonar.core.test.TestPlanPerspectiveLoader;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class SnapshotPerspectivesTest {
+
+  private GraphDao dao = mock(GraphDao.class);
+  private SnapshotPerspectives perspectives;
+  private Graph subGraph;
+  private String rootVertexId;
+
+  @Before
+  public void before() {
+    TestPlanPerspectiveLoader loader = new TestPlanPerspectiveLoader();
+    perspectives = new SnapshotPerspectives(dao, new GraphPerspectiveLoader[] {loader});
+
+    ScanGraph graph = ScanGraph.create();
+    TestPlanBuilder builder = new TestPlanBuilder(graph, loader);
+    ComponentVertex file = graph.addComponent(MockSourceFile.createMain("org.foo.BarTest"));
+    MutableTestPlan plan = builder.create(file);
+    plan.addTestCase("should_pass").setStatus(TestCase.Status.OK).setDurationInMs(10L);
+    plan.addTestCase("should_fail").setStatus(TestCase.Status.FAILURE).setMessage("expected:<1> but was:<2>");
+
+    subGraph = SubGraph.extract(file.element(), builder.path());
+    rootVertexId = file.element().getId().toString();
+  }
+
+  @Test
+  public void should_load_binary_graph() {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    new BinaryGraphWriter(true).write(subGraph, output);
+    when(dao.selectBySnapshot("testplan", 123L)).thenReturn(new GraphDto()
+      .setFormat(GraphDto.FORMAT_BINARY)
+      .setData(Base64.encodeBase64String(output.toByteArray()))
+      .setRootVertexId(rootVertexId));
+
+    verifyTestPlan(perspectives.as(MutableTestPlan.class, 123L));
+  }
+
+  /**
+   * Rows persisted before version 4.2
+   */
+  @Test
+  public void should_load_graphson_graph() {
+    StringWriter output = new StringWriter();
+    new GraphsonWriter().write(subGraph, output, GraphsonMode.EXTENDED);
+    when(dao.selectBySnapshot("testplan", 123L)).thenReturn(new GraphDto()
+      .setFormat(GraphDto.FORMAT_GRAPHSON)
+      .setData(output.toString())
+      .setRootVertexId(rootVertexId));
+
+    verifyTestPlan(perspectives.as(MutableTestPlan.class, 123L));
+  }
+
+  @Test
+  public void should_return_null_if_no_graph() {
+    when(dao.selectBySnapshot("testplan", 123L)).thenReturn(null);
+
+    assertThat(perspectives.as(MutableTestPlan.class, 123L)).isNull();
+  }
+
+  private void verifyTestPlan(MutableTestPlan plan) {
+    assertThat(plan).isNotNull();
+    assertThat(plan.testCases()).hasSize(2);
+
+    MutableTestCase passed = Iterables.getOnlyElement(plan.testCasesByName("should_pass"));
+    assertThat(passed.status()).isEqualTo(TestCase.Status.OK);
+    assertThat(passed.durationInMs()).isEqualTo(10L);
+
+    MutableTestCase failed = Iterables.getOnlyElement(plan.testCasesByName("should_fail"));
+    assertThat(failed.status()).isEqualTo(TestCase.Status.FAILURE);
+    assertThat(failed.message()).isEqualTo("expected:<1> but was:<2>");
+  }
+}
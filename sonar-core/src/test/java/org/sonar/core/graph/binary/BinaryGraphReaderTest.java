@@ -0,0 +1,111 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2013 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.core.graph.binary;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterables;
+import com.tinkerpop.blueprints.Direction;
+import com.tinkerpop.blueprints.Edge;
+import com.tinkerpop.blueprints.Graph;
+import com.tinkerpop.blueprints.Vertex;
+import com.tinkerpop.blueprints.impls.tg.TinkerGraph;
+import com.tinkerpop.blueprints.impls.tg.TinkerGraphFactory;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class BinaryGraphReaderTest {
+
+  @Test
+  public void should_read_written_graph() {
+    Graph graph = TinkerGraphFactory.createTinkerGraph();
+
+    for (boolean compressed : new boolean[] {false, true}) {
+      Graph read = read(BinaryGraphWriterTest.write(graph, compressed));
+
+      assertThat(Iterables.size(read.getVertices())).isEqualTo(6);
+      assertThat(Iterables.size(read.getEdges())).isEqualTo(6);
+      Vertex marko = read.getVertex("1");
+      assertThat(marko.getProperty("name")).isEqualTo("marko");
+      assertThat(marko.getProperty("age")).isEqualTo(29);
+      Edge knows = read.getEdge("7");
+      assertThat(knows.getLabel()).isEqualTo("knows");
+      assertThat(knows.getProperty("weight")).isEqualTo(0.5f);
+      assertThat(knows.getVertex(Direction.OUT).getId()).isEqualTo("1");
+      assertThat(knows.getVertex(Direction.IN).getId()).isEqualTo("2");
+    }
+  }
+
+  @Test
+  public void should_read_typed_values() {
+    TinkerGraph graph = new TinkerGraph();
+    Vertex vertex = graph.addVertex("1");
+    vertex.setProperty("boolean", true);
+    vertex.setProperty("long", -10000000000L);
+    vertex.setProperty("double", 0.4954959595959);
+    vertex.setProperty("string", "été");
+    vertex.setProperty("list", Arrays.asList(1, -2, null, "three"));
+    vertex.setProperty("map", ImmutableMap.of("big", 10000000000L, "small", 0.4));
+
+    Vertex read = read(BinaryGraphWriterTest.write(graph, true)).getVertex("1");
+
+    assertThat(read.getProperty("boolean")).isEqualTo(true);
+    assertThat(read.getProperty("long")).isEqualTo(-10000000000L);
+    assertThat(read.getProperty("double")).isEqualTo(0.4954959595959);
+    assertThat(read.getProperty("string")).isEqualTo("été");
+    assertThat((List) read.getProperty("list")).containsExactly(1, -2, null, "three");
+    Map map = (Map) read.getProperty("map");
+    assertThat(map.get("big")).isEqualTo(10000000000L);
+    assertThat(map.get("small")).isEqualTo(0.4);
+  }
+
+  @Test
+  public void should_read_large_graph() {
+    Graph read = read(BinaryGraphWriterTest.write(BinaryGraphWriterTest.testPlanGraph(), true));
+
+    assertThat(Iterables.size(read.getVertices())).isEqualTo(101);
+    Edge covers = read.getVertex("test42").getEdges(Direction.OUT, "covers").iterator().next();
+    List<Integer> lines = (List<Integer>) covers.getProperty("lines");
+    assertThat(lines).hasSize(100);
+    assertThat(lines.get(99)).isEqualTo(300);
+    assertThat(covers.getVertex(Direction.IN).getProperty("key")).isEqualTo("org.foo.Bar");
+  }
+
+  @Test(expected = BinaryGraphException.class)
+  public void should_fail_on_unsupported_version() {
+    read(new byte[] {2, 0, 0, 0});
+  }
+
+  @Test(expected = BinaryGraphException.class)
+  public void should_fail_on_truncated_data() {
+    byte[] data = BinaryGraphWriterTest.write(TinkerGraphFactory.createTinkerGraph(), false);
+
+    read(Arrays.copyOf(data, data.length / 2));
+  }
+
+  private static Graph read(byte[] data) {
+    return new BinaryGraphReader().read(new ByteArrayInputStream(data), new TinkerGraph());
+  }
+}
@@ -0,0 +1,100 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2013 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.core.graph.binary;
+
+import com.tinkerpop.blueprints.Graph;
+import com.tinkerpop.blueprints.Vertex;
+import com.tinkerpop.blueprints.impls.tg.TinkerGraph;
+import com.tinkerpop.blueprints.impls.tg.TinkerGraphFactory;
+import org.junit.Test;
+import org.sonar.core.graph.graphson.GraphsonMode;
+import org.sonar.core.graph.graphson.GraphsonWriter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class BinaryGraphWriterTest {
+
+  @Test
+  public void should_write_header() {
+    Graph graph = TinkerGraphFactory.createTinkerGraph();
+
+    byte[] uncompressed = write(graph, false);
+    assertThat(uncompressed[0]).isEqualTo((byte) BinaryGraphTokens.VERSION);
+    assertThat(uncompressed[1]).isEqualTo((byte) 0);
+
+    byte[] compressed = write(graph, true);
+    assertThat(compressed[0]).isEqualTo((byte) BinaryGraphTokens.VERSION);
+    assertThat(compressed[1]).isEqualTo((byte) BinaryGraphTokens.FLAG_COMPRESSED);
+  }
+
+  @Test
+  public void should_be_smaller_than_graphson() {
+    Graph graph = testPlanGraph();
+
+    StringWriter graphson = new StringWriter();
+    new GraphsonWriter().write(graph, graphson, GraphsonMode.EXTENDED);
+    byte[] uncompressed = write(graph, false);
+    byte[] compressed = write(graph, true);
+
+    assertThat(uncompressed.length).isLessThan(graphson.toString().length() / 5);
+    assertThat(compressed.length).isLessThan(uncompressed.length);
+  }
+
+  @Test(expected = BinaryGraphException.class)
+  public void should_fail_on_unsupported_property_type() {
+    TinkerGraph graph = new TinkerGraph();
+    graph.addVertex("1").setProperty("date", new Date());
+
+    write(graph, false);
+  }
+
+  static byte[] write(Graph graph, boolean compressed) {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    new BinaryGraphWriter(compressed).write(graph, output);
+    return output.toByteArray();
+  }
+
+  /**
+   * Test cases covering lines of a testable file, like the graphs persisted for test plans
+   */
+  static Graph testPlanGraph() {
+    TinkerGraph graph = new TinkerGraph();
+    Vertex testable = graph.addVertex("testable");
+    testable.setProperty("key", "org.foo.Bar");
+    for (int i = 0; i < 100; i++) {
+      Vertex testCase = graph.addVertex("test" + i);
+      testCase.setProperty("name", "test" + i);
+      testCase.setProperty("status", "ok");
+      testCase.setProperty("duration", 10L + i);
+      List<Integer> lines = new ArrayList<Integer>();
+      for (int line = 1; line <= 100; line++) {
+        lines.add(line * 3);
+      }
+      graph.addEdge(null, testCase, testable, "covers").setProperty("lines", lines);
+    }
+    return graph;
+  }
+}
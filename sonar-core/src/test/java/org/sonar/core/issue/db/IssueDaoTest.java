@@ -23,13 +23,16 @@ package org.sonar.core.issue.db;
 import com.google.common.base.Function;
 import com.google.common.collect.Iterables;
 import org.apache.ibatis.executor.result.DefaultResultHandler;
+import org.apache.ibatis.session.SqlSession;
 import org.junit.Before;
 import org.junit.Test;
 import org.sonar.api.issue.IssueQuery;
 import org.sonar.api.rule.RuleKey;
 import org.sonar.api.utils.DateUtils;
 import org.sonar.core.persistence.AbstractDaoTestCase;
+import org.sonar.core.persistence.MyBatis;
 
+import java.util.Collections;
 import java.util.List;
 
 import static com.google.common.collect.Lists.newArrayList;
@@ -84,7 +87,7 @@ public class IssueDaoTest extends AbstractDaoTestCase {
 
     IssueQuery query = IssueQuery.builder().requiredRole("user").build();
 
-    List<IssueDto> results = dao.selectIssueIds(query);
+    List<IssueDto> results = dao.selectIssues(query);
     assertThat(results).hasSize(3);
     IssueDto issue = results.get(0);
     assertThat(issue.getId()).isNotNull();
@@ -92,11 +95,11 @@ public class IssueDaoTest extends AbstractDaoTestCase {
 
   @Test
   public void should_select_all_without_authorisation() {
-    setupData("should_select_all");
+    setupData("shared", "should_select_all");
 
     IssueQuery query = IssueQuery.builder().requiredRole(null).build();
 
-    List<IssueDto> results = dao.selectIssueIds(query);
+    List<IssueDto> results = dao.selectIssues(query);
     assertThat(results).hasSize(3);
     IssueDto issue = results.get(0);
     assertThat(issue.getId()).isNotNull();
@@ -107,13 +110,13 @@ public class IssueDaoTest extends AbstractDaoTestCase {
     setupData("shared", "should_select_by_rules");
 
     IssueQuery query = IssueQuery.builder().rules(newArrayList(RuleKey.of("squid", "AvoidCycle"))).requiredRole("user").build();
-    assertThat(dao.selectIssueIds(query)).hasSize(2);
+    assertThat(dao.selectIssues(query)).hasSize(2);
 
     query = IssueQuery.builder().rules(newArrayList(RuleKey.of("squid", "AvoidCycle"), RuleKey.of("squid", "NullRef"))).requiredRole("user").build();
-    assertThat(dao.selectIssueIds(query)).hasSize(3);
+    assertThat(dao.selectIssues(query)).hasSize(3);
 
     query = IssueQuery.builder().rules(newArrayList(RuleKey.of("squid", "Other"))).requiredRole("user").build();
-    assertThat(dao.selectIssueIds(query)).isEmpty();
+    assertThat(dao.selectIssues(query)).isEmpty();
   }
 
   @Test
@@ -122,29 +125,29 @@ public class IssueDaoTest extends AbstractDaoTestCase {
 
     // created after, strictly
     IssueQuery query = IssueQuery.builder().createdAfter(DateUtils.parseDate("2013-04-15")).build();
-    assertThat(dao.selectIssueIds(query)).hasSize(1);
-    assertThat(dao.selectIssueIds(query).get(0).getId()).isEqualTo(100L);
+    assertThat(dao.selectIssues(query)).hasSize(1);
+    assertThat(dao.selectIssues(query).get(0).getId()).isEqualTo(100L);
 
     query = IssueQuery.builder().createdAfter(DateUtils.parseDate("2022-01-01")).build();
-    assertThat(dao.selectIssueIds(query)).isEmpty();
+    assertThat(dao.selectIssues(query)).isEmpty();
 
 
     // created at a given date
     query = IssueQuery.builder().createdAt(DateUtils.parseDate("2013-04-16")).build();
-    assertThat(dao.selectIssueIds(query)).hasSize(1);
-    assertThat(dao.selectIssueIds(query).get(0).getId()).isEqualTo(100L);
+    assertThat(dao.selectIssues(query)).hasSize(1);
+    assertThat(dao.selectIssues(query).get(0).getId()).isEqualTo(100L);
 
     query = IssueQuery.builder().createdAt(DateUtils.parseDate("2010-01-01")).build();
-    assertThat(dao.selectIssueIds(query)).isEmpty();
+    assertThat(dao.selectIssues(query)).isEmpty();
 
 
     // created before
     query = IssueQuery.builder().createdBefore(DateUtils.parseDate("2013-04-14")).build();
-    assertThat(dao.selectIssueIds(query)).hasSize(1);
-    assertThat(dao.selectIssueIds(query).get(0).getId()).isEqualTo(101L);
+    assertThat(dao.selectIssues(query)).hasSize(1);
+    assertThat(dao.selectIssues(query).get(0).getId()).isEqualTo(101L);
 
     query = IssueQuery.builder().createdBefore(DateUtils.parseDate("2010-01-01")).build();
-    assertThat(dao.selectIssueIds(query)).isEmpty();
+    assertThat(dao.selectIssues(query)).isEmpty();
   }
 
   @Test
@@ -152,21 +155,21 @@ public class IssueDaoTest extends AbstractDaoTestCase {
     setupData("shared", "should_select_by_component");
 
     IssueQuery query = IssueQuery.builder().components(newArrayList("Action.java")).requiredRole("user").build();
-    List<IssueDto> issues = newArrayList(dao.selectIssueIds(query));
+    List<IssueDto> issues = newArrayList(dao.selectIssues(query));
     assertThat(issues).hasSize(1);
     assertThat(issues.get(0).getId()).isEqualTo(100);
 
     query = IssueQuery.builder().components(newArrayList("Filter.java")).requiredRole("user").build();
-    issues = newArrayList(dao.selectIssueIds(query));
+    issues = newArrayList(dao.selectIssues(query));
     assertThat(issues).hasSize(1);
     assertThat(issues.get(0).getId()).isEqualTo(101);
 
     query = IssueQuery.builder().components(newArrayList("struts-core")).requiredRole("user").build();
-    issues = newArrayList(dao.selectIssueIds(query));
+    issues = newArrayList(dao.selectIssues(query));
     assertThat(issues).isEmpty();
 
     query = IssueQuery.builder().components(newArrayList("struts")).requiredRole("user").build();
-    issues = newArrayList(dao.selectIssueIds(query));
+    issues = newArrayList(dao.selectIssues(query));
     assertThat(issues).isEmpty();
   }
 
@@ -175,22 +178,22 @@ public class IssueDaoTest extends AbstractDaoTestCase {
     setupData("shared", "should_select_by_component_root");
 
     IssueQuery query = IssueQuery.builder().componentRoots(newArrayList("struts")).requiredRole("user").build();
-    List<IssueDto> issues = newArrayList(dao.selectIssueIds(query));
+    List<IssueDto> issues = newArrayList(dao.selectIssues(query));
     assertThat(issues).hasSize(2);
     assertThat(getIssueIds(issues)).containsOnly(100l, 101l);
 
     query = IssueQuery.builder().componentRoots(newArrayList("struts-core")).requiredRole("user").build();
-    issues = newArrayList(dao.selectIssueIds(query));
+    issues = newArrayList(dao.selectIssues(query));
     assertThat(issues).hasSize(2);
     assertThat(getIssueIds(issues)).containsOnly(100l, 101l);
 
     query = IssueQuery.builder().componentRoots(newArrayList("Filter.java")).requiredRole("user").build();
-    issues = newArrayList(dao.selectIssueIds(query));
+    issues = newArrayList(dao.selectIssues(query));
     assertThat(issues).hasSize(1);
     assertThat(issues.get(0).getId()).isEqualTo(101);
 
     query = IssueQuery.builder().componentRoots(newArrayList("not-found")).requiredRole("user").build();
-    issues = newArrayList(dao.selectIssueIds(query));
+    issues = newArrayList(dao.selectIssues(query));
     assertThat(issues).isEmpty();
   }
 
@@ -199,15 +202,15 @@ public class IssueDaoTest extends AbstractDaoTestCase {
     setupData("shared", "should_select_by_assigned");
 
     IssueQuery query = IssueQuery.builder().assigned(true).requiredRole("user").build();
-    List<IssueDto> issues = newArrayList(dao.selectIssueIds(query));
+    List<IssueDto> issues = newArrayList(dao.selectIssues(query));
     assertThat(issues).hasSize(2);
 
     query = IssueQuery.builder().assigned(false).requiredRole("user").build();
-    issues = newArrayList(dao.selectIssueIds(query));
+    issues = newArrayList(dao.selectIssues(query));
     assertThat(issues).hasSize(1);
 
     query = IssueQuery.builder().assigned(null).requiredRole("user").build();
-    issues = newArrayList(dao.selectIssueIds(query));
+    issues = newArrayList(dao.selectIssues(query));
     assertThat(issues).hasSize(3);
   }
 
@@ -216,15 +219,15 @@ public class IssueDaoTest extends AbstractDaoTestCase {
     setupData("shared", "should_select_by_planned");
 
     IssueQuery query = IssueQuery.builder().planned(true).requiredRole("user").build();
-    List<IssueDto> issues = newArrayList(dao.selectIssueIds(query));
+    List<IssueDto> issues = newArrayList(dao.selectIssues(query));
     assertThat(issues).hasSize(2);
 
     query = IssueQuery.builder().planned(false).requiredRole("user").build();
-    issues = newArrayList(dao.selectIssueIds(query));
+    issues = newArrayList(dao.selectIssues(query));
     assertThat(issues).hasSize(1);
 
     query = IssueQuery.builder().planned(null).requiredRole("user").build();
-    issues = newArrayList(dao.selectIssueIds(query));
+    issues = newArrayList(dao.selectIssues(query));
     assertThat(issues).hasSize(3);
   }
 
@@ -233,15 +236,15 @@ public class IssueDaoTest extends AbstractDaoTestCase {
     setupData("shared", "should_select_by_resolved");
 
     IssueQuery query = IssueQuery.builder().resolved(true).requiredRole("user").build();
-    List<IssueDto> issues = newArrayList(dao.selectIssueIds(query));
+    List<IssueDto> issues = newArrayList(dao.selectIssues(query));
     assertThat(issues).hasSize(2);
 
     query = IssueQuery.builder().resolved(false).requiredRole("user").build();
-    issues = newArrayList(dao.selectIssueIds(query));
+    issues = newArrayList(dao.selectIssues(query));
     assertThat(issues).hasSize(1);
 
     query = IssueQuery.builder().resolved(null).requiredRole("user").build();
-    issues = newArrayList(dao.selectIssueIds(query));
+    issues = newArrayList(dao.selectIssues(query));
     assertThat(issues).hasSize(3);
   }
 
@@ -250,13 +253,13 @@ public class IssueDaoTest extends AbstractDaoTestCase {
     setupData("shared", "should_select_by_action_plans");
 
     IssueQuery query = IssueQuery.builder().actionPlans(newArrayList("ABC")).requiredRole("user").build();
-    assertThat(dao.selectIssueIds(query)).hasSize(2);
+    assertThat(dao.selectIssues(query)).hasSize(2);
 
     query = IssueQuery.builder().actionPlans(newArrayList("ABC", "DEF")).requiredRole("user").build();
-    assertThat(dao.selectIssueIds(query)).hasSize(3);
+    assertThat(dao.selectIssues(query)).hasSize(3);
 
     query = IssueQuery.builder().actionPlans(newArrayList("<Unkown>")).requiredRole("user").build();
-    assertThat(dao.selectIssueIds(query)).isEmpty();
+    assertThat(dao.selectIssues(query)).isEmpty();
   }
 
   @Test
@@ -264,49 +267,16 @@ public class IssueDaoTest extends AbstractDaoTestCase {
     setupData("should_select_issues_for_authorized_projects");
 
     IssueQuery query = IssueQuery.builder().requiredRole("user").build();
-    List<IssueDto> results = dao.selectIssueIds(query, 100, 10);
-    assertThat(results).hasSize(2);
-
-    results = dao.selectIssueIds(query, null, 10);
-    assertThat(results).isEmpty();
-  }
-
-  @Test
-  public void should_select_issues_return_limited_results() {
-    setupData("shared", "should_select_issues_return_limited_results");
-
-    IssueQuery query = IssueQuery.builder().requiredRole("user").build();
-    List<IssueDto> results = dao.selectIssueIds(query, null, 2);
-    assertThat(results).hasSize(2);
-  }
-
-  @Test
-  public void should_select_issues_with_sort_column() {
-    setupData("shared", "should_select_issues_with_sort_column");
-
-    IssueQuery query = IssueQuery.builder().sort(IssueQuery.SORT_BY_ASSIGNEE).requiredRole("user").build();
-    List<IssueDto> results = dao.selectIssueIds(query);
-    assertThat(results.get(0).getAssignee()).isNotNull();
-
-    query = IssueQuery.builder().sort(IssueQuery.SORT_BY_SEVERITY).requiredRole("user").build();
-    results = dao.selectIssueIds(query);
-    assertThat(results.get(0).getSeverity()).isNotNull();
-
-    query = IssueQuery.builder().sort(IssueQuery.SORT_BY_STATUS).requiredRole("user").build();
-    results = dao.selectIssueIds(query);
-    assertThat(results.get(0).getStatus()).isNotNull();
-
-    query = IssueQuery.builder().sort(IssueQuery.SORT_BY_CREATION_DATE).requiredRole("user").build();
-    results = dao.selectIssueIds(query);
-    assertThat(results.get(0).getIssueCreationDate()).isNotNull();
-
-    query = IssueQuery.builder().sort(IssueQuery.SORT_BY_UPDATE_DATE).requiredRole("user").build();
-    results = dao.selectIssueIds(query);
-    assertThat(results.get(0).getIssueUpdateDate()).isNotNull();
-
-    query = IssueQuery.builder().sort(IssueQuery.SORT_BY_CLOSE_DATE).requiredRole("user").build();
-    results = dao.selectIssueIds(query);
-    assertThat(results.get(0).getIssueCloseDate()).isNotNull();
+    SqlSession session = getMyBatis().openSession();
+    try {
+      List<IssueDto> results = dao.selectIssues(query, 100, session);
+      assertThat(results).hasSize(2);
+
+      results = dao.selectIssues(query, null, session);
+      assertThat(results).isEmpty();
+    } finally {
+      MyBatis.closeQuietly(session);
+    }
   }
 
   @Test
@@ -329,6 +299,40 @@ public class IssueDaoTest extends AbstractDaoTestCase {
     assertThat(handler.getResultList()).hasSize(1);
   }
 
+  @Test
+  public void should_select_by_root_component() {
+    setupData("shared", "should_select_non_closed_issues_by_module");
+
+    // closed issues are included
+    DefaultResultHandler handler = new DefaultResultHandler();
+    dao.selectByRootComponent(399L, handler);
+    assertThat(handler.getResultList()).hasSize(5);
+
+    IssueDto issue = (IssueDto) handler.getResultList().get(0);
+    assertThat(issue.getRuleRepo()).isNotNull();
+    assertThat(issue.getRule()).isNotNull();
+    assertThat(issue.getComponentKey()).isNotNull();
+    assertThat(issue.getRootComponentKey()).isNotNull();
+
+    handler = new DefaultResultHandler();
+    dao.selectByRootComponent(123L, handler);
+    assertThat(handler.getResultList()).isEmpty();
+  }
+
+  @Test
+  public void should_select_by_keys() {
+    setupData("shared", "should_select_by_ids");
+
+    SqlSession session = getMyBatis().openSession();
+    try {
+      List<IssueDto> results = dao.selectByKeys(newArrayList("ABCDE-1", "ABCDE", "UNKNOWN"), session);
+      assertThat(results).onProperty("kee").containsOnly("ABCDE-1", "ABCDE");
+      assertThat(dao.selectByKeys(Collections.<String>emptyList(), session)).isEmpty();
+    } finally {
+      MyBatis.closeQuietly(session);
+    }
+  }
+
   @Test
   public void should_select_by_ids() {
     setupData("shared", "should_select_by_ids");
@@ -19,6 +19,7 @@
  */
 package org.sonar.core.issue.db;
 
+import com.google.common.collect.Lists;
 import org.junit.Test;
 import org.sonar.api.issue.internal.DefaultIssue;
 import org.sonar.api.issue.internal.DefaultIssueComment;
@@ -32,8 +33,10 @@ import org.sonar.api.utils.DateUtils;
 import org.sonar.core.persistence.AbstractDaoTestCase;
 import org.sonar.core.persistence.MyBatis;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
+import java.util.List;
 
 public class IssueStorageTest extends AbstractDaoTestCase {
 
@@ -147,6 +150,37 @@ public class IssueStorageTest extends AbstractDaoTestCase {
     checkTables("should_resolve_conflicts_on_updates", new String[]{"id", "created_at", "updated_at", "issue_change_creation_date"}, "issues");
   }
 
+  @Test
+  public void should_close_issues_with_set_based_query() throws Exception {
+    setupData("should_close_issues_with_set_based_query");
+
+    FakeSaver saver = new FakeSaver(getMyBatis(), new FakeRuleFinder());
+
+    Date date = DateUtils.parseDate("2013-05-18");
+    IssueChangeContext scanContext = IssueChangeContext.createScan(date);
+    List<DefaultIssue> issues = Lists.newArrayList();
+    for (String key : Arrays.asList("ABCDE", "FGHIJ")) {
+      issues.add(new DefaultIssue()
+        .setKey(key)
+        .setNew(false)
+        .setChanged(true)
+        .setOnlyClosed(true)
+        .setFieldChange(scanContext, "resolution", "OPEN", "FIXED")
+        .setFieldChange(scanContext, "status", "OPEN", "CLOSED")
+        .setResolution("FIXED")
+        .setStatus("CLOSED")
+        .setUpdateDate(date)
+        .setCloseDate(date)
+
+          // not loaded, must not be updated
+        .setLine(null));
+    }
+
+    saver.save(issues);
+
+    checkTables("should_close_issues_with_set_based_query", new String[]{"id", "created_at", "updated_at", "issue_change_creation_date"}, "issues", "issue_changes");
+  }
+
   static class FakeSaver extends IssueStorage {
     protected FakeSaver(MyBatis mybatis, RuleFinder ruleFinder) {
       super(mybatis, ruleFinder);
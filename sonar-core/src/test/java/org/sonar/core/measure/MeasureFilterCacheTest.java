@@ -0,0 +1,140 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2013 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.core.measure;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class MeasureFilterCacheTest {
+
+  MeasureFilterCache cache = new MeasureFilterCache();
+  List<MeasureFilterRow> rows = Collections.singletonList(new MeasureFilterRow(1L, 2L, 3L));
+
+  @Test
+  public void key_should_not_depend_on_order_of_properties() {
+    String key = MeasureFilterCache.key(ImmutableMap.<String, Object>of("qualifiers", "TRK", "sort", "name"));
+
+    assertThat(key).isNotNull();
+    assertThat(MeasureFilterCache.key(ImmutableMap.<String, Object>of("sort", "name", "qualifiers", "TRK"))).isEqualTo(key);
+    assertThat(MeasureFilterCache.key(ImmutableMap.<String, Object>of("sort", "date", "qualifiers", "TRK"))).isNotEqualTo(key);
+  }
+
+  @Test
+  public void should_not_cache_filters_relative_to_current_date_or_to_user() {
+    assertThat(MeasureFilterCache.key(ImmutableMap.<String, Object>of("ageMaxDays", "3"))).isNull();
+    assertThat(MeasureFilterCache.key(ImmutableMap.<String, Object>of("ageMinDays", "3"))).isNull();
+    assertThat(MeasureFilterCache.key(ImmutableMap.<String, Object>of("onFavourites", "true"))).isNull();
+    assertThat(MeasureFilterCache.key(ImmutableMap.<String, Object>of("onFavourites", "TRUE"))).isNull();
+    assertThat(MeasureFilterCache.key(ImmutableMap.<String, Object>of("onFavourites", "false"))).isNotNull();
+  }
+
+  @Test
+  public void should_invalidate_filters_of_analyzed_project() {
+    cache.put("on_project_1", 1L, rows);
+    cache.put("on_project_2", 2L, rows);
+
+    cache.invalidateProject(1L);
+
+    assertThat(cache.get("on_project_1")).isNull();
+    assertThat(cache.get("on_project_2")).isEqualTo(rows);
+  }
+
+  @Test
+  public void should_invalidate_global_filters_when_any_project_is_analyzed() {
+    cache.put("global", null, rows);
+
+    assertThat(cache.get("global")).isEqualTo(rows);
+    cache.invalidateProject(1L);
+    assertThat(cache.get("global")).isNull();
+  }
+
+  @Test
+  public void should_invalidate_all() {
+    cache.put("global", null, rows);
+    cache.put("on_project_1", 1L, rows);
+
+    cache.invalidateAll();
+
+    assertThat(cache.size()).isZero();
+  }
+
+  @Test
+  public void should_evict_least_recently_used_filters() {
+    for (int i = 0; i <= MeasureFilterCache.MAX_ENTRIES; i++) {
+      cache.put("filter" + i, null, rows);
+    }
+
+    assertThat(cache.size()).isEqualTo(MeasureFilterCache.MAX_ENTRIES);
+    assertThat(cache.get("filter0")).isNull();
+    assertThat(cache.get("filter1")).isEqualTo(rows);
+  }
+
+  @Test
+  public void should_not_cache_large_results() {
+    cache.put("large", null, rows(MeasureFilterCache.MAX_ROWS_PER_ENTRY + 1));
+
+    assertThat(cache.get("large")).isNull();
+    assertThat(cache.rowCount()).isZero();
+  }
+
+  @Test
+  public void should_bound_total_number_of_rows() {
+    List<MeasureFilterRow> largeRows = rows(MeasureFilterCache.MAX_ROWS_PER_ENTRY);
+    int entries = MeasureFilterCache.MAX_ROWS / MeasureFilterCache.MAX_ROWS_PER_ENTRY;
+    for (int i = 0; i < entries; i++) {
+      cache.put("filter" + i, null, largeRows);
+    }
+    assertThat(cache.rowCount()).isEqualTo(MeasureFilterCache.MAX_ROWS);
+
+    cache.put("other", null, rows);
+
+    assertThat(cache.rowCount()).isLessThanOrEqualTo(MeasureFilterCache.MAX_ROWS);
+    assertThat(cache.get("filter0")).isNull();
+    assertThat(cache.get("other")).isEqualTo(rows);
+  }
+
+  @Test
+  public void should_count_rows_of_replaced_and_invalidated_entries() {
+    cache.put("on_project_1", 1L, rows(10));
+    cache.put("on_project_1", 1L, rows(5));
+    cache.put("on_project_2", 2L, rows(3));
+    assertThat(cache.rowCount()).isEqualTo(8);
+
+    cache.invalidateProject(1L);
+    assertThat(cache.rowCount()).isEqualTo(3);
+
+    cache.invalidateAll();
+    assertThat(cache.rowCount()).isZero();
+  }
+
+  private static List<MeasureFilterRow> rows(int size) {
+    List<MeasureFilterRow> result = Lists.newArrayList();
+    for (int i = 0; i < size; i++) {
+      result.add(new MeasureFilterRow(i, i, 3L));
+    }
+    return result;
+  }
+}
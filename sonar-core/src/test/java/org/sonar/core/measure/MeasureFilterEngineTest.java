@@ -26,12 +26,15 @@ import org.junit.Test;
 import org.sonar.api.config.Settings;
 import org.sonar.core.profiling.Profiling;
 
+import java.util.Collections;
 import java.util.Map;
 
 import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.argThat;
 import static org.mockito.Matchers.refEq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -45,7 +48,7 @@ public class MeasureFilterEngineTest {
     when(factory.create(filterMap)).thenReturn(filter);
     MeasureFilterExecutor executor = mock(MeasureFilterExecutor.class);
 
-    MeasureFilterEngine engine = new MeasureFilterEngine(factory, executor, new Profiling(new Settings()));
+    MeasureFilterEngine engine = new MeasureFilterEngine(factory, executor, new MeasureFilterCache(), new Profiling(new Settings()));
 
     final long userId = 50L;
     engine.execute(filterMap, userId);
@@ -67,11 +70,48 @@ public class MeasureFilterEngineTest {
     when(factory.create(filterMap)).thenThrow(new IllegalArgumentException());
     MeasureFilterExecutor executor = mock(MeasureFilterExecutor.class);
 
-    MeasureFilterEngine engine = new MeasureFilterEngine(factory, executor, new Profiling(new Settings()));
+    MeasureFilterEngine engine = new MeasureFilterEngine(factory, executor, new MeasureFilterCache(), new Profiling(new Settings()));
     MeasureFilterResult result = engine.execute(filterMap, 50L);
 
     assertThat(result.isSuccess()).isFalse();
     assertThat(result.getError()).isEqualTo(MeasureFilterResult.Error.UNKNOWN);
     assertThat(result.getRows()).isNull();
   }
+
+  @Test
+  public void should_cache_rows() throws Exception {
+    Map<String, Object> filterMap = ImmutableMap.of("qualifiers", (Object) "TRK");
+    MeasureFilterFactory factory = mock(MeasureFilterFactory.class);
+    when(factory.create(filterMap)).thenReturn(new MeasureFilter());
+    MeasureFilterExecutor executor = mock(MeasureFilterExecutor.class);
+    MeasureFilterRow row = new MeasureFilterRow(1L, 2L, 3L);
+    when(executor.execute(any(MeasureFilter.class), any(MeasureFilterContext.class))).thenReturn(Collections.singletonList(row));
+    MeasureFilterCache cache = new MeasureFilterCache();
+
+    MeasureFilterEngine engine = new MeasureFilterEngine(factory, executor, cache, new Profiling(new Settings()));
+    engine.execute(filterMap, 50L);
+    MeasureFilterResult result = engine.execute(filterMap, 60L);
+
+    assertThat(result.getRows()).containsExactly(row);
+    verify(executor, times(1)).execute(any(MeasureFilter.class), any(MeasureFilterContext.class));
+
+    cache.invalidateProject(3L);
+    engine.execute(filterMap, 50L);
+    verify(executor, times(2)).execute(any(MeasureFilter.class), any(MeasureFilterContext.class));
+  }
+
+  @Test
+  public void should_not_cache_filters_on_favourites() throws Exception {
+    Map<String, Object> filterMap = ImmutableMap.of("onFavourites", (Object) "true");
+    MeasureFilterFactory factory = mock(MeasureFilterFactory.class);
+    when(factory.create(filterMap)).thenReturn(new MeasureFilter());
+    MeasureFilterExecutor executor = mock(MeasureFilterExecutor.class);
+    when(executor.execute(any(MeasureFilter.class), any(MeasureFilterContext.class))).thenReturn(Collections.<MeasureFilterRow>emptyList());
+
+    MeasureFilterEngine engine = new MeasureFilterEngine(factory, executor, new MeasureFilterCache(), new Profiling(new Settings()));
+    engine.execute(filterMap, 50L);
+    engine.execute(filterMap, 60L);
+
+    verify(executor, times(2)).execute(any(MeasureFilter.class), any(MeasureFilterContext.class));
+  }
 }
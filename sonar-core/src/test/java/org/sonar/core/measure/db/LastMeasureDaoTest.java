@@ -17,20 +17,27 @@
  * along with this program; if not, write to the Free Software Foundation,
  * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
  */
+package org.sonar.core.measure.db;
 
-package org.sonar.core.issue.db;
+import org.junit.Before;
+import org.junit.Test;
+import org.sonar.core.persistence.AbstractDaoTestCase;
 
-import org.apache.ibatis.annotations.Param;
-import org.sonar.api.issue.IssueQuery;
+public class LastMeasureDaoTest extends AbstractDaoTestCase {
 
-import javax.annotation.Nullable;
+  private LastMeasureDao dao;
 
-import java.util.Collection;
-import java.util.List;
+  @Before
+  public void createDao() {
+    dao = new LastMeasureDao(getMyBatis());
+  }
 
-public interface IssueStatsMapper {
+  @Test
+  public void refresh_measures_of_last_snapshots() {
+    setupData("shared");
 
-  List<Object> selectIssuesColumn(@Param("query") IssueQuery query, @Param("column") String column, @Param("componentRootKeys") Collection<String> componentRootKeys,
-                                  @Nullable @Param("userId") Integer userId, @Param("role") String role);
+    dao.refresh(1L);
 
+    checkTables("refresh_measures_of_last_snapshots", "last_measures");
+  }
 }
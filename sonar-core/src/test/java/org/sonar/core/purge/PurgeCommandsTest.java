@@ -29,6 +29,7 @@ import java.util.Arrays;
 import java.util.List;
 
 import static com.google.common.collect.Lists.newArrayList;
+import static org.fest.assertions.Assertions.assertThat;
 
 public class PurgeCommandsTest extends AbstractDaoTestCase {
 
@@ -56,6 +57,23 @@ public class PurgeCommandsTest extends AbstractDaoTestCase {
         "snapshots", "project_measures", "measure_data", "snapshot_sources", "duplications_index", "events", "dependencies", "snapshot_data");
   }
 
+  @Test
+  public void should_delete_snapshot_concurrently() {
+    setupData("shouldDeleteSnapshot");
+
+    SqlSession session = getMyBatis().openSession();
+    PurgeCommands commands = new PurgeCommands(session, session.getMapper(PurgeMapper.class), profiler, getMyBatis(), 1, 3);
+    try {
+      commands.deleteSnapshots(PurgeSnapshotQuery.create().setId(5L));
+    } finally {
+      commands.close();
+      MyBatis.closeQuietly(session);
+    }
+    checkTables("shouldDeleteSnapshot",
+        "snapshots", "project_measures", "measure_data", "snapshot_sources", "duplications_index", "events", "dependencies", "snapshot_data");
+    assertThat(profiler.durations()).containsKey("deleteSnapshotMeasures (project_measures)");
+  }
+
   /**
    * Test that SQL queries execution do not fail with a huge number of parameter
    */
@@ -123,7 +141,31 @@ public class PurgeCommandsTest extends AbstractDaoTestCase {
     } finally {
       MyBatis.closeQuietly(session);
     }
-    assertEmptyTables("projects", "snapshots", "events", "issues", "issue_changes", "authors");
+    assertEmptyTables("projects", "snapshots", "events", "last_measures", "issues", "issue_changes", "authors");
+  }
+
+  @Test
+  public void should_delete_resource_concurrently() {
+    setupData("shouldDeleteResource");
+    SqlSession session = getMyBatis().openSession();
+    PurgeCommands commands = new PurgeCommands(session, session.getMapper(PurgeMapper.class), profiler, getMyBatis(), PurgeCommands.MAX_IDS_PER_QUERY, 4);
+    try {
+      commands.deleteResources(Arrays.asList(1L));
+    } finally {
+      commands.close();
+      MyBatis.closeQuietly(session);
+    }
+    assertEmptyTables("projects", "snapshots", "events", "last_measures", "issues", "issue_changes", "authors");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void should_fail_if_no_threads() {
+    SqlSession session = getMyBatis().openSession();
+    try {
+      new PurgeCommands(session, session.getMapper(PurgeMapper.class), profiler, getMyBatis(), PurgeCommands.MAX_IDS_PER_QUERY, 0);
+    } finally {
+      MyBatis.closeQuietly(session);
+    }
   }
 
   /**
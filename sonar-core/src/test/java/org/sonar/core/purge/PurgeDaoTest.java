@@ -27,6 +27,7 @@ import org.sonar.api.resources.Scopes;
 import org.sonar.core.persistence.AbstractDaoTestCase;
 import org.sonar.core.resource.ResourceDao;
 
+import java.util.Arrays;
 import java.util.List;
 
 import static org.hamcrest.Matchers.is;
@@ -70,6 +71,13 @@ public class PurgeDaoTest extends AbstractDaoTestCase {
     checkTables("shouldDisableResourcesWithoutLastSnapshot", "projects", "snapshots");
   }
 
+  @Test
+  public void should_delete_snapshot_trees() {
+    setupData("should_delete_snapshot_trees");
+    dao.deleteSnapshotTrees(Arrays.asList(3L), new PurgeConfiguration(1L, new String[0], 30, 2, 2));
+    checkTables("should_delete_snapshot_trees", "snapshots");
+  }
+
   @Test
   public void shouldDeleteSnapshots() {
     setupData("shouldDeleteSnapshots");
@@ -23,6 +23,7 @@ import org.junit.Before;
 import org.junit.Test;
 import org.slf4j.Logger;
 
+import static org.fest.assertions.Assertions.assertThat;
 import static org.mockito.Matchers.contains;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
@@ -54,7 +55,7 @@ public class PurgeProfilerTest {
     clock.sleep(8);
     profiler.stop();
 
-    profiler.dump(50, logger);
+    profiler.dump(logger);
     verify(logger).info(contains("foo: 18ms"));
     verify(logger).info(contains("bar: 5ms"));
   }
@@ -75,11 +76,46 @@ public class PurgeProfilerTest {
     clock.sleep(8);
     profiler.stop();
 
-    profiler.dump(50, logger);
+    profiler.dump(logger);
     verify(logger).info(contains("foo: 8ms"));
     verify(logger).info(contains("bar: 5ms"));
   }
 
+  @Test
+  public void should_cumulate_durations_of_concurrent_threads() throws Exception {
+    Thread thread = new Thread() {
+      @Override
+      public void run() {
+        profiler.start("foo");
+        profiler.stop();
+      }
+    };
+    profiler.start("foo");
+    clock.sleep(10);
+    thread.start();
+    thread.join();
+    profiler.stop();
+
+    assertThat(profiler.durations()).hasSize(1);
+    assertThat(profiler.durations().get("foo")).isEqualTo(10L);
+  }
+
+  @Test
+  public void should_compute_percentages_against_cumulated_durations() {
+    profiler.start("foo");
+    clock.sleep(30);
+    profiler.stop();
+
+    profiler.start("bar");
+    clock.sleep(10);
+    profiler.stop();
+
+    assertThat(profiler.totalDuration()).isEqualTo(40L);
+    profiler.dump(logger);
+    verify(logger).info(contains("foo: 30ms (75%)"));
+    verify(logger).info(contains("bar: 10ms (25%)"));
+  }
+
   private class MockedClock extends org.sonar.core.purge.PurgeProfiler.Clock {
     private long now = 0;
 
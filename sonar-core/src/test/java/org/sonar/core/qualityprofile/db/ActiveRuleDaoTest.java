@@ -23,12 +23,15 @@ package org.sonar.core.qualityprofile.db;
 import com.google.common.base.Predicate;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
+import org.apache.ibatis.session.SqlSession;
 import org.junit.Before;
 import org.junit.Test;
 import org.sonar.api.rule.Severity;
 import org.sonar.api.utils.DateUtils;
 import org.sonar.core.persistence.AbstractDaoTestCase;
+import org.sonar.core.persistence.MyBatis;
 
+import java.util.Collections;
 import java.util.List;
 
 import static org.fest.assertions.Assertions.assertThat;
@@ -101,6 +104,36 @@ public class ActiveRuleDaoTest extends AbstractDaoTestCase {
     checkTables("delete_from_profile", "active_rules");
   }
 
+  @Test
+  public void delete_by_ids() {
+    setupData("shared");
+
+    SqlSession session = getMyBatis().openSession();
+    try {
+      dao.deleteByIds(ImmutableList.of(1, 3), session);
+      session.commit();
+    } finally {
+      MyBatis.closeQuietly(session);
+    }
+
+    checkTables("delete_by_ids", "active_rules");
+  }
+
+  @Test
+  public void update_inheritance() {
+    setupData("shared");
+
+    SqlSession session = getMyBatis().openSession();
+    try {
+      dao.updateInheritance(ImmutableList.of(2, 3), ActiveRuleDto.OVERRIDES, session);
+      session.commit();
+    } finally {
+      MyBatis.closeQuietly(session);
+    }
+
+    checkTables("update_inheritance", "active_rules");
+  }
+
   @Test
   public void select_by_id() {
     setupData("shared");
@@ -160,6 +193,20 @@ public class ActiveRuleDaoTest extends AbstractDaoTestCase {
     assertThat(result).hasSize(2);
   }
 
+  @Test
+  public void select_by_profile_ids() {
+    setupData("shared");
+
+    SqlSession session = getMyBatis().openSession();
+    try {
+      assertThat(dao.selectByProfileIds(ImmutableList.of(1, 2), session)).hasSize(3);
+      assertThat(dao.selectByProfileIds(ImmutableList.of(2), session)).hasSize(2);
+      assertThat(dao.selectByProfileIds(Collections.<Integer>emptyList(), session)).isEmpty();
+    } finally {
+      MyBatis.closeQuietly(session);
+    }
+  }
+
   @Test
   public void select_all() {
     setupData("shared");
@@ -229,6 +276,21 @@ public class ActiveRuleDaoTest extends AbstractDaoTestCase {
     checkTables("delete_parameters_from_profile_id", "active_rule_parameters");
   }
 
+  @Test
+  public void delete_parameters_by_active_rule_ids() {
+    setupData("shared");
+
+    SqlSession session = getMyBatis().openSession();
+    try {
+      dao.deleteParametersByActiveRuleIds(ImmutableList.of(1, 2), session);
+      session.commit();
+    } finally {
+      MyBatis.closeQuietly(session);
+    }
+
+    checkTables("delete_parameters_by_active_rule_ids", "active_rule_parameters");
+  }
+
   @Test
   public void select_param_by_id() {
     setupData("shared");
@@ -277,6 +339,47 @@ public class ActiveRuleDaoTest extends AbstractDaoTestCase {
     assertThat(dao.selectParamsByProfileId(1)).hasSize(2);
   }
 
+  @Test
+  public void select_params_by_profile_ids() {
+    setupData("shared");
+
+    SqlSession session = getMyBatis().openSession();
+    try {
+      assertThat(dao.selectParamsByProfileIds(ImmutableList.of(1, 2), session)).hasSize(3);
+      assertThat(dao.selectParamsByProfileIds(ImmutableList.of(2), session)).hasSize(1);
+    } finally {
+      MyBatis.closeQuietly(session);
+    }
+  }
+
+  @Test
+  public void insert_change() {
+    setupData("empty");
+
+    SqlSession session = getMyBatis().openSession();
+    try {
+      ActiveRuleChangeDto change = new ActiveRuleChangeDto()
+        .setUserName("henry")
+        .setProfileId(1)
+        .setProfileVersion(2)
+        .setRuleId(10)
+        .setChangeDate(DateUtils.parseDate("2013-12-18"))
+        .setOldSeverity(2)
+        .setNewSeverity(4);
+      dao.insert(change, session);
+      dao.insert(new ActiveRuleParamChangeDto()
+        .setActiveRuleChangeId(change.getId())
+        .setRulesParameterId(1)
+        .setOldValue("20")
+        .setNewValue("30"), session);
+      session.commit();
+    } finally {
+      MyBatis.closeQuietly(session);
+    }
+
+    checkTables("insert_change", "active_rule_changes", "active_rule_param_changes");
+  }
+
   @Test
   public void select_all_params() {
     setupData("shared");
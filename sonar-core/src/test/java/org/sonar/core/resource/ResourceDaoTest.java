@@ -29,6 +29,7 @@ import org.sonar.api.resources.Qualifiers;
 import org.sonar.api.resources.Scopes;
 import org.sonar.core.component.ComponentDto;
 import org.sonar.core.persistence.AbstractDaoTestCase;
+import org.sonar.core.persistence.MyBatis;
 
 import javax.annotation.Nullable;
 
@@ -208,6 +209,20 @@ public class ResourceDaoTest extends AbstractDaoTestCase {
     assertThat(resource.getName()).isEqualTo("Struts");
   }
 
+  @Test
+  public void should_get_last_snapshots_of_root_project() {
+    setupData("fixture");
+
+    SqlSession session = getMyBatis().openSession();
+    try {
+      List<SnapshotDto> snapshots = dao.getLastSnapshotsOfRootProject(1L, session);
+      assertThat(snapshots).onProperty("id").containsOnly(1L, 2L, 3L, 4L);
+      assertThat(dao.getLastSnapshotsOfRootProject(999L, session)).isEmpty();
+    } finally {
+      MyBatis.closeQuietly(session);
+    }
+  }
+
   @Test
   public void should_update() {
     setupData("update");
@@ -23,6 +23,8 @@ import org.junit.Before;
 import org.junit.Test;
 import org.sonar.core.persistence.AbstractDaoTestCase;
 
+import java.util.List;
+
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThat;
 
@@ -52,4 +54,31 @@ public class LoadedTemplateDaoTest extends AbstractDaoTestCase {
 
     checkTables("shouldInsert", "loaded_templates");
   }
+
+  @Test
+  public void shouldSelectByType() throws Exception {
+    setupData("shouldSelectByType");
+
+    List<LoadedTemplateDto> templates = dao.selectByType("DASHBOARD");
+    assertThat(templates.size(), is(2));
+    assertThat(dao.selectByType("UNKNOWN").isEmpty(), is(true));
+  }
+
+  @Test
+  public void shouldUpdate() throws Exception {
+    setupData("shouldCountByTypeAndKey");
+
+    dao.update(new LoadedTemplateDto("SQALE", "DASHBOARD").setId(1L));
+
+    checkTables("shouldUpdate", "loaded_templates");
+  }
+
+  @Test
+  public void shouldDelete() throws Exception {
+    setupData("shouldSelectByType");
+
+    dao.delete(new LoadedTemplateDto("HOTSPOTS", "DASHBOARD").setId(1L));
+
+    checkTables("shouldDelete", "loaded_templates");
+  }
 }
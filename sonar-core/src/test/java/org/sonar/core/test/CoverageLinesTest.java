@@ -0,0 +1,87 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2013 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.core.test;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class CoverageLinesTest {
+
+  @Test
+  public void should_store_contiguous_lines() {
+    List<Integer> lines = CoverageLines.copyOf(Arrays.asList(10, 11, 12, 14));
+
+    assertThat(lines).hasSize(4);
+    assertThat(lines).containsExactly(10, 11, 12, 14);
+    assertThat(lines.get(3)).isEqualTo(14);
+    assertThat(lines.contains(12)).isTrue();
+    assertThat(lines.contains(13)).isFalse();
+    assertThat(lines.contains(9)).isFalse();
+    assertThat(lines.contains(1000)).isFalse();
+    assertThat(lines.contains("12")).isFalse();
+  }
+
+  @Test
+  public void should_store_sparse_lines() {
+    List<Integer> lines = CoverageLines.copyOf(Arrays.asList(1, 5000, 10000));
+
+    assertThat(lines).containsExactly(1, 5000, 10000);
+    assertThat(lines.get(1)).isEqualTo(5000);
+    assertThat(lines.contains(5000)).isTrue();
+    assertThat(lines.contains(4999)).isFalse();
+  }
+
+  @Test
+  public void should_keep_order_and_duplicates() {
+    List<Integer> lines = CoverageLines.copyOf(Arrays.asList(12, 10, 12));
+
+    assertThat(lines).containsExactly(12, 10, 12);
+    assertThat(lines.contains(10)).isTrue();
+    assertThat(lines.contains(11)).isFalse();
+  }
+
+  @Test
+  public void should_be_equal_to_other_lists() {
+    List<Integer> lines = CoverageLines.copyOf(Arrays.asList(10, 11, 12));
+
+    assertThat(lines).isEqualTo(Arrays.asList(10, 11, 12));
+    assertThat(lines.hashCode()).isEqualTo(Arrays.asList(10, 11, 12).hashCode());
+    assertThat(lines).isNotEqualTo(Arrays.asList(10, 11));
+    assertThat(lines).isNotEqualTo(Arrays.asList(10, 11, 13));
+    assertThat(CoverageLines.copyOf(new ArrayList<Integer>())).isEmpty();
+  }
+
+  @Test
+  public void should_not_copy_lines_with_null() {
+    List<Integer> lines = Arrays.asList(10, null);
+
+    assertThat(CoverageLines.copyOf(lines)).isSameAs(lines);
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void should_be_immutable() {
+    CoverageLines.copyOf(Arrays.asList(10, 11)).add(12);
+  }
+}
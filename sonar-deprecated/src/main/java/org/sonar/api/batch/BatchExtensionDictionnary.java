@@ -115,6 +115,15 @@ public class BatchExtensionDictionnary {
   }
 
   public <T> Collection<T> sort(Collection<T> extensions) {
+    List sortedList = dag(extensions).sort();
+
+    return Collections2.filter(sortedList, Predicates.in(extensions));
+  }
+
+  /**
+   * Graph of dependencies between extensions, barriers and phases
+   */
+  protected <T> DirectAcyclicGraph dag(Collection<T> extensions) {
     DirectAcyclicGraph dag = new DirectAcyclicGraph();
 
     for (T extension : extensions) {
@@ -127,9 +136,7 @@ public class BatchExtensionDictionnary {
       }
       completePhaseDependencies(dag, extension);
     }
-    List sortedList = dag.sort();
-
-    return Collections2.filter(sortedList, Predicates.in(extensions));
+    return dag;
   }
 
   /**
@@ -58,4 +58,9 @@ class TokenChannel extends Channel<TokenQueue> {
     return false;
   }
 
+  @Override
+  public boolean mayConsumeFirst(char c) {
+    return mayMatchFirst(matcher, c);
+  }
+
 }
@@ -19,8 +19,10 @@
  */
 package org.sonar.duplications.token;
 
+import java.io.File;
 import java.io.Reader;
 import java.io.StringReader;
+import java.nio.charset.Charset;
 
 import org.sonar.channel.ChannelDispatcher;
 import org.sonar.channel.CodeReader;
@@ -43,7 +45,20 @@ public final class TokenChunker {
   }
 
   public TokenQueue chunk(Reader reader) {
-    CodeReader code = new CodeReader(reader);
+    return chunk(new CodeReader(reader));
+  }
+
+  /**
+   * Files larger than the decoding window of {@link CodeReader} are decoded through this window, so they are not loaded in memory.
+   * Smaller files are read at once.
+   *
+   * @since 4.2
+   */
+  public TokenQueue chunk(File file, Charset charset) {
+    return chunk(new CodeReader(file, charset));
+  }
+
+  private TokenQueue chunk(CodeReader code) {
     TokenQueue queue = new TokenQueue();
     try {
       channelDispatcher.consume(code, queue);
@@ -89,4 +89,14 @@ public class TokenChannelTest {
     assertThat(codeReader.getColumnPosition(), is(1));
   }
 
+  @Test
+  public void shouldDeclareFirstCharacters() {
+    TokenChannel channel = new TokenChannel("[a-z]++|\\d\\.\\d");
+
+    assertThat(channel.mayConsumeFirst('a'), is(true));
+    assertThat(channel.mayConsumeFirst('5'), is(true));
+    assertThat(channel.mayConsumeFirst('A'), is(false));
+    assertThat(channel.mayConsumeFirst('.'), is(false));
+  }
+
 }
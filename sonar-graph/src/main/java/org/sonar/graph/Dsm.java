@@ -19,23 +19,48 @@
  */
 package org.sonar.graph;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
+/**
+ * Dependency structure matrix. Only the non-empty cells are stored : vertices are identified by dense int ids,
+ * and the cells of each vertex are kept in arrays sorted by id. Permutations only move ids, not cells.
+ */
 public class Dsm<V> {
 
-  private V[] vertices;
-  private DsmCell[][] cells;
-  private int dimension;
-  private DirectedGraphAccessor<V, ? extends Edge<V>> graph;
+  private static final DsmCell EMPTY_CELL = new DsmCell(null, false);
+
+  private final V[] verticesById;
+  private final int[] idsByIndex;
+  private final int[] indicesById;
+  // outgoing cells of each vertex, sorted by id of target vertex
+  private final int[][] targetIds;
+  private final DsmCell[][] outgoingCells;
+  // incoming cells of each vertex
+  private final int[][] sourceIds;
+  private final DsmCell[][] incomingCells;
+  private final int dimension;
 
   public Dsm(DirectedGraphAccessor<V, ? extends Edge<V>> graph, Collection<V> vertices, Set<Edge> feedbackEdges) {
-    this.graph = graph;
     this.dimension = vertices.size();
-    this.cells = new DsmCell[dimension][dimension];
-    initVertices(vertices);
-    initCells(feedbackEdges);
+    this.verticesById = (V[]) vertices.toArray(new Object[dimension]);
+    this.idsByIndex = new int[dimension];
+    this.indicesById = new int[dimension];
+    for (int id = 0; id < dimension; id++) {
+      idsByIndex[id] = id;
+      indicesById[id] = id;
+    }
+    this.targetIds = new int[dimension][];
+    this.outgoingCells = new DsmCell[dimension][];
+    this.sourceIds = new int[dimension][];
+    this.incomingCells = new DsmCell[dimension][];
+    initCells(graph, feedbackEdges);
   }
 
   public Dsm(DirectedGraphAccessor<V, ? extends Edge<V>> acyclicGraph, Set<Edge> feedbackEdges) {
@@ -46,31 +71,54 @@ public class Dsm<V> {
     this(acyclicGraph, acyclicGraph.getVertices(), Collections.<Edge>emptySet());
   }
 
-  private void initCells(Set<Edge> feedbackEdges) {
-    for (int x = 0; x < dimension; x++) {
-      for (int y = 0; y < dimension; y++) {
-        V from = vertices[x];
-        V to = vertices[y];
+  private void initCells(DirectedGraphAccessor<V, ? extends Edge<V>> graph, Set<Edge> feedbackEdges) {
+    Map<V, Integer> ids = new HashMap<V, Integer>();
+    for (int id = dimension - 1; id >= 0; id--) {
+      ids.put(verticesById[id], id);
+    }
+    List<List<Integer>> sources = new ArrayList<List<Integer>>(dimension);
+    List<List<DsmCell>> incoming = new ArrayList<List<DsmCell>>(dimension);
+    for (int id = 0; id < dimension; id++) {
+      sources.add(new ArrayList<Integer>());
+      incoming.add(new ArrayList<DsmCell>());
+    }
 
-        Edge<V> edge = graph.getEdge(from, to);
-        boolean isFeedbackEdge = edge != null && feedbackEdges.contains(edge);
-        DsmCell cell = new DsmCell(edge, isFeedbackEdge);
-        cells[x][y] = cell;
+    for (int from = 0; from < dimension; from++) {
+      Map<Integer, DsmCell> cellsByTarget = new HashMap<Integer, DsmCell>();
+      for (Edge<V> edge : graph.getOutgoingEdges(verticesById[from])) {
+        Integer to = ids.get(edge.getTo());
+        if (to != null) {
+          cellsByTarget.put(to, new DsmCell(edge, feedbackEdges.contains(edge)));
+        }
+      }
+      int[] targets = new int[cellsByTarget.size()];
+      int index = 0;
+      for (Integer to : cellsByTarget.keySet()) {
+        targets[index++] = to;
+      }
+      Arrays.sort(targets);
+      targetIds[from] = targets;
+      outgoingCells[from] = new DsmCell[targets.length];
+      for (index = 0; index < targets.length; index++) {
+        DsmCell cell = cellsByTarget.get(targets[index]);
+        outgoingCells[from][index] = cell;
+        sources.get(targets[index]).add(from);
+        incoming.get(targets[index]).add(cell);
       }
     }
-  }
 
-  private void initVertices(Collection<V> verticesCol) {
-    this.vertices = (V[]) new Object[dimension];
-    int i = 0;
-    for (V vertex : verticesCol) {
-      vertices[i] = vertex;
-      i++;
+    for (int to = 0; to < dimension; to++) {
+      List<Integer> toSources = sources.get(to);
+      sourceIds[to] = new int[toSources.size()];
+      for (int index = 0; index < toSources.size(); index++) {
+        sourceIds[to][index] = toSources.get(index);
+      }
+      incomingCells[to] = incoming.get(to).toArray(new DsmCell[toSources.size()]);
     }
   }
 
   public V getVertex(int rowIndex) {
-    return vertices[rowIndex];
+    return verticesById[idsByIndex[rowIndex]];
   }
 
   public int getDimension() {
@@ -80,9 +128,12 @@ public class Dsm<V> {
   public void permute(int fromIndex, int toIndex) {
     if (fromIndex != toIndex) {
       checkIndicesBoudaries(fromIndex, toIndex);
-      permuteVertice(fromIndex, toIndex);
-      permuteColumns(fromIndex, toIndex);
-      permuteRows(fromIndex, toIndex);
+      int fromId = idsByIndex[fromIndex];
+      int toId = idsByIndex[toIndex];
+      idsByIndex[fromIndex] = toId;
+      idsByIndex[toIndex] = fromId;
+      indicesById[toId] = fromIndex;
+      indicesById[fromId] = toIndex;
     }
   }
 
@@ -90,7 +141,7 @@ public class Dsm<V> {
     for (int index : indices) {
       if (index < 0 || index >= dimension) {
         StringBuilder builder = new StringBuilder("DSM contains the following vertices : ");
-        for (V vertex : vertices) {
+        for (V vertex : getVertices()) {
           builder.append(vertex.toString()).append(" | ");
         }
         builder.append(". Trying to reach index ").append(index);
@@ -99,61 +150,42 @@ public class Dsm<V> {
     }
   }
 
-  private void permuteVertice(int fromIndex, int toIndex) {
-    V fromVertex = vertices[fromIndex];
-    V toVertex = vertices[toIndex];
-    vertices[fromIndex] = toVertex;
-    vertices[toIndex] = fromVertex;
-  }
-
-  private void permuteRows(int fromYIndex, int toYIndex) {
-    for (int x = 0; x < dimension; x++) {
-      permuteCells(x, fromYIndex, x, toYIndex);
-    }
-  }
-
-  private void permuteColumns(int fromXIndex, int toXIndex) {
-    for (int y = 0; y < dimension; y++) {
-      permuteCells(fromXIndex, y, toXIndex, y);
-    }
-  }
-
-  private void permuteCells(int fromXIndex, int fromYIndex, int toXIndex, int toYIndex) {
-    DsmCell fromCell = cells[fromXIndex][fromYIndex];
-    DsmCell toCell = cells[toXIndex][toYIndex];
-    cells[toXIndex][toYIndex] = fromCell;
-    cells[fromXIndex][fromYIndex] = toCell;
-  }
-
   public int getNumberOfIncomingEdges(int y, int from, int to) {
-    int incomingEdges = 0;
-    for (int x = from; x <= to; x++) {
-      DsmCell cell = cells[x][y];
-      if (cell.getWeight() != 0 && !cell.isFeedbackEdge()) {
-        incomingEdges++;
-      }
-    }
-    return incomingEdges;
+    int id = idsByIndex[y];
+    return countEdges(sourceIds[id], incomingCells[id], from, to);
   }
 
   public int getNumberOfOutgoingEdges(int x, int from, int to) {
-    int outgoingEdges = 0;
-    for (int y = from; y <= to; y++) {
-      DsmCell cell = cells[x][y];
-      if (cell.getWeight() != 0 && !cell.isFeedbackEdge()) {
-        outgoingEdges++;
+    int id = idsByIndex[x];
+    return countEdges(targetIds[id], outgoingCells[id], from, to);
+  }
+
+  private int countEdges(int[] otherIds, DsmCell[] cells, int from, int to) {
+    int edges = 0;
+    for (int index = 0; index < otherIds.length; index++) {
+      int otherIndex = indicesById[otherIds[index]];
+      DsmCell cell = cells[index];
+      if (otherIndex >= from && otherIndex <= to && cell.getWeight() != 0 && !cell.isFeedbackEdge()) {
+        edges++;
       }
     }
-    return outgoingEdges;
+    return edges;
   }
 
+  /**
+   * @return the cell of the edge from the vertex x to the vertex y. The cell of a missing edge has no edge and a weight of 0.
+   */
   public DsmCell getCell(int x, int y) {
-    return cells[x][y];
+    int fromId = idsByIndex[x];
+    int index = Arrays.binarySearch(targetIds[fromId], idsByIndex[y]);
+    return index >= 0 ? outgoingCells[fromId][index] : EMPTY_CELL;
   }
 
   public V[] getVertices() {
-    V[] verticesCopy = (V[]) new Object[vertices.length];
-    System.arraycopy(vertices, 0, verticesCopy, 0, vertices.length);
-    return verticesCopy;
+    V[] vertices = (V[]) new Object[dimension];
+    for (int index = 0; index < dimension; index++) {
+      vertices[index] = getVertex(index);
+    }
+    return vertices;
   }
 }
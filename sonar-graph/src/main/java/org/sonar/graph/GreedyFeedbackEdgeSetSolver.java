@@ -0,0 +1,266 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2013 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.graph;
+
+import com.google.common.collect.Lists;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Approximates the feedback edge set of minimum weight, without enumerating cycles. Each strongly connected component
+ * is sorted by the weighted heuristic of Eades, Lin and Smyth : sinks are moved to the end of the sequence, sources
+ * to the beginning, and otherwise the vertex with the greatest difference between outgoing and incoming weights is
+ * moved to the beginning. Edges going backward in the sequence are feedback edges.
+ * <p/>
+ * Complexity is O(E log V), so it's an alternative to {@link MinimumFeedbackEdgeSetSolver} and
+ * {@link IncrementalCyclesAndFESSolver} on dense graphs, where the number of cycles explodes. The weight of the result
+ * is not guaranteed to be minimal.
+ *
+ * @since 4.2
+ */
+public class GreedyFeedbackEdgeSetSolver<V> {
+
+  private final List<V> vertices;
+  private final int[][] successors;
+  private final Edge[][] outgoingEdges;
+  private final int[][] predecessors;
+  private final int[][] incomingWeights;
+  private final Set<Edge> feedbackEdges = new HashSet<Edge>();
+  private int weightOfFeedbackEdgeSet = 0;
+
+  // state of the vertices while sorting. Components are disjoint, so arrays are shared by all components.
+  private int[] componentIds;
+  private int[] positions;
+  private boolean[] removed;
+  private int[] inDegrees;
+  private int[] outDegrees;
+  private long[] deltas;
+
+  public GreedyFeedbackEdgeSetSolver(DirectedGraphAccessor<V, ? extends Edge> graph) {
+    this(graph, graph.getVertices());
+  }
+
+  public GreedyFeedbackEdgeSetSolver(DirectedGraphAccessor<V, ? extends Edge> graph, Collection<V> vertices) {
+    this.vertices = new ArrayList<V>(new LinkedHashSet<V>(vertices));
+    Map<V, Integer> ids = new HashMap<V, Integer>();
+    for (int id = 0; id < this.vertices.size(); id++) {
+      ids.put(this.vertices.get(id), id);
+    }
+    int size = this.vertices.size();
+    successors = new int[size][];
+    outgoingEdges = new Edge[size][];
+    int[] incomingCounts = new int[size];
+    for (int id = 0; id < size; id++) {
+      List<Edge> edges = Lists.newArrayList();
+      for (Edge<V> edge : graph.getOutgoingEdges(this.vertices.get(id))) {
+        Integer to = ids.get(edge.getTo());
+        if (to != null) {
+          edges.add(edge);
+          incomingCounts[to]++;
+        }
+      }
+      outgoingEdges[id] = edges.toArray(new Edge[edges.size()]);
+      successors[id] = new int[edges.size()];
+      for (int index = 0; index < edges.size(); index++) {
+        successors[id][index] = ids.get(edges.get(index).getTo());
+      }
+    }
+    predecessors = new int[size][];
+    incomingWeights = new int[size][];
+    for (int id = 0; id < size; id++) {
+      predecessors[id] = new int[incomingCounts[id]];
+      incomingWeights[id] = new int[incomingCounts[id]];
+      incomingCounts[id] = 0;
+    }
+    for (int from = 0; from < size; from++) {
+      for (int index = 0; index < successors[from].length; index++) {
+        int to = successors[from][index];
+        predecessors[to][incomingCounts[to]] = from;
+        incomingWeights[to][incomingCounts[to]] = outgoingEdges[from][index].getWeight();
+        incomingCounts[to]++;
+      }
+    }
+    run();
+  }
+
+  private void run() {
+    int size = vertices.size();
+    componentIds = new int[size];
+    positions = new int[size];
+    removed = new boolean[size];
+    inDegrees = new int[size];
+    outDegrees = new int[size];
+    deltas = new long[size];
+    List<int[]> components = StronglyConnectedComponents.search(successors);
+    for (int componentId = 0; componentId < components.size(); componentId++) {
+      for (int vertex : components.get(componentId)) {
+        componentIds[vertex] = componentId;
+      }
+    }
+    for (int componentId = 0; componentId < components.size(); componentId++) {
+      int[] component = components.get(componentId);
+      if (StronglyConnectedComponents.isCyclic(component, successors)) {
+        new ComponentSorter(component, componentId).sort();
+        for (int vertex : component) {
+          for (int index = 0; index < successors[vertex].length; index++) {
+            int successor = successors[vertex][index];
+            if (componentIds[successor] == componentId && positions[successor] <= positions[vertex]) {
+              addFeedbackEdge(outgoingEdges[vertex][index]);
+            }
+          }
+        }
+      }
+    }
+  }
+
+  private void addFeedbackEdge(Edge edge) {
+    feedbackEdges.add(edge);
+    weightOfFeedbackEdgeSet += edge.getWeight();
+  }
+
+  /**
+   * Get edges tagged as feedback.
+   */
+  public Set<Edge> getEdges() {
+    return feedbackEdges;
+  }
+
+  public int getWeightOfFeedbackEdgeSet() {
+    return weightOfFeedbackEdgeSet;
+  }
+
+  /**
+   * Sorts the vertices of a component. Positions are relative to the component. Degrees and weights are restricted
+   * to the vertices of the component which are not removed yet. Self-loops are ignored, they are always feedback edges.
+   */
+  private final class ComponentSorter {
+    private final int[] component;
+    private final int componentId;
+    private final TreeSet<Integer> byDelta;
+    private final List<Integer> pendingSinks = Lists.newArrayList();
+    private final List<Integer> pendingSources = Lists.newArrayList();
+
+    ComponentSorter(int[] component, int componentId) {
+      this.component = component;
+      this.componentId = componentId;
+      this.byDelta = new TreeSet<Integer>(new Comparator<Integer>() {
+        public int compare(Integer v1, Integer v2) {
+          int compare = Long.valueOf(deltas[v2]).compareTo(deltas[v1]);
+          return compare != 0 ? compare : v1.compareTo(v2);
+        }
+      });
+    }
+
+    void sort() {
+      for (int vertex : component) {
+        for (int index = 0; index < successors[vertex].length; index++) {
+          int successor = successors[vertex][index];
+          if (isInComponent(successor) && successor != vertex) {
+            outDegrees[vertex]++;
+            inDegrees[successor]++;
+            int weight = outgoingEdges[vertex][index].getWeight();
+            deltas[vertex] += weight;
+            deltas[successor] -= weight;
+          }
+        }
+      }
+      for (int vertex : component) {
+        byDelta.add(vertex);
+        enqueueIfSinkOrSource(vertex);
+      }
+
+      int first = 0;
+      int last = component.length - 1;
+      while (!byDelta.isEmpty()) {
+        Integer sink = poll(pendingSinks);
+        if (sink != null) {
+          positions[sink] = last;
+          last--;
+          remove(sink);
+          continue;
+        }
+        Integer source = poll(pendingSources);
+        if (source == null) {
+          source = byDelta.first();
+        }
+        positions[source] = first;
+        first++;
+        remove(source);
+      }
+    }
+
+    private boolean isInComponent(int vertex) {
+      return componentIds[vertex] == componentId;
+    }
+
+    private Integer poll(List<Integer> pending) {
+      while (!pending.isEmpty()) {
+        Integer vertex = pending.remove(pending.size() - 1);
+        if (!removed[vertex]) {
+          return vertex;
+        }
+      }
+      return null;
+    }
+
+    private void enqueueIfSinkOrSource(int vertex) {
+      if (outDegrees[vertex] == 0) {
+        pendingSinks.add(vertex);
+      } else if (inDegrees[vertex] == 0) {
+        pendingSources.add(vertex);
+      }
+    }
+
+    private void remove(int vertex) {
+      removed[vertex] = true;
+      byDelta.remove(vertex);
+      for (int index = 0; index < successors[vertex].length; index++) {
+        int successor = successors[vertex][index];
+        if (isInComponent(successor) && !removed[successor]) {
+          update(successor, outgoingEdges[vertex][index].getWeight(), 0, -1);
+        }
+      }
+      for (int index = 0; index < predecessors[vertex].length; index++) {
+        int predecessor = predecessors[vertex][index];
+        if (isInComponent(predecessor) && !removed[predecessor]) {
+          update(predecessor, -incomingWeights[vertex][index], -1, 0);
+        }
+      }
+    }
+
+    private void update(int vertex, int deltaIncrement, int outDegreeIncrement, int inDegreeIncrement) {
+      byDelta.remove(vertex);
+      deltas[vertex] += deltaIncrement;
+      outDegrees[vertex] += outDegreeIncrement;
+      inDegrees[vertex] += inDegreeIncrement;
+      byDelta.add(vertex);
+      enqueueIfSinkOrSource(vertex);
+    }
+  }
+}
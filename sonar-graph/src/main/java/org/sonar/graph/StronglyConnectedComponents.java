@@ -0,0 +1,117 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2013 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.graph;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Strongly connected components of a graph whose vertices are dense int ids, computed by an iterative version of
+ * Tarjan's algorithm, so that deep graphs do not overflow the stack.
+ *
+ * @since 4.2
+ */
+final class StronglyConnectedComponents {
+
+  private StronglyConnectedComponents() {
+    // only static methods
+  }
+
+  /**
+   * @param successors successors of each vertex
+   * @return all the components, including the ones made of a single vertex. A component is listed after the
+   * components it depends on.
+   */
+  static List<int[]> search(int[][] successors) {
+    int size = successors.length;
+    List<int[]> components = new ArrayList<int[]>();
+    int[] index = new int[size];
+    int[] lowLink = new int[size];
+    boolean[] onStack = new boolean[size];
+    int[] stack = new int[size];
+    int stackSize = 0;
+    int[] callStack = new int[size];
+    int[] nextSuccessor = new int[size];
+    int nextIndex = 1;
+
+    for (int root = 0; root < size; root++) {
+      if (index[root] != 0) {
+        continue;
+      }
+      int callStackSize = 0;
+      callStack[callStackSize++] = root;
+      index[root] = nextIndex;
+      lowLink[root] = nextIndex;
+      nextIndex++;
+      stack[stackSize++] = root;
+      onStack[root] = true;
+
+      while (callStackSize > 0) {
+        int vertex = callStack[callStackSize - 1];
+        if (nextSuccessor[vertex] < successors[vertex].length) {
+          int successor = successors[vertex][nextSuccessor[vertex]++];
+          if (index[successor] == 0) {
+            index[successor] = nextIndex;
+            lowLink[successor] = nextIndex;
+            nextIndex++;
+            stack[stackSize++] = successor;
+            onStack[successor] = true;
+            callStack[callStackSize++] = successor;
+          } else if (onStack[successor]) {
+            lowLink[vertex] = Math.min(lowLink[vertex], index[successor]);
+          }
+        } else {
+          callStackSize--;
+          if (callStackSize > 0) {
+            int parent = callStack[callStackSize - 1];
+            lowLink[parent] = Math.min(lowLink[parent], lowLink[vertex]);
+          }
+          if (lowLink[vertex] == index[vertex]) {
+            int componentStart = stackSize;
+            do {
+              componentStart--;
+              onStack[stack[componentStart]] = false;
+            } while (stack[componentStart] != vertex);
+            int[] component = new int[stackSize - componentStart];
+            System.arraycopy(stack, componentStart, component, 0, component.length);
+            stackSize = componentStart;
+            components.add(component);
+          }
+        }
+      }
+    }
+    return components;
+  }
+
+  /**
+   * @return true if the component contains at least one cycle
+   */
+  static boolean isCyclic(int[] component, int[][] successors) {
+    if (component.length > 1) {
+      return true;
+    }
+    for (int successor : successors[component[0]]) {
+      if (successor == component[0]) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
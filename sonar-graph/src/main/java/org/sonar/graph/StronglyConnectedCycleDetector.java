@@ -0,0 +1,339 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2013 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.graph;
+
+import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Finds the same elementary cycles than {@link CycleDetector}, but scales on large graphs :
+ * <ul>
+ * <li>the graph is first split into strongly connected components (Tarjan's algorithm). A cycle never crosses
+ * two components, so vertices which are not in a tangle are never browsed again</li>
+ * <li>vertices are mapped to dense int ids, so that paths are int arrays and no hashing is done while searching cycles</li>
+ * <li>cycles of each component are enumerated by Johnson's algorithm, which browses each elementary cycle once,
+ * and components can be searched concurrently</li>
+ * </ul>
+ *
+ * @since 4.2
+ */
+public class StronglyConnectedCycleDetector<V> {
+
+  private final List<V> vertices;
+  private final Edge[][] outgoingEdges;
+  private final int[][] successors;
+  private final Set<Cycle> cycles = new HashSet<Cycle>();
+  private final List<int[]> components = new ArrayList<int[]>();
+  // component and position in component of each vertex. Component is -1 if the vertex is not in a cycle.
+  private int[] componentIds;
+  private int[] positions;
+  private int threads = 1;
+  private int maxCyclesToFound = Integer.MAX_VALUE;
+  private boolean executed = false;
+
+  public StronglyConnectedCycleDetector(DirectedGraphAccessor<V, ? extends Edge> graph) {
+    this(graph, graph.getVertices());
+  }
+
+  public StronglyConnectedCycleDetector(DirectedGraphAccessor<V, ? extends Edge> graph, Collection<V> vertices) {
+    this(graph, vertices, Collections.<Edge>emptySet());
+  }
+
+  public StronglyConnectedCycleDetector(DirectedGraphAccessor<V, ? extends Edge> graph, Collection<V> vertices, Set<Edge> edgesToExclude) {
+    this.vertices = new ArrayList<V>(new LinkedHashSet<V>(vertices));
+    Map<V, Integer> ids = new HashMap<V, Integer>();
+    for (int id = 0; id < this.vertices.size(); id++) {
+      ids.put(this.vertices.get(id), id);
+    }
+    this.outgoingEdges = new Edge[this.vertices.size()][];
+    this.successors = new int[this.vertices.size()][];
+    for (int id = 0; id < this.vertices.size(); id++) {
+      List<Edge> edges = Lists.newArrayList();
+      for (Edge<V> edge : graph.getOutgoingEdges(this.vertices.get(id))) {
+        if (!edgesToExclude.contains(edge) && ids.containsKey(edge.getTo())) {
+          edges.add(edge);
+        }
+      }
+      outgoingEdges[id] = edges.toArray(new Edge[edges.size()]);
+      successors[id] = new int[edges.size()];
+      for (int index = 0; index < edges.size(); index++) {
+        successors[id][index] = ids.get(edges.get(index).getTo());
+      }
+    }
+  }
+
+  /**
+   * Number of components searched concurrently. Default value is 1.
+   */
+  public StronglyConnectedCycleDetector<V> setThreads(int threads) {
+    if (threads < 1) {
+      throw new IllegalArgumentException("Number of threads must be positive: " + threads);
+    }
+    this.threads = threads;
+    return this;
+  }
+
+  public Set<Cycle> detectCycles() {
+    run();
+    return getCycles();
+  }
+
+  public Set<Cycle> detectCyclesWithUpperLimit(int maxCyclesToFound) {
+    this.maxCyclesToFound = maxCyclesToFound;
+    run();
+    return getCycles();
+  }
+
+  private void run() {
+    if (executed) {
+      throw new IllegalStateException("Cycle detection can't be executed twice on the same StronglyConnectedCycleDetector object.");
+    }
+    executed = true;
+    searchComponents();
+
+    AtomicInteger remainingCycles = new AtomicInteger(maxCyclesToFound);
+    List<ComponentSearch> searches = Lists.newArrayList();
+    for (int componentId = 0; componentId < components.size(); componentId++) {
+      searches.add(new ComponentSearch(componentId, remainingCycles));
+    }
+    if (threads == 1 || searches.size() < 2) {
+      for (ComponentSearch search : searches) {
+        cycles.addAll(search.call());
+      }
+    } else {
+      searchConcurrently(searches);
+    }
+  }
+
+  private void searchConcurrently(List<ComponentSearch> searches) {
+    ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, searches.size()));
+    try {
+      List<Future<List<Cycle>>> futures = executor.invokeAll(searches);
+      for (Future<List<Cycle>> future : futures) {
+        cycles.addAll(future.get());
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while searching cycles", e);
+    } catch (ExecutionException e) {
+      throw Throwables.propagate(e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private void searchComponents() {
+    componentIds = new int[vertices.size()];
+    positions = new int[vertices.size()];
+    Arrays.fill(componentIds, -1);
+    for (int[] component : StronglyConnectedComponents.search(successors)) {
+      if (StronglyConnectedComponents.isCyclic(component, successors)) {
+        for (int position = 0; position < component.length; position++) {
+          componentIds[component[position]] = components.size();
+          positions[component[position]] = position;
+        }
+        components.add(component);
+      }
+    }
+  }
+
+  public Set<Cycle> getCycles() {
+    return cycles;
+  }
+
+  public boolean isAcyclicGraph() {
+    return cycles.isEmpty();
+  }
+
+  /**
+   * Strongly connected components which contain at least one cycle. Available once cycles are detected.
+   */
+  public List<Set<V>> getStronglyConnectedComponents() {
+    List<Set<V>> result = Lists.newArrayList();
+    for (int[] component : components) {
+      Set<V> set = new LinkedHashSet<V>();
+      for (int vertex : component) {
+        set.add(vertices.get(vertex));
+      }
+      result.add(set);
+    }
+    return result;
+  }
+
+  /**
+   * Johnson's algorithm restricted to a strongly connected component. Cycles through the vertex number i of the
+   * component are searched among the vertices number i and greater, so that each cycle is found once.
+   */
+  private final class ComponentSearch implements Callable<List<Cycle>> {
+    private final int componentId;
+    private final int[] component;
+    private final AtomicInteger remainingCycles;
+    private final boolean[] blocked;
+    private final List<Set<Integer>> blockedBy;
+    private final int[] path;
+    private final int[] nextSuccessor;
+    private final boolean[] found;
+    private final int[] unblockStack;
+    private int pathSize = 0;
+    private int start;
+    private final List<Cycle> result = Lists.newArrayList();
+
+    ComponentSearch(int componentId, AtomicInteger remainingCycles) {
+      this.componentId = componentId;
+      this.component = components.get(componentId);
+      this.remainingCycles = remainingCycles;
+      this.blocked = new boolean[component.length];
+      this.blockedBy = new ArrayList<Set<Integer>>(component.length);
+      for (int position = 0; position < component.length; position++) {
+        blockedBy.add(new HashSet<Integer>());
+      }
+      this.path = new int[component.length];
+      this.nextSuccessor = new int[component.length];
+      this.found = new boolean[component.length];
+      this.unblockStack = new int[component.length];
+    }
+
+    public List<Cycle> call() {
+      try {
+        for (start = 0; start < component.length; start++) {
+          for (int position = start; position < component.length; position++) {
+            blocked[position] = false;
+            blockedBy.get(position).clear();
+          }
+          circuit();
+        }
+      } catch (MaximumCyclesToFoundException e) {
+        // ignore
+      }
+      return result;
+    }
+
+    /**
+     * Iterative version of Johnson's CIRCUIT procedure, so that long paths do not overflow the stack. The path is the
+     * call stack : each depth keeps the index of its next successor to browse and whether a cycle has been found.
+     */
+    private void circuit() {
+      push(start);
+      while (pathSize > 0) {
+        int depth = pathSize - 1;
+        int position = path[depth];
+        int[] vertexSuccessors = successors[component[position]];
+        if (nextSuccessor[depth] < vertexSuccessors.length) {
+          int successor = vertexSuccessors[nextSuccessor[depth]++];
+          if (isCandidate(successor)) {
+            int successorPosition = positions[successor];
+            if (successorPosition == start) {
+              addCycle();
+              found[depth] = true;
+            } else if (!blocked[successorPosition]) {
+              push(successorPosition);
+            }
+          }
+        } else {
+          pop(depth, position, vertexSuccessors);
+        }
+      }
+    }
+
+    private void push(int position) {
+      path[pathSize] = position;
+      nextSuccessor[pathSize] = 0;
+      found[pathSize] = false;
+      pathSize++;
+      blocked[position] = true;
+    }
+
+    private void pop(int depth, int position, int[] vertexSuccessors) {
+      if (found[depth]) {
+        unblock(position);
+      } else {
+        for (int successor : vertexSuccessors) {
+          if (isCandidate(successor)) {
+            blockedBy.get(positions[successor]).add(position);
+          }
+        }
+      }
+      pathSize--;
+      if (depth > 0 && found[depth]) {
+        found[depth - 1] = true;
+      }
+    }
+
+    private boolean isCandidate(int vertex) {
+      return componentIds[vertex] == componentId && positions[vertex] >= start;
+    }
+
+    private void unblock(int position) {
+      int unblockSize = 0;
+      blocked[position] = false;
+      unblockStack[unblockSize++] = position;
+      while (unblockSize > 0) {
+        Set<Integer> unblocked = blockedBy.get(unblockStack[--unblockSize]);
+        for (int other : unblocked) {
+          if (blocked[other]) {
+            blocked[other] = false;
+            unblockStack[unblockSize++] = other;
+          }
+        }
+        unblocked.clear();
+      }
+    }
+
+    private void addCycle() {
+      if (remainingCycles.getAndDecrement() <= 0) {
+        throw new MaximumCyclesToFoundException();
+      }
+      List<Edge> edges = new ArrayList<Edge>(pathSize);
+      for (int index = 0; index < pathSize; index++) {
+        int from = component[path[index]];
+        int to = component[path[(index + 1) % pathSize]];
+        edges.add(edge(from, to));
+      }
+      result.add(new Cycle(edges));
+    }
+
+    private Edge edge(int from, int to) {
+      int[] fromSuccessors = successors[from];
+      for (int index = 0; index < fromSuccessors.length; index++) {
+        if (fromSuccessors[index] == to) {
+          return outgoingEdges[from][index];
+        }
+      }
+      throw new IllegalStateException("Missing edge");
+    }
+  }
+}
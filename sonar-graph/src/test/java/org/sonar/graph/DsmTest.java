@@ -25,6 +25,8 @@ import org.sonar.graph.Dsm;
 import org.sonar.graph.DsmScanner;
 
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
 
@@ -74,4 +76,28 @@ public class DsmTest {
     assertThat(dsm.getNumberOfIncomingEdges(0, 0, 4), equalTo(1));
     assertThat(dsm.getNumberOfIncomingEdges(4, 0, 4), equalTo(0));
   }
+
+  @Test
+  public void testGetCellOfMissingEdge() {
+    DsmCell cell = dsm.getCell(0, 0);
+    assertEquals(0, cell.getWeight());
+    assertThat(cell.getEdge(), nullValue());
+    assertThat(cell.isFeedbackEdge(), is(false));
+  }
+
+  @Test(timeout = 10000)
+  public void testSortLargeSparseDsm() {
+    DirectedGraph<String, StringEdge> graph = DirectedGraph.createStringDirectedGraph();
+    for (int i = 1; i < 5000; i++) {
+      graph.addEdge("V" + (i - 1), "V" + i);
+    }
+
+    Dsm<String> largeDsm = new Dsm<String>(graph);
+    DsmTopologicalSorter.sort(largeDsm);
+
+    assertThat(largeDsm.getDimension(), is(5000));
+    for (int i = 0; i < 4999; i++) {
+      assertEquals(0, largeDsm.getNumberOfIncomingEdges(i, i, 4999));
+    }
+  }
 }
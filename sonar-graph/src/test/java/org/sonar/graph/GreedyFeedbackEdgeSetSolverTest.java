@@ -0,0 +1,145 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2013 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.graph;
+
+import org.junit.Test;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class GreedyFeedbackEdgeSetSolverTest {
+
+  @Test
+  public void testAcyclicGraph() {
+    DirectedGraph<String, StringEdge> dag = DirectedGraph.createStringDirectedGraph();
+    dag.addEdge("A", "B").addEdge("B", "C").addEdge("A", "C");
+
+    GreedyFeedbackEdgeSetSolver<String> solver = new GreedyFeedbackEdgeSetSolver<String>(dag);
+    assertTrue(solver.getEdges().isEmpty());
+    assertThat(solver.getWeightOfFeedbackEdgeSet(), is(0));
+  }
+
+  @Test
+  public void testBreakCycleOnLightestEdge() {
+    DirectedGraph<String, StringEdge> dcg = DirectedGraph.createStringDirectedGraph();
+    dcg.addEdge("A", "B", 5).addEdge("B", "C", 5).addEdge("C", "A", 1);
+    dcg.addEdge("C", "D", 3);
+
+    GreedyFeedbackEdgeSetSolver<String> solver = new GreedyFeedbackEdgeSetSolver<String>(dcg);
+    assertThat(solver.getEdges().size(), is(1));
+    assertTrue(solver.getEdges().contains(dcg.getEdge("C", "A")));
+    assertThat(solver.getWeightOfFeedbackEdgeSet(), is(1));
+  }
+
+  @Test
+  public void testSelfLoopIsFeedbackEdge() {
+    DirectedGraph<String, StringEdge> dcg = DirectedGraph.createStringDirectedGraph();
+    dcg.addEdge("A", "A", 2).addEdge("A", "B");
+
+    GreedyFeedbackEdgeSetSolver<String> solver = new GreedyFeedbackEdgeSetSolver<String>(dcg);
+    assertThat(solver.getEdges().size(), is(1));
+    assertTrue(solver.getEdges().contains(dcg.getEdge("A", "A")));
+  }
+
+  @Test
+  public void testRestrictToSomeVertices() {
+    DirectedGraph<String, StringEdge> dcg = DirectedGraph.createStringDirectedGraph();
+    dcg.addEdge("A", "B").addEdge("B", "A");
+    dcg.addEdge("C", "D").addEdge("D", "C");
+
+    GreedyFeedbackEdgeSetSolver<String> solver = new GreedyFeedbackEdgeSetSolver<String>(dcg, dcg.getVertices());
+    assertThat(solver.getEdges().size(), is(2));
+
+    DirectedGraph<String, StringEdge> subGraph = DirectedGraph.createStringDirectedGraph();
+    subGraph.addEdge("A", "B").addEdge("B", "A");
+    solver = new GreedyFeedbackEdgeSetSolver<String>(dcg, subGraph.getVertices());
+    assertThat(solver.getEdges().size(), is(1));
+  }
+
+  /**
+   * Compares with the exact solver on graphs small enough to enumerate all the cycles
+   */
+  @Test
+  public void testCloseToMinimumOnSmallDenseGraphs() {
+    Random random = new Random(42);
+    int greedyWeight = 0;
+    int minimumWeight = 0;
+    for (int i = 0; i < 20; i++) {
+      DirectedGraph<String, StringEdge> dcg = newRandomGraph(random, 7, 20);
+
+      GreedyFeedbackEdgeSetSolver<String> greedy = new GreedyFeedbackEdgeSetSolver<String>(dcg);
+      MinimumFeedbackEdgeSetSolver exact = new MinimumFeedbackEdgeSetSolver(new CycleDetector<String>(dcg).detectCycles());
+      assertIsFeedbackEdgeSet(dcg, greedy.getEdges());
+      assertThat(exact.getWeightOfFeedbackEdgeSet(), lessThanOrEqualTo(greedy.getWeightOfFeedbackEdgeSet()));
+      greedyWeight += greedy.getWeightOfFeedbackEdgeSet();
+      minimumWeight += exact.getWeightOfFeedbackEdgeSet();
+    }
+    assertThat(greedyWeight, lessThanOrEqualTo(minimumWeight * 3 / 2));
+  }
+
+  /**
+   * Graphs with too many cycles for the exact solvers
+   */
+  @Test
+  public void testLargeDenseGraph() {
+    DirectedGraph<String, StringEdge> dcg = newRandomGraph(new Random(42), 1000, 30000);
+    List<StringEdge> edges = dcg.getEdges(dcg.getVertices());
+
+    GreedyFeedbackEdgeSetSolver<String> solver = new GreedyFeedbackEdgeSetSolver<String>(dcg);
+    assertIsFeedbackEdgeSet(dcg, solver.getEdges());
+    // a random order breaks half of the edges
+    assertThat(solver.getEdges().size(), lessThanOrEqualTo(edges.size() / 2));
+    assertThat(solver.getWeightOfFeedbackEdgeSet(), lessThanOrEqualTo(weightOf(edges) / 2));
+    assertThat(solver.getWeightOfFeedbackEdgeSet(), is(weightOf(solver.getEdges())));
+  }
+
+  private static int weightOf(Collection<? extends Edge> edges) {
+    int weight = 0;
+    for (Edge edge : edges) {
+      weight += edge.getWeight();
+    }
+    return weight;
+  }
+
+  private static void assertIsFeedbackEdgeSet(DirectedGraph<String, StringEdge> graph, Set<Edge> edges) {
+    StronglyConnectedCycleDetector<String> detector = new StronglyConnectedCycleDetector<String>(graph, graph.getVertices(), edges);
+    detector.detectCyclesWithUpperLimit(1);
+    assertTrue(detector.isAcyclicGraph());
+  }
+
+  private static DirectedGraph<String, StringEdge> newRandomGraph(Random random, int vertices, int edges) {
+    DirectedGraph<String, StringEdge> graph = DirectedGraph.createStringDirectedGraph();
+    for (int edge = 0; edge < edges; edge++) {
+      String from = "V" + random.nextInt(vertices);
+      String to = "V" + random.nextInt(vertices);
+      if (!graph.hasEdge(from, to)) {
+        graph.addEdge(from, to, 1 + random.nextInt(10));
+      }
+    }
+    return graph;
+  }
+}
@@ -0,0 +1,179 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2013 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.graph;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class StronglyConnectedCycleDetectorTest {
+
+  @Test
+  public void testIsAcyclicGraph() {
+    DirectedGraph<String, StringEdge> dag = DirectedGraph.createStringDirectedGraph();
+    dag.addEdge("A", "B").addEdge("B", "C").addEdge("C", "D");
+    dag.addEdge("B", "D");
+    dag.addEdge("A", "D");
+
+    StronglyConnectedCycleDetector<String> detector = new StronglyConnectedCycleDetector<String>(dag);
+    detector.detectCycles();
+    assertTrue(detector.isAcyclicGraph());
+    assertTrue(detector.getStronglyConnectedComponents().isEmpty());
+  }
+
+  @Test
+  public void testGetCyclesWithMultipleCycles() {
+    DirectedGraph<String, StringEdge> dcg = DirectedGraph.createStringDirectedGraph();
+    dcg.addEdge("A", "B").addEdge("B", "C").addEdge("C", "D").addEdge("D", "A");
+    dcg.addEdge("C", "A");
+    dcg.addEdge("B", "A");
+    dcg.addEdge("A", "E").addEdge("E", "C");
+    dcg.addEdge("E", "D");
+    dcg.addEdge("E", "F");
+    dcg.addEdge("F", "C");
+
+    StronglyConnectedCycleDetector<String> detector = new StronglyConnectedCycleDetector<String>(dcg);
+    assertThat(detector.detectCycles().size(), is(8));
+    assertThat(detector.getCycles(), is(new CycleDetector<String>(dcg).detectCycles()));
+  }
+
+  @Test
+  public void testSplitIntoStronglyConnectedComponents() {
+    DirectedGraph<String, StringEdge> dcg = DirectedGraph.createStringDirectedGraph();
+    dcg.addEdge("A", "B").addEdge("B", "A");
+    dcg.addEdge("B", "C");
+    dcg.addEdge("C", "D").addEdge("D", "E").addEdge("E", "C");
+    dcg.addEdge("E", "F");
+    dcg.addEdge("G", "G");
+
+    StronglyConnectedCycleDetector<String> detector = new StronglyConnectedCycleDetector<String>(dcg);
+    detector.detectCycles();
+
+    List<Set<String>> components = detector.getStronglyConnectedComponents();
+    assertThat(components.size(), is(3));
+    assertTrue(components.contains(newSet("A", "B")));
+    assertTrue(components.contains(newSet("C", "D", "E")));
+    assertTrue(components.contains(newSet("G")));
+    assertThat(detector.getCycles().size(), is(3));
+  }
+
+  @Test
+  public void testExcludeEdgesFromSearch() {
+    DirectedGraph<String, StringEdge> dcg = DirectedGraph.createStringDirectedGraph();
+    dcg.addEdge("A", "B").addEdge("B", "C").addEdge("C", "D").addEdge("D", "A");
+    dcg.addEdge("C", "A");
+    dcg.addEdge("B", "A");
+
+    Set<Edge> excludedEdges = new HashSet<Edge>();
+    excludedEdges.add(dcg.getEdge("C", "A"));
+    excludedEdges.add(dcg.getEdge("B", "A"));
+
+    StronglyConnectedCycleDetector<String> detector = new StronglyConnectedCycleDetector<String>(dcg, dcg.getVertices(), excludedEdges);
+    assertThat(detector.detectCycles().size(), is(1));
+  }
+
+  @Test
+  public void testRestrictSearchToSomeVertices() {
+    DirectedGraph<String, StringEdge> dcg = DirectedGraph.createStringDirectedGraph();
+    dcg.addEdge("A", "B").addEdge("B", "C").addEdge("C", "A");
+    dcg.addEdge("C", "D").addEdge("D", "C");
+
+    StronglyConnectedCycleDetector<String> detector = new StronglyConnectedCycleDetector<String>(dcg, newSet("A", "B", "C"));
+    assertThat(detector.detectCycles().size(), is(1));
+  }
+
+  @Test
+  public void testMaxCyclesToFound() {
+    DirectedGraph<String, StringEdge> dcg = DirectedGraph.createStringDirectedGraph();
+    dcg.addEdge("A", "B").addEdge("B", "C").addEdge("C", "D").addEdge("D", "A");
+    dcg.addEdge("C", "A");
+    dcg.addEdge("B", "A");
+
+    StronglyConnectedCycleDetector<String> detector = new StronglyConnectedCycleDetector<String>(dcg);
+    assertThat(detector.detectCyclesWithUpperLimit(2).size(), is(2));
+  }
+
+  @Test
+  public void testFindSameCyclesThanCycleDetector() {
+    Random random = new Random(42);
+    for (int graph = 0; graph < 20; graph++) {
+      DirectedGraph<String, StringEdge> dcg = DirectedGraph.createStringDirectedGraph();
+      for (int edge = 0; edge < 25; edge++) {
+        String from = "V" + random.nextInt(10);
+        String to = "V" + random.nextInt(10);
+        if (!dcg.hasEdge(from, to)) {
+          dcg.addEdge(from, to);
+        }
+      }
+
+      Set<Cycle> expected = new CycleDetector<String>(dcg).detectCycles();
+      assertThat(new StronglyConnectedCycleDetector<String>(dcg).detectCycles(), is(expected));
+      assertThat(new StronglyConnectedCycleDetector<String>(dcg).setThreads(4).detectCycles(), is(expected));
+    }
+  }
+
+  @Test
+  public void testSearchLongCycleWithoutStackOverflow() throws Exception {
+    final DirectedGraph<String, StringEdge> dcg = DirectedGraph.createStringDirectedGraph();
+    int length = 5000;
+    for (int vertex = 0; vertex < length; vertex++) {
+      dcg.addEdge("V" + vertex, "V" + ((vertex + 1) % length));
+    }
+
+    // small stack, so that a recursive search would overflow
+    final Set<Cycle> cycles = new HashSet<Cycle>();
+    Thread thread = new Thread(null, new Runnable() {
+      public void run() {
+        cycles.addAll(new StronglyConnectedCycleDetector<String>(dcg).detectCycles());
+      }
+    }, "search", 128 * 1024);
+    thread.start();
+    thread.join();
+
+    assertThat(cycles.size(), is(1));
+    assertThat(cycles.iterator().next().size(), is(length));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testCanNotBeExecutedTwice() {
+    DirectedGraph<String, StringEdge> dcg = DirectedGraph.createStringDirectedGraph();
+    dcg.addEdge("A", "B").addEdge("B", "A");
+
+    StronglyConnectedCycleDetector<String> detector = new StronglyConnectedCycleDetector<String>(dcg);
+    detector.detectCycles();
+    detector.detectCycles();
+  }
+
+  private static Set<String> newSet(String... values) {
+    Set<String> set = new HashSet<String>();
+    for (String value : values) {
+      set.add(value);
+    }
+    return set;
+  }
+}
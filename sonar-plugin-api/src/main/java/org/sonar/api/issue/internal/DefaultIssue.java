@@ -94,6 +94,9 @@ public class DefaultIssue implements Issue {
   // true if some fields have been changed since the previous scan
   private boolean isChanged = false;
 
+  // true if the issue has been closed and no other fields than status, resolution and dates have been changed
+  private boolean onlyClosed = false;
+
   // true if notifications have to be sent
   private boolean sendNotifications = false;
 
@@ -329,6 +332,15 @@ public class DefaultIssue implements Issue {
     return this;
   }
 
+  public boolean isOnlyClosed() {
+    return onlyClosed;
+  }
+
+  public DefaultIssue setOnlyClosed(boolean b) {
+    onlyClosed = b;
+    return this;
+  }
+
   public boolean mustSendNotifications() {
     return sendNotifications;
   }
@@ -26,6 +26,7 @@ import org.sonar.api.i18n.I18n;
 import org.sonar.api.resources.Scopes;
 import org.sonar.core.component.ComponentDto;
 import org.sonar.core.component.ComponentKeys;
+import org.sonar.core.measure.MeasureFilterCache;
 import org.sonar.core.resource.ResourceDao;
 import org.sonar.core.resource.ResourceDto;
 import org.sonar.core.resource.ResourceIndexerDao;
@@ -44,12 +45,15 @@ public class DefaultRubyComponentService implements RubyComponentService {
   private final DefaultComponentFinder finder;
   private final ResourceIndexerDao resourceIndexerDao;
   private final I18n i18n;
+  private final MeasureFilterCache measureFilterCache;
 
-  public DefaultRubyComponentService(ResourceDao resourceDao, DefaultComponentFinder finder, ResourceIndexerDao resourceIndexerDao, I18n i18n) {
+  public DefaultRubyComponentService(ResourceDao resourceDao, DefaultComponentFinder finder, ResourceIndexerDao resourceIndexerDao, I18n i18n,
+                                     MeasureFilterCache measureFilterCache) {
     this.resourceDao = resourceDao;
     this.finder = finder;
     this.resourceIndexerDao = resourceIndexerDao;
     this.i18n = i18n;
+    this.measureFilterCache = measureFilterCache;
   }
 
   @Override
@@ -89,6 +93,8 @@ public class DefaultRubyComponentService implements RubyComponentService {
     checkKeyFormat(resource.getQualifier(), key);
 
     resourceDao.insertOrUpdate(resource.setKey(key).setName(name));
+    // cached rows are sorted by name
+    measureFilterCache.invalidateAll();
   }
 
   public DefaultComponentQueryResult find(Map<String, Object> params) {
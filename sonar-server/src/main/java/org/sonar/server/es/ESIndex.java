@@ -65,7 +65,8 @@ public class ESIndex implements Startable {
   private static final Logger LOG = LoggerFactory.getLogger(ESIndex.class);
 
   private ESNode searchNode;
-  private Client client;
+  // the node is started in background, so the client is loaded on first use
+  private volatile Client client;
   private Profiling profiling;
 
   public ESIndex(ESNode searchNode, Profiling profiling) {
@@ -75,7 +76,7 @@ public class ESIndex implements Startable {
 
   @Override
   public void start() {
-    this.client = searchNode.client();
+    // nothing to do
   }
 
   @Override
@@ -89,6 +90,9 @@ public class ESIndex implements Startable {
    * For full access to the underlying ES client; all other methods are shortcuts.
    */
   public Client client() {
+    if (client == null) {
+      client = searchNode.client();
+    }
     return client;
   }
 
@@ -109,7 +113,7 @@ public class ESIndex implements Startable {
   }
 
   private void internalPut(String index, String type, String id, BytesStream source, boolean refresh, String parent) {
-    IndexRequestBuilder builder = client.prepareIndex(index, type, id).setSource(source.bytes()).setRefresh(refresh);
+    IndexRequestBuilder builder = client().prepareIndex(index, type, id).setSource(source.bytes()).setRefresh(refresh);
     if (parent != null) {
       builder.setParent(parent);
     }
@@ -119,9 +123,9 @@ public class ESIndex implements Startable {
   }
 
   public void bulkIndex(String index, String type, String[] ids, BytesStream[] sources) {
-    BulkRequestBuilder builder = new BulkRequestBuilder(client);
+    BulkRequestBuilder builder = new BulkRequestBuilder(client());
     for (int i=0; i<ids.length; i++) {
-      builder.add(client.prepareIndex(index, type, ids[i]).setSource(sources[i].bytes()));
+      builder.add(client().prepareIndex(index, type, ids[i]).setSource(sources[i].bytes()));
     }
     StopWatch watch = createWatch();
     try {
@@ -132,9 +136,9 @@ public class ESIndex implements Startable {
   }
 
   public void bulkIndex(String index, String type, String[] ids, BytesStream[] sources, String[] parentIds) {
-    BulkRequestBuilder builder = new BulkRequestBuilder(client);
+    BulkRequestBuilder builder = new BulkRequestBuilder(client());
     for (int i=0; i<ids.length; i++) {
-      builder.add(client.prepareIndex(index, type, ids[i]).setParent(parentIds[i]).setSource(sources[i].bytes()));
+      builder.add(client().prepareIndex(index, type, ids[i]).setParent(parentIds[i]).setSource(sources[i].bytes()));
     }
     StopWatch watch = createWatch();
     try {
@@ -157,7 +161,7 @@ public class ESIndex implements Startable {
   }
 
   private void addMapping(String index, String type, String mapping) {
-    IndicesAdminClient indices = client.admin().indices();
+    IndicesAdminClient indices = client().admin().indices();
     StopWatch watch = createWatch();
     try {
       if (! indices.exists(indices.prepareExists(index).request()).get().isExists()) {
@@ -181,7 +185,7 @@ public class ESIndex implements Startable {
   }
 
   public List<String> findDocumentIds(SearchQuery searchQuery) {
-    SearchRequestBuilder builder = searchQuery.toBuilder(client);
+    SearchRequestBuilder builder = searchQuery.toBuilder(client());
     return findDocumentIds(builder, searchQuery.scrollSize());
   }
 
@@ -196,7 +200,7 @@ public class ESIndex implements Startable {
       .setSize(scrollSize).execute().actionGet();
     //Scroll until no hits are returned
     while (true) {
-      scrollResp = client.prepareSearchScroll(scrollResp.getScrollId()).setScroll(new TimeValue(scrollTime)).execute().actionGet();
+      scrollResp = client().prepareSearchScroll(scrollResp.getScrollId()).setScroll(new TimeValue(scrollTime)).execute().actionGet();
       for (SearchHit hit : scrollResp.getHits()) {
         result.add(hit.getId());
       }
@@ -211,9 +215,18 @@ public class ESIndex implements Startable {
   }
 
   public SearchHits executeRequest(SearchRequestBuilder builder) {
+    return executeSearch(builder).getHits();
+  }
+
+  /**
+   * Same as {@link #executeRequest(SearchRequestBuilder)} but the whole response is returned, for example to read facets
+   *
+   * @since 4.2
+   */
+  public SearchResponse executeSearch(SearchRequestBuilder builder) {
     StopWatch watch = createWatch();
     try {
-      return builder.execute().actionGet().getHits();
+      return builder.execute().actionGet();
     } finally {
       SearchRequest request = builder.request();
       watch.stop("Executed search on ind(ex|ices) '%s' and type(s) '%s' with request: %s",
@@ -256,9 +269,9 @@ public class ESIndex implements Startable {
   }
 
   public void bulkDelete(String index, String type, String[] ids) {
-    BulkRequestBuilder builder = new BulkRequestBuilder(client);
+    BulkRequestBuilder builder = new BulkRequestBuilder(client());
     for (String id : ids) {
-      builder.add(client.prepareDelete(index, type, id));
+      builder.add(client().prepareDelete(index, type, id));
     }
     StopWatch watch = createWatch();
     try {
@@ -270,7 +283,7 @@ public class ESIndex implements Startable {
 
   private void doBulkOperation(BulkRequestBuilder builder) {
     try {
-      BulkResponse bulkResponse = client.bulk(builder.setRefresh(true).request()).get();
+      BulkResponse bulkResponse = client().bulk(builder.setRefresh(true).request()).get();
       if (bulkResponse.hasFailures()) {
         for (BulkItemResponse bulkItemResponse : bulkResponse.getItems()) {
           if(bulkItemResponse.isFailed()) {
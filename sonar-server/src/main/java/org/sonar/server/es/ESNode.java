@@ -21,6 +21,7 @@
 package org.sonar.server.es;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Throwables;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.elasticsearch.action.admin.cluster.health.ClusterHealthStatus;
@@ -38,9 +39,14 @@ import org.sonar.api.platform.ServerFileSystem;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 
 /**
  * Manages the ElasticSearch Node instance used to connect to the index.
+ * The node is started in background, so that the database is initialized meanwhile. {@link #client()} waits
+ * for the node to be started.
  * @since 4.1
  */
 public class ESNode implements Startable {
@@ -57,7 +63,7 @@ public class ESNode implements Startable {
   private final String healthTimeout;
 
   // available only after startup
-  private Node node;
+  private FutureTask<Node> startup;
 
   public ESNode(ServerFileSystem fileSystem, Settings settings) {
     this(fileSystem, settings, DEFAULT_HEALTH_TIMEOUT);
@@ -75,32 +81,47 @@ public class ESNode implements Startable {
     LOG.info("Starting Elasticsearch...");
 
     initLogging();
-    ImmutableSettings.Builder esSettings = ImmutableSettings.builder()
+    final ImmutableSettings.Builder esSettings = ImmutableSettings.builder()
       .loadFromUrl(getClass().getResource("config/elasticsearch.json"));
     initDirs(esSettings);
     initRestConsole(esSettings);
 
-    node = NodeBuilder.nodeBuilder()
+    startup = new FutureTask<Node>(new Callable<Node>() {
+      @Override
+      public Node call() {
+        return startNode(esSettings);
+      }
+    });
+    new Thread(startup, "Elasticsearch startup").start();
+  }
+
+  private Node startNode(ImmutableSettings.Builder esSettings) {
+    Node node = NodeBuilder.nodeBuilder()
       .settings(esSettings)
       .node();
     node.start();
-
-    addIndexTemplates();
-
-    if (
-      node.client().admin().cluster().prepareHealth()
-      .setWaitForYellowStatus()
-      .setTimeout(healthTimeout)
-      .execute().actionGet()
-      .getStatus() == ClusterHealthStatus.RED) {
-      throw new IllegalStateException(
-        String.format("Elasticsearch index is corrupt, please delete directory '%s/%s' and relaunch the SonarQube server.", fileSystem.getHomeDir().getAbsolutePath(), DATA_DIR));
+    try {
+      addIndexTemplates(node);
+
+      if (
+        node.client().admin().cluster().prepareHealth()
+        .setWaitForYellowStatus()
+        .setTimeout(healthTimeout)
+        .execute().actionGet()
+        .getStatus() == ClusterHealthStatus.RED) {
+        throw new IllegalStateException(
+          String.format("Elasticsearch index is corrupt, please delete directory '%s/%s' and relaunch the SonarQube server.", fileSystem.getHomeDir().getAbsolutePath(), DATA_DIR));
+      }
+    } catch (RuntimeException e) {
+      node.close();
+      throw e;
     }
 
     LOG.info("Elasticsearch started");
+    return node;
   }
 
-  private void addIndexTemplates() {
+  private void addIndexTemplates(Node node) {
     try {
       node.client().admin().indices().preparePutTemplate("default")
         .setSource(IOUtils.toString(getClass().getResource("config/templates/default.json")))
@@ -139,16 +160,33 @@ public class ESNode implements Startable {
 
   @Override
   public void stop() {
-    if (node != null) {
-      node.close();
-      node = null;
+    if (startup != null) {
+      try {
+        node().close();
+      } catch (RuntimeException e) {
+        // startup failed, node is already closed
+        LOG.debug("Elasticsearch failed to start", e);
+      } finally {
+        startup = null;
+      }
     }
   }
 
   public Client client() {
-    if (node == null) {
+    if (startup == null) {
       throw new IllegalStateException("Elasticsearch is not started");
     }
-    return node.client();
+    return node().client();
+  }
+
+  private Node node() {
+    try {
+      return startup.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while starting Elasticsearch", e);
+    } catch (ExecutionException e) {
+      throw Throwables.propagate(e.getCause());
+    }
   }
 }
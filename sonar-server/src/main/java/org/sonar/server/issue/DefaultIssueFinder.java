@@ -66,13 +66,15 @@ public class DefaultIssueFinder implements IssueFinder {
   private final UserFinder userFinder;
   private final ResourceDao resourceDao;
   private final ActionPlanService actionPlanService;
+  private final ESIssue esIssue;
 
   public DefaultIssueFinder(MyBatis myBatis,
     IssueDao issueDao, IssueChangeDao issueChangeDao,
     DefaultRuleFinder ruleFinder,
     UserFinder userFinder,
     ResourceDao resourceDao,
-    ActionPlanService actionPlanService) {
+    ActionPlanService actionPlanService,
+    ESIssue esIssue) {
     this.myBatis = myBatis;
     this.issueDao = issueDao;
     this.issueChangeDao = issueChangeDao;
@@ -80,6 +82,7 @@ public class DefaultIssueFinder implements IssueFinder {
     this.userFinder = userFinder;
     this.resourceDao = resourceDao;
     this.actionPlanService = actionPlanService;
+    this.esIssue = esIssue;
   }
 
   DefaultIssue findByKey(String issueKey, String requiredRole) {
@@ -99,19 +102,16 @@ public class DefaultIssueFinder implements IssueFinder {
     long start = System.currentTimeMillis();
     SqlSession sqlSession = myBatis.openSession();
     try {
-      // 1. Select the authorized ids of all the issues that match the query
-      List<IssueDto> authorizedIssues = issueDao.selectIssueIds(query, UserSession.get().userId(), sqlSession);
+      // 1. Search the requested page of authorized issues in the index, sorted as requested
+      // results are limited to the first maxResults issues
+      int offset = (int) Math.min((query.pageIndex() - 1L) * query.pageSize(), query.maxResults());
+      int limit = Math.min(query.pageSize(), query.maxResults() - offset);
+      ESIssue.SearchResult searchResult = esIssue.search(query, UserSession.get().userId(), offset, limit);
+      int total = (int) Math.min(searchResult.total(), query.maxResults());
+      Paging paging = Paging.create(query.pageSize(), query.pageIndex(), total);
 
-      // 2. Sort all authorized issues
-      List<IssueDto> authorizedSortedIssues = sort(authorizedIssues, query, authorizedIssues.size());
-
-      // 3. Apply pagination
-      Paging paging = Paging.create(query.pageSize(), query.pageIndex(), authorizedSortedIssues.size());
-      Set<Long> pagedIssueIds = pagedIssueIds(authorizedSortedIssues, paging);
-
-      // 4. Load issues and their related data (rules, components, projects, comments, action plans, ...) and sort then again
-      List<IssueDto> pagedIssues = issueDao.selectByIds(pagedIssueIds, sqlSession);
-      List<IssueDto> pagedSortedIssues = sort(pagedIssues, query, authorizedIssues.size());
+      // 2. Load issues and their related data (rules, components, projects, comments, action plans, ...) and keep the order of the index
+      List<IssueDto> pagedSortedIssues = sort(issueDao.selectByKeys(searchResult.keys(), sqlSession), searchResult.keys());
 
       Map<String, DefaultIssue> issuesByKey = newHashMap();
       List<Issue> issues = newArrayList();
@@ -145,7 +145,7 @@ public class DefaultIssueFinder implements IssueFinder {
       }
 
       return new DefaultIssueQueryResult(issues)
-        .setMaxResultsReached(authorizedIssues.size() == query.maxResults())
+        .setMaxResultsReached(searchResult.total() >= query.maxResults())
         .addRules(findRules(ruleIds))
         .addComponents(findComponents(componentIds))
         .addProjects(findComponents(projectIds))
@@ -158,25 +158,20 @@ public class DefaultIssueFinder implements IssueFinder {
     }
   }
 
-  private List<IssueDto> sort(List<IssueDto> issues, IssueQuery query, int allIssuesSize) {
-    if (allIssuesSize < query.maxResults()) {
-      return new IssuesFinderSort(issues, query).sort();
-    }
-    return issues;
-  }
-
-  private Set<Long> pagedIssueIds(Collection<IssueDto> issues, Paging paging) {
-    Set<Long> issueIds = Sets.newLinkedHashSet();
-    int index = 0;
+  private static List<IssueDto> sort(List<IssueDto> issues, List<String> sortedKeys) {
+    Map<String, IssueDto> issuesByKey = newHashMap();
     for (IssueDto issue : issues) {
-      if (index >= paging.offset() && issueIds.size() < paging.pageSize()) {
-        issueIds.add(issue.getId());
-      } else if (issueIds.size() >= paging.pageSize()) {
-        break;
+      issuesByKey.put(issue.getKee(), issue);
+    }
+    List<IssueDto> result = newArrayList();
+    for (String key : sortedKeys) {
+      IssueDto issue = issuesByKey.get(key);
+      // the index can be a bit late on deletions
+      if (issue != null) {
+        result.add(issue);
       }
-      index++;
     }
-    return issueIds;
+    return result;
   }
 
   private Collection<Rule> findRules(Set<Integer> ruleIds) {
@@ -0,0 +1,529 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2013 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.issue;
+
+import com.google.common.base.Splitter;
+import com.google.common.base.Strings;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.ibatis.session.ResultContext;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.SqlSession;
+import org.elasticsearch.action.search.SearchRequestBuilder;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.common.io.BytesStream;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.index.query.BoolFilterBuilder;
+import org.elasticsearch.index.query.FilterBuilder;
+import org.elasticsearch.index.query.FilterBuilders;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.facet.FacetBuilders;
+import org.elasticsearch.search.facet.Facets;
+import org.elasticsearch.search.sort.SortBuilders;
+import org.elasticsearch.search.sort.SortOrder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.ServerComponent;
+import org.sonar.api.issue.IssueQuery;
+import org.sonar.api.resources.Qualifiers;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.api.rule.Severity;
+import org.sonar.core.issue.db.IssueDao;
+import org.sonar.core.issue.db.IssueDto;
+import org.sonar.core.persistence.MyBatis;
+import org.sonar.core.profiling.Profiling;
+import org.sonar.core.profiling.Profiling.Level;
+import org.sonar.core.profiling.StopWatch;
+import org.sonar.core.resource.ResourceDao;
+import org.sonar.core.resource.ResourceDto;
+import org.sonar.core.resource.ResourceQuery;
+import org.sonar.core.resource.SnapshotDto;
+import org.sonar.core.user.AuthorizationDao;
+import org.sonar.server.es.ESIndex;
+import org.sonar.server.es.SearchQuery;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Index of issues, used to search issues and to compute facets without querying the database. Documents are
+ * updated by {@link ServerIssueStorage} on server-side changes, and project per project in background at the end
+ * of analysis or when keys are updated.
+ * <p/>
+ * Changes done by batch are not indexed synchronously. Searches return the issues of the previous analysis
+ * of a project until the background indexing of the project is completed.
+ *
+ * @since 4.2
+ */
+public class ESIssue implements ServerComponent {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ESIssue.class);
+
+  public static final String INDEX_ISSUES = "issues";
+  public static final String TYPE_ISSUE = "issue";
+  private static final String TYPE_MARKER = "marker";
+  private static final String MARKER_ID = "all_projects";
+
+  private static final int BULK_SIZE = 1000;
+  private static final int MAX_FACET_SIZE = 1000;
+
+  private final ESIndex esIndex;
+  private final IssueDao issueDao;
+  private final ResourceDao resourceDao;
+  private final AuthorizationDao authorizationDao;
+  private final MyBatis myBatis;
+  private final Profiling profiling;
+  // projects waiting for being indexed in background
+  private final Set<Long> pendingProjectIds = Collections.synchronizedSet(Sets.<Long>newHashSet());
+  private ExecutorService indexer;
+
+  public ESIssue(ESIndex esIndex, IssueDao issueDao, ResourceDao resourceDao, AuthorizationDao authorizationDao,
+    MyBatis myBatis, Profiling profiling) {
+    this.esIndex = esIndex;
+    this.issueDao = issueDao;
+    this.resourceDao = resourceDao;
+    this.authorizationDao = authorizationDao;
+    this.myBatis = myBatis;
+    this.profiling = profiling;
+  }
+
+  public void start() {
+    esIndex.addMappingFromClasspath(INDEX_ISSUES, TYPE_ISSUE, "/org/sonar/server/es/config/mappings/issue_mapping.json");
+    indexer = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder().setNameFormat("Issue indexer").setDaemon(true).build());
+  }
+
+  public void stop() {
+    if (indexer != null) {
+      try {
+        indexer.shutdown();
+        indexer.awaitTermination(5, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  /**
+   * Indexes the project by a background thread, see {@link #bulkIndexProject(long)}. Nothing is done if the project
+   * is already waiting for being indexed.
+   */
+  public void bulkIndexProjectInBackground(final long projectId) {
+    if (pendingProjectIds.add(projectId)) {
+      indexer.execute(new Runnable() {
+        @Override
+        public void run() {
+          // changes done while indexing are indexed by the next request
+          pendingProjectIds.remove(projectId);
+          try {
+            bulkIndexProject(projectId);
+          } catch (RuntimeException e) {
+            LOG.error("Fail to index issues of project " + projectId, e);
+          }
+        }
+      });
+    }
+  }
+
+  /**
+   * Removes the documents of the issues of the component and of its descendants, for example when a project is deleted
+   */
+  public void deleteComponentTree(long componentId) {
+    List<String> keys = esIndex.findDocumentIds(SearchQuery.create().index(INDEX_ISSUES).type(TYPE_ISSUE)
+      .field(IssueDocument.FIELD_COMPONENT_ROOT_IDS, String.valueOf(componentId)).scrollSize(BULK_SIZE));
+    if (!keys.isEmpty()) {
+      esIndex.bulkDelete(INDEX_ISSUES, TYPE_ISSUE, keys.toArray(new String[keys.size()]));
+    }
+  }
+
+  /**
+   * Indexes the issues of all the projects, unless it has already been completed. A marker document is added once
+   * all the projects are indexed, so that indexing is started again when it has been interrupted, or when the
+   * index has been dropped.
+   */
+  public void bulkRegisterIssuesIfIncomplete() {
+    if (!isCompleted()) {
+      StopWatch watch = startWatch();
+      List<Long> projectIds = resourceDao.getResourceIds(ResourceQuery.create().setQualifiers(new String[] {Qualifiers.PROJECT}));
+      for (Long projectId : projectIds) {
+        bulkIndexProject(projectId);
+      }
+      markCompleted();
+      watch.stop(String.format("Indexed issues of %d projects", projectIds.size()));
+    }
+  }
+
+  /**
+   * Same as {@link #bulkRegisterIssuesIfIncomplete()} but executed by the background thread, so that server startup does not
+   * wait for the indexing of all the projects. Searches return partial results until the end of indexing.
+   */
+  public void bulkRegisterIssuesIfIncompleteInBackground() {
+    indexer.execute(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          bulkRegisterIssuesIfIncomplete();
+        } catch (RuntimeException e) {
+          LOG.error("Fail to index issues", e);
+        }
+      }
+    });
+  }
+
+  private boolean isCompleted() {
+    return esIndex.client().prepareGet(INDEX_ISSUES, TYPE_MARKER, MARKER_ID).execute().actionGet().isExists();
+  }
+
+  private void markCompleted() {
+    try {
+      esIndex.putSynchronous(INDEX_ISSUES, TYPE_MARKER, MARKER_ID, XContentFactory.jsonBuilder().startObject()
+        .field("completedAt", new Date())
+        .endObject());
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to mark the indexing of issues as completed", e);
+    }
+  }
+
+  /**
+   * Indexes all the issues of the project, including closed ones, and removes the documents of the issues
+   * which do not exist anymore.
+   */
+  public void bulkIndexProject(long projectId) {
+    SqlSession session = myBatis.openSession();
+    try {
+      final Multimap<Long, Long> componentRootIds = componentRootIds(projectId, session);
+      final Set<String> keys = Sets.newHashSet();
+      final List<IssueDto> buffer = Lists.newArrayList();
+      issueDao.selectByRootComponent(projectId, new ResultHandler() {
+        @Override
+        public void handleResult(ResultContext context) {
+          IssueDto issue = (IssueDto) context.getResultObject();
+          keys.add(issue.getKee());
+          buffer.add(issue);
+          if (buffer.size() >= BULK_SIZE) {
+            bulkIndexIssues(buffer, componentRootIds);
+            buffer.clear();
+          }
+        }
+      });
+      bulkIndexIssues(buffer, componentRootIds);
+
+      List<String> indexKeys = esIndex.findDocumentIds(SearchQuery.create().index(INDEX_ISSUES).type(TYPE_ISSUE)
+        .field(IssueDocument.FIELD_PROJECT_ID, String.valueOf(projectId)).scrollSize(BULK_SIZE));
+      indexKeys.removeAll(keys);
+      if (!indexKeys.isEmpty()) {
+        esIndex.bulkDelete(INDEX_ISSUES, TYPE_ISSUE, indexKeys.toArray(new String[indexKeys.size()]));
+      }
+    } finally {
+      MyBatis.closeQuietly(session);
+    }
+  }
+
+  public void bulkIndexIssues(Collection<String> issueKeys) {
+    if (issueKeys.isEmpty()) {
+      return;
+    }
+    SqlSession session = myBatis.openSession();
+    try {
+      Multimap<Long, IssueDto> issuesByProject = HashMultimap.create();
+      for (IssueDto issue : issueDao.selectByKeys(issueKeys, session)) {
+        issuesByProject.put(issue.getRootComponentId(), issue);
+      }
+      for (Map.Entry<Long, Collection<IssueDto>> entry : issuesByProject.asMap().entrySet()) {
+        bulkIndexIssues(entry.getValue(), componentRootIds(entry.getKey(), session));
+      }
+    } finally {
+      MyBatis.closeQuietly(session);
+    }
+  }
+
+  /**
+   * Keys of the issues matching the query, sorted as requested by the query. Issues are filtered on the projects
+   * that the user is allowed to browse when the query requires a role.
+   */
+  public SearchResult search(IssueQuery query, @Nullable Integer userId, int offset, int limit) {
+    FilterBuilder filter = filter(query, userId);
+    if (filter == null) {
+      return new SearchResult(Collections.<String>emptyList(), 0L);
+    }
+    SearchRequestBuilder request = esIndex.client().prepareSearch(INDEX_ISSUES).setTypes(TYPE_ISSUE)
+      .setQuery(QueryBuilders.filteredQuery(QueryBuilders.matchAllQuery(), filter))
+      .addField("_id")
+      .setFrom(offset)
+      .setSize(limit);
+    String sort = query.sort();
+    Boolean asc = query.asc();
+    if (sort != null && asc != null) {
+      request.addSort(SortBuilders.fieldSort(sortField(sort)).order(asc ? SortOrder.ASC : SortOrder.DESC).missing(asc ? "_last" : "_first"));
+    }
+    // ties are sorted so that paging is stable
+    request.addSort(SortBuilders.fieldSort(IssueDocument.FIELD_ID).order(SortOrder.ASC));
+
+    SearchResponse response = esIndex.executeSearch(request);
+    List<String> keys = Lists.newArrayList();
+    for (SearchHit hit : response.getHits()) {
+      keys.add(hit.getId());
+    }
+    return new SearchResult(keys, response.getHits().getTotalHits());
+  }
+
+  /**
+   * Terms facets of the issues matching the query. Facets are named by their field, for example
+   * {@link IssueDocument#FIELD_SEVERITY}, and count the issues without value as missing.
+   *
+   * @return null if no issues can match the query
+   */
+  @CheckForNull
+  public Facets facets(IssueQuery query, @Nullable Integer userId, String... fields) {
+    FilterBuilder filter = filter(query, userId);
+    if (filter == null) {
+      return null;
+    }
+    SearchRequestBuilder request = esIndex.client().prepareSearch(INDEX_ISSUES).setTypes(TYPE_ISSUE)
+      .setQuery(QueryBuilders.filteredQuery(QueryBuilders.matchAllQuery(), filter))
+      .setSize(0);
+    for (String field : fields) {
+      request.addFacet(FacetBuilders.termsFacet(field).field(field).size(MAX_FACET_SIZE));
+    }
+    return esIndex.executeSearch(request).getFacets();
+  }
+
+  /**
+   * @return null if no issues can match the query, for example if the user is not allowed to browse any project
+   */
+  @CheckForNull
+  private FilterBuilder filter(IssueQuery query, @Nullable Integer userId) {
+    List<FilterBuilder> filters = Lists.newArrayList();
+    if (query.requiredRole() != null || !query.componentRoots().isEmpty() || !query.components().isEmpty()) {
+      // issues of deleted components
+      filters.add(FilterBuilders.termFilter(IssueDocument.FIELD_ENABLED, true));
+    }
+    if (query.requiredRole() != null) {
+      Collection<String> projectKeys = authorizationDao.selectAuthorizedRootProjectsKeys(userId, query.requiredRole());
+      if (projectKeys.isEmpty()) {
+        return null;
+      }
+      filters.add(FilterBuilders.termsFilter(IssueDocument.FIELD_PROJECT_KEY, projectKeys));
+    }
+    if (!query.componentRoots().isEmpty()) {
+      List<Long> componentRootIds = Lists.newArrayList();
+      for (String componentRootKey : query.componentRoots()) {
+        ResourceDto componentRoot = resourceDao.getResource(ResourceQuery.create().setKey(componentRootKey));
+        if (componentRoot != null) {
+          componentRootIds.add(componentRoot.getId());
+        }
+      }
+      if (componentRootIds.isEmpty()) {
+        return null;
+      }
+      filters.add(FilterBuilders.termsFilter(IssueDocument.FIELD_COMPONENT_ROOT_IDS, componentRootIds));
+    }
+    addTermsFilter(filters, IssueDocument.FIELD_KEY, query.issueKeys());
+    addTermsFilter(filters, IssueDocument.FIELD_SEVERITY, query.severities());
+    addTermsFilter(filters, IssueDocument.FIELD_STATUS, query.statuses());
+    addTermsFilter(filters, IssueDocument.FIELD_RESOLUTION, query.resolutions());
+    addTermsFilter(filters, IssueDocument.FIELD_COMPONENT_KEY, query.components());
+    addTermsFilter(filters, IssueDocument.FIELD_RULE, ruleKeys(query.rules()));
+    addTermsFilter(filters, IssueDocument.FIELD_ACTION_PLAN, query.actionPlans());
+    addTermsFilter(filters, IssueDocument.FIELD_REPORTER, query.reporters());
+    addTermsFilter(filters, IssueDocument.FIELD_ASSIGNEE, query.assignees());
+    addExistsFilter(filters, IssueDocument.FIELD_RESOLUTION, query.resolved());
+    addExistsFilter(filters, IssueDocument.FIELD_ASSIGNEE, query.assigned());
+    addExistsFilter(filters, IssueDocument.FIELD_ACTION_PLAN, query.planned());
+    if (query.createdAfter() != null) {
+      filters.add(FilterBuilders.rangeFilter(IssueDocument.FIELD_CREATED_AT).gt(query.createdAfter()));
+    }
+    if (query.createdAt() != null) {
+      filters.add(FilterBuilders.rangeFilter(IssueDocument.FIELD_CREATED_AT).gte(query.createdAt()).lte(query.createdAt()));
+    }
+    if (query.createdBefore() != null) {
+      filters.add(FilterBuilders.rangeFilter(IssueDocument.FIELD_CREATED_AT).lt(query.createdBefore()));
+    }
+
+    if (filters.isEmpty()) {
+      return FilterBuilders.matchAllFilter();
+    }
+    BoolFilterBuilder filter = FilterBuilders.boolFilter();
+    for (FilterBuilder builder : filters) {
+      filter.must(builder);
+    }
+    return filter;
+  }
+
+  private static void addTermsFilter(List<FilterBuilder> filters, String field, Collection<String> values) {
+    if (!values.isEmpty()) {
+      filters.add(FilterBuilders.termsFilter(field, values));
+    }
+  }
+
+  private static void addExistsFilter(List<FilterBuilder> filters, String field, @Nullable Boolean exists) {
+    if (exists != null) {
+      filters.add(exists ? FilterBuilders.existsFilter(field) : FilterBuilders.missingFilter(field));
+    }
+  }
+
+  private static Collection<String> ruleKeys(Collection<RuleKey> rules) {
+    List<String> keys = Lists.newArrayList();
+    for (RuleKey rule : rules) {
+      keys.add(rule.toString());
+    }
+    return keys;
+  }
+
+  private static String sortField(String sort) {
+    if (IssueQuery.SORT_BY_ASSIGNEE.equals(sort)) {
+      return IssueDocument.FIELD_ASSIGNEE_SORT;
+    }
+    if (IssueQuery.SORT_BY_SEVERITY.equals(sort)) {
+      return IssueDocument.FIELD_SEVERITY_INDEX;
+    }
+    if (IssueQuery.SORT_BY_STATUS.equals(sort)) {
+      return IssueDocument.FIELD_STATUS;
+    }
+    if (IssueQuery.SORT_BY_CREATION_DATE.equals(sort)) {
+      return IssueDocument.FIELD_CREATED_AT;
+    }
+    if (IssueQuery.SORT_BY_UPDATE_DATE.equals(sort)) {
+      return IssueDocument.FIELD_UPDATED_AT;
+    }
+    if (IssueQuery.SORT_BY_CLOSE_DATE.equals(sort)) {
+      return IssueDocument.FIELD_CLOSED_AT;
+    }
+    throw new IllegalArgumentException("Cannot sort on field : " + sort);
+  }
+
+  /**
+   * Ids of the components of the project and of their ancestors, loaded from the paths of the last snapshots
+   */
+  private Multimap<Long, Long> componentRootIds(long projectId, SqlSession session) {
+    List<SnapshotDto> snapshots = resourceDao.getLastSnapshotsOfRootProject(projectId, session);
+    Map<Long, Long> componentIdsBySnapshotId = Maps.newHashMap();
+    for (SnapshotDto snapshot : snapshots) {
+      componentIdsBySnapshotId.put(snapshot.getId(), snapshot.getResourceId());
+    }
+    Multimap<Long, Long> result = HashMultimap.create();
+    for (SnapshotDto snapshot : snapshots) {
+      Long componentId = snapshot.getResourceId();
+      result.put(componentId, componentId);
+      for (String ancestorSnapshotId : Splitter.on('.').omitEmptyStrings().split(Strings.nullToEmpty(snapshot.getPath()))) {
+        Long ancestorId = componentIdsBySnapshotId.get(Long.valueOf(ancestorSnapshotId));
+        if (ancestorId != null) {
+          result.put(componentId, ancestorId);
+        }
+      }
+    }
+    return result;
+  }
+
+  private void bulkIndexIssues(Collection<IssueDto> issues, Multimap<Long, Long> componentRootIds) {
+    if (issues.isEmpty()) {
+      return;
+    }
+    StopWatch watch = startWatch();
+    try {
+      String[] ids = new String[issues.size()];
+      BytesStream[] docs = new BytesStream[issues.size()];
+      int index = 0;
+      for (IssueDto issue : issues) {
+        ids[index] = issue.getKee();
+        docs[index] = issueDocument(issue, componentRootIds.get(issue.getComponentId()));
+        index++;
+      }
+      esIndex.bulkIndex(INDEX_ISSUES, TYPE_ISSUE, ids, docs);
+      watch.stop(String.format("Indexed %d issues", ids.length));
+    } catch (IOException e) {
+      watch.stop("Failed to index issues");
+      throw new IllegalStateException("Unable to index issues", e);
+    }
+  }
+
+  private XContentBuilder issueDocument(IssueDto issue, Collection<Long> componentRootIds) throws IOException {
+    // components which are not in the last snapshots, for example deleted files with closed issues, are disabled
+    Set<Long> rootIds = Sets.newHashSet(componentRootIds);
+    rootIds.add(issue.getComponentId());
+    rootIds.add(issue.getRootComponentId());
+    return XContentFactory.jsonBuilder()
+      .startObject()
+      .field(IssueDocument.FIELD_KEY, issue.getKee())
+      .field(IssueDocument.FIELD_ID, issue.getId())
+      .field(IssueDocument.FIELD_COMPONENT_ID, issue.getComponentId())
+      .field(IssueDocument.FIELD_COMPONENT_KEY, issue.getComponentKey())
+      .field(IssueDocument.FIELD_COMPONENT_ROOT_IDS, rootIds)
+      .field(IssueDocument.FIELD_ENABLED, !componentRootIds.isEmpty())
+      .field(IssueDocument.FIELD_PROJECT_ID, issue.getRootComponentId())
+      .field(IssueDocument.FIELD_PROJECT_KEY, issue.getRootComponentKey())
+      .field(IssueDocument.FIELD_RULE, RuleKey.of(issue.getRuleRepo(), issue.getRule()).toString())
+      .field(IssueDocument.FIELD_SEVERITY, issue.getSeverity())
+      .field(IssueDocument.FIELD_SEVERITY_INDEX, Severity.ALL.indexOf(issue.getSeverity()))
+      .field(IssueDocument.FIELD_STATUS, issue.getStatus())
+      .field(IssueDocument.FIELD_RESOLUTION, issue.getResolution())
+      .field(IssueDocument.FIELD_REPORTER, issue.getReporter())
+      .field(IssueDocument.FIELD_ASSIGNEE, issue.getAssignee())
+      .field(IssueDocument.FIELD_ACTION_PLAN, issue.getActionPlanKey())
+      .field(IssueDocument.FIELD_CREATED_AT, issue.getIssueCreationDate())
+      .field(IssueDocument.FIELD_UPDATED_AT, issue.getIssueUpdateDate())
+      .field(IssueDocument.FIELD_CLOSED_AT, issue.getIssueCloseDate())
+      .endObject();
+  }
+
+  private StopWatch startWatch() {
+    return profiling.start("issue", Level.BASIC);
+  }
+
+  public static class SearchResult {
+    private final List<String> keys;
+    private final long total;
+
+    SearchResult(List<String> keys, long total) {
+      this.keys = keys;
+      this.total = total;
+    }
+
+    /**
+     * Keys of the requested page of issues
+     */
+    public List<String> keys() {
+      return keys;
+    }
+
+    /**
+     * Total number of issues matching the query
+     */
+    public long total() {
+      return total;
+    }
+  }
+}
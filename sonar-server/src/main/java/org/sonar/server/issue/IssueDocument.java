@@ -0,0 +1,63 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2013 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.issue;
+
+/**
+ * Fields of the documents of the issues index
+ *
+ * @since 4.2
+ */
+public class IssueDocument {
+
+  public static final String FIELD_KEY = "key";
+  public static final String FIELD_ID = "id";
+  public static final String FIELD_COMPONENT_ID = "componentId";
+  public static final String FIELD_COMPONENT_KEY = "componentKey";
+  /**
+   * Ids of the component and of all its ancestors, including the project
+   */
+  public static final String FIELD_COMPONENT_ROOT_IDS = "componentRootIds";
+  /**
+   * False if the component is not in the last analysis of the project, for example deleted files
+   */
+  public static final String FIELD_ENABLED = "enabled";
+  public static final String FIELD_PROJECT_ID = "projectId";
+  public static final String FIELD_PROJECT_KEY = "projectKey";
+  public static final String FIELD_RULE = "rule";
+  public static final String FIELD_SEVERITY = "severity";
+  /**
+   * Index of the severity in {@link org.sonar.api.rule.Severity#ALL}, used to sort by severity
+   */
+  public static final String FIELD_SEVERITY_INDEX = "severityIndex";
+  public static final String FIELD_STATUS = "status";
+  public static final String FIELD_RESOLUTION = "resolution";
+  public static final String FIELD_REPORTER = "reporter";
+  public static final String FIELD_ASSIGNEE = "assignee";
+  public static final String FIELD_ASSIGNEE_SORT = "assignee.raw";
+  public static final String FIELD_ACTION_PLAN = "actionPlan";
+  public static final String FIELD_CREATED_AT = "createdAt";
+  public static final String FIELD_UPDATED_AT = "updatedAt";
+  public static final String FIELD_CLOSED_AT = "closedAt";
+
+  private IssueDocument() {
+    // Only constants
+  }
+
+}
@@ -22,59 +22,58 @@ package org.sonar.server.issue;
 
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
-import com.google.common.collect.Sets;
+import org.elasticsearch.search.facet.Facets;
+import org.elasticsearch.search.facet.terms.TermsFacet;
 import org.sonar.api.ServerComponent;
 import org.sonar.api.issue.IssueQuery;
 import org.sonar.api.user.User;
 import org.sonar.api.user.UserFinder;
-import org.sonar.core.issue.db.IssueStatsColumn;
-import org.sonar.core.issue.db.IssueStatsDao;
 import org.sonar.server.user.UserSession;
 
 import javax.annotation.CheckForNull;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 
 /**
  * @since 3.6
  */
 public class IssueStatsFinder implements ServerComponent {
 
-  private final IssueStatsDao issuestatsDao;
+  private final ESIssue esIssue;
   private final UserFinder userFinder;
 
-  public IssueStatsFinder(IssueStatsDao issuestatsDao, UserFinder userFinder) {
-    this.issuestatsDao = issuestatsDao;
+  public IssueStatsFinder(ESIssue esIssue, UserFinder userFinder) {
+    this.esIssue = esIssue;
     this.userFinder = userFinder;
   }
 
+  /**
+   * Number of issues by assignee, computed by a facet of the issues index
+   */
   public IssueStatsResult findIssueAssignees(IssueQuery query) {
-    List<Object> results = issuestatsDao.selectIssuesColumn(query, IssueStatsColumn.ASSIGNEE, UserSession.get().userId());
-
-    Set<String> users = Sets.newHashSet();
-    for (Object result : results) {
-      if (result != null) {
-        users.add((String) result);
+    IssueStatsResult result = new IssueStatsResult();
+    Facets facets = esIssue.facets(query, UserSession.get().userId(), IssueDocument.FIELD_ASSIGNEE);
+    if (facets != null) {
+      TermsFacet facet = facets.facet(TermsFacet.class, IssueDocument.FIELD_ASSIGNEE);
+      for (TermsFacet.Entry entry : facet.getEntries()) {
+        result.addCount(entry.getTerm().string(), entry.getCount());
       }
+      result.setCountUnassigned(facet.getMissingCount());
     }
-
-    return new IssueStatsResult(results).addUsers(findUsers(users));
+    return result.addUsers(findUsers(result.countsByAssignee().keySet()));
   }
 
-  private Collection<User> findUsers(Set<String> logins) {
+  private Collection<User> findUsers(Collection<String> logins) {
     return userFinder.findByLogins(Lists.newArrayList(logins));
   }
 
   public static class IssueStatsResult {
     private final Map<String, User> usersByLogin = Maps.newHashMap();
-    private List<Object> results;
-
-    public IssueStatsResult(List<Object> results) {
-      this.results = results;
-    }
+    private final Map<String, Long> countsByAssignee = Maps.newLinkedHashMap();
+    private long countUnassigned = 0L;
 
     public IssueStatsResult addUsers(Collection<User> users) {
       for (User user : users) {
@@ -83,7 +82,52 @@ public class IssueStatsFinder implements ServerComponent {
       return this;
     }
 
+    IssueStatsResult addCount(String assignee, long count) {
+      countsByAssignee.put(assignee, count);
+      return this;
+    }
+
+    IssueStatsResult setCountUnassigned(long count) {
+      this.countUnassigned = count;
+      return this;
+    }
+
+    /**
+     * Number of issues by assignee login, sorted by decreasing count
+     *
+     * @since 4.2
+     */
+    public Map<String, Long> countsByAssignee() {
+      return countsByAssignee;
+    }
+
+    /**
+     * @since 4.2
+     */
+    public long countUnassigned() {
+      return countUnassigned;
+    }
+
+    /**
+     * @since 4.2
+     */
+    public boolean isEmpty() {
+      return countsByAssignee.isEmpty() && countUnassigned == 0L;
+    }
+
+    /**
+     * Assignee of each issue, null if not assigned.
+     *
+     * @deprecated since 4.2, replaced by {@link #countsByAssignee()} and {@link #countUnassigned()}, which do not
+     * expand the list of all issues.
+     */
+    @Deprecated
     public List<Object> results() {
+      List<Object> results = Lists.newArrayList();
+      for (Map.Entry<String, Long> entry : countsByAssignee.entrySet()) {
+        results.addAll(Collections.nCopies(entry.getValue().intValue(), entry.getKey()));
+      }
+      results.addAll(Collections.nCopies((int) countUnassigned, null));
       return results;
     }
 
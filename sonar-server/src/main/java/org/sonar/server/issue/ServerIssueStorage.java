@@ -19,6 +19,7 @@
  */
 package org.sonar.server.issue;
 
+import com.google.common.collect.Lists;
 import org.sonar.api.ServerComponent;
 import org.sonar.api.issue.internal.DefaultIssue;
 import org.sonar.api.rules.RuleFinder;
@@ -28,16 +29,37 @@ import org.sonar.core.resource.ResourceDao;
 import org.sonar.core.resource.ResourceDto;
 import org.sonar.core.resource.ResourceQuery;
 
+import java.util.List;
+
 /**
  * @since 3.6
  */
 public class ServerIssueStorage extends IssueStorage implements ServerComponent {
 
   private final ResourceDao resourceDao;
+  private final ESIssue esIssue;
 
-  public ServerIssueStorage(MyBatis mybatis, RuleFinder ruleFinder, ResourceDao resourceDao) {
+  public ServerIssueStorage(MyBatis mybatis, RuleFinder ruleFinder, ResourceDao resourceDao, ESIssue esIssue) {
     super(mybatis, ruleFinder);
     this.resourceDao = resourceDao;
+    this.esIssue = esIssue;
+  }
+
+  /**
+   * Saved issues are indexed again, so that searches return up-to-date issues
+   */
+  @Override
+  public void save(Iterable<DefaultIssue> issues) {
+    List<DefaultIssue> issueList = Lists.newArrayList(issues);
+    super.save(issueList);
+
+    List<String> keys = Lists.newArrayList();
+    for (DefaultIssue issue : issueList) {
+      if (issue.isNew() || issue.isChanged()) {
+        keys.add(issue.key());
+      }
+    }
+    esIssue.bulkIndexIssues(keys);
   }
 
   @Override
@@ -22,6 +22,7 @@ package org.sonar.server.platform;
 import org.apache.commons.configuration.BaseConfiguration;
 import org.slf4j.LoggerFactory;
 import org.sonar.api.config.EmailSettings;
+import org.sonar.api.config.Settings;
 import org.sonar.api.issue.action.Actions;
 import org.sonar.api.platform.ComponentContainer;
 import org.sonar.api.platform.Server;
@@ -46,6 +47,7 @@ import org.sonar.core.issue.IssueNotifications;
 import org.sonar.core.issue.IssueUpdater;
 import org.sonar.core.issue.workflow.FunctionExecutor;
 import org.sonar.core.issue.workflow.IssueWorkflow;
+import org.sonar.core.measure.MeasureFilterCache;
 import org.sonar.core.measure.MeasureFilterEngine;
 import org.sonar.core.measure.MeasureFilterExecutor;
 import org.sonar.core.measure.MeasureFilterFactory;
@@ -270,6 +272,7 @@ public final class Platform {
     servicesContainer.addSingleton(PageDecorations.class);
     servicesContainer.addSingleton(MeasureFilterFactory.class);
     servicesContainer.addSingleton(MeasureFilterExecutor.class);
+    servicesContainer.addSingleton(MeasureFilterCache.class);
     servicesContainer.addSingleton(MeasureFilterEngine.class);
     servicesContainer.addSingleton(PreviewCache.class);
     servicesContainer.addSingleton(DefaultResourcePermissions.class);
@@ -284,6 +287,7 @@ public final class Platform {
     servicesContainer.addSingleton(QProfiles.class);
     servicesContainer.addSingleton(QProfileLookup.class);
     servicesContainer.addSingleton(QProfileOperations.class);
+    servicesContainer.addSingleton(QProfileInheritanceUpdater.class);
     servicesContainer.addSingleton(QProfileActiveRuleOperations.class);
     servicesContainer.addSingleton(QProfileProjectOperations.class);
     servicesContainer.addSingleton(QProfileProjectLookup.class);
@@ -318,6 +322,7 @@ public final class Platform {
     servicesContainer.addSingleton(IssueWorkflow.class);
     servicesContainer.addSingleton(IssueService.class);
     servicesContainer.addSingleton(IssueCommentService.class);
+    servicesContainer.addSingleton(ESIssue.class);
     servicesContainer.addSingleton(DefaultIssueFinder.class);
     servicesContainer.addSingleton(IssueStatsFinder.class);
     servicesContainer.addSingleton(PublicRubyIssueService.class);
@@ -408,34 +413,40 @@ public final class Platform {
 
   private void executeStartupTasks() {
     ComponentContainer startupContainer = servicesContainer.createChild();
-    startupContainer.addSingleton(GwtPublisher.class);
-    startupContainer.addSingleton(RegisterMetrics.class);
     startupContainer.addSingleton(DeprecatedRuleDefinitions.class);
     startupContainer.addSingleton(RuleDefinitionsLoader.class);
-    startupContainer.addSingleton(RuleRegistration.class);
-    startupContainer.addSingleton(RegisterNewProfiles.class);
-    startupContainer.addSingleton(JdbcDriverDeployer.class);
-    startupContainer.addSingleton(RegisterTechnicalDebtModel.class);
-    startupContainer.addSingleton(DeleteDeprecatedMeasures.class);
-    startupContainer.addSingleton(GeneratePluginIndex.class);
-    startupContainer.addSingleton(GenerateBootstrapIndex.class);
-    startupContainer.addSingleton(RegisterNewMeasureFilters.class);
-    startupContainer.addSingleton(RegisterNewDashboards.class);
-    startupContainer.addSingleton(RegisterPermissionTemplates.class);
-    startupContainer.addSingleton(RenameDeprecatedPropertyKeys.class);
-    startupContainer.addSingleton(LogServerId.class);
-    startupContainer.addSingleton(RegisterServletFilters.class);
-    startupContainer.addSingleton(CleanDryRunCache.class);
-    startupContainer.startComponents();
+    DatabaseSessionFactory sessionFactory = servicesContainer.getComponentByType(DatabaseSessionFactory.class);
+    int threads = servicesContainer.getComponentByType(Settings.class).getInt(StartupTasksExecutor.THREADS_PROPERTY);
+    StartupTasksExecutor startupTasks = new StartupTasksExecutor(startupContainer, sessionFactory, threads);
+    // tasks using Hibernate or updating settings
+    startupTasks.addSequential(RegisterMetrics.class);
+    startupTasks.addSequential(RuleRegistration.class);
+    startupTasks.addSequential(RegisterNewProfiles.class);
+    startupTasks.addSequential(RegisterTechnicalDebtModel.class);
+    startupTasks.addSequential(DeleteDeprecatedMeasures.class);
+    startupTasks.addSequential(RegisterPermissionTemplates.class);
+    startupTasks.addSequential(RenameDeprecatedPropertyKeys.class);
+    // tasks using only MyBatis or the file system
+    startupTasks.addConcurrent(GwtPublisher.class);
+    startupTasks.addConcurrent(JdbcDriverDeployer.class);
+    startupTasks.addConcurrent(GeneratePluginIndex.class);
+    startupTasks.addConcurrent(GenerateBootstrapIndex.class);
+    startupTasks.addConcurrent(RegisterNewMeasureFilters.class);
+    startupTasks.addConcurrent(RegisterNewDashboards.class);
+    startupTasks.addConcurrent(LogServerId.class);
+    startupTasks.addConcurrent(RegisterServletFilters.class);
+    startupTasks.addConcurrent(CleanDryRunCache.class);
+    startupTasks.addConcurrent(IndexIssues.class);
+    startupTasks.start();
 
     startupContainer.getComponentByType(ServerLifecycleNotifier.class).notifyStart();
 
     // Do not put the following statements in a finally block.
     // It would hide the possible exception raised during startup
     // See SONAR-3107
-    startupContainer.stopComponents();
+    startupTasks.stop();
     servicesContainer.removeChild();
-    servicesContainer.getComponentByType(DatabaseSessionFactory.class).clear();
+    sessionFactory.clear();
   }
 
   public void stop() {
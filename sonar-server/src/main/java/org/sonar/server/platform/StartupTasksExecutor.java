@@ -0,0 +1,227 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2013 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.platform;
+
+import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.platform.ComponentContainer;
+import org.sonar.api.utils.TimeProfiler;
+import org.sonar.jpa.session.DatabaseSessionFactory;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Starts the tasks executed at server startup. A task is started once the tasks it depends on are completed. Dependencies
+ * are declared as constructor parameters, like for any other component.
+ * <p/>
+ * Sequential tasks, for example the ones which use the Hibernate session shared with the calling thread, are executed
+ * by the calling thread. Concurrent tasks are all submitted before to a pool of threads, which executes them meanwhile.
+ *
+ * @since 4.2
+ */
+class StartupTasksExecutor {
+
+  private static final Logger LOG = LoggerFactory.getLogger(StartupTasksExecutor.class);
+
+  static final String THREADS_PROPERTY = "sonar.startupTasks.threads";
+
+  private final ComponentContainer container;
+  private final DatabaseSessionFactory sessionFactory;
+  private final int threads;
+  private final Map<Class, Boolean> concurrentByTask = Maps.newLinkedHashMap();
+  private final List<Object> startedTasks = Lists.newArrayList();
+
+  StartupTasksExecutor(ComponentContainer container, DatabaseSessionFactory sessionFactory, int threads) {
+    if (threads < 0) {
+      throw new IllegalArgumentException(String.format("Bad value of %s: %d", THREADS_PROPERTY, threads));
+    }
+    this.container = container;
+    this.sessionFactory = sessionFactory;
+    this.threads = threads == 0 ? Runtime.getRuntime().availableProcessors() : threads;
+  }
+
+  StartupTasksExecutor addSequential(Class task) {
+    return add(task, false);
+  }
+
+  StartupTasksExecutor addConcurrent(Class task) {
+    return add(task, true);
+  }
+
+  private StartupTasksExecutor add(Class task, boolean concurrent) {
+    container.addSingleton(task);
+    concurrentByTask.put(task, concurrent);
+    return this;
+  }
+
+  void start() {
+    Map<Class, Future<Void>> futures = Maps.newHashMap();
+    List<FutureTask<Void>> sequentialFutures = Lists.newArrayList();
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      // tasks are scheduled by order of dependencies, so that threads are never all blocked by tasks waiting for
+      // tasks which are not started yet
+      for (Class taskClass : sortByDependencies()) {
+        // components are instantiated by the calling thread
+        Object task = container.getComponentByType(taskClass);
+        startedTasks.add(task);
+        List<Future<Void>> dependencies = Lists.newArrayList();
+        for (Class dependency : dependencies(taskClass)) {
+          dependencies.add(futures.get(dependency));
+        }
+        boolean concurrent = concurrentByTask.get(taskClass);
+        TaskExecution execution = new TaskExecution(task, concurrent, dependencies);
+        if (concurrent) {
+          futures.put(taskClass, executor.submit(execution));
+        } else {
+          FutureTask<Void> future = new FutureTask<Void>(execution);
+          futures.put(taskClass, future);
+          sequentialFutures.add(future);
+        }
+      }
+      // sequential tasks are executed once all the concurrent tasks are submitted, so that they do not delay them
+      for (FutureTask<Void> future : sequentialFutures) {
+        future.run();
+        waitFor(future);
+      }
+      for (Future<Void> future : futures.values()) {
+        waitFor(future);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  void stop() {
+    for (Object task : Lists.reverse(startedTasks)) {
+      invoke(task, "stop");
+    }
+    startedTasks.clear();
+  }
+
+  private List<Class> sortByDependencies() {
+    List<Class> sorted = Lists.newArrayList();
+    Set<Class> visiting = Sets.newHashSet();
+    for (Class task : concurrentByTask.keySet()) {
+      visit(task, sorted, visiting);
+    }
+    return sorted;
+  }
+
+  private void visit(Class task, List<Class> sorted, Set<Class> visiting) {
+    if (!sorted.contains(task)) {
+      if (!visiting.add(task)) {
+        throw new IllegalStateException("Cycle in the dependencies of startup task " + task.getName());
+      }
+      for (Class dependency : dependencies(task)) {
+        visit(dependency, sorted, visiting);
+      }
+      sorted.add(task);
+    }
+  }
+
+  /**
+   * Registered tasks which are constructor parameters of the given task
+   */
+  Collection<Class> dependencies(Class task) {
+    Set<Class> result = Sets.newLinkedHashSet();
+    for (Constructor constructor : task.getConstructors()) {
+      for (Class parameterType : constructor.getParameterTypes()) {
+        Class type = parameterType.isArray() ? parameterType.getComponentType() : parameterType;
+        for (Class other : concurrentByTask.keySet()) {
+          if (!other.equals(task) && type.isAssignableFrom(other)) {
+            result.add(other);
+          }
+        }
+      }
+    }
+    return result;
+  }
+
+  private static void waitFor(Future<Void> future) {
+    try {
+      future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while executing startup tasks", e);
+    } catch (ExecutionException e) {
+      throw Throwables.propagate(e.getCause());
+    }
+  }
+
+  private static void invoke(Object task, String methodName) {
+    try {
+      Method method = task.getClass().getMethod(methodName);
+      method.invoke(task);
+    } catch (NoSuchMethodException e) {
+      // lifecycle methods are optional
+    } catch (InvocationTargetException e) {
+      throw Throwables.propagate(e.getCause());
+    } catch (IllegalAccessException e) {
+      throw new IllegalStateException("Unable to " + methodName + " " + task.getClass().getName(), e);
+    }
+  }
+
+  private final class TaskExecution implements Callable<Void> {
+    private final Object task;
+    private final boolean concurrent;
+    private final List<Future<Void>> dependencies;
+
+    TaskExecution(Object task, boolean concurrent, List<Future<Void>> dependencies) {
+      this.task = task;
+      this.concurrent = concurrent;
+      this.dependencies = dependencies;
+    }
+
+    @Override
+    public Void call() throws Exception {
+      for (Future<Void> dependency : dependencies) {
+        dependency.get();
+      }
+      TimeProfiler profiler = new TimeProfiler(LOG).start("Execute " + task.getClass().getSimpleName());
+      try {
+        invoke(task, "start");
+      } finally {
+        if (concurrent) {
+          // sessions of pool threads would never be closed
+          sessionFactory.clear();
+        }
+      }
+      profiler.stop();
+      return null;
+    }
+  }
+}
@@ -23,6 +23,7 @@ import com.google.common.base.Function;
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Multimap;
+import com.google.common.collect.Sets;
 import org.apache.ibatis.session.SqlSession;
 import org.elasticsearch.common.io.BytesStream;
 import org.elasticsearch.common.xcontent.XContentBuilder;
@@ -45,6 +46,7 @@ import org.sonar.server.rule.RuleRegistry;
 import java.io.IOException;
 import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 
 import static com.google.common.collect.Lists.newArrayList;
 
@@ -88,6 +90,47 @@ public class ESActiveRule {
     }
   }
 
+  /**
+   * Same as {@link #bulkRegisterActiveRules()} but only the active rules of <code>updatedRuleIds</code> are indexed, as long as
+   * the index already contains all the other active rules. All the active rules are indexed when some of them are missing,
+   * for example when profiles have been created or when the index has been dropped.
+   *
+   * @since 4.2
+   */
+  public void bulkUpdateActiveRules(Collection<Integer> updatedRuleIds) {
+    SqlSession session = myBatis.openSession();
+    try {
+      StopWatch bulkWatch = startWatch();
+      List<ActiveRuleDto> activeRules = activeRuleDao.selectAll(session);
+      List<ActiveRuleParamDto> activeRuleParams = activeRuleDao.selectAllParams(session);
+      bulkWatch.stop(String.format("Loaded %d active rules from DB", activeRules.size()));
+
+      Multimap<Integer, ActiveRuleParamDto> paramsByActiveRule = ArrayListMultimap.create();
+      for (ActiveRuleParamDto param : activeRuleParams) {
+        paramsByActiveRule.put(param.getActiveRuleId(), param);
+      }
+
+      List<String> indexIds = esIndex.findDocumentIds(SearchQuery.create().index(RuleRegistry.INDEX_RULES).type(ESActiveRule.TYPE_ACTIVE_RULE));
+      Set<String> ids = Sets.newHashSet();
+      List<ActiveRuleDto> updatedActiveRules = newArrayList();
+      for (ActiveRuleDto activeRule : activeRules) {
+        ids.add(activeRule.getId().toString());
+        if (updatedRuleIds.contains(activeRule.getRulId())) {
+          updatedActiveRules.add(activeRule);
+        }
+      }
+      if (Sets.newHashSet(indexIds).containsAll(ids)) {
+        bulkIndexActiveRules(updatedActiveRules, paramsByActiveRule);
+      } else {
+        bulkIndexActiveRules(activeRules, paramsByActiveRule);
+      }
+      indexIds.removeAll(ids);
+      bulkDeleteActiveRules(indexIds);
+    } finally {
+      MyBatis.closeQuietly(session);
+    }
+  }
+
   public void bulkIndexProfile(int profileId, SqlSession session) {
     bulkIndexActiveRules(activeRuleDao.selectByProfileId(profileId, session), session);
   }
@@ -0,0 +1,364 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2013 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package org.sonar.server.qualityprofile;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.apache.commons.lang.ObjectUtils;
+import org.apache.commons.lang.StringUtils;
+import org.apache.ibatis.session.SqlSession;
+import org.sonar.api.ServerComponent;
+import org.sonar.api.utils.System2;
+import org.sonar.core.qualityprofile.db.ActiveRuleChangeDto;
+import org.sonar.core.qualityprofile.db.ActiveRuleDao;
+import org.sonar.core.qualityprofile.db.ActiveRuleDto;
+import org.sonar.core.qualityprofile.db.ActiveRuleParamChangeDto;
+import org.sonar.core.qualityprofile.db.ActiveRuleParamDto;
+import org.sonar.core.qualityprofile.db.QualityProfileDao;
+import org.sonar.core.qualityprofile.db.QualityProfileDto;
+import org.sonar.server.configuration.ProfilesManager.RuleInheritanceActions;
+
+import javax.annotation.Nullable;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Propagates the change of parent of a profile to the profile and to its descendants. Instead of walking the tree
+ * rule by rule, the active rules of the whole tree are loaded at once, then the inherited rules are computed
+ * and persisted by bulk operations, level by level.
+ *
+ * @since 4.2
+ */
+public class QProfileInheritanceUpdater implements ServerComponent {
+
+  private final QualityProfileDao profileDao;
+  private final ActiveRuleDao activeRuleDao;
+  private final System2 system;
+
+  public QProfileInheritanceUpdater(QualityProfileDao profileDao, ActiveRuleDao activeRuleDao) {
+    this(profileDao, activeRuleDao, System2.INSTANCE);
+  }
+
+  @VisibleForTesting
+  QProfileInheritanceUpdater(QualityProfileDao profileDao, ActiveRuleDao activeRuleDao, System2 system) {
+    this.profileDao = profileDao;
+    this.activeRuleDao = activeRuleDao;
+    this.system = system;
+  }
+
+  /**
+   * Updates the active rules of the profile and of its descendants, as if the profile inherited from newParent.
+   * The parent name of the profile itself is not changed. Changes are not committed.
+   *
+   * @return the active rules to be re-indexed
+   */
+  public RuleInheritanceActions parentChanged(QualityProfileDto profile, @Nullable QualityProfileDto newParent, @Nullable String userName, SqlSession session) {
+    Map<Integer, QualityProfileDto> parentByProfileId = Maps.newHashMap();
+    List<List<QualityProfileDto>> levels = levels(profile, newParent, parentByProfileId, session);
+
+    Set<Integer> profileIds = Sets.newHashSet(parentByProfileId.keySet());
+    if (newParent != null) {
+      profileIds.add(newParent.getId());
+    }
+    ActiveRules activeRules = new ActiveRules(activeRuleDao.selectByProfileIds(profileIds, session), activeRuleDao.selectParamsByProfileIds(profileIds, session));
+
+    Propagation propagation = new Propagation(userName, new Date(system.now()), activeRules, session);
+    for (List<QualityProfileDto> level : levels) {
+      for (QualityProfileDto levelProfile : level) {
+        QualityProfileDto parent = parentByProfileId.get(levelProfile.getId());
+        propagation.inherit(levelProfile, parent != null ? activeRules.byRuleId(parent.getId()) : Collections.<Integer, ActiveRuleDto>emptyMap());
+      }
+      propagation.flush();
+    }
+    return propagation.actions;
+  }
+
+  /**
+   * Profile then its descendants, grouped by depth. Parents are always in the previous level.
+   */
+  private List<List<QualityProfileDto>> levels(QualityProfileDto profile, @Nullable QualityProfileDto newParent,
+                                               Map<Integer, QualityProfileDto> parentByProfileId, SqlSession session) {
+    ListMultimap<String, QualityProfileDto> childrenByParentName = ArrayListMultimap.create();
+    for (QualityProfileDto other : profileDao.selectByLanguage(profile.getLanguage(), session)) {
+      if (other.getParent() != null && !other.getId().equals(profile.getId())) {
+        childrenByParentName.put(other.getParent(), other);
+      }
+    }
+
+    List<List<QualityProfileDto>> levels = Lists.newArrayList();
+    // the given instance is used, so that changes of version are not lost by the caller
+    parentByProfileId.put(profile.getId(), newParent);
+    List<QualityProfileDto> level = Collections.singletonList(profile);
+    while (!level.isEmpty()) {
+      levels.add(level);
+      List<QualityProfileDto> nextLevel = Lists.newArrayList();
+      for (QualityProfileDto parent : level) {
+        for (QualityProfileDto child : childrenByParentName.get(parent.getName())) {
+          if (!parentByProfileId.containsKey(child.getId())) {
+            parentByProfileId.put(child.getId(), parent);
+            nextLevel.add(child);
+          }
+        }
+      }
+      level = nextLevel;
+    }
+    return levels;
+  }
+
+  /**
+   * In-memory state of the active rules of the browsed profiles
+   */
+  private static class ActiveRules {
+    private final Map<Integer, Map<Integer, ActiveRuleDto>> byProfileId = Maps.newHashMap();
+    private final ListMultimap<Integer, ActiveRuleParamDto> paramsByActiveRuleId = ArrayListMultimap.create();
+
+    ActiveRules(Collection<ActiveRuleDto> activeRules, Collection<ActiveRuleParamDto> params) {
+      for (ActiveRuleDto activeRule : activeRules) {
+        byRuleId(activeRule.getProfileId()).put(activeRule.getRulId(), activeRule);
+      }
+      for (ActiveRuleParamDto param : params) {
+        paramsByActiveRuleId.put(param.getActiveRuleId(), param);
+      }
+    }
+
+    Map<Integer, ActiveRuleDto> byRuleId(int profileId) {
+      Map<Integer, ActiveRuleDto> result = byProfileId.get(profileId);
+      if (result == null) {
+        result = Maps.newHashMap();
+        byProfileId.put(profileId, result);
+      }
+      return result;
+    }
+
+    List<ActiveRuleParamDto> params(ActiveRuleDto activeRule) {
+      return paramsByActiveRuleId.get(activeRule.getId());
+    }
+  }
+
+  private class Propagation {
+    private final String userName;
+    private final Date date;
+    private final ActiveRules activeRules;
+    private final SqlSession session;
+    private final RuleInheritanceActions actions = new RuleInheritanceActions();
+    private final Set<Integer> versionedProfileIds = Sets.newHashSet();
+
+    // changes of the current level
+    private final List<Integer> idsToDelete = Lists.newArrayList();
+    private final List<Integer> idsToOverride = Lists.newArrayList();
+    private final List<Integer> idsToDetach = Lists.newArrayList();
+
+    Propagation(@Nullable String userName, Date date, ActiveRules activeRules, SqlSession session) {
+      this.userName = userName;
+      this.date = date;
+      this.activeRules = activeRules;
+      this.session = session;
+    }
+
+    void inherit(QualityProfileDto profile, Map<Integer, ActiveRuleDto> parentRules) {
+      Map<Integer, ActiveRuleDto> rules = activeRules.byRuleId(profile.getId());
+      for (ActiveRuleDto activeRule : Lists.newArrayList(rules.values())) {
+        ActiveRuleDto parentRule = parentRules.get(activeRule.getRulId());
+        if (activeRule.isInherited()) {
+          if (parentRule == null) {
+            recordChange(profile, activeRule, Boolean.FALSE, activeRule, null);
+            idsToDelete.add(activeRule.getId());
+            rules.remove(activeRule.getRulId());
+          } else {
+            update(profile, activeRule, parentRule);
+          }
+        } else if (activeRule.doesOverride() && parentRule == null) {
+          activeRule.setInheritance(null);
+          idsToDetach.add(activeRule.getId());
+        } else if (!activeRule.doesOverride() && parentRule != null) {
+          activeRule.setInheritance(ActiveRuleDto.OVERRIDES);
+          idsToOverride.add(activeRule.getId());
+        }
+      }
+      for (ActiveRuleDto parentRule : parentRules.values()) {
+        if (!rules.containsKey(parentRule.getRulId())) {
+          rules.put(parentRule.getRulId(), insert(profile, parentRule));
+        }
+      }
+    }
+
+    private void update(QualityProfileDto profile, ActiveRuleDto activeRule, ActiveRuleDto parentRule) {
+      boolean severityChanged = !ObjectUtils.equals(activeRule.getSeverity(), parentRule.getSeverity());
+      List<ActiveRuleParamDto> params = activeRules.params(activeRule);
+      boolean paramsChanged = !paramValues(params).equals(paramValues(activeRules.params(parentRule)));
+      if (!severityChanged && !paramsChanged) {
+        return;
+      }
+      recordChange(profile, activeRule, null, activeRule, parentRule);
+      if (severityChanged) {
+        activeRule.setSeverity(parentRule.getSeverity());
+        activeRuleDao.update(activeRule, session);
+      }
+      if (paramsChanged) {
+        Map<String, ActiveRuleParamDto> oldParamsByKey = Maps.newHashMap();
+        for (ActiveRuleParamDto param : params) {
+          oldParamsByKey.put(param.getKey(), param);
+        }
+        List<ActiveRuleParamDto> newParams = Lists.newArrayList();
+        for (ActiveRuleParamDto parentParam : activeRules.params(parentRule)) {
+          ActiveRuleParamDto param = oldParamsByKey.remove(parentParam.getKey());
+          if (param == null) {
+            param = copy(parentParam, activeRule.getId());
+            activeRuleDao.insert(param, session);
+          } else if (!StringUtils.equals(param.getValue(), parentParam.getValue())) {
+            param.setValue(parentParam.getValue());
+            activeRuleDao.update(param, session);
+          }
+          newParams.add(param);
+        }
+        for (ActiveRuleParamDto removedParam : oldParamsByKey.values()) {
+          activeRuleDao.deleteParameter(removedParam.getId(), session);
+        }
+        activeRules.paramsByActiveRuleId.replaceValues(activeRule.getId(), newParams);
+      }
+      actions.addToIndex(activeRule.getId());
+    }
+
+    private ActiveRuleDto insert(QualityProfileDto profile, ActiveRuleDto parentRule) {
+      ActiveRuleDto activeRule = new ActiveRuleDto()
+        .setProfileId(profile.getId())
+        .setRuleId(parentRule.getRulId())
+        .setSeverity(parentRule.getSeverity())
+        .setInheritance(ActiveRuleDto.INHERITED);
+      activeRuleDao.insert(activeRule, session);
+      for (ActiveRuleParamDto parentParam : activeRules.params(parentRule)) {
+        ActiveRuleParamDto param = copy(parentParam, activeRule.getId());
+        activeRuleDao.insert(param, session);
+        activeRules.paramsByActiveRuleId.put(activeRule.getId(), param);
+      }
+      recordChange(profile, activeRule, Boolean.TRUE, null, activeRule);
+      actions.addToIndex(activeRule.getId());
+      return activeRule;
+    }
+
+    /**
+     * Executes the bulk operations of the current level
+     */
+    void flush() {
+      if (!idsToDelete.isEmpty()) {
+        activeRuleDao.deleteParametersByActiveRuleIds(idsToDelete, session);
+        activeRuleDao.deleteByIds(idsToDelete, session);
+        for (Integer id : idsToDelete) {
+          activeRules.paramsByActiveRuleId.removeAll(id);
+          actions.addToDelete(id);
+        }
+      }
+      if (!idsToOverride.isEmpty()) {
+        activeRuleDao.updateInheritance(idsToOverride, ActiveRuleDto.OVERRIDES, session);
+      }
+      if (!idsToDetach.isEmpty()) {
+        activeRuleDao.updateInheritance(idsToDetach, null, session);
+      }
+      for (Integer id : idsToOverride) {
+        actions.addToIndex(id);
+      }
+      for (Integer id : idsToDetach) {
+        actions.addToIndex(id);
+      }
+      idsToDelete.clear();
+      idsToOverride.clear();
+      idsToDetach.clear();
+    }
+
+    private void recordChange(QualityProfileDto profile, ActiveRuleDto activeRule, @Nullable Boolean enabled,
+                              @Nullable ActiveRuleDto oldRule, @Nullable ActiveRuleDto newRule) {
+      incrementVersionIfNeeded(profile);
+      ActiveRuleChangeDto change = new ActiveRuleChangeDto()
+        .setUserName(userName)
+        .setProfileId(profile.getId())
+        .setProfileVersion(profile.getVersion())
+        .setRuleId(activeRule.getRulId())
+        .setChangeDate(date)
+        .setEnabled(enabled);
+      Integer oldSeverity = oldRule != null ? oldRule.getSeverity() : null;
+      Integer newSeverity = newRule != null ? newRule.getSeverity() : null;
+      if (!ObjectUtils.equals(oldSeverity, newSeverity)) {
+        change.setOldSeverity(oldSeverity);
+        change.setNewSeverity(newSeverity);
+      }
+      activeRuleDao.insert(change, session);
+
+      Map<String, ActiveRuleParamDto> oldParams = paramsByKey(oldRule);
+      Map<String, ActiveRuleParamDto> newParams = paramsByKey(newRule);
+      for (String key : Sets.union(oldParams.keySet(), newParams.keySet())) {
+        ActiveRuleParamDto oldParam = oldParams.get(key);
+        ActiveRuleParamDto newParam = newParams.get(key);
+        String oldValue = oldParam != null ? oldParam.getValue() : null;
+        String newValue = newParam != null ? newParam.getValue() : null;
+        if (!StringUtils.equals(oldValue, newValue)) {
+          activeRuleDao.insert(new ActiveRuleParamChangeDto()
+            .setActiveRuleChangeId(change.getId())
+            .setRulesParameterId(oldParam != null ? oldParam.getRulesParameterId() : newParam.getRulesParameterId())
+            .setOldValue(oldValue)
+            .setNewValue(newValue), session);
+        }
+      }
+    }
+
+    private void incrementVersionIfNeeded(QualityProfileDto profile) {
+      if (versionedProfileIds.add(profile.getId()) && profile.isUsed()) {
+        profile.setVersion(profile.getVersion() + 1);
+        profile.setUsed(false);
+        profileDao.update(profile, session);
+      }
+    }
+
+    private Map<String, ActiveRuleParamDto> paramsByKey(@Nullable ActiveRuleDto activeRule) {
+      Map<String, ActiveRuleParamDto> result = Maps.newHashMap();
+      if (activeRule != null) {
+        for (ActiveRuleParamDto param : activeRules.params(activeRule)) {
+          result.put(param.getKey(), param);
+        }
+      }
+      return result;
+    }
+  }
+
+  private static Map<String, String> paramValues(List<ActiveRuleParamDto> params) {
+    Map<String, String> result = Maps.newHashMap();
+    for (ActiveRuleParamDto param : params) {
+      result.put(param.getKey(), param.getValue());
+    }
+    return result;
+  }
+
+  private static ActiveRuleParamDto copy(ActiveRuleParamDto param, Integer activeRuleId) {
+    return new ActiveRuleParamDto()
+      .setActiveRuleId(activeRuleId)
+      .setRulesParameterId(param.getRulesParameterId())
+      .setKey(param.getKey())
+      .setValue(param.getValue());
+  }
+}
@@ -53,9 +53,11 @@ public class QProfileOperations implements ServerComponent {
   private final ESActiveRule esActiveRule;
   private final QProfileLookup profileLookup;
   private final ProfilesManager profilesManager;
+  private final QProfileInheritanceUpdater inheritanceUpdater;
 
   public QProfileOperations(MyBatis myBatis, QualityProfileDao dao, ActiveRuleDao activeRuleDao, PropertiesDao propertiesDao,
-                            QProfileRepositoryExporter exporter, PreviewCache dryRunCache, ESActiveRule esActiveRule, QProfileLookup profileLookup, ProfilesManager profilesManager) {
+                            QProfileRepositoryExporter exporter, PreviewCache dryRunCache, ESActiveRule esActiveRule, QProfileLookup profileLookup, ProfilesManager profilesManager,
+                            QProfileInheritanceUpdater inheritanceUpdater) {
     this.myBatis = myBatis;
     this.dao = dao;
     this.activeRuleDao = activeRuleDao;
@@ -65,6 +67,7 @@ public class QProfileOperations implements ServerComponent {
     this.esActiveRule = esActiveRule;
     this.profileLookup = profileLookup;
     this.profilesManager = profilesManager;
+    this.inheritanceUpdater = inheritanceUpdater;
   }
 
   public QProfileResult newProfile(String name, String language, Map<String, String> xmlProfilesByPlugin, UserSession userSession) {
@@ -176,12 +179,11 @@ public class QProfileOperations implements ServerComponent {
       if (isCycle(profile, parentProfile, session)) {
         throw new BadRequestException("Please do not select a child profile as parent.");
       }
-      String newParentName = parentProfile != null ? parentProfile.getName() : null;
-      // Modification of inheritance has to be done before setting new parent name in order to be able to disable rules from old parent
-      ProfilesManager.RuleInheritanceActions actions = profilesManager.profileParentChanged(profile.getId(), newParentName, userSession.name());
-      profile.setParent(newParentName);
+      ProfilesManager.RuleInheritanceActions actions = inheritanceUpdater.parentChanged(profile, parentProfile, userSession.name(), session);
+      profile.setParent(parentProfile != null ? parentProfile.getName() : null);
       dao.update(profile, session);
       session.commit();
+      dryRunCache.reportGlobalModification();
 
       esActiveRule.deleteActiveRules(actions.idsToDelete());
       esActiveRule.bulkIndexActiveRuleIds(actions.idsToIndex(), session);
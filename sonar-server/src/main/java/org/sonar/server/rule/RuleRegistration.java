@@ -19,13 +19,16 @@
  */
 package org.sonar.server.rule;
 
+import com.google.common.base.Charsets;
 import com.google.common.collect.*;
+import org.apache.commons.codec.binary.Hex;
 import org.apache.commons.lang.ObjectUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.ibatis.session.SqlSession;
 import org.picocontainer.Startable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.sonar.api.platform.Server;
 import org.sonar.api.rule.RuleKey;
 import org.sonar.api.rules.Rule;
 import org.sonar.api.rules.RulePriority;
@@ -36,14 +39,24 @@ import org.sonar.check.Cardinality;
 import org.sonar.core.persistence.MyBatis;
 import org.sonar.core.qualityprofile.db.ActiveRuleDao;
 import org.sonar.core.rule.*;
+import org.sonar.core.template.LoadedTemplateDao;
+import org.sonar.core.template.LoadedTemplateDto;
 import org.sonar.server.configuration.ProfilesManager;
 
 import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
 
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
 
 /**
- * Register rules at server startup
+ * Register rules at server startup.
+ * <p/>
+ * A fingerprint of the definitions of each repository is persisted in the table LOADED_TEMPLATES. Repositories with
+ * unchanged fingerprint are neither merged into database nor reindexed, unless some of their rules have been
+ * disabled in the meantime (for example when the plugin was uninstalled then reinstalled). The fingerprints of
+ * repositories that are not defined anymore are deleted.
  * @since 4.2
  */
 public class RuleRegistration implements Startable {
@@ -58,11 +71,15 @@ public class RuleRegistration implements Startable {
   private final RuleTagDao ruleTagDao;
   private final RuleTagOperations ruleTagOperations;
   private final ActiveRuleDao activeRuleDao;
+  private final LoadedTemplateDao loadedTemplateDao;
+  private final Server server;
   private final System2 system = System2.INSTANCE;
+  private final Set<Integer> updatedRuleIds = Sets.newHashSet();
 
   public RuleRegistration(RuleDefinitionsLoader defLoader, ProfilesManager profilesManager,
                           RuleRegistry ruleRegistry, ESRuleTags esRuleTags, RuleTagOperations ruleTagOperations,
-                          MyBatis myBatis, RuleDao ruleDao, RuleTagDao ruleTagDao, ActiveRuleDao activeRuleDao) {
+                          MyBatis myBatis, RuleDao ruleDao, RuleTagDao ruleTagDao, ActiveRuleDao activeRuleDao,
+                          LoadedTemplateDao loadedTemplateDao, Server server) {
     this.defLoader = defLoader;
     this.profilesManager = profilesManager;
     this.ruleRegistry = ruleRegistry;
@@ -72,6 +89,8 @@ public class RuleRegistration implements Startable {
     this.ruleDao = ruleDao;
     this.ruleTagDao = ruleTagDao;
     this.activeRuleDao = activeRuleDao;
+    this.loadedTemplateDao = loadedTemplateDao;
+    this.server = server;
   }
 
   @Override
@@ -81,11 +100,18 @@ public class RuleRegistration implements Startable {
     try {
       Buffer buffer = new Buffer(system.now());
       selectRulesFromDb(buffer, sqlSession);
+      selectFingerprints(buffer);
       enableRuleDefinitions(buffer, sqlSession);
       processRemainingDbRules(buffer, sqlSession);
       index(buffer);
+      updatedRuleIds.clear();
+      for (RuleDto updatedRule : buffer.updatedRules) {
+        updatedRuleIds.add(updatedRule.getId());
+      }
       ruleTagOperations.deleteUnusedTags(sqlSession);
       sqlSession.commit();
+      // fingerprints are saved only when rules are successfully registered
+      saveFingerprints(buffer);
 
     } finally {
       sqlSession.close();
@@ -98,6 +124,13 @@ public class RuleRegistration implements Startable {
     // nothing
   }
 
+  /**
+   * Ids of the rules inserted, updated or disabled at startup, so that only their active rules are indexed.
+   */
+  public Set<Integer> updatedRuleIds() {
+    return updatedRuleIds;
+  }
+
   private void selectRulesFromDb(Buffer buffer, SqlSession sqlSession) {
     for (RuleDto ruleDto : ruleDao.selectNonManual(sqlSession)) {
       buffer.add(ruleDto);
@@ -114,20 +147,104 @@ public class RuleRegistration implements Startable {
     }
   }
 
+  private void selectFingerprints(Buffer buffer) {
+    for (LoadedTemplateDto template : loadedTemplateDao.selectByType(LoadedTemplateDto.RULE_REPOSITORY_TYPE)) {
+      buffer.add(template);
+    }
+  }
+
   private void enableRuleDefinitions(Buffer buffer, SqlSession sqlSession) {
     RuleDefinitions.Context context = defLoader.load();
     for (RuleDefinitions.Repository repoDef : context.repositories()) {
-      enableRepository(buffer, sqlSession, repoDef);
+      List<RuleDefinitions.ExtendedRepository> extendedRepoDefs = context.extendedRepositories(repoDef.key());
+      String fingerprint = fingerprint(repoDef, extendedRepoDefs);
+      buffer.markRepositoryDefined(repoDef.key());
+      if (fingerprint.equals(buffer.fingerprint(repoDef.key())) && !hasRemovedRules(buffer, repoDef, extendedRepoDefs)) {
+        LOG.debug(String.format("Rules of repository %s are unchanged", repoDef.key()));
+        buffer.markRepositoryProcessed(repoDef.key());
+      } else {
+        enableRepository(buffer, sqlSession, repoDef);
+        for (RuleDefinitions.ExtendedRepository extendedRepoDef : extendedRepoDefs) {
+          enableRepository(buffer, sqlSession, extendedRepoDef);
+        }
+        buffer.setFingerprint(repoDef.key(), fingerprint);
+      }
     }
     for (RuleDefinitions.ExtendedRepository extendedRepoDef : context.extendedRepositories()) {
       if (context.repository(extendedRepoDef.key())==null) {
         LOG.warn(String.format("Extension is ignored, repository %s does not exist", extendedRepoDef.key()));
-      } else {
-        enableRepository(buffer, sqlSession, extendedRepoDef);
       }
     }
   }
 
+  /**
+   * Rules that are defined but missing or disabled in database must be registered even if the definitions did not change.
+   */
+  private static boolean hasRemovedRules(Buffer buffer, RuleDefinitions.Repository repoDef, List<RuleDefinitions.ExtendedRepository> extendedRepoDefs) {
+    List<RuleDefinitions.ExtendedRepository> repoDefs = Lists.newArrayList();
+    repoDefs.add(repoDef);
+    repoDefs.addAll(extendedRepoDefs);
+    for (RuleDefinitions.ExtendedRepository def : repoDefs) {
+      for (RuleDefinitions.Rule ruleDef : def.rules()) {
+        RuleDto dto = buffer.rule(RuleKey.of(repoDef.key(), ruleDef.key()));
+        if (dto == null || Rule.STATUS_REMOVED.equals(dto.getStatus())) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * The fingerprint covers all the fields merged into database, and the server version as registration can change
+   * between versions.
+   */
+  private String fingerprint(RuleDefinitions.Repository repoDef, List<RuleDefinitions.ExtendedRepository> extendedRepoDefs) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-1");
+      update(digest, server.getVersion());
+      update(digest, repoDef.key());
+      update(digest, repoDef.language());
+      updateRules(digest, repoDef);
+      for (RuleDefinitions.ExtendedRepository extendedRepoDef : extendedRepoDefs) {
+        update(digest, extendedRepoDef.language());
+        updateRules(digest, extendedRepoDef);
+      }
+      return Hex.encodeHexString(digest.digest());
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("Unable to compute fingerprint of rules", e);
+    }
+  }
+
+  private static void updateRules(MessageDigest digest, RuleDefinitions.ExtendedRepository repoDef) {
+    for (RuleDefinitions.Rule ruleDef : repoDef.rules()) {
+      update(digest, ruleDef.key());
+      update(digest, ruleDef.name());
+      update(digest, ruleDef.htmlDescription());
+      update(digest, ruleDef.engineKey());
+      update(digest, ruleDef.severity());
+      update(digest, String.valueOf(ruleDef.template()));
+      update(digest, ruleDef.status().name());
+      for (String tag : Ordering.natural().sortedCopy(ruleDef.tags())) {
+        update(digest, tag);
+      }
+      for (RuleDefinitions.Param param : ruleDef.params()) {
+        update(digest, param.key());
+        update(digest, param.type().toString());
+        update(digest, param.defaultValue());
+        update(digest, param.description());
+      }
+    }
+  }
+
+  private static void update(MessageDigest digest, @Nullable String value) {
+    if (value != null) {
+      digest.update(value.getBytes(Charsets.UTF_8));
+    }
+    // separator, so that fields can not be confused
+    digest.update((byte) 0);
+  }
+
   private void enableRepository(Buffer buffer, SqlSession sqlSession, RuleDefinitions.ExtendedRepository repoDef) {
     int count = 0;
     for (RuleDefinitions.Rule ruleDef : repoDef.rules()) {
@@ -138,6 +255,7 @@ public class RuleRegistration implements Startable {
         enableAndUpdate(buffer, sqlSession, ruleDef, dto);
       }
       buffer.markProcessed(dto);
+      buffer.markUpdated(dto);
       count++;
       if (count % 100 == 0) {
         sqlSession.commit();
@@ -332,6 +450,10 @@ public class RuleRegistration implements Startable {
     List<Integer> removedIds = Lists.newArrayList();
     for (Integer unprocessedRuleId : buffer.unprocessedRuleIds) {
       RuleDto ruleDto = buffer.rulesById.get(unprocessedRuleId);
+      if (Rule.STATUS_REMOVED.equals(ruleDto.getStatus())) {
+        // already disabled at previous startups
+        continue;
+      }
       boolean toBeRemoved = true;
       if (ruleDto.getParentId() != null && !ruleDto.getStatus().equals(Rule.STATUS_REMOVED)) {
         RuleDto parent = buffer.rulesById.get(ruleDto.getParentId());
@@ -341,6 +463,7 @@ public class RuleRegistration implements Startable {
           ruleDto.setStatus(parent.getStatus());
           ruleDto.setUpdatedAt(buffer.now());
           ruleDao.update(ruleDto, sqlSession);
+          buffer.markUpdated(ruleDto);
           toBeRemoved = false;
         }
       }
@@ -353,6 +476,7 @@ public class RuleRegistration implements Startable {
           ruleDao.deleteTag(removed, sqlSession);
         }
         ruleDao.update(ruleDto, sqlSession);
+        buffer.markUpdated(ruleDto);
         removedIds.add(ruleDto.getId());
         if (removedIds.size() % 100 == 0) {
           sqlSession.commit();
@@ -368,18 +492,45 @@ public class RuleRegistration implements Startable {
   }
 
   private void index(Buffer buffer) {
-    ruleRegistry.bulkRegisterRules(buffer.rulesById.values(), buffer.paramsByRuleId, buffer.tagsByRuleId);
+    ruleRegistry.bulkUpdateRules(buffer.rulesById.values(), buffer.updatedRules, buffer.paramsByRuleId, buffer.tagsByRuleId);
     esRuleTags.putAllTags(buffer.referenceTagsByTagValue.values());
   }
 
+  private void saveFingerprints(Buffer buffer) {
+    for (Map.Entry<String, String> entry : buffer.updatedFingerprints.entrySet()) {
+      String key = fingerprintKey(entry.getKey(), entry.getValue());
+      LoadedTemplateDto template = buffer.fingerprintTemplates.get(entry.getKey());
+      if (template == null) {
+        loadedTemplateDao.insert(new LoadedTemplateDto(key, LoadedTemplateDto.RULE_REPOSITORY_TYPE));
+      } else {
+        loadedTemplateDao.update(template.setKey(key));
+      }
+    }
+    for (Map.Entry<String, LoadedTemplateDto> entry : buffer.fingerprintTemplates.entrySet()) {
+      if (!buffer.definedRepositoryKeys.contains(entry.getKey())) {
+        // repository has been uninstalled, its rules are disabled
+        loadedTemplateDao.delete(entry.getValue());
+      }
+    }
+  }
+
+  private static String fingerprintKey(String repositoryKey, String fingerprint) {
+    return repositoryKey + ":" + fingerprint;
+  }
+
   static class Buffer {
     private Date now;
-    private List<Integer> unprocessedRuleIds = Lists.newArrayList();
+    private Set<Integer> unprocessedRuleIds = Sets.newLinkedHashSet();
+    private Set<RuleDto> updatedRules = Sets.newLinkedHashSet();
     private Map<RuleKey, RuleDto> rulesByKey = Maps.newHashMap();
     private Map<Integer, RuleDto> rulesById = Maps.newHashMap();
+    private Multimap<String, RuleDto> rulesByRepository = ArrayListMultimap.create();
     private Multimap<Integer, RuleParamDto> paramsByRuleId = ArrayListMultimap.create();
     private Multimap<Integer, RuleRuleTagDto> tagsByRuleId = ArrayListMultimap.create();
     private Map<String, RuleTagDto> referenceTagsByTagValue = Maps.newHashMap();
+    private Map<String, LoadedTemplateDto> fingerprintTemplates = Maps.newHashMap();
+    private Map<String, String> updatedFingerprints = Maps.newHashMap();
+    private Set<String> definedRepositoryKeys = Sets.newHashSet();
 
     Buffer(long now) {
       this.now = new Date(now);
@@ -392,6 +543,12 @@ public class RuleRegistration implements Startable {
     void add(RuleDto rule) {
       rulesById.put(rule.getId(), rule);
       rulesByKey.put(RuleKey.of(rule.getRepositoryKey(), rule.getRuleKey()), rule);
+      rulesByRepository.put(rule.getRepositoryKey(), rule);
+    }
+
+    void add(LoadedTemplateDto fingerprintTemplate) {
+      String key = fingerprintTemplate.getKey();
+      fingerprintTemplates.put(StringUtils.substringBeforeLast(key, ":"), fingerprintTemplate);
     }
 
     void add(RuleTagDto tag) {
@@ -438,5 +595,29 @@ public class RuleRegistration implements Startable {
     void markProcessed(RuleDto ruleDto) {
       unprocessedRuleIds.remove(ruleDto.getId());
     }
+
+    void markRepositoryProcessed(String repositoryKey) {
+      for (RuleDto ruleDto : rulesByRepository.get(repositoryKey)) {
+        markProcessed(ruleDto);
+      }
+    }
+
+    void markUpdated(RuleDto ruleDto) {
+      updatedRules.add(ruleDto);
+    }
+
+    @CheckForNull
+    String fingerprint(String repositoryKey) {
+      LoadedTemplateDto template = fingerprintTemplates.get(repositoryKey);
+      return template != null ? StringUtils.substringAfterLast(template.getKey(), ":") : null;
+    }
+
+    void markRepositoryDefined(String repositoryKey) {
+      definedRepositoryKeys.add(repositoryKey);
+    }
+
+    void setFingerprint(String repositoryKey, String fingerprint) {
+      updatedFingerprints.put(repositoryKey, fingerprint);
+    }
   }
 }
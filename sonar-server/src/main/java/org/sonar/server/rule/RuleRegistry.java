@@ -21,6 +21,7 @@
 package org.sonar.server.rule;
 
 import com.google.common.collect.Multimap;
+import com.google.common.collect.Sets;
 import org.elasticsearch.ElasticSearchException;
 import org.elasticsearch.common.collect.Lists;
 import org.elasticsearch.common.collect.Maps;
@@ -42,6 +43,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import static com.google.common.collect.Lists.newArrayList;
 
@@ -74,6 +76,29 @@ public class RuleRegistry {
     removeDeletedRules(ids);
   }
 
+  /**
+   * Same as {@link #bulkRegisterRules(java.util.Collection, com.google.common.collect.Multimap, com.google.common.collect.Multimap)}
+   * but only <code>updatedRules</code> are indexed, as long as the index already contains all the other rules. All the rules are
+   * indexed when some of them are missing, for example when the index has been dropped.
+   *
+   * @since 4.2
+   */
+  public void bulkUpdateRules(Collection<RuleDto> rules, Collection<RuleDto> updatedRules,
+                              Multimap<Integer, RuleParamDto> paramsByRule, Multimap<Integer, RuleRuleTagDto> tagsByRule) {
+    List<String> indexIds = searchIndex.findDocumentIds(SearchQuery.create().index(INDEX_RULES).type(TYPE_RULE));
+    Set<String> ids = Sets.newHashSet();
+    for (RuleDto rule : rules) {
+      ids.add(rule.getId().toString());
+    }
+    if (Sets.newHashSet(indexIds).containsAll(ids)) {
+      bulkIndexRules(updatedRules, paramsByRule, tagsByRule);
+    } else {
+      bulkIndexRules(rules, paramsByRule, tagsByRule);
+    }
+    indexIds.removeAll(ids);
+    deleteRules(indexIds);
+  }
+
   /**
    * <p>Find rule IDs matching the given criteria.</p>
    *
@@ -177,6 +202,10 @@ public class RuleRegistry {
   private void removeDeletedRules(String[] ids) {
     List<String> indexIds = searchIndex.findDocumentIds(SearchQuery.create().index(INDEX_RULES).type(TYPE_RULE));
     indexIds.removeAll(Arrays.asList(ids));
+    deleteRules(indexIds);
+  }
+
+  private void deleteRules(List<String> indexIds) {
     TimeProfiler profiler = new TimeProfiler();
     if (!indexIds.isEmpty()) {
       profiler.start("Remove deleted rule documents");
@@ -17,35 +17,24 @@
  * along with this program; if not, write to the Free Software Foundation,
  * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
  */
+package org.sonar.server.startup;
 
-package org.sonar.core.issue.db;
+import org.sonar.server.issue.ESIssue;
 
-import org.junit.Before;
-import org.junit.Test;
-import org.sonar.api.issue.IssueQuery;
-import org.sonar.core.persistence.AbstractDaoTestCase;
-
-import java.util.List;
-
-import static org.fest.assertions.Assertions.assertThat;
-
-public class IssueStatsDaoTest extends AbstractDaoTestCase {
+/**
+ * Indexes issues in background, as the startup of server does not need them.
+ *
+ * @since 4.2
+ */
+public class IndexIssues {
 
-  IssueStatsDao dao;
+  private final ESIssue esIssue;
 
-  @Before
-  public void createDao() {
-    dao = new IssueStatsDao(getMyBatis());
+  public IndexIssues(ESIssue esIssue) {
+    this.esIssue = esIssue;
   }
 
-  @Test
-  public void should_select_assignees(){
-    setupData("should_select_assignees");
-
-    IssueQuery query = IssueQuery.builder().requiredRole("user").build();
-    List<Object> results = dao.selectIssuesColumn(query, IssueStatsColumn.ASSIGNEE, null);
-    assertThat(results).hasSize(3);
-    // 2 perceval, and one null
-    assertThat(results).containsOnly("perceval", null);
+  public void start() {
+    esIssue.bulkRegisterIssuesIfIncompleteInBackground();
   }
 }
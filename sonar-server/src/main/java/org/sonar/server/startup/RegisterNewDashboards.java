@@ -48,8 +48,13 @@ public final class RegisterNewDashboards {
   private final ActiveDashboardDao activeDashboardDao;
   private final LoadedTemplateDao loadedTemplateDao;
 
+  /**
+   * @param registerNewMeasureFilters used only to be started after the registration of the measure filters, as
+   *                                  dashboard widgets can reference them
+   */
   public RegisterNewDashboards(DashboardTemplate[] dashboardTemplatesArray, DashboardDao dashboardDao,
-                               ActiveDashboardDao activeDashboardDao, LoadedTemplateDao loadedTemplateDao) {
+                               ActiveDashboardDao activeDashboardDao, LoadedTemplateDao loadedTemplateDao,
+                               RegisterNewMeasureFilters registerNewMeasureFilters) {
     this.dashboardTemplates = Lists.newArrayList(dashboardTemplatesArray);
     this.dashboardDao = dashboardDao;
     this.activeDashboardDao = activeDashboardDao;
@@ -62,6 +62,7 @@ public class RegisterNewProfiles {
   private final ESActiveRule esActiveRule;
   private final DatabaseSessionFactory sessionFactory;
   private final PersistentSettings settings;
+  private final RuleRegistration ruleRegistration;
   private DatabaseSession session = null;
 
   public RegisterNewProfiles(List<ProfileDefinition> definitions,
@@ -77,6 +78,7 @@ public class RegisterNewProfiles {
     this.definitions = definitions;
     this.loadedTemplateDao = loadedTemplateDao;
     this.sessionFactory = sessionFactory;
+    this.ruleRegistration = registerRulesBefore;
   }
 
   public RegisterNewProfiles(PersistentSettings settings,
@@ -108,7 +110,8 @@ public class RegisterNewProfiles {
     session.commit();
     profiler.stop();
 
-    esActiveRule.bulkRegisterActiveRules();
+    // active rules of unchanged repositories are already indexed, except when profiles have just been registered
+    esActiveRule.bulkUpdateActiveRules(ruleRegistration.updatedRuleIds());
   }
 
   private void setDefault(String language, List<RulesProfile> profiles) {
@@ -38,16 +38,20 @@ import org.sonar.api.test.TestPlan;
 import org.sonar.api.test.Testable;
 import org.sonar.api.web.*;
 import org.sonar.core.component.SnapshotPerspectives;
+import org.sonar.core.measure.MeasureFilterCache;
 import org.sonar.core.measure.MeasureFilterEngine;
 import org.sonar.core.measure.MeasureFilterResult;
 import org.sonar.core.persistence.Database;
 import org.sonar.core.preview.PreviewCache;
 import org.sonar.core.purge.PurgeDao;
+import org.sonar.core.resource.ResourceDao;
+import org.sonar.core.resource.ResourceDto;
 import org.sonar.core.resource.ResourceIndexerDao;
 import org.sonar.core.resource.ResourceKeyUpdaterDao;
 import org.sonar.core.timemachine.Periods;
 import org.sonar.server.configuration.ProfilesManager;
 import org.sonar.server.db.migrations.DatabaseMigrator;
+import org.sonar.server.issue.ESIssue;
 import org.sonar.server.platform.Platform;
 import org.sonar.server.platform.ServerIdGenerator;
 import org.sonar.server.platform.ServerSettings;
@@ -361,6 +365,8 @@ public final class JRubyFacade {
   public void deleteResourceTree(long rootProjectId) {
     try {
       get(PurgeDao.class).deleteResourceTree(rootProjectId);
+      get(ESIssue.class).deleteComponentTree(rootProjectId);
+      get(MeasureFilterCache.class).invalidateAll();
     } catch (RuntimeException e) {
       LoggerFactory.getLogger(JRubyFacade.class).error("Fail to delete resource with ID: " + rootProjectId, e);
       throw e;
@@ -398,6 +404,7 @@ public final class JRubyFacade {
   // UPDATE PROJECT KEY ------------------------------------------------------------------
   public void updateResourceKey(long projectId, String newKey) {
     get(ResourceKeyUpdaterDao.class).updateKey(projectId, newKey);
+    onKeyUpdated(projectId);
   }
 
   public Map<String, String> checkModuleKeysBeforeRenaming(long projectId, String stringToReplace, String replacementString) {
@@ -406,6 +413,21 @@ public final class JRubyFacade {
 
   public void bulkUpdateKey(long projectId, String stringToReplace, String replacementString) {
     get(ResourceKeyUpdaterDao.class).bulkUpdateKey(projectId, stringToReplace, replacementString);
+    onKeyUpdated(projectId);
+  }
+
+  private void onKeyUpdated(long componentId) {
+    // keys are used to filter and sort measure filters
+    get(MeasureFilterCache.class).invalidateAll();
+    indexIssuesOfRootProject(componentId);
+  }
+
+  private void indexIssuesOfRootProject(long componentId) {
+    // keys of components and projects are stored in the index of issues
+    ResourceDto rootProject = get(ResourceDao.class).getRootProjectByComponentId(componentId);
+    if (rootProject != null) {
+      get(ESIssue.class).bulkIndexProjectInBackground(rootProject.getId());
+    }
   }
 
   // USERS
@@ -425,6 +447,14 @@ public final class JRubyFacade {
     return get(PreviewCache.class).getDatabaseForPreview(projectId);
   }
 
+  public void indexProjectIssues(long projectId) {
+    get(ESIssue.class).bulkIndexProjectInBackground(projectId);
+  }
+
+  public void invalidateMeasureFilters(long rootProjectId) {
+    get(MeasureFilterCache.class).invalidateProject(rootProjectId);
+  }
+
   public String getPeriodLabel(int periodIndex) {
     return get(Periods.class).label(periodIndex);
   }
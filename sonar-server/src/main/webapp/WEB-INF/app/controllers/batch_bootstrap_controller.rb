@@ -45,6 +45,9 @@ class BatchBootstrapController < Api::ApiController
 
     if project
       Property.set(Java::OrgSonarCorePreview::PreviewCache::SONAR_PREVIEW_CACHE_LAST_UPDATE_KEY, java.lang.System.currentTimeMillis, project.root_project.id)
+      # the evict is requested at the end of analysis, once issues are saved. Issues are indexed in background.
+      java_facade.indexProjectIssues(project.root_project.id)
+      java_facade.invalidateMeasureFilters(project.root_project.id)
       render_success('dryRun DB evicted')
     else
       render_bad_request('missing projectId')
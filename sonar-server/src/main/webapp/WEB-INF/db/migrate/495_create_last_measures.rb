@@ -0,0 +1,45 @@
+#
+# SonarQube, open source software quality management tool.
+# Copyright (C) 2008-2013 SonarSource
+# mailto:contact AT sonarsource DOT com
+#
+# SonarQube is free software; you can redistribute it and/or
+# modify it under the terms of the GNU Lesser General Public
+# License as published by the Free Software Foundation; either
+# version 3 of the License, or (at your option) any later version.
+#
+# SonarQube is distributed in the hope that it will be useful,
+# but WITHOUT ANY WARRANTY; without even the implied warranty of
+# MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+# Lesser General Public License for more details.
+#
+# You should have received a copy of the GNU Lesser General Public License
+# along with this program; if not, write to the Free Software Foundation,
+# Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+#
+
+#
+# Sonar 4.2
+#
+class CreateLastMeasures < ActiveRecord::Migration
+
+  def self.up
+    create_table :last_measures, :id => false do |t|
+      t.column :component_id,       :integer,   :null => false
+      t.column :root_project_id,    :integer,   :null => false
+      t.column :snapshot_id,        :integer,   :null => false
+      t.column :metric_id,          :integer,   :null => false
+      t.column :value,              :decimal,   :null => true,  :precision => 30,  :scale => 20
+      t.column :text_value,         :string,    :null => true,  :limit => 96
+      t.column :variation_value_1,  :decimal,   :null => true,  :precision => 30,  :scale => 20
+      t.column :variation_value_2,  :decimal,   :null => true,  :precision => 30,  :scale => 20
+      t.column :variation_value_3,  :decimal,   :null => true,  :precision => 30,  :scale => 20
+      t.column :variation_value_4,  :decimal,   :null => true,  :precision => 30,  :scale => 20
+      t.column :variation_value_5,  :decimal,   :null => true,  :precision => 30,  :scale => 20
+    end
+    add_index :last_measures, [:snapshot_id, :metric_id], :name => 'last_measures_sid_metric'
+    add_index :last_measures, :root_project_id, :name => 'last_measures_root_project'
+    add_index :last_measures, :component_id, :name => 'last_measures_component'
+  end
+
+end
@@ -0,0 +1,36 @@
+#
+# SonarQube, open source software quality management tool.
+# Copyright (C) 2008-2013 SonarSource
+# mailto:contact AT sonarsource DOT com
+#
+# SonarQube is free software; you can redistribute it and/or
+# modify it under the terms of the GNU Lesser General Public
+# License as published by the Free Software Foundation; either
+# version 3 of the License, or (at your option) any later version.
+#
+# SonarQube is distributed in the hope that it will be useful,
+# but WITHOUT ANY WARRANTY; without even the implied warranty of
+# MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+# Lesser General Public License for more details.
+#
+# You should have received a copy of the GNU Lesser General Public License
+# along with this program; if not, write to the Free Software Foundation,
+# Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+#
+
+#
+# Sonar 4.2
+#
+class PopulateLastMeasures < ActiveRecord::Migration
+
+  def self.up
+    execute('INSERT INTO last_measures (component_id, root_project_id, snapshot_id, metric_id, value, text_value, ' +
+              'variation_value_1, variation_value_2, variation_value_3, variation_value_4, variation_value_5) ' +
+              'SELECT s.project_id, s.root_project_id, s.id, pm.metric_id, pm.value, pm.text_value, ' +
+              'pm.variation_value_1, pm.variation_value_2, pm.variation_value_3, pm.variation_value_4, pm.variation_value_5 ' +
+              'FROM project_measures pm INNER JOIN snapshots s ON pm.snapshot_id=s.id ' +
+              "WHERE s.islast=#{ActiveRecord::Base.connection.quoted_true} AND s.status='P' " +
+              'AND pm.rule_id IS NULL AND pm.rule_priority IS NULL AND pm.characteristic_id IS NULL AND pm.person_id IS NULL')
+  end
+
+end
@@ -28,6 +28,7 @@ import org.sonar.api.i18n.I18n;
 import org.sonar.api.resources.Qualifiers;
 import org.sonar.api.resources.Scopes;
 import org.sonar.core.component.ComponentDto;
+import org.sonar.core.measure.MeasureFilterCache;
 import org.sonar.core.resource.ResourceDao;
 import org.sonar.core.resource.ResourceDto;
 import org.sonar.core.resource.ResourceIndexerDao;
@@ -53,6 +54,7 @@ public class DefaultRubyComponentServiceTest {
   private DefaultComponentFinder finder;
   private ResourceIndexerDao resourceIndexerDao;
   private I18n i18n;
+  private MeasureFilterCache measureFilterCache;
   private DefaultRubyComponentService componentService;
 
   @Before
@@ -61,7 +63,8 @@ public class DefaultRubyComponentServiceTest {
     finder = mock(DefaultComponentFinder.class);
     resourceIndexerDao = mock(ResourceIndexerDao.class);
     i18n = mock(I18n.class);
-    componentService = new DefaultRubyComponentService(resourceDao, finder, resourceIndexerDao, i18n);
+    measureFilterCache = mock(MeasureFilterCache.class);
+    componentService = new DefaultRubyComponentService(resourceDao, finder, resourceIndexerDao, i18n, measureFilterCache);
   }
 
   @Test
@@ -141,6 +144,7 @@ public class DefaultRubyComponentServiceTest {
     verify(resource).setKey(newKey);
     verify(resource).setName(newName);
     verify(resourceDao).insertOrUpdate(resource);
+    verify(measureFilterCache).invalidateAll();
   }
 
   @Test(expected=BadRequestException.class)
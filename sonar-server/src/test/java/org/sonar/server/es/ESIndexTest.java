@@ -33,6 +33,7 @@ import java.util.List;
 
 import static org.fest.assertions.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -64,6 +65,10 @@ public class ESIndexTest {
 
   @Test
   public void should_start_and_stop_properly() {
+    // client is loaded on first use, as the node is started in background
+    verify(searchNode, never()).client();
+    assertThat(searchIndex.client()).isNotNull();
+    searchIndex.client();
     verify(searchNode).client();
     searchIndex.stop();
   }
@@ -136,6 +136,8 @@ public class ESNodeTest {
     ESNode node = new ESNode(fs, new Settings(), "5s");
     try {
       node.start();
+      // node is started in background
+      node.client();
     } finally {
       node.stop();
     }
@@ -0,0 +1,428 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2013 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.issue;
+
+import com.github.tlrx.elasticsearch.test.EsSetup;
+import org.apache.ibatis.session.ResultContext;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.SqlSession;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.facet.Facets;
+import org.elasticsearch.search.facet.terms.TermsFacet;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+import org.sonar.api.config.Settings;
+import org.sonar.api.issue.IssueQuery;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.api.rule.Severity;
+import org.sonar.api.utils.DateUtils;
+import org.sonar.core.issue.db.IssueDao;
+import org.sonar.core.issue.db.IssueDto;
+import org.sonar.core.persistence.MyBatis;
+import org.sonar.core.profiling.Profiling;
+import org.sonar.core.resource.ResourceDao;
+import org.sonar.core.resource.ResourceDto;
+import org.sonar.core.resource.ResourceQuery;
+import org.sonar.core.resource.SnapshotDto;
+import org.sonar.core.user.AuthorizationDao;
+import org.sonar.server.es.ESIndex;
+import org.sonar.server.es.ESNode;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static org.elasticsearch.index.query.FilterBuilders.termFilter;
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ESIssueTest {
+
+  EsSetup esSetup;
+
+  ESIndex searchIndex;
+
+  ESIssue esIssue;
+
+  @Mock
+  MyBatis myBatis;
+
+  @Mock
+  SqlSession session;
+
+  @Mock
+  IssueDao issueDao;
+
+  @Mock
+  ResourceDao resourceDao;
+
+  @Mock
+  AuthorizationDao authorizationDao;
+
+  @Before
+  public void setUp() throws Exception {
+    when(myBatis.openSession()).thenReturn(session);
+    when(authorizationDao.selectAuthorizedRootProjectsKeys(anyInt(), anyString())).thenReturn(newArrayList("struts", "other"));
+
+    esSetup = new EsSetup(ImmutableSettings.builder().loadFromUrl(ESNode.class.getResource("config/elasticsearch.json")).build());
+    esSetup.execute(EsSetup.deleteAll());
+
+    ESNode node = mock(ESNode.class);
+    when(node.client()).thenReturn(esSetup.client());
+
+    Settings settings = new Settings();
+    settings.setProperty("sonar.log.profilingLevel", "FULL");
+    Profiling profiling = new Profiling(settings);
+    searchIndex = new ESIndex(node, profiling);
+    searchIndex.start();
+
+    esIssue = new ESIssue(searchIndex, issueDao, resourceDao, authorizationDao, myBatis, profiling);
+    esIssue.start();
+  }
+
+  @After
+  public void tearDown() {
+    esIssue.stop();
+    searchIndex.stop();
+    esSetup.terminate();
+  }
+
+  @Test
+  public void should_register_mapping_at_startup() {
+    assertThat(esSetup.exists("issues")).isTrue();
+    assertThat(esSetup.client().admin().indices().prepareTypesExists("issues").setTypes("issue").execute().actionGet().isExists()).isTrue();
+  }
+
+  @Test
+  public void should_index_project() {
+    indexStruts();
+
+    assertThat(esSetup.exists("issues", "issue", "ABC")).isTrue();
+    assertThat(esSetup.exists("issues", "issue", "DEF")).isTrue();
+    assertThat(esSetup.exists("issues", "issue", "GHI")).isTrue();
+
+    // issues of files are indexed on their module
+    SearchHit[] hits = esSetup.client().prepareSearch("issues").setPostFilter(termFilter("componentRootIds", 2L))
+      .execute().actionGet().getHits().getHits();
+    assertThat(hits).hasSize(3);
+    hits = esSetup.client().prepareSearch("issues").setPostFilter(termFilter("componentRootIds", 4L))
+      .execute().actionGet().getHits().getHits();
+    assertThat(hits).hasSize(1);
+    assertThat(hits[0].getId()).isEqualTo("DEF");
+  }
+
+  @Test
+  public void should_remove_deleted_issues_of_project() {
+    indexStruts();
+    indexOther();
+
+    mockProject(1L, strutsSnapshots(), issue("ABC", 3L, 1L, "struts"));
+    esIssue.bulkIndexProject(1L);
+
+    assertThat(esSetup.exists("issues", "issue", "ABC")).isTrue();
+    assertThat(esSetup.exists("issues", "issue", "DEF")).isFalse();
+    assertThat(esSetup.exists("issues", "issue", "GHI")).isFalse();
+    assertThat(esSetup.exists("issues", "issue", "JKL")).isTrue();
+  }
+
+  @Test
+  public void should_index_project_in_background() {
+    mockStruts();
+
+    esIssue.bulkIndexProjectInBackground(1L);
+    // wait for the end of indexing
+    esIssue.stop();
+
+    assertThat(esSetup.exists("issues", "issue", "ABC")).isTrue();
+    assertThat(esSetup.exists("issues", "issue", "DEF")).isTrue();
+  }
+
+  @Test
+  public void should_delete_issues_of_component_tree() {
+    indexStruts();
+    indexOther();
+
+    // module
+    esIssue.deleteComponentTree(2L);
+
+    assertThat(esSetup.exists("issues", "issue", "ABC")).isFalse();
+    assertThat(esSetup.exists("issues", "issue", "DEF")).isFalse();
+    assertThat(esSetup.exists("issues", "issue", "JKL")).isTrue();
+
+    // project
+    esIssue.deleteComponentTree(20L);
+
+    assertThat(esSetup.exists("issues", "issue", "JKL")).isFalse();
+  }
+
+  @Test
+  public void should_not_search_issues_of_deleted_components() {
+    // file 4 is not in the last snapshots anymore
+    mockProject(1L, strutsSnapshots().subList(0, 3), issue("ABC", 3L, 1L, "struts"), issue("DEF", 4L, 1L, "struts"));
+    esIssue.bulkIndexProject(1L);
+
+    assertThat(search(IssueQuery.builder().requiredRole("user").build()).keys()).containsOnly("ABC");
+    assertThat(search(IssueQuery.builder().requiredRole(null).build()).keys()).containsOnly("ABC", "DEF");
+  }
+
+  @Test
+  public void should_index_issues_by_keys() {
+    List<String> keys = newArrayList("ABC", "JKL");
+    when(issueDao.selectByKeys(keys, session)).thenReturn(newArrayList(issue("ABC", 3L, 1L, "struts"), issue("JKL", 20L, 20L, "other")));
+    when(resourceDao.getLastSnapshotsOfRootProject(1L, session)).thenReturn(strutsSnapshots());
+    when(resourceDao.getLastSnapshotsOfRootProject(20L, session)).thenReturn(Collections.<SnapshotDto>emptyList());
+
+    esIssue.bulkIndexIssues(keys);
+
+    assertThat(esSetup.exists("issues", "issue", "ABC")).isTrue();
+    assertThat(esSetup.exists("issues", "issue", "JKL")).isTrue();
+    // component of JKL is not in last snapshots
+    SearchHit[] hits = esSetup.client().prepareSearch("issues").setPostFilter(termFilter("componentRootIds", 20L))
+      .execute().actionGet().getHits().getHits();
+    assertThat(hits).hasSize(1);
+  }
+
+  @Test
+  public void should_index_all_projects_if_empty() {
+    when(resourceDao.getResourceIds(any(ResourceQuery.class))).thenReturn(newArrayList(1L, 20L));
+    mockStruts();
+    mockOther();
+
+    esIssue.bulkRegisterIssuesIfIncomplete();
+
+    assertThat(esSetup.exists("issues", "issue", "ABC")).isTrue();
+    assertThat(esSetup.exists("issues", "issue", "JKL")).isTrue();
+  }
+
+  @Test
+  public void should_index_all_projects_if_indexing_was_not_completed() {
+    when(resourceDao.getResourceIds(any(ResourceQuery.class))).thenReturn(newArrayList(1L, 20L));
+    // indexing has been interrupted after the first project
+    indexStruts();
+    mockOther();
+
+    esIssue.bulkRegisterIssuesIfIncomplete();
+
+    assertThat(esSetup.exists("issues", "issue", "JKL")).isTrue();
+  }
+
+  @Test
+  public void should_not_index_all_projects_if_indexing_was_completed() {
+    when(resourceDao.getResourceIds(any(ResourceQuery.class))).thenReturn(newArrayList(1L, 20L));
+    mockStruts();
+    mockOther();
+
+    esIssue.bulkRegisterIssuesIfIncomplete();
+    esIssue.bulkRegisterIssuesIfIncomplete();
+
+    verify(resourceDao, times(1)).getResourceIds(any(ResourceQuery.class));
+  }
+
+  @Test
+  public void should_stop_if_not_started() {
+    new ESIssue(searchIndex, issueDao, resourceDao, authorizationDao, myBatis, mock(Profiling.class)).stop();
+  }
+
+  @Test
+  public void should_index_all_projects_in_background() {
+    when(resourceDao.getResourceIds(any(ResourceQuery.class))).thenReturn(newArrayList(1L, 20L));
+    mockStruts();
+    mockOther();
+
+    esIssue.bulkRegisterIssuesIfIncompleteInBackground();
+    // waits for the end of background indexing
+    esIssue.stop();
+
+    assertThat(esSetup.exists("issues", "issue", "ABC")).isTrue();
+    assertThat(esSetup.exists("issues", "issue", "JKL")).isTrue();
+  }
+
+  @Test
+  public void should_search_by_criteria() {
+    indexStruts();
+    indexOther();
+
+    assertThat(search(IssueQuery.builder().build()).keys()).containsOnly("ABC", "DEF", "GHI", "JKL");
+    assertThat(search(IssueQuery.builder().severities(newArrayList(Severity.BLOCKER, Severity.MINOR)).build()).keys()).containsOnly("ABC", "DEF");
+    assertThat(search(IssueQuery.builder().statuses(newArrayList("CLOSED")).build()).keys()).containsOnly("DEF");
+    assertThat(search(IssueQuery.builder().resolved(false).build()).keys()).containsOnly("ABC", "GHI", "JKL");
+    assertThat(search(IssueQuery.builder().assigned(false).build()).keys()).containsOnly("DEF", "JKL");
+    assertThat(search(IssueQuery.builder().assignees(newArrayList("perceval")).build()).keys()).containsOnly("ABC");
+    assertThat(search(IssueQuery.builder().planned(true).build()).keys()).containsOnly("GHI");
+    assertThat(search(IssueQuery.builder().rules(newArrayList(RuleKey.of("squid", "NullRef"))).build()).keys()).containsOnly("DEF");
+    assertThat(search(IssueQuery.builder().components(newArrayList("struts:Filter.java")).build()).keys()).containsOnly("DEF");
+    assertThat(search(IssueQuery.builder().createdAfter(DateUtils.parseDateTime("2013-04-16T12:00:00+0000")).build()).keys()).containsOnly("DEF", "JKL");
+    assertThat(search(IssueQuery.builder().createdBefore(DateUtils.parseDateTime("2013-04-16T00:00:00+0000")).build()).keys()).containsOnly("GHI");
+  }
+
+  @Test
+  public void should_search_by_component_roots() {
+    indexStruts();
+    indexOther();
+
+    when(resourceDao.getResource(any(ResourceQuery.class))).thenReturn(new ResourceDto().setId(2L));
+    assertThat(search(IssueQuery.builder().componentRoots(newArrayList("struts:core")).build()).keys()).containsOnly("ABC", "DEF", "GHI");
+
+    when(resourceDao.getResource(any(ResourceQuery.class))).thenReturn(null);
+    assertThat(search(IssueQuery.builder().componentRoots(newArrayList("unknown")).build()).total()).isEqualTo(0L);
+  }
+
+  @Test
+  public void should_filter_on_authorized_projects() {
+    indexStruts();
+    indexOther();
+
+    when(authorizationDao.selectAuthorizedRootProjectsKeys(anyInt(), eq("user"))).thenReturn(newArrayList("other"));
+    assertThat(search(IssueQuery.builder().requiredRole("user").build()).keys()).containsOnly("JKL");
+
+    when(authorizationDao.selectAuthorizedRootProjectsKeys(anyInt(), eq("user"))).thenReturn(Collections.<String>emptyList());
+    assertThat(search(IssueQuery.builder().requiredRole("user").build()).total()).isEqualTo(0L);
+
+    assertThat(search(IssueQuery.builder().requiredRole(null).build()).keys()).containsOnly("ABC", "DEF", "GHI", "JKL");
+  }
+
+  @Test
+  public void should_sort_and_page() {
+    indexStruts();
+
+    IssueQuery query = IssueQuery.builder().sort(IssueQuery.SORT_BY_SEVERITY).asc(false).build();
+    assertThat(esIssue.search(query, null, 0, 10).keys()).containsExactly("ABC", "GHI", "DEF");
+
+    ESIssue.SearchResult result = esIssue.search(query, null, 1, 1);
+    assertThat(result.keys()).containsExactly("GHI");
+    assertThat(result.total()).isEqualTo(3L);
+
+    // unassigned issues are last
+    query = IssueQuery.builder().sort(IssueQuery.SORT_BY_ASSIGNEE).asc(true).build();
+    assertThat(esIssue.search(query, null, 0, 10).keys()).containsExactly("GHI", "ABC", "DEF");
+
+    query = IssueQuery.builder().sort(IssueQuery.SORT_BY_CREATION_DATE).asc(true).build();
+    assertThat(esIssue.search(query, null, 0, 10).keys()).containsExactly("GHI", "ABC", "DEF");
+  }
+
+  @Test
+  public void should_compute_facets() {
+    indexStruts();
+    indexOther();
+
+    Facets facets = esIssue.facets(IssueQuery.builder().build(), null, IssueDocument.FIELD_ASSIGNEE, IssueDocument.FIELD_SEVERITY);
+
+    TermsFacet assignees = facets.facet(TermsFacet.class, IssueDocument.FIELD_ASSIGNEE);
+    assertThat(assignees.getEntries()).hasSize(2);
+    assertThat(assignees.getMissingCount()).isEqualTo(2L);
+
+    TermsFacet severities = facets.facet(TermsFacet.class, IssueDocument.FIELD_SEVERITY);
+    assertThat(severities.getEntries()).hasSize(3);
+    assertThat(severities.getEntries().get(0).getTerm().string()).isEqualTo(Severity.MAJOR);
+    assertThat(severities.getEntries().get(0).getCount()).isEqualTo(2);
+  }
+
+  @Test
+  public void should_not_compute_facets_if_no_authorized_projects() {
+    when(authorizationDao.selectAuthorizedRootProjectsKeys(anyInt(), eq("user"))).thenReturn(Collections.<String>emptyList());
+
+    assertThat(esIssue.facets(IssueQuery.builder().requiredRole("user").build(), null, IssueDocument.FIELD_ASSIGNEE)).isNull();
+  }
+
+  private ESIssue.SearchResult search(IssueQuery query) {
+    return esIssue.search(query, null, 0, 100);
+  }
+
+  private void indexStruts() {
+    mockStruts();
+    esIssue.bulkIndexProject(1L);
+  }
+
+  private void indexOther() {
+    mockOther();
+    esIssue.bulkIndexProject(20L);
+  }
+
+  private void mockStruts() {
+    mockProject(1L, strutsSnapshots(),
+      issue("ABC", 3L, 1L, "struts").setSeverity(Severity.BLOCKER).setAssignee("perceval")
+        .setIssueCreationDate(DateUtils.parseDateTime("2013-04-16T10:00:00+0000")),
+      issue("DEF", 4L, 1L, "struts").setComponentKey_unit_test_only("struts:Filter.java").setSeverity(Severity.MINOR)
+        .setStatus("CLOSED").setResolution("FIXED").setRuleKey_unit_test_only("squid", "NullRef")
+        .setIssueCreationDate(DateUtils.parseDateTime("2013-04-17T10:00:00+0000")),
+      issue("GHI", 3L, 1L, "struts").setAssignee("arthur").setActionPlanKey("PLAN1")
+        .setIssueCreationDate(DateUtils.parseDateTime("2013-04-15T10:00:00+0000")));
+  }
+
+  private void mockOther() {
+    mockProject(20L, Arrays.asList(new SnapshotDto().setId(30L).setResourceId(20L).setRootProjectId(20L).setPath("")),
+      issue("JKL", 20L, 20L, "other").setIssueCreationDate(DateUtils.parseDateTime("2013-04-18T10:00:00+0000")));
+  }
+
+  private void mockProject(long projectId, List<SnapshotDto> snapshots, final IssueDto... issues) {
+    when(resourceDao.getLastSnapshotsOfRootProject(projectId, session)).thenReturn(snapshots);
+    doAnswer(new Answer<Object>() {
+      @Override
+      public Object answer(InvocationOnMock invocation) throws Throwable {
+        ResultHandler handler = (ResultHandler) invocation.getArguments()[1];
+        for (IssueDto issue : issues) {
+          ResultContext context = mock(ResultContext.class);
+          when(context.getResultObject()).thenReturn(issue);
+          handler.handleResult(context);
+        }
+        return null;
+      }
+    }).when(issueDao).selectByRootComponent(eq(projectId), any(ResultHandler.class));
+  }
+
+  /**
+   * Project 1 has the module 2, which contains the files 3 and 4
+   */
+  private static List<SnapshotDto> strutsSnapshots() {
+    return Arrays.asList(
+      new SnapshotDto().setId(10L).setResourceId(1L).setRootProjectId(1L).setPath(""),
+      new SnapshotDto().setId(11L).setResourceId(2L).setRootProjectId(1L).setPath("10."),
+      new SnapshotDto().setId(12L).setResourceId(3L).setRootProjectId(1L).setPath("10.11."),
+      new SnapshotDto().setId(13L).setResourceId(4L).setRootProjectId(1L).setPath("10.11."));
+  }
+
+  private long issueId = 1L;
+
+  private IssueDto issue(String key, long componentId, long projectId, String projectKey) {
+    return new IssueDto().setId(issueId++).setKee(key).setComponentId(componentId).setRootComponentId(projectId)
+      .setComponentKey_unit_test_only(projectKey + ":Action.java")
+      .setRootComponentKey_unit_test_only(projectKey)
+      .setRuleKey_unit_test_only("squid", "AvoidCycle")
+      .setSeverity(Severity.MAJOR)
+      .setStatus("OPEN");
+  }
+}
@@ -21,34 +21,61 @@
 package org.sonar.server.issue;
 
 import com.google.common.collect.Lists;
+import org.elasticsearch.common.text.StringText;
+import org.elasticsearch.search.facet.Facets;
+import org.elasticsearch.search.facet.terms.TermsFacet;
 import org.junit.Test;
 import org.sonar.api.issue.IssueQuery;
 import org.sonar.api.user.User;
 import org.sonar.api.user.UserFinder;
-import org.sonar.core.issue.db.IssueStatsDao;
 import org.sonar.core.user.DefaultUser;
 
 import static org.fest.assertions.Assertions.assertThat;
 import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 public class IssueStatsFinderTest {
 
-  private IssueStatsDao issuestatsDao = mock(IssueStatsDao.class);
+  private ESIssue esIssue = mock(ESIssue.class);
   private UserFinder userFinder = mock(UserFinder.class);
 
   @Test
   public void should_find_assignees(){
-    when(issuestatsDao.selectIssuesColumn(any(IssueQuery.class), anyString(), anyInt())).thenReturn(Lists.<Object>newArrayList("perceval", "perceval", "arthur", null));
+    TermsFacet facet = mock(TermsFacet.class);
+    doReturn(Lists.newArrayList(entry("perceval", 2), entry("arthur", 1))).when(facet).getEntries();
+    when(facet.getMissingCount()).thenReturn(1L);
+    Facets facets = mock(Facets.class);
+    when(facets.facet(TermsFacet.class, IssueDocument.FIELD_ASSIGNEE)).thenReturn(facet);
+    when(esIssue.facets(any(IssueQuery.class), anyInt(), eq(IssueDocument.FIELD_ASSIGNEE))).thenReturn(facets);
     when(userFinder.findByLogins(anyListOf(String.class))).thenReturn(Lists.<User>newArrayList(
       new DefaultUser().setLogin("perceval").setName("Perceval"),
       new DefaultUser().setLogin("arthur").setName("Roi Arthur")
     ));
 
-    IssueStatsFinder issueStatsFinder = new IssueStatsFinder(issuestatsDao, userFinder);
+    IssueStatsFinder issueStatsFinder = new IssueStatsFinder(esIssue, userFinder);
     IssueStatsFinder.IssueStatsResult issueStatsResult = issueStatsFinder.findIssueAssignees(IssueQuery.builder().build());
-    assertThat(issueStatsResult.results()).hasSize(4);
+    assertThat(issueStatsResult.isEmpty()).isFalse();
+    assertThat(issueStatsResult.countsByAssignee()).hasSize(2);
+    assertThat(issueStatsResult.countsByAssignee().get("perceval")).isEqualTo(2L);
+    assertThat(issueStatsResult.countUnassigned()).isEqualTo(1L);
     assertThat(issueStatsResult.user("arthur").name()).isEqualTo("Roi Arthur");
+    // deprecated
+    assertThat(issueStatsResult.results()).containsExactly("perceval", "perceval", "arthur", null);
+  }
+
+  @Test
+  public void should_not_find_assignees_if_no_issues_can_match(){
+    IssueStatsFinder issueStatsFinder = new IssueStatsFinder(esIssue, userFinder);
+    IssueStatsFinder.IssueStatsResult issueStatsResult = issueStatsFinder.findIssueAssignees(IssueQuery.builder().build());
+    assertThat(issueStatsResult.isEmpty()).isTrue();
+  }
+
+  private static TermsFacet.Entry entry(String term, int count) {
+    TermsFacet.Entry entry = mock(TermsFacet.Entry.class);
+    when(entry.getTerm()).thenReturn(new StringText(term));
+    when(entry.getCount()).thenReturn(count);
+    return entry;
   }
 }
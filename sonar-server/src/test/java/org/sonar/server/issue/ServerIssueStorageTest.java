@@ -29,18 +29,23 @@ import org.sonar.api.rules.RuleQuery;
 import org.sonar.core.persistence.AbstractDaoTestCase;
 import org.sonar.core.resource.ResourceDao;
 
+import java.util.Arrays;
 import java.util.Collection;
 
 import static org.fest.assertions.Assertions.assertThat;
 import static org.fest.assertions.Fail.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 
 public class ServerIssueStorageTest extends AbstractDaoTestCase {
 
+  ESIssue esIssue = mock(ESIssue.class);
+
   @Test
   public void should_load_component_id_from_db() throws Exception {
     setupData("should_load_component_id_from_db");
 
-    ServerIssueStorage storage = new ServerIssueStorage(getMyBatis(), new FakeRuleFinder(), new ResourceDao(getMyBatis()));
+    ServerIssueStorage storage = new ServerIssueStorage(getMyBatis(), new FakeRuleFinder(), new ResourceDao(getMyBatis()), esIssue);
     long componentId = storage.componentId(new DefaultIssue().setComponentKey("struts:Action.java"));
 
     assertThat(componentId).isEqualTo(123);
@@ -50,7 +55,7 @@ public class ServerIssueStorageTest extends AbstractDaoTestCase {
   public void should_fail_to_load_component_id_if_unknown_component() throws Exception {
     setupData("should_fail_to_load_component_id_if_unknown_component");
 
-    ServerIssueStorage storage = new ServerIssueStorage(getMyBatis(), new FakeRuleFinder(), new ResourceDao(getMyBatis()));
+    ServerIssueStorage storage = new ServerIssueStorage(getMyBatis(), new FakeRuleFinder(), new ResourceDao(getMyBatis()), esIssue);
     try {
       storage.componentId(new DefaultIssue().setComponentKey("struts:Action.java"));
       fail();
@@ -63,7 +68,7 @@ public class ServerIssueStorageTest extends AbstractDaoTestCase {
   public void should_load_project_id_from_db() throws Exception {
     setupData("should_load_project_id_from_db");
 
-    ServerIssueStorage storage = new ServerIssueStorage(getMyBatis(), new FakeRuleFinder(), new ResourceDao(getMyBatis()));
+    ServerIssueStorage storage = new ServerIssueStorage(getMyBatis(), new FakeRuleFinder(), new ResourceDao(getMyBatis()), esIssue);
     long projectId = storage.projectId(new DefaultIssue().setComponentKey("struts:Action.java"));
 
     assertThat(projectId).isEqualTo(1);
@@ -73,7 +78,7 @@ public class ServerIssueStorageTest extends AbstractDaoTestCase {
   public void should_fail_to_load_project_id_if_unknown_component() throws Exception {
     setupData("should_fail_to_load_project_id_if_unknown_component");
 
-    ServerIssueStorage storage = new ServerIssueStorage(getMyBatis(), new FakeRuleFinder(), new ResourceDao(getMyBatis()));
+    ServerIssueStorage storage = new ServerIssueStorage(getMyBatis(), new FakeRuleFinder(), new ResourceDao(getMyBatis()), esIssue);
     try {
       storage.projectId(new DefaultIssue().setComponentKey("struts:Action.java"));
       fail();
@@ -82,6 +87,19 @@ public class ServerIssueStorageTest extends AbstractDaoTestCase {
     }
   }
 
+  @Test
+  public void should_index_saved_issues() throws Exception {
+    setupData("should_index_saved_issues");
+
+    ServerIssueStorage storage = new ServerIssueStorage(getMyBatis(), new FakeRuleFinder(), new ResourceDao(getMyBatis()), esIssue);
+    DefaultIssue newIssue = new DefaultIssue().setKey("ABCDE").setNew(true).setComponentKey("struts:Action.java")
+      .setRuleKey(RuleKey.of("squid", "AvoidCycle")).setSeverity("BLOCKER").setStatus("OPEN");
+    DefaultIssue unchangedIssue = new DefaultIssue().setKey("FGHIJ").setNew(false).setChanged(false);
+    storage.save(Arrays.asList(newIssue, unchangedIssue));
+
+    verify(esIssue).bulkIndexIssues(Arrays.asList("ABCDE"));
+  }
+
   static class FakeRuleFinder implements RuleFinder {
 
     @Override
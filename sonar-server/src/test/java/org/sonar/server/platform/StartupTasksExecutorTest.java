@@ -0,0 +1,199 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2013 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.platform;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.sonar.api.platform.ComponentContainer;
+import org.sonar.jpa.session.DatabaseSessionFactory;
+import org.sonar.server.startup.RegisterNewDashboards;
+import org.sonar.server.startup.RegisterNewMeasureFilters;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.fest.assertions.Fail.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+public class StartupTasksExecutorTest {
+
+  static List<String> events;
+  static CountDownLatch released;
+
+  ComponentContainer container;
+  DatabaseSessionFactory sessionFactory = mock(DatabaseSessionFactory.class);
+
+  @Before
+  public void before() {
+    events = new CopyOnWriteArrayList<String>();
+    released = new CountDownLatch(1);
+    container = new ComponentContainer();
+  }
+
+  @Test
+  public void should_start_tasks_after_their_dependencies() {
+    StartupTasksExecutor executor = new StartupTasksExecutor(container, sessionFactory, 2);
+    executor.addConcurrent(DependentTask.class);
+    executor.addSequential(SequentialTask.class);
+    executor.addConcurrent(ConcurrentTask.class);
+    executor.start();
+
+    assertThat(events).hasSize(3);
+    assertThat(events.indexOf("sequential")).isLessThan(events.indexOf("dependent"));
+    assertThat(events).contains("concurrent");
+  }
+
+  @Test
+  public void should_execute_sequential_tasks_in_calling_thread() {
+    StartupTasksExecutor executor = new StartupTasksExecutor(container, sessionFactory, 2);
+    executor.addSequential(SequentialTask.class);
+    executor.addConcurrent(ConcurrentTask.class);
+    executor.start();
+
+    assertThat(container.getComponentByType(SequentialTask.class).thread).isSameAs(Thread.currentThread());
+    assertThat(container.getComponentByType(ConcurrentTask.class).thread).isNotSameAs(Thread.currentThread());
+    // session of the pool thread is closed
+    verify(sessionFactory).clear();
+  }
+
+  @Test
+  public void should_submit_concurrent_tasks_before_executing_sequential_tasks() {
+    StartupTasksExecutor executor = new StartupTasksExecutor(container, sessionFactory, 2);
+    executor.addSequential(WaitingSequentialTask.class);
+    executor.addConcurrent(ReleasingTask.class);
+    executor.start();
+
+    assertThat(events).containsExactly("releasing", "waiting sequential");
+  }
+
+  @Test
+  public void should_find_dependencies_in_constructors() {
+    StartupTasksExecutor executor = new StartupTasksExecutor(container, sessionFactory, 2);
+    executor.addSequential(SequentialTask.class);
+    executor.addConcurrent(ConcurrentTask.class);
+    executor.addConcurrent(DependentTask.class);
+
+    assertThat(executor.dependencies(DependentTask.class)).containsOnly(SequentialTask.class);
+    assertThat(executor.dependencies(SequentialTask.class)).isEmpty();
+  }
+
+  @Test
+  public void should_register_dashboards_after_measure_filters() {
+    StartupTasksExecutor executor = new StartupTasksExecutor(container, sessionFactory, 2);
+    executor.addConcurrent(RegisterNewMeasureFilters.class);
+    executor.addConcurrent(RegisterNewDashboards.class);
+
+    assertThat(executor.dependencies(RegisterNewDashboards.class)).containsOnly(RegisterNewMeasureFilters.class);
+  }
+
+  @Test
+  public void should_stop_tasks() {
+    StartupTasksExecutor executor = new StartupTasksExecutor(container, sessionFactory, 2);
+    executor.addSequential(SequentialTask.class);
+    executor.start();
+    executor.stop();
+
+    assertThat(events).containsExactly("sequential", "stop sequential");
+  }
+
+  @Test
+  public void should_propagate_failure() {
+    StartupTasksExecutor executor = new StartupTasksExecutor(container, sessionFactory, 2);
+    executor.addConcurrent(FailingTask.class);
+    try {
+      executor.start();
+      fail();
+    } catch (IllegalStateException e) {
+      assertThat(e).hasMessage("Failure");
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void should_fail_if_negative_number_of_threads() {
+    new StartupTasksExecutor(container, sessionFactory, -1);
+  }
+
+  @Test
+  public void should_use_default_number_of_threads() {
+    StartupTasksExecutor executor = new StartupTasksExecutor(container, sessionFactory, 0);
+    executor.addConcurrent(ConcurrentTask.class);
+    executor.start();
+
+    assertThat(events).isEqualTo(Collections.singletonList("concurrent"));
+  }
+
+  public static class SequentialTask {
+    Thread thread;
+
+    public void start() {
+      thread = Thread.currentThread();
+      events.add("sequential");
+    }
+
+    public void stop() {
+      events.add("stop sequential");
+    }
+  }
+
+  public static class ConcurrentTask {
+    Thread thread;
+
+    public void start() {
+      thread = Thread.currentThread();
+      events.add("concurrent");
+    }
+  }
+
+  public static class WaitingSequentialTask {
+    public void start() throws InterruptedException {
+      if (!released.await(10, TimeUnit.SECONDS)) {
+        throw new IllegalStateException("Concurrent task is not started");
+      }
+      events.add("waiting sequential");
+    }
+  }
+
+  public static class ReleasingTask {
+    public void start() {
+      events.add("releasing");
+      released.countDown();
+    }
+  }
+
+  public static class DependentTask {
+    public DependentTask(SequentialTask sequentialTask) {
+    }
+
+    public void start() {
+      events.add("dependent");
+    }
+  }
+
+  public static class FailingTask {
+    public void start() {
+      throw new IllegalStateException("Failure");
+    }
+  }
+}
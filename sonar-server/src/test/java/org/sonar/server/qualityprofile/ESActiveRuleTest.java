@@ -47,6 +47,7 @@ import org.sonar.test.TestUtils;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import static com.google.common.collect.Lists.newArrayList;
@@ -164,6 +165,39 @@ public class ESActiveRuleTest {
     assertThat(childHit[0].getId()).isEqualTo("1");
   }
 
+  @Test
+  public void bulk_update_only_active_rules_of_updated_rules() {
+    Multimap<Integer, ActiveRuleParamDto> noParams = ArrayListMultimap.create();
+    esActiveRule.bulkIndexActiveRules(newArrayList(
+      new ActiveRuleDto().setId(1).setProfileId(10).setRuleId(1).setSeverity(Severity.MAJOR),
+      new ActiveRuleDto().setId(2).setProfileId(10).setRuleId(2).setSeverity(Severity.MAJOR),
+      new ActiveRuleDto().setId(3).setProfileId(10).setRuleId(3).setSeverity(Severity.MAJOR)), noParams);
+    // active rule 3 has been deleted
+    when(activeRuleDao.selectAll(session)).thenReturn(newArrayList(
+      new ActiveRuleDto().setId(1).setProfileId(10).setRuleId(1).setSeverity(Severity.BLOCKER),
+      new ActiveRuleDto().setId(2).setProfileId(10).setRuleId(2).setSeverity(Severity.BLOCKER)));
+
+    esActiveRule.bulkUpdateActiveRules(newArrayList(1));
+
+    assertThat(activeRuleIdsWithSeverity(Severity.BLOCKER)).containsOnly("1");
+    assertThat(activeRuleIdsWithSeverity(Severity.MAJOR)).containsOnly("2");
+  }
+
+  @Test
+  public void bulk_update_all_active_rules_if_some_are_not_indexed() {
+    Multimap<Integer, ActiveRuleParamDto> noParams = ArrayListMultimap.create();
+    esActiveRule.bulkIndexActiveRules(newArrayList(
+      new ActiveRuleDto().setId(1).setProfileId(10).setRuleId(1).setSeverity(Severity.MAJOR)), noParams);
+    // active rule 2 has been created, for example by the registration of a new profile
+    when(activeRuleDao.selectAll(session)).thenReturn(newArrayList(
+      new ActiveRuleDto().setId(1).setProfileId(10).setRuleId(1).setSeverity(Severity.BLOCKER),
+      new ActiveRuleDto().setId(2).setProfileId(11).setRuleId(2).setSeverity(Severity.BLOCKER)));
+
+    esActiveRule.bulkUpdateActiveRules(Collections.<Integer>emptyList());
+
+    assertThat(activeRuleIdsWithSeverity(Severity.BLOCKER)).containsOnly("1", "2");
+  }
+
   @Test
   public void save_active_rule() throws IOException {
     ActiveRuleDto activeRule = new ActiveRuleDto().setId(1).setProfileId(10).setRuleId(1).setSeverity(Severity.MAJOR);
@@ -202,6 +236,16 @@ public class ESActiveRuleTest {
     assertThat(esSetup.exists("rules", "active_rule", "523"));
   }
 
+  private List<String> activeRuleIdsWithSeverity(String severity) {
+    List<String> ids = newArrayList();
+    SearchHit[] hits = esSetup.client().prepareSearch("rules").setTypes("active_rule").setPostFilter(termFilter("severity", severity))
+      .execute().actionGet().getHits().getHits();
+    for (SearchHit hit : hits) {
+      ids.add(hit.getId());
+    }
+    return ids;
+  }
+
   private String testFileAsString(String testFile) throws Exception {
     return IOUtils.toString(TestUtils.getResource(getClass(), testFile).toURI());
   }
@@ -0,0 +1,99 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2013 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package org.sonar.server.qualityprofile;
+
+import org.apache.ibatis.session.SqlSession;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.sonar.api.utils.DateUtils;
+import org.sonar.api.utils.System2;
+import org.sonar.core.persistence.AbstractDaoTestCase;
+import org.sonar.core.persistence.MyBatis;
+import org.sonar.core.qualityprofile.db.ActiveRuleDao;
+import org.sonar.core.qualityprofile.db.QualityProfileDao;
+import org.sonar.core.qualityprofile.db.QualityProfileDto;
+import org.sonar.server.configuration.ProfilesManager.RuleInheritanceActions;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class QProfileInheritanceUpdaterTest extends AbstractDaoTestCase {
+
+  QualityProfileDao profileDao;
+  QProfileInheritanceUpdater updater;
+  SqlSession session;
+
+  @Before
+  public void before() {
+    System2 system = mock(System2.class);
+    when(system.now()).thenReturn(DateUtils.parseDate("2014-01-15").getTime());
+    profileDao = new QualityProfileDao(getMyBatis());
+    updater = new QProfileInheritanceUpdater(profileDao, new ActiveRuleDao(getMyBatis()), system);
+    session = getMyBatis().openSession();
+  }
+
+  @After
+  public void after() {
+    MyBatis.closeQuietly(session);
+  }
+
+  @Test
+  public void inherit_rules_of_new_parent() {
+    setupData("set_parent");
+
+    QualityProfileDto child = profileDao.selectById(2, session);
+    RuleInheritanceActions actions = updater.parentChanged(child, profileDao.selectById(1, session), "admin", session);
+    session.commit();
+
+    checkTables("set_parent", new String[] {"note_created_at", "note_updated_at"},
+      "rules_profiles", "active_rules", "active_rule_parameters", "active_rule_changes", "active_rule_param_changes");
+    assertThat(actions.idsToIndex()).containsOnly(3, 7, 8);
+    assertThat(actions.idsToDelete()).isEmpty();
+    // version is incremented on the given instance
+    assertThat(child.getVersion()).isEqualTo(2);
+  }
+
+  @Test
+  public void remove_rules_of_old_parent() {
+    setupData("remove_parent");
+
+    RuleInheritanceActions actions = updater.parentChanged(profileDao.selectById(2, session), null, "admin", session);
+    session.commit();
+
+    checkTables("remove_parent", "active_rules", "active_rule_parameters", "active_rule_changes", "active_rule_param_changes");
+    assertThat(actions.idsToIndex()).containsOnly(3);
+    assertThat(actions.idsToDelete()).containsOnly(4, 6);
+  }
+
+  @Test
+  public void do_nothing_if_rules_are_already_inherited() {
+    setupData("remove_parent");
+
+    RuleInheritanceActions actions = updater.parentChanged(profileDao.selectById(2, session), profileDao.selectById(1, session), "admin", session);
+    session.commit();
+
+    assertEmptyTables("active_rule_changes", "active_rule_param_changes");
+    assertThat(actions.idsToIndex()).isEmpty();
+    assertThat(actions.idsToDelete()).isEmpty();
+  }
+}
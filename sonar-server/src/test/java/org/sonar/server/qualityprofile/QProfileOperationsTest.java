@@ -91,6 +91,9 @@ public class QProfileOperationsTest {
   @Mock
   QProfileRepositoryExporter exporter;
 
+  @Mock
+  QProfileInheritanceUpdater inheritanceUpdater;
+
   Integer currentId = 1;
 
   UserSession authorizedUserSession = MockUserSession.create().setLogin("nicolas").setName("Nicolas").setGlobalPermissions(GlobalPermissions.QUALITY_PROFILE_ADMIN);
@@ -120,7 +123,7 @@ public class QProfileOperationsTest {
       }
     }).when(qualityProfileDao).insert(any(QualityProfileDto.class), any(SqlSession.class));
 
-    operations = new QProfileOperations(myBatis, qualityProfileDao, activeRuleDao, propertiesDao, exporter, dryRunCache, esActiveRule, profileLookup, profilesManager);
+    operations = new QProfileOperations(myBatis, qualityProfileDao, activeRuleDao, propertiesDao, exporter, dryRunCache, esActiveRule, profileLookup, profilesManager, inheritanceUpdater);
   }
 
   @Test
@@ -246,7 +249,7 @@ public class QProfileOperationsTest {
     when(qualityProfileDao.selectById(3, session)).thenReturn(new QualityProfileDto().setId(3).setName("Parent").setLanguage("java"));
 
     when(qualityProfileDao.selectParent(2, session)).thenReturn(oldParent);
-    when(profilesManager.profileParentChanged(anyInt(), anyString(), anyString())).thenReturn(new ProfilesManager.RuleInheritanceActions());
+    when(inheritanceUpdater.parentChanged(any(QualityProfileDto.class), any(QualityProfileDto.class), anyString(), eq(session))).thenReturn(new ProfilesManager.RuleInheritanceActions());
 
     operations.updateParentProfile(1, 3, authorizedUserSession);
     ArgumentCaptor<QualityProfileDto> profileArgument = ArgumentCaptor.forClass(QualityProfileDto.class);
@@ -255,7 +258,9 @@ public class QProfileOperationsTest {
     assertThat(profileArgument.getValue().getLanguage()).isEqualTo("java");
 
     verify(session).commit();
-    verify(profilesManager).profileParentChanged(1, "Parent", "Nicolas");
+    ArgumentCaptor<QualityProfileDto> parentArgument = ArgumentCaptor.forClass(QualityProfileDto.class);
+    verify(inheritanceUpdater).parentChanged(eq(profileArgument.getValue()), parentArgument.capture(), eq("Nicolas"), eq(session));
+    assertThat(parentArgument.getValue().getName()).isEqualTo("Parent");
     verify(esActiveRule).deleteActiveRules(anyListOf(Integer.class));
     verify(esActiveRule).bulkIndexActiveRuleIds(anyListOf(Integer.class), eq(session));
   }
@@ -265,7 +270,7 @@ public class QProfileOperationsTest {
     when(qualityProfileDao.selectById(1, session)).thenReturn(new QualityProfileDto().setId(1).setName("Child").setLanguage("java").setParent(null));
     when(qualityProfileDao.selectById(2, session)).thenReturn(new QualityProfileDto().setId(2).setName("Parent").setLanguage("java"));
 
-    when(profilesManager.profileParentChanged(anyInt(), anyString(), anyString())).thenReturn(new ProfilesManager.RuleInheritanceActions());
+    when(inheritanceUpdater.parentChanged(any(QualityProfileDto.class), any(QualityProfileDto.class), anyString(), eq(session))).thenReturn(new ProfilesManager.RuleInheritanceActions());
 
     operations.updateParentProfile(1, 2, authorizedUserSession);
 
@@ -275,7 +280,9 @@ public class QProfileOperationsTest {
     assertThat(profileArgument.getValue().getLanguage()).isEqualTo("java");
 
     verify(session).commit();
-    verify(profilesManager).profileParentChanged(1, "Parent", "Nicolas");
+    ArgumentCaptor<QualityProfileDto> parentArgument = ArgumentCaptor.forClass(QualityProfileDto.class);
+    verify(inheritanceUpdater).parentChanged(eq(profileArgument.getValue()), parentArgument.capture(), eq("Nicolas"), eq(session));
+    assertThat(parentArgument.getValue().getName()).isEqualTo("Parent");
     verify(esActiveRule).deleteActiveRules(anyListOf(Integer.class));
     verify(esActiveRule).bulkIndexActiveRuleIds(anyListOf(Integer.class), eq(session));
   }
@@ -286,7 +293,7 @@ public class QProfileOperationsTest {
     when(qualityProfileDao.selectById(1, session)).thenReturn(new QualityProfileDto().setId(1).setName("Child").setLanguage("java").setParent("Old Parent"));
 
     when(qualityProfileDao.selectParent(2, session)).thenReturn(parent);
-    when(profilesManager.profileParentChanged(anyInt(), anyString(), anyString())).thenReturn(new ProfilesManager.RuleInheritanceActions());
+    when(inheritanceUpdater.parentChanged(any(QualityProfileDto.class), any(QualityProfileDto.class), anyString(), eq(session))).thenReturn(new ProfilesManager.RuleInheritanceActions());
 
     operations.updateParentProfile(1, null, authorizedUserSession);
 
@@ -296,7 +303,7 @@ public class QProfileOperationsTest {
     assertThat(profileArgument.getValue().getLanguage()).isEqualTo("java");
 
     verify(session).commit();
-    verify(profilesManager).profileParentChanged(1, null, "Nicolas");
+    verify(inheritanceUpdater).parentChanged(eq(profileArgument.getValue()), (QualityProfileDto) isNull(), eq("Nicolas"), eq(session));
     verify(esActiveRule).deleteActiveRules(anyListOf(Integer.class));
     verify(esActiveRule).bulkIndexActiveRuleIds(anyListOf(Integer.class), eq(session));
   }
@@ -20,21 +20,37 @@
 
 package org.sonar.server.rule;
 
+import com.google.common.collect.Multimap;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.sonar.api.platform.Server;
 import org.sonar.api.rule.Severity;
 import org.sonar.api.rule.RuleStatus;
+import org.sonar.api.rules.Rule;
 import org.sonar.api.server.rule.RuleDefinitions;
 import org.sonar.core.persistence.AbstractDaoTestCase;
 import org.sonar.core.persistence.MyBatis;
 import org.sonar.core.qualityprofile.db.ActiveRuleDao;
 import org.sonar.core.rule.RuleDao;
+import org.sonar.core.rule.RuleDto;
 import org.sonar.core.rule.RuleTagDao;
+import org.sonar.core.template.LoadedTemplateDao;
+import org.sonar.core.template.LoadedTemplateDto;
 import org.sonar.server.configuration.ProfilesManager;
 
+import java.sql.Connection;
+import java.util.Collection;
+import java.util.List;
+
 import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollection;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
 
 public class RuleRegistrationTest extends AbstractDaoTestCase {
 
@@ -50,6 +66,8 @@ public class RuleRegistrationTest extends AbstractDaoTestCase {
   RuleDao ruleDao;
   RuleTagDao ruleTagDao;
   ActiveRuleDao activeRuleDao;
+  LoadedTemplateDao loadedTemplateDao;
+  Server server = mock(Server.class);
 
   @Before
   public void before() {
@@ -57,9 +75,12 @@ public class RuleRegistrationTest extends AbstractDaoTestCase {
     ruleDao = new RuleDao(myBatis);
     ruleTagDao = new RuleTagDao(myBatis);
     activeRuleDao = new ActiveRuleDao(myBatis);
+    loadedTemplateDao = new LoadedTemplateDao(myBatis);
+    when(server.getVersion()).thenReturn("4.2");
     ruleTagOperations = new RuleTagOperations(ruleTagDao, esRuleTags);
     task = new RuleRegistration(new RuleDefinitionsLoader(mock(RuleRepositories.class), new RuleDefinitions[]{new FakeRepository()}),
-      profilesManager, ruleRegistry, esRuleTags, ruleTagOperations, myBatis, ruleDao, ruleTagDao, activeRuleDao);
+      profilesManager, ruleRegistry, esRuleTags, ruleTagOperations, myBatis, ruleDao, ruleTagDao, activeRuleDao,
+      loadedTemplateDao, server);
   }
 
   @Test
@@ -86,6 +107,14 @@ public class RuleRegistrationTest extends AbstractDaoTestCase {
     verify(profilesManager).removeActivatedRules(1);
   }
 
+  @Test
+  public void should_not_update_already_disabled_rules() {
+    setupData("should_not_update_already_disabled_rules");
+    task.start();
+
+    verifyZeroInteractions(profilesManager);
+  }
+
   @Test
   public void should_reactivate_disabled_rules() {
     setupData("should_reactivate_disabled_rules");
@@ -172,7 +201,8 @@ public class RuleRegistrationTest extends AbstractDaoTestCase {
   @Test
   public void test_high_number_of_rules() {
     task = new RuleRegistration(new RuleDefinitionsLoader(mock(RuleRepositories.class), new RuleDefinitions[]{new BigRepository()}),
-      profilesManager, ruleRegistry, esRuleTags, ruleTagOperations, myBatis, ruleDao, ruleTagDao, activeRuleDao);
+      profilesManager, ruleRegistry, esRuleTags, ruleTagOperations, myBatis, ruleDao, ruleTagDao, activeRuleDao,
+      loadedTemplateDao, server);
 
     setupData("shared");
     task.start();
@@ -187,7 +217,8 @@ public class RuleRegistrationTest extends AbstractDaoTestCase {
   public void should_insert_extended_repositories() {
     task = new RuleRegistration(new RuleDefinitionsLoader(mock(RuleRepositories.class), new RuleDefinitions[]{
         new FindbugsRepository(), new FbContribRepository()}),
-      profilesManager, ruleRegistry, esRuleTags, ruleTagOperations, myBatis, ruleDao, ruleTagDao, activeRuleDao);
+      profilesManager, ruleRegistry, esRuleTags, ruleTagOperations, myBatis, ruleDao, ruleTagDao, activeRuleDao,
+      loadedTemplateDao, server);
 
     setupData("empty");
     task.start();
@@ -195,6 +226,107 @@ public class RuleRegistrationTest extends AbstractDaoTestCase {
     checkTables("should_insert_extended_repositories", EXCLUDED_COLUMN_NAMES, "rules");
   }
 
+  @Test
+  public void should_save_fingerprints_of_repositories() {
+    setupData("shared");
+    task.start();
+
+    List<LoadedTemplateDto> fingerprints = loadedTemplateDao.selectByType(LoadedTemplateDto.RULE_REPOSITORY_TYPE);
+    assertThat(fingerprints).hasSize(1);
+    assertThat(fingerprints.get(0).getKey()).startsWith("fake:");
+  }
+
+  @Test
+  public void should_not_update_unchanged_repositories() {
+    setupData("shared");
+    task.start();
+    reset(ruleRegistry, profilesManager);
+
+    task.start();
+
+    checkTables("should_insert_new_rules", EXCLUDED_COLUMN_NAMES, "rules", "rules_parameters", "rules_rule_tags", "rule_tags");
+    ArgumentCaptor<Collection> updatedRules = ArgumentCaptor.forClass(Collection.class);
+    verify(ruleRegistry).bulkUpdateRules(anyCollection(), updatedRules.capture(), any(Multimap.class), any(Multimap.class));
+    assertThat(updatedRules.getValue()).isEmpty();
+    assertThat(task.updatedRuleIds()).isEmpty();
+    verifyZeroInteractions(profilesManager);
+  }
+
+  @Test
+  public void should_update_repositories_on_server_upgrade() {
+    setupData("shared");
+    task.start();
+    reset(ruleRegistry);
+
+    when(server.getVersion()).thenReturn("4.3");
+    task.start();
+
+    ArgumentCaptor<Collection> updatedRules = ArgumentCaptor.forClass(Collection.class);
+    verify(ruleRegistry).bulkUpdateRules(anyCollection(), updatedRules.capture(), any(Multimap.class), any(Multimap.class));
+    assertThat(updatedRules.getValue()).hasSize(2);
+    assertThat(loadedTemplateDao.selectByType(LoadedTemplateDto.RULE_REPOSITORY_TYPE)).hasSize(1);
+  }
+
+  @Test
+  public void should_reactivate_rules_of_reinstalled_repository() {
+    setupData("shared");
+    task.start();
+
+    // uninstall plugin
+    RuleRegistration uninstallTask = new RuleRegistration(new RuleDefinitionsLoader(mock(RuleRepositories.class), new RuleDefinitions[0]),
+      profilesManager, ruleRegistry, esRuleTags, ruleTagOperations, myBatis, ruleDao, ruleTagDao, activeRuleDao,
+      loadedTemplateDao, server);
+    uninstallTask.start();
+
+    assertThat(loadedTemplateDao.selectByType(LoadedTemplateDto.RULE_REPOSITORY_TYPE)).isEmpty();
+    assertThat(selectRule("rule1").getStatus()).isEqualTo(Rule.STATUS_REMOVED);
+
+    // reinstall plugin
+    task.start();
+
+    assertThat(loadedTemplateDao.selectByType(LoadedTemplateDto.RULE_REPOSITORY_TYPE)).hasSize(1);
+    assertThat(selectRule("rule1").getStatus()).isEqualTo(Rule.STATUS_READY);
+    assertThat(selectRule("rule2").getStatus()).isEqualTo(Rule.STATUS_DEPRECATED);
+  }
+
+  @Test
+  public void should_re_enable_removed_rules_of_unchanged_repository() {
+    setupData("shared");
+    task.start();
+    RuleDto rule1 = selectRule("rule1");
+    rule1.setStatus(Rule.STATUS_REMOVED);
+    ruleDao.update(rule1);
+
+    task.start();
+
+    assertThat(selectRule("rule1").getStatus()).isEqualTo(Rule.STATUS_READY);
+  }
+
+  @Test
+  public void should_insert_missing_rules_of_unchanged_repository() throws Exception {
+    setupData("shared");
+    task.start();
+    Connection connection = getConnection();
+    try {
+      connection.createStatement().executeUpdate("DELETE FROM rules WHERE plugin_name='fake' AND plugin_rule_key='rule1'");
+    } finally {
+      connection.close();
+    }
+
+    task.start();
+
+    assertThat(selectRule("rule1").getStatus()).isEqualTo(Rule.STATUS_READY);
+  }
+
+  private RuleDto selectRule(String ruleKey) {
+    for (RuleDto rule : ruleDao.selectAll()) {
+      if ("fake".equals(rule.getRepositoryKey()) && ruleKey.equals(rule.getRuleKey())) {
+        return rule;
+      }
+    }
+    throw new IllegalStateException("Rule not found: " + ruleKey);
+  }
+
   static class FakeRepository implements RuleDefinitions {
     @Override
     public void define(Context context) {
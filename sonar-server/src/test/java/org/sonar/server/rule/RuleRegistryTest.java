@@ -276,6 +276,52 @@ public class RuleRegistryTest {
     assertThat(esSetup.exists("rules", "rule", "3")).isFalse();
   }
 
+  @Test
+  public void should_index_only_updated_rules() {
+    RuleDto rule1 = new RuleDto();
+    rule1.setRepositoryKey("xoo");
+    rule1.setRuleKey("RuleWithParameters");
+    rule1.setName("not indexed");
+    rule1.setId(1);
+    rule1.setSeverity(Severity.MINOR);
+    RuleDto rule2 = new RuleDto();
+    rule2.setRepositoryKey("xoo");
+    rule2.setRuleKey("key2");
+    rule2.setName("polop");
+    rule2.setId(2);
+    rule2.setSeverity(Severity.MINOR);
+    Multimap<Integer, RuleParamDto> params = ArrayListMultimap.create();
+    Multimap<Integer, RuleRuleTagDto> tags = ArrayListMultimap.create();
+
+    registry.bulkUpdateRules(ImmutableList.of(rule1, rule2), ImmutableList.of(rule2), params, tags);
+
+    assertThat(esSetup.client().prepareGet("rules", "rule", "1").execute().actionGet().getSourceAsMap().get(RuleDocument.FIELD_NAME))
+      .isEqualTo("Rule with parameters - No Issue");
+    assertThat(esSetup.client().prepareGet("rules", "rule", "2").execute().actionGet().getSourceAsMap().get(RuleDocument.FIELD_NAME))
+      .isEqualTo("polop");
+    assertThat(esSetup.exists("rules", "rule", "3")).isFalse();
+  }
+
+  @Test
+  public void should_index_all_rules_if_some_are_missing_in_index() {
+    RuleDto rule1 = new RuleDto();
+    rule1.setRepositoryKey("xoo");
+    rule1.setRuleKey("key1");
+    rule1.setId(1);
+    rule1.setSeverity(Severity.MINOR);
+    RuleDto rule4 = new RuleDto();
+    rule4.setRepositoryKey("xoo");
+    rule4.setRuleKey("key4");
+    rule4.setId(4);
+    rule4.setSeverity(Severity.MINOR);
+    Multimap<Integer, RuleParamDto> params = ArrayListMultimap.create();
+    Multimap<Integer, RuleRuleTagDto> tags = ArrayListMultimap.create();
+
+    registry.bulkUpdateRules(ImmutableList.of(rule1, rule4), ImmutableList.<RuleDto>of(), params, tags);
+
+    assertThat(registry.findIds(ImmutableMap.of("repositoryKey", "xoo"))).containsOnly(1, 4);
+  }
+
   private String testFileAsString(String testFile) throws Exception {
     return IOUtils.toString(TestUtils.getResource(getClass(), testFile).toURI());
   }
@@ -17,10 +17,13 @@
  * along with this program; if not, write to the Free Software Foundation,
  * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
  */
-
 package org.sonar.squid.indexer;
 
+import java.util.ArrayDeque;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
@@ -31,13 +34,20 @@ import org.sonar.squid.api.SourceCode;
 import org.sonar.squid.api.SourceCodeIndexer;
 import org.sonar.squid.api.SourceCodeSearchEngine;
 
+/**
+ * Units are indexed by key, by type and by parent, so that queries by type and by parent only browse the matching
+ * units instead of the whole project. The parent of a unit is the one it has when indexed, which is always the case
+ * for units added with {@link SourceCode#addChild(SourceCode)}.
+ */
 public class SquidIndex implements SourceCodeIndexer, SourceCodeSearchEngine {
 
   private Map<String, SourceCode> index = new TreeMap<String, SourceCode>();
+  private Map<Class<? extends SourceCode>, Set<SourceCode>> unitsByType = new HashMap<Class<? extends SourceCode>, Set<SourceCode>>();
+  private Map<String, Set<SourceCode>> childrenByParentKey = new HashMap<String, Set<SourceCode>>();
 
   public Collection<SourceCode> search(Query... query) {
     Set<SourceCode> result = new HashSet<SourceCode>();
-    for (SourceCode unit : index.values()) {
+    for (SourceCode unit : candidates(query)) {
       if (isSquidUnitMatchQueries(unit, query)) {
         result.add(unit);
       }
@@ -45,6 +55,60 @@ public class SquidIndex implements SourceCodeIndexer, SourceCodeSearchEngine {
     return result;
   }
 
+  /**
+   * Smallest set of units given by the indexes of the queries. Candidates still have to match all the queries.
+   */
+  private Collection<SourceCode> candidates(Query... queries) {
+    Collection<SourceCode> candidates = index.values();
+    for (Query query : queries) {
+      if (query instanceof QueryByType) {
+        Set<SourceCode> units = unitsByType.get(((QueryByType) query).getResourceType());
+        if (units == null) {
+          return Collections.emptySet();
+        }
+        if (units.size() < candidates.size()) {
+          candidates = units;
+        }
+      }
+    }
+    for (Query query : queries) {
+      if (query instanceof QueryByParent) {
+        SourceCode parent = ((QueryByParent) query).getParent();
+        if (parent == null) {
+          return Collections.emptySet();
+        }
+        Collection<SourceCode> descendants = descendants(parent, candidates.size());
+        if (descendants != null) {
+          candidates = descendants;
+        }
+      }
+    }
+    return candidates;
+  }
+
+  /**
+   * @return the indexed descendants of the unit, or null as soon as there are more than maxSize of them
+   */
+  private Collection<SourceCode> descendants(SourceCode parent, int maxSize) {
+    Collection<SourceCode> result = new HashSet<SourceCode>();
+    Deque<String> parentKeys = new ArrayDeque<String>();
+    parentKeys.push(parent.getKey());
+    while (!parentKeys.isEmpty()) {
+      Set<SourceCode> children = childrenByParentKey.get(parentKeys.pop());
+      if (children != null) {
+        for (SourceCode child : children) {
+          if (result.add(child)) {
+            if (result.size() >= maxSize) {
+              return null;
+            }
+            parentKeys.push(child.getKey());
+          }
+        }
+      }
+    }
+    return result;
+  }
+
   private boolean isSquidUnitMatchQueries(SourceCode unit, Query... queries) {
     boolean match;
     for (Query query : queries) {
@@ -62,6 +126,39 @@ public class SquidIndex implements SourceCodeIndexer, SourceCodeSearchEngine {
 
   public void index(SourceCode sourceCode) {
     sourceCode.setSourceCodeIndexer(this);
-    index.put(sourceCode.getKey(), sourceCode);
+    SourceCode previous = index.put(sourceCode.getKey(), sourceCode);
+    if (previous != null) {
+      unindex(previous);
+    }
+    add(unitsByType, sourceCode.getClass(), sourceCode);
+    if (sourceCode.getParent() != null) {
+      add(childrenByParentKey, sourceCode.getParent().getKey(), sourceCode);
+    }
+  }
+
+  private void unindex(SourceCode sourceCode) {
+    remove(unitsByType, sourceCode.getClass(), sourceCode);
+    if (sourceCode.getParent() != null) {
+      remove(childrenByParentKey, sourceCode.getParent().getKey(), sourceCode);
+    }
+  }
+
+  private static <K> void add(Map<K, Set<SourceCode>> map, K key, SourceCode unit) {
+    Set<SourceCode> units = map.get(key);
+    if (units == null) {
+      units = new HashSet<SourceCode>();
+      map.put(key, units);
+    }
+    units.add(unit);
+  }
+
+  private static <K> void remove(Map<K, Set<SourceCode>> map, K key, SourceCode unit) {
+    Set<SourceCode> units = map.get(key);
+    if (units != null) {
+      units.remove(unit);
+      if (units.isEmpty()) {
+        map.remove(key);
+      }
+    }
   }
 }
@@ -20,13 +20,17 @@
 
 package org.sonar.squid.indexer;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.sonar.squid.api.Query;
 import org.sonar.squid.api.SourceClass;
 import org.sonar.squid.api.SourceCode;
 import org.sonar.squid.api.SourceFile;
+import org.sonar.squid.api.SourceMethod;
 import org.sonar.squid.api.SourcePackage;
 import org.sonar.squid.api.SourceProject;
 import org.sonar.squid.indexer.QueryByMeasure.Operator;
@@ -34,6 +38,7 @@ import org.sonar.squid.measures.Metric;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 public class SquidIndexTest {
@@ -97,6 +102,65 @@ public class SquidIndexTest {
     assertTrue(resources.contains(classSquid));
   }
 
+  @Test
+  public void searchByUnknownType() {
+    assertEquals(0, indexer.search(new QueryByType(SourceMethod.class)).size());
+  }
+
+  @Test
+  public void searchByParentWithoutDescendants() {
+    assertEquals(0, indexer.search(new QueryByParent(classSquid)).size());
+    assertEquals(0, indexer.search(new QueryByParent(null)).size());
+  }
+
+  @Test
+  public void searchByParentAndByTypeOfFewerUnits() {
+    Collection<SourceCode> resources = indexer.search(new QueryByParent(project), new QueryByType(SourcePackage.class));
+    assertEquals(1, resources.size());
+    assertTrue(resources.contains(packSquid));
+  }
+
+  @Test
+  public void searchReplacedResource() {
+    SourceCode otherClass = new SourceClass("org.sonar.squid.Squid", "Squid");
+    file2Squid.addChild(otherClass);
+    assertSame(otherClass, indexer.search("org.sonar.squid.Squid"));
+
+    Collection<SourceCode> resources = indexer.search(new QueryByType(SourceClass.class));
+    assertEquals(1, resources.size());
+    assertSame(otherClass, resources.iterator().next());
+    assertEquals(0, indexer.search(new QueryByParent(fileSquid)).size());
+    assertEquals(1, indexer.search(new QueryByParent(file2Squid)).size());
+  }
+
+  @Test
+  public void searchByParentInLargeProject() {
+    SquidIndex largeIndex = new SquidIndex();
+    SourceProject largeProject = new SourceProject("Large Project");
+    largeIndex.index(largeProject);
+    List<SourcePackage> packages = new ArrayList<SourcePackage>();
+    for (int i = 0; i < 1000; i++) {
+      SourcePackage pack = new SourcePackage("pack" + i);
+      largeProject.addChild(pack);
+      packages.add(pack);
+      for (int j = 0; j < 50; j++) {
+        SourceFile file = new SourceFile("pack" + i + "/File" + j + ".java");
+        pack.addChild(file);
+        file.addChild(new SourceClass("pack" + i + ".File" + j));
+      }
+    }
+
+    // one search per package, as done by decorators. Only the descendants of the package are browsed.
+    for (SourcePackage pack : packages) {
+      CountingQuery counter = new CountingQuery();
+      assertEquals(50, largeIndex.search(counter, new QueryByParent(pack), new QueryByType(SourceClass.class)).size());
+      assertEquals(100, counter.count);
+    }
+    CountingQuery counter = new CountingQuery();
+    assertEquals(50000, largeIndex.search(counter, new QueryByType(SourceFile.class)).size());
+    assertEquals(50000, counter.count);
+  }
+
   @Test
   public void searchByMeasure() {
     fileSquid.add(Metric.COMPLEXITY, 2);
@@ -109,4 +173,13 @@ public class SquidIndexTest {
     assertEquals(0, indexer.search(new QueryByMeasure(Metric.COMPLEXITY, Operator.EQUALS, 6)).size());
     assertEquals(1, indexer.search(new QueryByMeasure(Metric.COMPLEXITY, Operator.EQUALS, 2)).size());
   }
+
+  private static class CountingQuery implements Query {
+    private int count = 0;
+
+    public boolean match(SourceCode unit) {
+      count++;
+      return true;
+    }
+  }
 }
@@ -27,6 +27,7 @@ import org.sonar.wsclient.Host;
 import org.sonar.wsclient.services.*;
 
 import java.io.*;
+import java.util.zip.GZIPInputStream;
 
 /**
  * @since 2.1
@@ -38,6 +39,7 @@ public class HttpClient3Connector extends Connector {
 
   private final Host server;
   private HttpClient httpClient;
+  private final RequestStatistics statistics = new RequestStatistics();
 
   public HttpClient3Connector(final Host server) {
     this.server = server;
@@ -76,6 +78,13 @@ public class HttpClient3Connector extends Connector {
     return httpClient;
   }
 
+  /**
+   * @since 4.2
+   */
+  public RequestStatistics getStatistics() {
+    return statistics;
+  }
+
   @Override
   public String execute(Query<?> query) {
     return executeRequest(newGetRequest(query));
@@ -98,6 +107,7 @@ public class HttpClient3Connector extends Connector {
 
   private String executeRequest(HttpMethodBase method) {
     String json = null;
+    long start = System.currentTimeMillis();
     try {
       httpClient.executeMethod(method);
 
@@ -117,6 +127,7 @@ public class HttpClient3Connector extends Connector {
     } finally {
       if (method != null) {
         method.releaseConnection();
+        statistics.add(method.getPath(), System.currentTimeMillis() - start);
       }
     }
     return json;
@@ -160,6 +171,7 @@ public class HttpClient3Connector extends Connector {
 
   private void initRequest(HttpMethodBase request, AbstractQuery query) {
     request.setRequestHeader("Accept", "application/json");
+    request.setRequestHeader("Accept-Encoding", "gzip");
     if (query.getLocale() != null) {
       request.setRequestHeader("Accept-Language", query.getLocale());
     }
@@ -169,7 +181,11 @@ public class HttpClient3Connector extends Connector {
   private String getResponseBodyAsString(HttpMethod method) {
     BufferedReader reader = null;
     try {
-      final InputStream inputStream = method.getResponseBodyAsStream();
+      InputStream inputStream = method.getResponseBodyAsStream();
+      Header contentEncoding = method.getResponseHeader("Content-Encoding");
+      if (contentEncoding != null && contentEncoding.getValue().contains("gzip")) {
+        inputStream = new GZIPInputStream(inputStream);
+      }
       reader = new BufferedReader(new InputStreamReader(inputStream));
       final StringBuilder sb = new StringBuilder();
       String line;
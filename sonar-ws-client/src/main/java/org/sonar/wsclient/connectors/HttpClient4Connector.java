@@ -39,9 +39,12 @@ import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpPut;
 import org.apache.http.client.methods.HttpRequestBase;
 import org.apache.http.client.protocol.ClientContext;
+import org.apache.http.client.protocol.RequestAcceptEncoding;
+import org.apache.http.client.protocol.ResponseContentEncoding;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.auth.BasicScheme;
 import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.impl.conn.PoolingClientConnectionManager;
 import org.apache.http.params.CoreConnectionPNames;
 import org.apache.http.params.HttpConnectionParams;
 import org.apache.http.params.HttpParams;
@@ -60,22 +63,48 @@ import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 
 /**
+ * Connections are pooled and kept alive, so that the same connector can be used by several threads. Responses
+ * are compressed with gzip when supported by server.
+ *
  * @since 2.1
  */
 public class HttpClient4Connector extends Connector {
 
+  private static final int MAX_TOTAL_CONNECTIONS = 40;
+  private static final int MAX_HOST_CONNECTIONS = 4;
+
   private Host server;
+  private PoolingClientConnectionManager connectionManager;
   private DefaultHttpClient client;
+  private final RequestStatistics statistics = new RequestStatistics();
 
   public HttpClient4Connector(Host server) {
+    this(server, MAX_HOST_CONNECTIONS);
+  }
+
+  /**
+   * @param maxConnectionsPerHost maximum number of connections opened concurrently to the server
+   * @since 4.2
+   */
+  public HttpClient4Connector(Host server, int maxConnectionsPerHost) {
+    if (maxConnectionsPerHost <= 0) {
+      throw new IllegalArgumentException("Maximum number of connections per host must be positive: " + maxConnectionsPerHost);
+    }
     this.server = server;
-    initClient();
+    initClient(maxConnectionsPerHost);
   }
 
   public DefaultHttpClient getHttpClient() {
     return client;
   }
 
+  /**
+   * @since 4.2
+   */
+  public RequestStatistics getStatistics() {
+    return statistics;
+  }
+
   @Override
   public String execute(Query<?> query) {
     return executeRequest(newGetMethod(query));
@@ -98,18 +127,22 @@ public class HttpClient4Connector extends Connector {
 
   private String executeRequest(HttpRequestBase request) {
     String json = null;
+    long start = System.currentTimeMillis();
     try {
-      BasicHttpContext context = createLocalContext(client);
-      HttpResponse response = client.execute(request, context);
+      HttpResponse response = client.execute(request, createLocalContext());
       HttpEntity entity = response.getEntity();
       if (entity != null) {
         if (response.getStatusLine().getStatusCode() == HttpStatus.SC_OK) {
           json = EntityUtils.toString(entity);
 
-        } else if (response.getStatusLine().getStatusCode() != HttpStatus.SC_NOT_FOUND) {
-          throw new ConnectionException("HTTP error: " + response.getStatusLine().getStatusCode()
-            + ", msg: " + response.getStatusLine().getReasonPhrase()
-            + ", query: " + request.toString());
+        } else {
+          // the connection can be reused only once the response is consumed
+          EntityUtils.consume(entity);
+          if (response.getStatusLine().getStatusCode() != HttpStatus.SC_NOT_FOUND) {
+            throw new ConnectionException("HTTP error: " + response.getStatusLine().getStatusCode()
+              + ", msg: " + response.getStatusLine().getReasonPhrase()
+              + ", query: " + request.toString());
+          }
         }
       }
 
@@ -118,28 +151,39 @@ public class HttpClient4Connector extends Connector {
 
     } finally {
       request.releaseConnection();
+      statistics.add(request.getURI().getPath(), System.currentTimeMillis() - start);
     }
     return json;
   }
 
+  /**
+   * Closes the pooled connections. The connector can not be used anymore.
+   *
+   * @since 4.2
+   */
   public void close() {
-    if (client != null) {
-      client.getConnectionManager().shutdown();
-    }
+    connectionManager.shutdown();
   }
 
-  private void initClient() {
-    client = new DefaultHttpClient();
+  private void initClient(int maxConnectionsPerHost) {
+    connectionManager = new PoolingClientConnectionManager();
+    connectionManager.setDefaultMaxPerRoute(maxConnectionsPerHost);
+    connectionManager.setMaxTotal(Math.max(MAX_TOTAL_CONNECTIONS, maxConnectionsPerHost));
+    client = new DefaultHttpClient(connectionManager);
     HttpParams params = client.getParams();
     HttpConnectionParams.setConnectionTimeout(params, AbstractQuery.DEFAULT_TIMEOUT_MILLISECONDS);
     HttpConnectionParams.setSoTimeout(params, AbstractQuery.DEFAULT_TIMEOUT_MILLISECONDS);
+    client.addRequestInterceptor(new RequestAcceptEncoding());
+    client.addResponseInterceptor(new ResponseContentEncoding());
     if (server.getUsername() != null) {
       client.getCredentialsProvider()
         .setCredentials(AuthScope.ANY, new UsernamePasswordCredentials(server.getUsername(), server.getPassword()));
+      // Add as the first request interceptor
+      client.addRequestInterceptor(new PreemptiveAuth(), 0);
     }
   }
 
-  private BasicHttpContext createLocalContext(DefaultHttpClient client) {
+  private BasicHttpContext createLocalContext() {
     BasicHttpContext localcontext = new BasicHttpContext();
 
     if (server.getUsername() != null) {
@@ -147,9 +191,6 @@ public class HttpClient4Connector extends Connector {
       // execution context
       BasicScheme basicAuth = new BasicScheme();
       localcontext.setAttribute(PreemptiveAuth.ATTRIBUTE, basicAuth);
-
-      // Add as the first request interceptor
-      client.addRequestInterceptor(new PreemptiveAuth(), 0);
     }
     return localcontext;
   }
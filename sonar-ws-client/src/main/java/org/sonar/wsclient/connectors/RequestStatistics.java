@@ -0,0 +1,113 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2013 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.wsclient.connectors;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histograms of the durations of the requests executed by a connector, per web service. Web services are identified
+ * by the path of their URL, without parameters. As some paths contain keys or ids, at most {@link #MAX_ENDPOINTS}
+ * paths are recorded, then the durations of the other paths are added to {@link #OTHER_ENDPOINTS}.
+ * This class is thread-safe.
+ *
+ * @since 4.2
+ */
+public class RequestStatistics {
+
+  public static final int MAX_ENDPOINTS = 100;
+  public static final String OTHER_ENDPOINTS = "<other>";
+
+  private static final long[] BUCKET_UPPER_BOUNDS = {10L, 50L, 100L, 500L, 1000L, 5000L};
+
+  private final ConcurrentMap<String, AtomicLongArray> histogramsByEndpoint = new ConcurrentHashMap<String, AtomicLongArray>();
+
+  void add(String url, long durationInMilliseconds) {
+    String endpoint = endpoint(url);
+    AtomicLongArray histogram = histogramsByEndpoint.get(endpoint);
+    if (histogram == null && histogramsByEndpoint.size() >= MAX_ENDPOINTS) {
+      endpoint = OTHER_ENDPOINTS;
+      histogram = histogramsByEndpoint.get(endpoint);
+    }
+    if (histogram == null) {
+      histogramsByEndpoint.putIfAbsent(endpoint, new AtomicLongArray(BUCKET_UPPER_BOUNDS.length + 1));
+      histogram = histogramsByEndpoint.get(endpoint);
+    }
+    histogram.incrementAndGet(bucket(durationInMilliseconds));
+  }
+
+  /**
+   * Upper bounds of the buckets of histograms, in milliseconds : 10, 50, 100, 500, 1000 and 5000. An additional last
+   * bucket has no upper bound.
+   */
+  public static long[] bucketUpperBounds() {
+    return BUCKET_UPPER_BOUNDS.clone();
+  }
+
+  /**
+   * Paths of the requested web services, for example "/api/resources"
+   */
+  public Set<String> endpoints() {
+    return Collections.unmodifiableSet(histogramsByEndpoint.keySet());
+  }
+
+  /**
+   * @return the number of requests per bucket, see {@link #bucketUpperBounds()}. All counts are zero if the web service
+   * has not been requested.
+   */
+  public long[] histogram(String endpoint) {
+    long[] result = new long[BUCKET_UPPER_BOUNDS.length + 1];
+    AtomicLongArray histogram = histogramsByEndpoint.get(endpoint);
+    if (histogram != null) {
+      for (int i = 0; i < result.length; i++) {
+        result[i] = histogram.get(i);
+      }
+    }
+    return result;
+  }
+
+  public long count(String endpoint) {
+    long count = 0L;
+    for (long bucketCount : histogram(endpoint)) {
+      count += bucketCount;
+    }
+    return count;
+  }
+
+  public void clear() {
+    histogramsByEndpoint.clear();
+  }
+
+  static String endpoint(String url) {
+    int parameters = url.indexOf('?');
+    return parameters < 0 ? url : url.substring(0, parameters);
+  }
+
+  private static int bucket(long durationInMilliseconds) {
+    int bucket = 0;
+    while (bucket < BUCKET_UPPER_BOUNDS.length && durationInMilliseconds > BUCKET_UPPER_BOUNDS[bucket]) {
+      bucket++;
+    }
+    return bucket;
+  }
+}
@@ -20,9 +20,15 @@
 package org.sonar.wsclient.internal;
 
 import com.github.kevinsawicki.http.HttpRequest;
+import org.json.simple.parser.ContentHandler;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
 import org.sonar.wsclient.base.HttpException;
 
 import javax.annotation.Nullable;
+
+import java.io.IOException;
+import java.io.Reader;
 import java.util.Map;
 
 /**
@@ -121,6 +127,33 @@ public class HttpRequestFactory {
     return execute(request);
   }
 
+  /**
+   * The JSON response is parsed while being read, so that it is never entirely loaded in memory.
+   *
+   * @since 4.2
+   */
+  public void get(String wsUrl, Map<String, Object> queryParams, ContentHandler jsonHandler) {
+    HttpRequest request = prepare(HttpRequest.get(baseUrl + wsUrl, queryParams, true));
+    try {
+      if (!request.ok()) {
+        throw new HttpException(request.url().toString(), request.code());
+      }
+      Reader reader = request.bufferedReader(HttpRequest.CHARSET_UTF8);
+      try {
+        new JSONParser().parse(reader, jsonHandler);
+      } finally {
+        reader.close();
+      }
+
+    } catch (HttpRequest.HttpRequestException e) {
+      throw new IllegalStateException("Fail to request " + request.url(), e.getCause());
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to read response of " + request.url(), e);
+    } catch (ParseException e) {
+      throw new IllegalStateException("Fail to parse response of " + request.url(), e);
+    }
+  }
+
   public String post(String wsUrl, Map<String, Object> queryParams) {
     HttpRequest request = prepare(HttpRequest.post(baseUrl + wsUrl, true)).form(queryParams, HttpRequest.CHARSET_UTF8);
     return execute(request);
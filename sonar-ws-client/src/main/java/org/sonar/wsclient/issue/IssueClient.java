@@ -35,6 +35,28 @@ public interface IssueClient {
    */
   Issues find(IssueQuery query);
 
+  /**
+   * Browse all the issues matching the query, page after page. Same as {@link #findAll(IssueQuery, boolean)} without
+   * prefetching.
+   *
+   * @since 4.2
+   */
+  Iterable<Issue> findAll(IssueQuery query);
+
+  /**
+   * Browse all the issues matching the query, page after page. A page is requested only when the previous one is
+   * browsed, and its response is unmarshalled while being read, so that memory does not depend on the number of issues.
+   * Size of pages can be set with {@link IssueQuery#pageSize(int)}. Rules, users and components are not loaded.
+   * <p/>
+   * Issues are sorted by ascending creation date if the query does not define any sort. The server returns
+   * at most 10,000 issues per query, so more issues can be browsed only with this default sort. Otherwise an
+   * {@link IllegalStateException} is thrown when the first 10,000 issues have been browsed.
+   *
+   * @param prefetch if true, the next page is requested by a background thread while the current page is browsed
+   * @since 4.2
+   */
+  Iterable<Issue> findAll(IssueQuery query, boolean prefetch);
+
   /**
    * Assign an existing issue to a user. A null assignee removes the assignee.
    *
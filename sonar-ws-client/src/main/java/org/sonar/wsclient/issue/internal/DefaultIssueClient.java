@@ -26,6 +26,8 @@ import org.sonar.wsclient.issue.*;
 
 import javax.annotation.Nullable;
 
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
@@ -49,6 +51,29 @@ public class DefaultIssueClient implements IssueClient {
     return parser.parseIssues(json);
   }
 
+  @Override
+  public Iterable<Issue> findAll(IssueQuery query) {
+    return findAll(query, false);
+  }
+
+  @Override
+  public Iterable<Issue> findAll(IssueQuery query, final boolean prefetch) {
+    // later changes of the query do not impact iterations
+    final Map<String, Object> params = new HashMap<String, Object>(query.urlParams());
+    return new Iterable<Issue>() {
+      @Override
+      public Iterator<Issue> iterator() {
+        return new PagedIssueIterator(DefaultIssueClient.this, params, prefetch);
+      }
+    };
+  }
+
+  IssuesPageHandler findPage(Map<String, Object> params) {
+    IssuesPageHandler page = new IssuesPageHandler();
+    requestFactory.get(SEARCH_URL, params, page);
+    return page;
+  }
+
   @Override
   public Issue create(NewIssue newIssue) {
     String json = requestFactory.post("/api/issues/create", newIssue.urlParams());
@@ -0,0 +1,170 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2013 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.wsclient.issue.internal;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.ContentHandler;
+import org.sonar.wsclient.base.Paging;
+import org.sonar.wsclient.issue.Issue;
+
+import javax.annotation.CheckForNull;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Unmarshalls the issues, the paging and the flag maxResultsReached of a response of /api/issues/search while it
+ * is read. Other fields, for example rules and components, are skipped without being loaded.
+ *
+ * @since 4.2
+ */
+class IssuesPageHandler implements ContentHandler {
+
+  private static final String ISSUES = "issues";
+  private static final String PAGING = "paging";
+  private static final String MAX_RESULTS_REACHED = "maxResultsReached";
+
+  private final List<Issue> issues = new ArrayList<Issue>();
+  private Paging paging;
+  private boolean maxResultsReached = false;
+
+  // depth of the current JSON object or array, the root object being 1
+  private int depth = 0;
+  private String rootKey;
+  // objects and arrays of the value being loaded, and the keys of their entries
+  private final LinkedList<Object> containers = new LinkedList<Object>();
+  private final LinkedList<String> keys = new LinkedList<String>();
+
+  List<Issue> issues() {
+    return issues;
+  }
+
+  @CheckForNull
+  Paging paging() {
+    return paging;
+  }
+
+  /**
+   * True if the server returns only the first issues matching the query, because there are too many of them
+   */
+  boolean maxResultsReached() {
+    return maxResultsReached;
+  }
+
+  /**
+   * Values are loaded only for the elements of the array of issues and for the paging
+   */
+  private boolean isLoaded() {
+    return (ISSUES.equals(rootKey) && depth >= 3) || (PAGING.equals(rootKey) && depth >= 2);
+  }
+
+  @Override
+  public void startJSON() {
+    // nothing to do
+  }
+
+  @Override
+  public void endJSON() {
+    // nothing to do
+  }
+
+  @Override
+  public boolean startObject() {
+    depth++;
+    if (isLoaded()) {
+      containers.push(new JSONObject());
+    }
+    return true;
+  }
+
+  @Override
+  public boolean endObject() {
+    if (isLoaded()) {
+      addValue(containers.pop());
+    }
+    depth--;
+    return true;
+  }
+
+  @Override
+  public boolean startObjectEntry(String key) {
+    if (depth == 1) {
+      rootKey = key;
+    } else if (isLoaded()) {
+      keys.push(key);
+    }
+    return true;
+  }
+
+  @Override
+  public boolean endObjectEntry() {
+    if (depth == 1) {
+      rootKey = null;
+    } else if (isLoaded()) {
+      keys.pop();
+    }
+    return true;
+  }
+
+  @Override
+  public boolean startArray() {
+    depth++;
+    if (isLoaded()) {
+      containers.push(new JSONArray());
+    }
+    return true;
+  }
+
+  @Override
+  public boolean endArray() {
+    if (isLoaded()) {
+      addValue(containers.pop());
+    }
+    depth--;
+    return true;
+  }
+
+  @Override
+  public boolean primitive(Object value) {
+    if (!containers.isEmpty()) {
+      addValue(value);
+    } else if (depth == 1 && MAX_RESULTS_REACHED.equals(rootKey)) {
+      maxResultsReached = Boolean.TRUE.equals(value);
+    }
+    return true;
+  }
+
+  private void addValue(Object value) {
+    if (containers.isEmpty()) {
+      if (ISSUES.equals(rootKey)) {
+        issues.add(new DefaultIssue((Map) value));
+      } else {
+        paging = new Paging((Map) value);
+      }
+    } else if (containers.peek() instanceof Map) {
+      ((Map) containers.peek()).put(keys.peek(), value);
+    } else {
+      ((List) containers.peek()).add(value);
+    }
+  }
+}
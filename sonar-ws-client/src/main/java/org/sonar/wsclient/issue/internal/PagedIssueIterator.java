@@ -0,0 +1,210 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2013 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.wsclient.issue.internal;
+
+import org.sonar.wsclient.base.Paging;
+import org.sonar.wsclient.internal.EncodingUtils;
+import org.sonar.wsclient.issue.Issue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Requests the pages of issues when needed, so that at most two pages are in memory : the one being browsed and,
+ * when prefetching, the next one.
+ * <p/>
+ * The server returns only the first 10,000 issues of a query (see the flag maxResultsReached). When the issues
+ * are sorted by ascending creation date, which is the default, the next issues are requested by a new query
+ * restricted to the issues created after the last browsed ones. Creation dates are known to the second only, so the
+ * new query starts one second before the last creation date and the issues already browsed are skipped.
+ *
+ * @since 4.2
+ */
+class PagedIssueIterator implements Iterator<Issue> {
+
+  private static final String PAGE_INDEX = "pageIndex";
+  private static final String SORT = "sort";
+  private static final String ASC = "asc";
+  private static final String CREATED_AFTER = "createdAfter";
+  private static final String SORT_BY_CREATION_DATE = "CREATION_DATE";
+  private static final long ONE_SECOND = 1000L;
+
+  private final DefaultIssueClient client;
+  private final Map<String, Object> params;
+  private final boolean prefetch;
+  private int pageIndex;
+  private boolean lastPage = false;
+  private boolean maxResultsReached = false;
+  private Iterator<Issue> issues = Collections.<Issue>emptyList().iterator();
+  private Future<IssuesPageHandler> nextPage;
+
+  // creation date of the last loaded issues, and the keys of the issues created during this second and the previous one
+  private Long lastCreationDate;
+  private Set<String> keysOfLastCreationDate = new HashSet<String>();
+  private Set<String> keysOfPreviousCreationDate = new HashSet<String>();
+  // issues of the current query which have already been browsed by the previous query
+  private Set<String> skippedKeys = Collections.emptySet();
+
+  PagedIssueIterator(DefaultIssueClient client, Map<String, Object> params, boolean prefetch) {
+    this.client = client;
+    this.params = new HashMap<String, Object>(params);
+    this.prefetch = prefetch;
+    if (!this.params.containsKey(SORT)) {
+      this.params.put(SORT, SORT_BY_CREATION_DATE);
+      this.params.put(ASC, true);
+    }
+    Object firstPageIndex = params.get(PAGE_INDEX);
+    this.pageIndex = firstPageIndex instanceof Integer ? (Integer) firstPageIndex : 1;
+  }
+
+  @Override
+  public boolean hasNext() {
+    while (!issues.hasNext() && !lastPage) {
+      loadNextPage();
+    }
+    return issues.hasNext();
+  }
+
+  @Override
+  public Issue next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    return issues.next();
+  }
+
+  @Override
+  public void remove() {
+    throw new UnsupportedOperationException();
+  }
+
+  private void loadNextPage() {
+    if (maxResultsReached) {
+      restrictToNextIssues();
+    }
+    IssuesPageHandler page = nextPage != null ? waitFor(nextPage) : client.findPage(pageParams(pageIndex));
+    nextPage = null;
+    issues = browse(page.issues()).iterator();
+    Paging paging = page.paging();
+    lastPage = page.issues().isEmpty() || paging == null || paging.pages() == null || pageIndex >= paging.pages();
+    pageIndex++;
+    if (lastPage && page.maxResultsReached()) {
+      // the next issues are requested when the current ones are browsed
+      maxResultsReached = true;
+      lastPage = false;
+    } else if (!lastPage && prefetch) {
+      nextPage = requestInBackground(pageParams(pageIndex));
+    }
+  }
+
+  private List<Issue> browse(List<Issue> pageIssues) {
+    List<Issue> result = new ArrayList<Issue>(pageIssues.size());
+    for (Issue issue : pageIssues) {
+      if (!skippedKeys.contains(issue.key())) {
+        result.add(issue);
+        Date creationDate = issue.creationDate();
+        if (creationDate != null) {
+          track(issue.key(), creationDate.getTime());
+        }
+      }
+    }
+    return result;
+  }
+
+  private void track(String key, long creationDate) {
+    if (lastCreationDate == null || creationDate > lastCreationDate) {
+      if (lastCreationDate != null && creationDate - lastCreationDate <= ONE_SECOND) {
+        keysOfPreviousCreationDate = keysOfLastCreationDate;
+      } else {
+        keysOfPreviousCreationDate = new HashSet<String>();
+      }
+      keysOfLastCreationDate = new HashSet<String>();
+      lastCreationDate = creationDate;
+    }
+    keysOfLastCreationDate.add(key);
+  }
+
+  /**
+   * Replaces the query, which is capped by the server, by the query of the issues created since the last browsed ones
+   */
+  private void restrictToNextIssues() {
+    if (!SORT_BY_CREATION_DATE.equals(params.get(SORT)) || !Boolean.TRUE.equals(params.get(ASC)) || lastCreationDate == null) {
+      throw new IllegalStateException("Too many issues match the query " + params + ". Issues must be sorted by ascending creation date "
+        + "to be browsed beyond the maximum number of results");
+    }
+    Date createdAfter = new Date(lastCreationDate - ONE_SECOND);
+    String createdAfterParam = EncodingUtils.toQueryParam(createdAfter, true);
+    if (createdAfterParam.equals(params.get(CREATED_AFTER))) {
+      throw new IllegalStateException("Too many issues created at " + EncodingUtils.toQueryParam(new Date(lastCreationDate), true)
+        + " match the query " + params + ". Please restrict the query.");
+    }
+    params.put(CREATED_AFTER, createdAfterParam);
+    skippedKeys = new HashSet<String>(keysOfLastCreationDate);
+    skippedKeys.addAll(keysOfPreviousCreationDate);
+    pageIndex = 1;
+    maxResultsReached = false;
+  }
+
+  private Map<String, Object> pageParams(int index) {
+    Map<String, Object> result = new HashMap<String, Object>(params);
+    result.put(PAGE_INDEX, index);
+    return result;
+  }
+
+  private Future<IssuesPageHandler> requestInBackground(final Map<String, Object> pageParams) {
+    FutureTask<IssuesPageHandler> task = new FutureTask<IssuesPageHandler>(new Callable<IssuesPageHandler>() {
+      @Override
+      public IssuesPageHandler call() {
+        return client.findPage(pageParams);
+      }
+    });
+    Thread thread = new Thread(task, "Issues page " + pageParams.get(PAGE_INDEX));
+    // do not prevent the JVM from exiting when iteration is interrupted
+    thread.setDaemon(true);
+    thread.start();
+    return task;
+  }
+
+  private static IssuesPageHandler waitFor(Future<IssuesPageHandler> future) {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while requesting issues", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new IllegalStateException("Fail to request issues", e.getCause());
+    }
+  }
+}
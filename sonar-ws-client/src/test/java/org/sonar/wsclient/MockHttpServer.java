@@ -28,9 +28,13 @@ import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Enumeration;
 import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import static javax.servlet.http.HttpServletResponse.SC_OK;
 import static org.apache.commons.io.IOUtils.write;
@@ -39,7 +43,9 @@ public class MockHttpServer {
   private Server server;
   private String responseBody;
   private int responseStatus = SC_OK;
+  private final LinkedList<String> nextResponseBodies = new LinkedList<String>();
   private String requestPath;
+  private final List<String> requestPaths = new CopyOnWriteArrayList<String>();
   private Map requestHeaders = new HashMap(), requestParams = new HashMap();
 
   public void start() throws Exception {
@@ -54,6 +60,7 @@ public class MockHttpServer {
       @Override
       public void handle(String target, Request baseRequest, HttpServletRequest httpServletRequest, HttpServletResponse response) throws IOException, ServletException {
         requestPath = baseRequest.getUri().toString();
+        requestPaths.add(requestPath);
         requestHeaders.clear();
         Enumeration names = baseRequest.getHeaderNames();
         while (names.hasMoreElements()) {
@@ -68,7 +75,7 @@ public class MockHttpServer {
         }
         response.setStatus(responseStatus);
         response.setContentType("application/json;charset=utf-8");
-        write(responseBody, response.getOutputStream());
+        write(nextResponseBody(), response.getOutputStream());
         baseRequest.setHandled(true);
       }
     };
@@ -90,6 +97,22 @@ public class MockHttpServer {
     return this;
   }
 
+  /**
+   * Bodies of the next responses, one per request. The body set by {@link #doReturnBody(String)} is returned afterwards.
+   */
+  public MockHttpServer doReturnBodies(String... responseBodies) {
+    synchronized (nextResponseBodies) {
+      nextResponseBodies.addAll(Arrays.asList(responseBodies));
+    }
+    return this;
+  }
+
+  private String nextResponseBody() {
+    synchronized (nextResponseBodies) {
+      return nextResponseBodies.isEmpty() ? responseBody : nextResponseBodies.removeFirst();
+    }
+  }
+
   public MockHttpServer doReturnStatus(int status) {
     this.responseStatus = status;
     return this;
@@ -99,6 +122,10 @@ public class MockHttpServer {
     return requestPath;
   }
 
+  public List<String> requestPaths() {
+    return requestPaths;
+  }
+
   public Map requestHeaders() {
     return requestHeaders;
   }
@@ -22,6 +22,7 @@ package org.sonar.wsclient;
 
 import org.junit.rules.ExternalResource;
 
+import java.util.List;
 import java.util.Map;
 
 public final class MockHttpServerInterceptor extends ExternalResource {
@@ -44,6 +45,11 @@ public final class MockHttpServerInterceptor extends ExternalResource {
     return this;
   }
 
+  public MockHttpServerInterceptor stubResponseBodies(String... bodies) {
+    server.doReturnBodies(bodies);
+    return this;
+  }
+
   public MockHttpServerInterceptor stubStatusCode(int status) {
     server.doReturnStatus(status);
     return this;
@@ -53,6 +59,10 @@ public final class MockHttpServerInterceptor extends ExternalResource {
     return server.requestPath();
   }
 
+  public List<String> requestedPaths() {
+    return server.requestPaths();
+  }
+
   public Map requestHeaders() {
     return server.requestHeaders();
   }
@@ -0,0 +1,121 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2013 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.wsclient.connectors;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.sonar.wsclient.Host;
+import org.sonar.wsclient.MockHttpServerInterceptor;
+import org.sonar.wsclient.services.ServerQuery;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class HttpClient4ConnectorTest {
+
+  @Rule
+  public MockHttpServerInterceptor httpServer = new MockHttpServerInterceptor();
+
+  HttpClient4Connector connector;
+
+  @After
+  public void close() {
+    if (connector != null) {
+      connector.close();
+    }
+  }
+
+  @Test
+  public void should_accept_gzip_responses() {
+    httpServer.stubResponseBody("{}");
+    connector = new HttpClient4Connector(new Host(httpServer.url()));
+
+    assertThat(connector.execute(new ServerQuery())).isEqualTo("{}");
+    assertThat((String) httpServer.requestHeaders().get("Accept-Encoding")).contains("gzip");
+  }
+
+  @Test
+  public void should_record_durations_of_requests() {
+    httpServer.stubResponseBody("{}");
+    connector = new HttpClient4Connector(new Host(httpServer.url()));
+
+    connector.execute(new ServerQuery());
+    connector.execute(new ServerQuery());
+
+    assertThat(connector.getStatistics().endpoints()).containsOnly(ServerQuery.BASE_URL);
+    assertThat(connector.getStatistics().count(ServerQuery.BASE_URL)).isEqualTo(2L);
+  }
+
+  @Test(timeout = 10000)
+  public void should_reuse_connections_of_not_found_responses() {
+    httpServer.stubStatusCode(404).stubResponseBody("{}");
+    connector = new HttpClient4Connector(new Host(httpServer.url()), 1);
+
+    // the second request would wait for the connection if the first response was not consumed
+    assertThat(connector.execute(new ServerQuery())).isNull();
+    assertThat(connector.execute(new ServerQuery())).isNull();
+  }
+
+  @Test(timeout = 30000)
+  public void should_execute_concurrent_requests() throws Exception {
+    httpServer.stubResponseBody("{}");
+    connector = new HttpClient4Connector(new Host(httpServer.url()), 2);
+
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<String>> responses = new ArrayList<Future<String>>();
+      for (int i = 0; i < 40; i++) {
+        responses.add(executor.submit(new Callable<String>() {
+          public String call() {
+            return connector.execute(new ServerQuery());
+          }
+        }));
+      }
+      for (Future<String> response : responses) {
+        assertThat(response.get()).isEqualTo("{}");
+      }
+    } finally {
+      executor.shutdown();
+    }
+    assertThat(connector.getStatistics().count(ServerQuery.BASE_URL)).isEqualTo(40L);
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void should_not_execute_requests_once_closed() {
+    httpServer.stubResponseBody("{}");
+    connector = new HttpClient4Connector(new Host(httpServer.url()));
+    connector.execute(new ServerQuery());
+
+    connector.close();
+    connector.execute(new ServerQuery());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void should_fail_if_no_connections() {
+    new HttpClient4Connector(new Host(httpServer.url()), 0);
+  }
+}
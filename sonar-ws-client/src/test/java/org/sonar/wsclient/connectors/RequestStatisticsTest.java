@@ -0,0 +1,71 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2013 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.wsclient.connectors;
+
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class RequestStatisticsTest {
+
+  @Test
+  public void should_add_durations_to_histograms() {
+    RequestStatistics statistics = new RequestStatistics();
+    statistics.add("/api/resources?resource=foo", 5L);
+    statistics.add("/api/resources?resource=bar", 10L);
+    statistics.add("/api/resources", 70L);
+    statistics.add("/api/server/index", 100000L);
+
+    assertThat(statistics.endpoints()).containsOnly("/api/resources", "/api/server/index");
+    assertThat(statistics.histogram("/api/resources")).isEqualTo(new long[] {2L, 0L, 1L, 0L, 0L, 0L, 0L});
+    assertThat(statistics.histogram("/api/server/index")).isEqualTo(new long[] {0L, 0L, 0L, 0L, 0L, 0L, 1L});
+    assertThat(statistics.count("/api/resources")).isEqualTo(3L);
+  }
+
+  @Test
+  public void should_return_empty_histogram_of_unknown_endpoint() {
+    RequestStatistics statistics = new RequestStatistics();
+
+    assertThat(statistics.count("/api/unknown")).isEqualTo(0L);
+    assertThat(statistics.histogram("/api/unknown")).hasSize(RequestStatistics.bucketUpperBounds().length + 1);
+  }
+
+  @Test
+  public void should_group_endpoints_over_maximum() {
+    RequestStatistics statistics = new RequestStatistics();
+    for (int i = 0; i < RequestStatistics.MAX_ENDPOINTS + 10; i++) {
+      statistics.add("/api/projects/" + i, 5L);
+    }
+    statistics.add("/api/projects/0", 5L);
+
+    assertThat(statistics.endpoints()).hasSize(RequestStatistics.MAX_ENDPOINTS + 1);
+    assertThat(statistics.count("/api/projects/0")).isEqualTo(2L);
+    assertThat(statistics.count(RequestStatistics.OTHER_ENDPOINTS)).isEqualTo(10L);
+  }
+
+  @Test
+  public void should_clear() {
+    RequestStatistics statistics = new RequestStatistics();
+    statistics.add("/api/resources", 5L);
+    statistics.clear();
+
+    assertThat(statistics.endpoints()).isEmpty();
+  }
+}
@@ -27,6 +27,8 @@ import org.sonar.wsclient.base.HttpException;
 import org.sonar.wsclient.internal.HttpRequestFactory;
 import org.sonar.wsclient.issue.*;
 
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 
 import static org.fest.assertions.Assertions.assertThat;
@@ -52,6 +54,132 @@ public class DefaultIssueClientTest {
     assertThat(issues.list().get(0).key()).isEqualTo("ABCDE");
   }
 
+  @Test
+  public void should_find_all_issues_page_after_page() {
+    HttpRequestFactory requestFactory = new HttpRequestFactory(httpServer.url());
+    stubPages();
+
+    IssueClient client = new DefaultIssueClient(requestFactory);
+    Iterable<Issue> issues = client.findAll(IssueQuery.create().statuses("OPEN").pageSize(2));
+    assertThat(httpServer.requestedPaths()).isEmpty();
+
+    assertThat(keys(issues)).containsExactly("ABCDE", "FGHIJ", "KLMNO");
+    assertThat(httpServer.requestedPaths()).hasSize(2);
+    assertThat(httpServer.requestedPaths().get(0)).contains("pageIndex=1").contains("pageSize=2").contains("statuses=OPEN");
+    assertThat(httpServer.requestedPaths().get(1)).contains("pageIndex=2");
+  }
+
+  @Test
+  public void should_prefetch_next_page() {
+    HttpRequestFactory requestFactory = new HttpRequestFactory(httpServer.url());
+    stubPages();
+
+    IssueClient client = new DefaultIssueClient(requestFactory);
+    Iterable<Issue> issues = client.findAll(IssueQuery.create().pageSize(2), true);
+
+    assertThat(keys(issues)).containsExactly("ABCDE", "FGHIJ", "KLMNO");
+    assertThat(httpServer.requestedPaths()).hasSize(2);
+  }
+
+  @Test
+  public void should_find_all_issues_of_empty_page() {
+    HttpRequestFactory requestFactory = new HttpRequestFactory(httpServer.url());
+    httpServer.stubResponseBody("{\"issues\": [], \"paging\": {\"pageIndex\": 1, \"pageSize\": 100, \"total\": 0, \"pages\": 0}}");
+
+    IssueClient client = new DefaultIssueClient(requestFactory);
+
+    assertThat(client.findAll(IssueQuery.create()).iterator().hasNext()).isFalse();
+    assertThat(httpServer.requestedPaths()).hasSize(1);
+  }
+
+  @Test
+  public void should_fail_to_find_all_issues() {
+    HttpRequestFactory requestFactory = new HttpRequestFactory(httpServer.url());
+    httpServer.stubStatusCode(500);
+
+    IssueClient client = new DefaultIssueClient(requestFactory);
+    try {
+      client.findAll(IssueQuery.create()).iterator().hasNext();
+      fail();
+    } catch (HttpException e) {
+      assertThat(e.status()).isEqualTo(500);
+    }
+  }
+
+  @Test
+  public void should_find_all_issues_beyond_max_results() {
+    HttpRequestFactory requestFactory = new HttpRequestFactory(httpServer.url());
+    httpServer.stubResponseBodies(
+      "{\"maxResultsReached\": true, \"issues\": [" + issue("ABCDE", "10:00:00") + ", " + issue("FGHIJ", "10:00:01") + ", " + issue("KLMNO", "10:00:02") + "], " +
+        "\"paging\": {\"pageIndex\": 1, \"pageSize\": 3, \"total\": 3, \"pages\": 1}}",
+      // issues created after 10:00:01
+      "{\"maxResultsReached\": false, \"issues\": [" + issue("KLMNO", "10:00:02") + ", " + issue("PQRST", "10:00:03") + "], " +
+        "\"paging\": {\"pageIndex\": 1, \"pageSize\": 3, \"total\": 2, \"pages\": 1}}");
+
+    IssueClient client = new DefaultIssueClient(requestFactory);
+    Iterable<Issue> issues = client.findAll(IssueQuery.create().pageSize(3));
+
+    assertThat(keys(issues)).containsExactly("ABCDE", "FGHIJ", "KLMNO", "PQRST");
+    assertThat(httpServer.requestedPaths()).hasSize(2);
+    assertThat(httpServer.requestedPaths().get(0)).contains("sort=CREATION_DATE").contains("asc=true").excludes("createdAfter");
+    assertThat(httpServer.requestedPaths().get(1)).contains("sort=CREATION_DATE").contains("pageIndex=1").contains("createdAfter=");
+  }
+
+  @Test
+  public void should_fail_to_find_all_issues_beyond_max_results_if_not_sorted_by_creation_date() {
+    HttpRequestFactory requestFactory = new HttpRequestFactory(httpServer.url());
+    httpServer.stubResponseBody("{\"maxResultsReached\": true, \"issues\": [" + issue("ABCDE", "10:00:00") + "], " +
+      "\"paging\": {\"pageIndex\": 1, \"pageSize\": 1, \"total\": 1, \"pages\": 1}}");
+
+    IssueClient client = new DefaultIssueClient(requestFactory);
+    Iterator<Issue> issues = client.findAll(IssueQuery.create().sort("SEVERITY").asc(true)).iterator();
+    assertThat(issues.next().key()).isEqualTo("ABCDE");
+    try {
+      issues.hasNext();
+      fail();
+    } catch (IllegalStateException e) {
+      assertThat(e.getMessage()).contains("sorted by ascending creation date");
+    }
+  }
+
+  @Test
+  public void should_fail_to_find_all_issues_beyond_max_results_if_created_at_the_same_date() {
+    HttpRequestFactory requestFactory = new HttpRequestFactory(httpServer.url());
+    httpServer.stubResponseBody("{\"maxResultsReached\": true, \"issues\": [" + issue("ABCDE", "10:00:00") + ", " + issue("FGHIJ", "10:00:00") + "], " +
+      "\"paging\": {\"pageIndex\": 1, \"pageSize\": 2, \"total\": 2, \"pages\": 1}}");
+
+    IssueClient client = new DefaultIssueClient(requestFactory);
+    Iterator<Issue> issues = client.findAll(IssueQuery.create().pageSize(2)).iterator();
+    issues.next();
+    issues.next();
+    try {
+      issues.hasNext();
+      fail();
+    } catch (IllegalStateException e) {
+      assertThat(e.getMessage()).contains("Too many issues created at");
+      assertThat(httpServer.requestedPaths()).hasSize(2);
+    }
+  }
+
+  private static String issue(String key, String creationTime) {
+    return "{\"key\": \"" + key + "\", \"creationDate\": \"2013-05-18T" + creationTime + "+0000\"}";
+  }
+
+  private void stubPages() {
+    httpServer.stubResponseBodies(
+      "{\"issues\": [{\"key\": \"ABCDE\"}, {\"key\": \"FGHIJ\"}], \"rules\": [{\"key\": \"squid:S001\"}], " +
+        "\"paging\": {\"pageIndex\": 1, \"pageSize\": 2, \"total\": 3, \"pages\": 2}}",
+      "{\"issues\": [{\"key\": \"KLMNO\"}], \"paging\": {\"pageIndex\": 2, \"pageSize\": 2, \"total\": 3, \"pages\": 2}}");
+  }
+
+  private static List<String> keys(Iterable<Issue> issues) {
+    List<String> keys = new ArrayList<String>();
+    for (Issue issue : issues) {
+      keys.add(issue.key());
+    }
+    return keys;
+  }
+
   @Test
   public void should_fail_to_find_issues() {
     HttpRequestFactory requestFactory = new HttpRequestFactory(httpServer.url());
@@ -0,0 +1,82 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2013 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.wsclient.issue.internal;
+
+import org.json.simple.parser.JSONParser;
+import org.junit.Test;
+import org.sonar.wsclient.issue.Issue;
+
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class IssuesPageHandlerTest {
+
+  @Test
+  public void should_load_issues_and_paging() throws Exception {
+    IssuesPageHandler page = parse("search.json");
+
+    List<Issue> issues = page.issues();
+    assertThat(issues).hasSize(2);
+    Issue first = issues.get(0);
+    assertThat(first.key()).isEqualTo("ABCDE");
+    assertThat(first.line()).isEqualTo(10);
+    assertThat(first.effortToFix()).isEqualTo(4.2);
+    assertThat(first.creationDate()).isNotNull();
+    assertThat(first.attribute("JIRA")).isEqualTo("FOO-1234");
+    assertThat(issues.get(1).key()).isEqualTo("FGHIJ");
+
+    assertThat(page.paging().pageIndex()).isEqualTo(1);
+    assertThat(page.paging().pageSize()).isEqualTo(100);
+    assertThat(page.paging().total()).isEqualTo(2);
+    assertThat(page.paging().pages()).isEqualTo(1);
+    assertThat(page.maxResultsReached()).isTrue();
+  }
+
+  @Test
+  public void should_load_nested_arrays_of_issues() throws Exception {
+    IssuesPageHandler page = parse("issue-with-comments.json");
+
+    assertThat(page.issues()).hasSize(1);
+    assertThat(page.issues().get(0).comments()).hasSize(2);
+    assertThat(page.issues().get(0).comments().get(1).login()).isEqualTo("arthur");
+  }
+
+  @Test
+  public void should_support_empty_response() throws Exception {
+    IssuesPageHandler page = parse("empty.json");
+
+    assertThat(page.issues()).isEmpty();
+    assertThat(page.maxResultsReached()).isFalse();
+  }
+
+  private IssuesPageHandler parse(String file) throws Exception {
+    IssuesPageHandler page = new IssuesPageHandler();
+    Reader reader = new InputStreamReader(getClass().getResourceAsStream("/org/sonar/wsclient/issue/internal/IssueJsonParserTest/" + file), "UTF-8");
+    try {
+      new JSONParser().parse(reader, page);
+    } finally {
+      reader.close();
+    }
+    return page;
+  }
+}